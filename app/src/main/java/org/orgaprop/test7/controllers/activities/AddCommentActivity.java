@@ -5,7 +5,6 @@ import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.graphics.Bitmap;
 import android.os.Bundle;
-import android.os.Looper;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.util.Size;
@@ -18,10 +17,13 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import org.orgaprop.test7.R;
+import org.orgaprop.test7.services.executors.AppExecutors;
 import org.orgaprop.test7.utils.AndyUtils;
+import org.orgaprop.test7.utils.BlobStore;
+import org.orgaprop.test7.utils.ImagePipeline;
 import org.orgaprop.test7.utils.UploadImage;
 
-import java.util.concurrent.Executors;
+import java.io.IOException;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -81,7 +83,7 @@ public class AddCommentActivity extends AppCompatActivity {
 
             if( !MakeCtrlActivity.fiche.getZone(cibleZone).getElement(cibleElement).getCriter(cibleCriter).getCaptureUri().isEmpty() ) {
                 Size size = new Size(640, 480);
-                Bitmap bitmap = AndyUtils.StringToBitMap(MakeCtrlActivity.fiche.getZone(cibleZone).getElement(cibleElement).getCriter(cibleCriter).getCaptureUri());
+                Bitmap bitmap = BlobStore.getInstance(AddCommentActivity.this).decodeBitmap(MakeCtrlActivity.fiche.getZone(cibleZone).getElement(cibleElement).getCriter(cibleCriter).getCaptureUri());
 
                 if( bitmap != null ) {
                     mView.setImageBitmap(bitmap);
@@ -145,14 +147,19 @@ public class AddCommentActivity extends AppCompatActivity {
 //********* PRIVATE FUNCTIONS
 
     private void uploadPicture() {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
+        AppExecutors.io().execute(() -> {
             //Log.e(TAG, "uploadPicture::START");
 
-            imgAttach = (int)(System.currentTimeMillis()/1000) + ".png";
+            imgAttach = ImagePipeline.fileName(String.valueOf((int)(System.currentTimeMillis()/1000)), UploadImage.UPLOAD_IMAGE_TYPE_CAPTURE);
+
+            String image;
 
-            String image = AndyUtils.bitmapToString(bitmap);// AndyUtils.putBitmapToGallery(AddCommentActivity.this, bitmap, imgAttach);
+            try {
+                image = BlobStore.getInstance(AddCommentActivity.this).put(bitmap);
+            } catch (IOException e) {
+                e.printStackTrace();
+                image = AndyUtils.bitmapToString(bitmap);
+            }
 
             /*if( AndyUtils.isNetworkAcceptable(AddCommentActivity.this) ) {
                 new UploadImage(AddCommentActivity.this, bitmap, imgAttach, UploadImage.UPLOAD_IMAGE_TYPE_CAPTURE);
@@ -168,8 +175,6 @@ public class AddCommentActivity extends AppCompatActivity {
             MakeCtrlActivity.fiche.getZone(cibleZone).getElement(cibleElement).getCriter(cibleCriter).setCaptureUri(image);
 
             //Log.e(TAG, "uploadPicture::END");
-
-            Looper.loop();
         });
     }
     private void takePicture() {
@@ -24,6 +24,7 @@ import org.json.JSONObject;
 import org.orgaprop.test7.R;
 import org.orgaprop.test7.databinding.ActivityAddPlanActionBinding;
 import org.orgaprop.test7.services.HttpTask;
+import org.orgaprop.test7.services.ResidencePrefetcher;
 
 import java.util.Calendar;
 import java.util.Objects;
@@ -172,6 +173,8 @@ public class AddPlanActionActivity extends AppCompatActivity {
 
         HttpTask task = new HttpTask(AddPlanActionActivity.this);
 
+        ResidencePrefetcher.getInstance(AddPlanActionActivity.this).invalidatePlan(idRsd);
+
         return task.executeHttpTask(HttpTask.HTTP_TASK_ACT_PROP, HttpTask.HTTP_TASK_CBL_PLAN_ACTIONS, strGet, strPost);
     }
 
@@ -206,6 +209,8 @@ public class AddPlanActionActivity extends AppCompatActivity {
                 finish();
             }
         } else {
+            ResidencePrefetcher.getInstance(AddPlanActionActivity.this).invalidatePlan(idRsd);
+
             HttpTask task = new HttpTask(AddPlanActionActivity.this, HttpTask.HTTP_TASK_ACT_VALID_PLAN, idRsd, "plan="+idPlanAction+"&typ=p", "mbr=" + MainActivity.idMbr);
             task.execute(MainActivity.ACCESS_CODE);
 
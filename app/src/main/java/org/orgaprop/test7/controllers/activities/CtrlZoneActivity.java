@@ -1,7 +1,6 @@
 package org.orgaprop.test7.controllers.activities;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.ActivityInfo;
 import android.os.Bundle;
 import android.util.Log;
@@ -21,9 +20,6 @@ import androidx.core.content.ContextCompat;
 import org.orgaprop.test7.R;
 import org.orgaprop.test7.models.CellCriterCtrlModel;
 import org.orgaprop.test7.models.CellElmtCtrlModel;
-import org.orgaprop.test7.models.NoteModel;
-
-import java.util.Objects;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -32,7 +28,6 @@ public class CtrlZoneActivity extends AppCompatActivity {
 
 //********* PRIVATE VARIABLES
 
-    private SharedPreferences preferences;
     private int position;
 
 //********* STATIC VARIABLES
@@ -76,8 +71,6 @@ public class CtrlZoneActivity extends AppCompatActivity {
 
         ButterKnife.bind(this);
 
-        preferences = getSharedPreferences(MainActivity.PREF_NAME_APPLI, MODE_PRIVATE);
-
         Intent intent = getIntent();
         //String text = intent.getStringExtra(CTRL_ZONE_ACTIVITY_TITLE);
 
@@ -151,10 +144,8 @@ public class CtrlZoneActivity extends AppCompatActivity {
             TextView noteElement = (TextView) viewElement.findViewById(R.id.element_item_note_txt);
             LinearLayout gridCriters = (LinearLayout) viewElement.findViewById(R.id.element_item_grill_lyt);
 
-            NoteModel note = element.note();
-            int calc = (note.max > 0) ? (int)((note.note * 100) / note.max) : -1;
-            if( calc > 100 ) calc = 100;
-            String strNote = (note.max > 0) ? calc+" %" : getResources().getString(R.string.txt_so);
+            int calc = MakeCtrlActivity.scores.getElementPercent(position, element.getPosition());
+            String strNote = (calc >= 0) ? calc+" %" : getResources().getString(R.string.txt_so);
 
             //Log.e(TAG, functionName+"strNote => "+strNote);
 
@@ -163,8 +154,8 @@ public class CtrlZoneActivity extends AppCompatActivity {
             noteElement.setTag(element.getId());
 
             if( calc >= 0 ) {
-                int max = Integer.parseInt(Objects.requireNonNull(preferences.getString(MainActivity.PREF_KEY_LIMIT_TOP, "-1")));
-                int min = Integer.parseInt(Objects.requireNonNull(preferences.getString(MainActivity.PREF_KEY_LIMIT_DOWN, "-1")));
+                int max = MakeCtrlActivity.scores.getLimitTop();
+                int min = MakeCtrlActivity.scores.getLimitDown();
 
                 if( max >= 0 && min >= 0 ) {
                     if (calc < min) {
@@ -277,9 +268,9 @@ public class CtrlZoneActivity extends AppCompatActivity {
     private void updateView(CellElmtCtrlModel element) {
         String functionName="updateView::";
         TextView noteElement = findViewById(R.id.ctrl_zone_activity_grill_list).findViewWithTag(element.getId());
-        NoteModel note = element.note();
-        int calc = (note.max > 0) ? (int)((note.note * 100) / note.max) : -1;
-        if( calc > 100 ) calc = 100;
+        MakeCtrlActivity.scores.onElementChanged(position, element.getPosition());
+
+        int calc = MakeCtrlActivity.scores.getElementPercent(position, element.getPosition());
         String mess = (calc < 0) ? "SO" : calc + " %";
 
         //Log.e(TAG, functionName+"element => "+element.getText());
@@ -288,8 +279,8 @@ public class CtrlZoneActivity extends AppCompatActivity {
         noteElement.setText(mess);
 
         if( calc >= 0 ) {
-            int max = Integer.parseInt(Objects.requireNonNull(preferences.getString(MainActivity.PREF_KEY_LIMIT_TOP, "-1")));
-            int min = Integer.parseInt(Objects.requireNonNull(preferences.getString(MainActivity.PREF_KEY_LIMIT_DOWN, "-1")));
+            int max = MakeCtrlActivity.scores.getLimitTop();
+            int min = MakeCtrlActivity.scores.getLimitDown();
 
             if( max >= 0 && min >= 0 ) {
                 if (calc < min) {
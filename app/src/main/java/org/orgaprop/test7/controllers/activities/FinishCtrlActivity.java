@@ -10,11 +10,8 @@ import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.provider.CalendarContract;
 import android.util.Log;
-import android.util.Size;
 import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.Toast;
@@ -25,15 +22,26 @@ import androidx.core.app.ActivityCompat;
 
 import org.orgaprop.test7.R;
 import org.orgaprop.test7.databases.PrefDatabase;
+import org.orgaprop.test7.models.OutboxJob;
 import org.orgaprop.test7.models.Storage;
 import org.orgaprop.test7.services.CalendarServices;
 import org.orgaprop.test7.services.HttpTask;
+import org.orgaprop.test7.services.Outbox;
+import org.orgaprop.test7.services.ResidencePrefetcher;
+import org.orgaprop.test7.services.executors.AppExecutors;
 import org.orgaprop.test7.utils.AndyUtils;
+import org.orgaprop.test7.utils.BlobStore;
+import org.orgaprop.test7.utils.ImagePipeline;
+import org.orgaprop.test7.utils.ParseContent;
 import org.orgaprop.test7.utils.UploadImage;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -66,9 +74,6 @@ public class FinishCtrlActivity extends AppCompatActivity {
 
 //********* PUBLIC VARIABLES
 
-    public static boolean resultUpload;
-    public static boolean waitUpload;
-
     public static final String FINISH_ACTIVITY_RESULT = "finish";
     public static final String FINISH_ACTIVITY_TYPE_CTRL = "type";
     public static final String FINISH_ACTIVITY_PROXI = "proxi";
@@ -109,9 +114,6 @@ public class FinishCtrlActivity extends AppCompatActivity {
 
         Preferences = getSharedPreferences(MainActivity.PREF_NAME_APPLI, MODE_PRIVATE);
 
-        resultUpload = false;
-        waitUpload = false;
-
         isFinishClicked = false;
         isBusy = false;
 
@@ -250,39 +252,32 @@ public class FinishCtrlActivity extends AppCompatActivity {
     private void finishCtrl() {
         isFinishClicked = true;
 
-        if( planActIsValid ) {
-            validPlan();
-        }
-        if( !planActDate.equals("") || !planActTxt.equals("") ) {
-            addPlann();
-        }
-        if( !sig1URI.equals("") || !sig2URI.equals("") ) {
-            signCtrl();
-        }
+        // Étapes restantes et clôture partent dans le même lot : un seul aller-retour, une seule transaction
+        AppExecutors.io().execute(() -> {
+            Map<OutboxJob, Consumer<String>> steps = new LinkedHashMap<>();
 
-        if( !planActIsValid && planActDate.equals("") && planActTxt.equals("") && sig1URI.equals("") && sig2URI.equals("") ) {
-            closeCtrl();
-        } else {
-            Executors.newSingleThreadExecutor().execute(() -> {
-                Looper.prepare();
+            if( planActIsValid ) {
+                addValidPlanStep(steps);
+            }
+            if( !planActDate.equals("") && !planActTxt.equals("") ) {
+                addPlanStep(steps, planActDate, planActTxt);
+            }
+            CompletableFuture<Boolean> signed = (!sig1URI.equals("") || !sig2URI.equals(""))
+                    ? addSignStep(steps)
+                    : CompletableFuture.completedFuture(true);
 
-                if( AndyUtils.isNetworkAcceptable(FinishCtrlActivity.this) ) {
-                    String m = (!planActIsValid) ? "1" : "0";
+            signed.thenAccept(ok -> {
+                if( !ok ) {
+                    sendSteps(steps);
 
-                    m += (planActDate.equals("")) ? "1" : "0";
-                    m += (planActTxt.equals("")) ? "1" : "0";
-                    m += (sig1URI.equals("")) ? "1" : "0";
-                    m += (sig2URI.equals("")) ? "1" : "0";
+                    runOnUiThread(() -> Toast.makeText(FinishCtrlActivity.this, "La totalité des données ne sont pas encore transmises. Ré-essayez plus tard ...", Toast.LENGTH_LONG).show());
 
-                    Toast.makeText(FinishCtrlActivity.this, "La totalité des données ne sont pas encore transmises. Ré-essayez plus tard ... (code: "+m+")", Toast.LENGTH_LONG).show();
-                } else {
-                    Toast.makeText(FinishCtrlActivity.this, "Récupérez une connection et ré-essayez plus tard ...", Toast.LENGTH_LONG).show();
+                    return;
                 }
 
-                Looper.loop();
+                closeCtrl(steps);
             });
-
-        }
+        });
     }
     private void cancelFinishCtrl() {
         if( !isSigned ) {
@@ -292,43 +287,10 @@ public class FinishCtrlActivity extends AppCompatActivity {
     }
 
     private void validPlan() {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
+        Map<OutboxJob, Consumer<String>> steps = new LinkedHashMap<>();
 
-            if( AndyUtils.isNetworkAcceptable(FinishCtrlActivity.this) ) {
-                HttpTask task = new HttpTask(FinishCtrlActivity.this, HttpTask.HTTP_TASK_ACT_VALID_PLAN, MakeCtrlActivity.fiche.getId(), "dat=" + MakeCtrlActivity.fiche.getCtrl() + "&plan=" + MakeCtrlActivity.fiche.getPlanAction("id") + "&typ=c", "mbr=" + MainActivity.idMbr);
-                task.execute(MainActivity.ACCESS_CODE);
-
-                try {
-                    String result = task.get();
-
-                    if( result != null && result.equals("1") ) {
-                        MakeCtrlActivity.fiche.setPlanAction("new", Preferences.getString(MainActivity.PREF_KEY_CURRENT_DATE, ""), Preferences.getString(MainActivity.PREF_KEY_PLAN_ACTION, ""));
-                        planActIsValid = false;
-                    } else if( result != null ) {
-                        planActIsValid = true;
-                        Toast.makeText(FinishCtrlActivity.this, result.substring(1), Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(FinishCtrlActivity.this, getResources().getString(R.string.mess_timeout), Toast.LENGTH_SHORT).show();
-                    }
-
-                    showWait(false);
-                } catch (InterruptedException | ExecutionException e) {
-                    planActIsValid = true;
-                    e.printStackTrace();
-                }
-            } else {
-                Storage storage = PrefDatabase.getInstance(FinishCtrlActivity.this).mStorageDao().getStorageRsd(Integer.parseInt(MakeCtrlActivity.fiche.getId())).getValue();
-
-                if( storage != null ) {
-                    storage.setPlan_validate(true);
-
-                    AndyUtils.ProtectResidence(FinishCtrlActivity.this, storage);
-                }
-            }
-
-            Looper.loop();
-        });
+        addValidPlanStep(steps);
+        sendSteps(steps);
     }
     private void addPlann() {
         String functionName = "addPlann::";
@@ -336,53 +298,11 @@ public class FinishCtrlActivity extends AppCompatActivity {
         String txt = planActTxt;
 
         if( !date.equals("") && !txt.equals("") ) {
-            Executors.newSingleThreadExecutor().execute(() -> {
-                Looper.prepare();
-
-                if( AndyUtils.isNetworkAcceptable(FinishCtrlActivity.this) ) {
-                    String post = "mbr=" + MainActivity.idMbr;
-
-                    MakeCtrlActivity.fiche.setPlanAction(date, txt);
-
-                    post += "&id=" + MakeCtrlActivity.fiche.getPlanAction("id").trim();
-                    post += "&dat=" + MakeCtrlActivity.fiche.getCtrl();
-                    post += "&lim=" + date;
-                    post += "&txt=" + txt;
-
-                    HttpTask task = new HttpTask(FinishCtrlActivity.this, HttpTask.HTTP_TASK_ACT_PLAN, MakeCtrlActivity.fiche.getId(), "", post);
-                    task.execute(MainActivity.ACCESS_CODE);
-
-                    try {
-                        String result = task.get();
-
-                        if( result != null && result.startsWith("1") ) {
-                            MakeCtrlActivity.fiche.setIdPlanAct(result.substring(1));
-
-                            planActDate = "";
-                            planActTxt = "";
-                        } else if( result != null ) {
-                            Toast.makeText(FinishCtrlActivity.this, result.substring(1), Toast.LENGTH_SHORT).show();
-                        } else {
-                            Toast.makeText(FinishCtrlActivity.this, getResources().getString(R.string.mess_timeout), Toast.LENGTH_SHORT).show();
-                        }
-
-                        showWait(false);
-                    } catch (InterruptedException | ExecutionException e) {
-                        e.printStackTrace();
-                    }
-                } else {
-                    Storage storage = PrefDatabase.getInstance(FinishCtrlActivity.this).mStorageDao().getStorageRsd(Integer.parseInt(MakeCtrlActivity.fiche.getId())).getValue();
+            AppExecutors.io().execute(() -> {
+                Map<OutboxJob, Consumer<String>> steps = new LinkedHashMap<>();
 
-                    if( storage != null ) {
-                        storage.setPlan_end(Integer.parseInt(date));
-                        storage.setPlan_content(txt);
-                        storage.setPlan_validate(false);
-
-                        AndyUtils.ProtectResidence(FinishCtrlActivity.this, storage);
-                    }
-                }
-
-                Looper.loop();
+                addPlanStep(steps, date, txt);
+                sendSteps(steps);
             });
 
         }
@@ -391,9 +311,7 @@ public class FinishCtrlActivity extends AppCompatActivity {
         String functionName = "addAlert::";
 
         if( (ActivityCompat.checkSelfPermission(FinishCtrlActivity.this, Manifest.permission.READ_CALENDAR) == PackageManager.PERMISSION_GRANTED) ) {
-            Executors.newSingleThreadExecutor().execute(() -> {
-                Looper.prepare();
-
+            AppExecutors.io().execute(() -> {
                 //Log.e(TAG, functionName+"::addAlert => "+planActDate+" => "+planActTxt);
 
                 //ContentResolver cr = getContentResolver();
@@ -450,112 +368,190 @@ public class FinishCtrlActivity extends AppCompatActivity {
                     //startActivity(calendarIntent);
                     startActivity(Intent.createChooser(intent, "Choisir le calendrier"));
                 } catch (ActivityNotFoundException e) {
-                    Toast.makeText(FinishCtrlActivity.this, "Aucune application pour poser un rappel", Toast.LENGTH_SHORT).show();
+                    runOnUiThread(() -> Toast.makeText(FinishCtrlActivity.this, "Aucune application pour poser un rappel", Toast.LENGTH_SHORT).show());
                 }
-
-                Looper.loop();
             });
         } else {
             Toast.makeText(FinishCtrlActivity.this, "Pas d'autorisation pour poser un rappel !!!", Toast.LENGTH_LONG).show();
         }
     }
     private void signCtrl() {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
+        AppExecutors.io().execute(() -> {
+            Map<OutboxJob, Consumer<String>> steps = new LinkedHashMap<>();
+
+            addSignStep(steps).thenAccept(signed -> {
+                if( signed && isFinishClicked ) {
+                    closeCtrl(steps);
+                } else {
+                    sendSteps(steps);
+                }
+            });
+        });
+    }
+    /**
+     * Ajoute l'envoi du rapport aux étapes en cours, les transmet ensemble puis ferme l'activité.
+     */
+    private void closeCtrl(Map<OutboxJob, Consumer<String>> steps) {
+        if( Integer.parseInt(noteCtrl) < Integer.parseInt(Objects.requireNonNull(Preferences.getString(MainActivity.PREF_KEY_LIM_RAPPORT, "100"))) ) {
+            String strGet = "src=" + ((!proxi && contrat) ? "contra" : "standar");
+            String strPost = "mbr=" + MainActivity.idMbr + "&typ=ctrl&dest=silence";
+            String idCtrl = MakeCtrlActivity.fiche.getId() + "a" + MakeCtrlActivity.fiche.getCtrl();
 
-            String image1 = "";
-            String image2 = "";
+            steps.put(newJob(HttpTask.HTTP_TASK_ACT_SEND + ":" + idCtrl, HttpTask.HTTP_TASK_ACT_SEND, idCtrl, strGet, strPost), null);
+        }
 
-            String functionName = "signCtrl::";
+        sendSteps(steps);
 
-            if( !sig1URI.equals("") && !sig1URI.isEmpty() && (sig1URI.trim().length() > 0) ) {
-                try {
-                    Size size = new Size(640, 640);
-                    Bitmap bitmap1 = AndyUtils.StringToBitMap(sig1URI);// AndyUtils.getBitmapFromGallery(FinishCtrlActivity.this, sig1URI, size);
+        FinishCtrlActivity.this.runOnUiThread(() -> {
+            setResult(FINISH_ACTIVITY_RESULT_OK);
+            finish();
+        });
+    }
 
-                    if (bitmap1 != null) {
-                        image1 = (System.currentTimeMillis() / 1000) + ".png";
+    private void addValidPlanStep(Map<OutboxJob, Consumer<String>> steps) {
+        String idRsd = MakeCtrlActivity.fiche.getId();
+        String get = "dat=" + MakeCtrlActivity.fiche.getCtrl() + "&plan=" + MakeCtrlActivity.fiche.getPlanAction("id") + "&typ=c";
 
-                        waitUpload = true;
+        ResidencePrefetcher.getInstance(FinishCtrlActivity.this).invalidatePlan(idRsd);
+
+        steps.put(newJob(HttpTask.HTTP_TASK_ACT_VALID_PLAN + ":" + idRsd + ":" + MakeCtrlActivity.fiche.getCtrl(), HttpTask.HTTP_TASK_ACT_VALID_PLAN, idRsd, get, "mbr=" + MainActivity.idMbr), result -> {
+            if( result != null && result.equals("1") ) {
+                MakeCtrlActivity.fiche.setPlanAction("new", Preferences.getString(MainActivity.PREF_KEY_CURRENT_DATE, ""), Preferences.getString(MainActivity.PREF_KEY_PLAN_ACTION, ""));
+            } else if( result != null ) {
+                planActIsValid = true;
+                Toast.makeText(FinishCtrlActivity.this, result.substring(1), Toast.LENGTH_SHORT).show();
+            }
+        });
 
-                        new UploadImage(FinishCtrlActivity.this, bitmap1, image1, UploadImage.UPLOAD_IMAGE_TYPE_SIGNATURE_CTRL);
+        // Le job est durable : la validation est considérée transmise
+        planActIsValid = false;
+    }
+    private void addPlanStep(Map<OutboxJob, Consumer<String>> steps, String date, String txt) {
+        String idRsd = MakeCtrlActivity.fiche.getId();
+        String post = "mbr=" + MainActivity.idMbr;
 
-                        if( !sig2URI.equals("") && !sig2URI.isEmpty() && (sig2URI.trim().length() > 0) ) {
-                            Bitmap bitmap2 = AndyUtils.StringToBitMap(sig2URI);// AndyUtils.getBitmapFromGallery(FinishCtrlActivity.this, sig2URI, size);
+        MakeCtrlActivity.fiche.setPlanAction(date, txt);
 
-                            if (bitmap2 != null) {
-                                image2 = "_" + (System.currentTimeMillis() / 1000) + ".png";
+        post += "&id=" + MakeCtrlActivity.fiche.getPlanAction("id").trim();
+        post += "&dat=" + MakeCtrlActivity.fiche.getCtrl();
+        post += "&lim=" + date;
+        post += "&txt=" + txt;
 
-                                waitUpload = true;
+        ResidencePrefetcher.getInstance(FinishCtrlActivity.this).invalidatePlan(idRsd);
 
-                                new UploadImage(FinishCtrlActivity.this, bitmap2, image2, UploadImage.UPLOAD_IMAGE_TYPE_SIGNATURE_AGT);
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+        steps.put(newJob(HttpTask.HTTP_TASK_ACT_PLAN + ":" + idRsd + ":" + MakeCtrlActivity.fiche.getCtrl(), HttpTask.HTTP_TASK_ACT_PLAN, idRsd, "", post), result -> {
+            if( result != null && result.startsWith("1") ) {
+                MakeCtrlActivity.fiche.setIdPlanAct(result.substring(1));
+            } else if( result != null ) {
+                Toast.makeText(FinishCtrlActivity.this, result.substring(1), Toast.LENGTH_SHORT).show();
             }
+        });
 
-            while( waitUpload ) {
-                (new Handler()).postDelayed(null, 1000);
+        planActDate = "";
+        planActTxt = "";
+    }
+    /**
+     * Transmet les signatures puis ajoute l'étape de signature une fois les deux envois
+     * terminés. A appeler hors du thread UI.
+     *
+     * @return complété avec false si les images n'ont pas pu être transmises : la résidence
+     * est protégée avec ses signatures pour un envoi ultérieur
+     */
+    private CompletableFuture<Boolean> addSignStep(Map<OutboxJob, Consumer<String>> steps) {
+        String sig1 = sig1URI;
+        String sig2 = sig2URI;
+        String agt = sig2Agt;
+        Bitmap bitmap1 = null;
+        Bitmap bitmap2 = null;
+
+        try {
+            if( !sig1.trim().isEmpty() ) {
+                bitmap1 = BlobStore.getInstance(FinishCtrlActivity.this).decodeBitmap(sig1);
+
+                if( bitmap1 != null && !sig2.trim().isEmpty() ) {
+                    bitmap2 = BlobStore.getInstance(FinishCtrlActivity.this).decodeBitmap(sig2);
+                }
             }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
 
-            if( resultUpload && AndyUtils.isNetworkAcceptable(FinishCtrlActivity.this) ) {
-                String strGet = "dat=" + MakeCtrlActivity.fiche.getCtrl() + "&sig1=" + image1 + "&sig2=" + image2 + "&agt=" + sig2Agt;
-                HttpTask task = new HttpTask(FinishCtrlActivity.this, HttpTask.HTTP_TASK_ACT_SIGNATURE, MakeCtrlActivity.fiche.getId(), strGet, "mbr=" + MainActivity.idMbr);
-
-                task.execute(MainActivity.ACCESS_CODE);
+        String image1 = (bitmap1 != null) ? ImagePipeline.fileName(String.valueOf(System.currentTimeMillis() / 1000), UploadImage.UPLOAD_IMAGE_TYPE_SIGNATURE_CTRL) : "";
+        String image2 = (bitmap2 != null) ? ImagePipeline.fileName("_" + (System.currentTimeMillis() / 1000), UploadImage.UPLOAD_IMAGE_TYPE_SIGNATURE_AGT) : "";
+        CompletableFuture<Boolean> uploaded = CompletableFuture.completedFuture(false);
 
-                try {
-                    String result = task.get();
+        if( bitmap1 != null ) {
+            CompletableFuture<Boolean> upload1 = isUploaded(new UploadImage(FinishCtrlActivity.this, bitmap1, image1, UploadImage.UPLOAD_IMAGE_TYPE_SIGNATURE_CTRL));
+            CompletableFuture<Boolean> upload2 = (bitmap2 != null)
+                    ? isUploaded(new UploadImage(FinishCtrlActivity.this, bitmap2, image2, UploadImage.UPLOAD_IMAGE_TYPE_SIGNATURE_AGT))
+                    : CompletableFuture.completedFuture(true);
 
-                    if( result != null && result.equals("1") ) {
-                        sig1URI = "";
-                        sig2URI = "";
+            uploaded = upload1.thenCompose(ok1 -> upload2.thenApply(ok2 -> ok1 && ok2));
+        }
 
-                        Toast.makeText(FinishCtrlActivity.this, "Contrôle signé", Toast.LENGTH_SHORT).show();
+        sig1URI = "";
+        sig2URI = "";
 
-                        if( isFinishClicked ) {
-                            closeCtrl();
-                        }
-                    } else if( result != null ) {
-                        Toast.makeText(FinishCtrlActivity.this, result.substring(1), Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(FinishCtrlActivity.this, getResources().getString(R.string.mess_timeout), Toast.LENGTH_SHORT).show();
-                    }
+        return uploaded.thenApplyAsync(ok -> {
+            String idRsd = MakeCtrlActivity.fiche.getId();
 
-                    showWait(false);
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
-                }
-            } else {
-                Storage storage = PrefDatabase.getInstance(FinishCtrlActivity.this).mStorageDao().getStorageRsd(Integer.parseInt(MakeCtrlActivity.fiche.getId())).getValue();
+            if( !ok ) {
+                Storage storage = PrefDatabase.getInstance(FinishCtrlActivity.this).mStorageDao().getStorageRsd(Integer.parseInt(idRsd)).getValue();
 
                 if( storage != null ) {
-                    storage.setCtrl_sig1(sig1URI);
-                    storage.setCtrl_sig2(sig2URI);
-                    storage.setCtrl_sig(sig2Agt);
+                    storage.setCtrl_sig1(sig1);
+                    storage.setCtrl_sig2(sig2);
+                    storage.setCtrl_sig(agt);
 
                     AndyUtils.ProtectResidence(FinishCtrlActivity.this, storage);
                 }
+
+                return false;
             }
 
-            Looper.loop();
-        });
-    }
-    private void closeCtrl() {
-        if( Integer.parseInt(noteCtrl) < Integer.parseInt(Objects.requireNonNull(Preferences.getString(MainActivity.PREF_KEY_LIM_RAPPORT, "100"))) ) {
-            String strGet = "src=" + ((!proxi && contrat) ? "contra" : "standar");
-            String strPost = "mbr=" + MainActivity.idMbr + "&typ=ctrl&dest=silence";
+            String strGet = "dat=" + MakeCtrlActivity.fiche.getCtrl() + "&sig1=" + image1 + "&sig2=" + image2 + "&agt=" + agt;
 
-            HttpTask task = new HttpTask(FinishCtrlActivity.this, HttpTask.HTTP_TASK_ACT_SEND, MakeCtrlActivity.fiche.getId()+"a"+MakeCtrlActivity.fiche.getCtrl(), strGet, strPost);
+            steps.put(newJob(HttpTask.HTTP_TASK_ACT_SIGNATURE + ":" + idRsd + ":" + MakeCtrlActivity.fiche.getCtrl(), HttpTask.HTTP_TASK_ACT_SIGNATURE, idRsd, strGet, "mbr=" + MainActivity.idMbr), result -> {
+                if( result != null && result.equals("1") ) {
+                    Toast.makeText(FinishCtrlActivity.this, "Contrôle signé", Toast.LENGTH_SHORT).show();
+                } else if( result != null ) {
+                    Toast.makeText(FinishCtrlActivity.this, result.substring(1), Toast.LENGTH_SHORT).show();
+                }
+            });
+
+            return true;
+        }, AppExecutors.io());
+    }
+    private CompletableFuture<Boolean> isUploaded(UploadImage upload) {
+        ParseContent parseContent = new ParseContent(FinishCtrlActivity.this);
 
-            task.execute(MainActivity.ACCESS_CODE);
+        return upload.getUpload().handle((result, e) -> e == null && parseContent.isSuccess(result));
+    }
+    /**
+     * Enregistre les étapes dans l'Outbox en un seul lot ; chaque résultat est remis à son
+     * traitement sur le thread UI.
+     */
+    private void sendSteps(Map<OutboxJob, Consumer<String>> steps) {
+        if( steps.isEmpty() ) {
+            return;
         }
 
-        setResult(FINISH_ACTIVITY_RESULT_OK);
-        finish();
+        List<OutboxJob> jobs = new ArrayList<>(steps.keySet());
+        List<CompletableFuture<String>> results = Outbox.getInstance(FinishCtrlActivity.this).enqueueAll(jobs);
+
+        for( int i = 0; i < jobs.size(); i++ ) {
+            Consumer<String> onResult = steps.get(jobs.get(i));
+
+            if( onResult != null ) {
+                results.get(i).thenAccept(result -> FinishCtrlActivity.this.runOnUiThread(() -> {
+                    onResult.accept(result);
+                    showWait(false);
+                }));
+            }
+        }
+    }
+    private OutboxJob newJob(String key, String act, String cbl, String get, String post) {
+        return new OutboxJob(key, Integer.parseInt(MakeCtrlActivity.fiche.getId()), act, cbl, get, post);
     }
 
     private void showWait(Boolean b) {
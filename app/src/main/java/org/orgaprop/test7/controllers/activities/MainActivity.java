@@ -21,8 +21,10 @@ import org.orgaprop.test7.controllers.activities.ui.MainActivityUIManager;
 import org.orgaprop.test7.databinding.ActivityMainBinding;
 import org.orgaprop.test7.security.crypto.CryptoProviderFactory;
 import org.orgaprop.test7.services.HttpTask;
+import org.orgaprop.test7.services.Outbox;
 import org.orgaprop.test7.services.Prefs;
 import org.orgaprop.test7.utils.AndyUtils;
+import org.orgaprop.test7.utils.UploadScheduler;
 import org.orgaprop.test7.constants.MainActivityConstants;
 import org.orgaprop.test7.security.auth.LoginManager;
 import org.orgaprop.test7.security.crypto.CryptoProvider;
@@ -374,6 +376,8 @@ public class MainActivity extends BaseActivity {
 			int version = jsonResponse.getInt("version");
 			if (version == this.version) {
 				sessionManager.initializeSession(jsonResponse);
+				Outbox.getInstance(this).drain();
+				UploadScheduler.getInstance(this).retryPending();
 
 				if (AndyUtils.hasOldCtrl(this) && AndyUtils.isNetworkAvailable(this)) {
 					Intent intent = new Intent(this, SynchronizeActivity.class);
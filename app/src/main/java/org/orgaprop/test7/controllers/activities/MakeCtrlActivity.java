@@ -25,26 +25,36 @@ import androidx.core.content.ContextCompat;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.orgaprop.test7.R;
-import org.orgaprop.test7.databases.PrefDatabase;
 import org.orgaprop.test7.models.CellCriterCtrlModel;
 import org.orgaprop.test7.models.CellElmtCtrlModel;
 import org.orgaprop.test7.models.CellZoneCtrlModel;
+import org.orgaprop.test7.models.CtrlCodec;
 import org.orgaprop.test7.models.FicheResidModel;
+import org.orgaprop.test7.models.GridSchema;
 import org.orgaprop.test7.models.ListResidModel;
-import org.orgaprop.test7.models.NoteModel;
+import org.orgaprop.test7.models.ScoreEngine;
 import org.orgaprop.test7.models.Storage;
+import org.orgaprop.test7.security.session.SessionManager;
 import org.orgaprop.test7.services.HttpTask;
+import org.orgaprop.test7.services.Outbox;
+import org.orgaprop.test7.services.ResidenceRepository;
 import org.orgaprop.test7.services.Storages;
+import org.orgaprop.test7.services.executors.AppExecutors;
 import org.orgaprop.test7.utils.AndyUtils;
+import org.orgaprop.test7.utils.BlobStore;
 import org.orgaprop.test7.utils.UploadImage;
+import org.orgaprop.test7.utils.UploadScheduler;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -70,6 +80,7 @@ public class MakeCtrlActivity extends AppCompatActivity {
     private ArrayList<String> agts;
     private JSONObject grill = new JSONObject();
     private JSONObject old = new JSONObject();
+    private CtrlCodec.Grid saved = null;
     private boolean isStorage = false;
 
     private boolean first;
@@ -95,8 +106,7 @@ public class MakeCtrlActivity extends AppCompatActivity {
     public static int position;
     public static int meteo;
     public static FicheResidModel fiche;
-    public static ArrayList<String> listCapture;
-    public static ArrayList<Bitmap> listBitmap;
+    public static ScoreEngine scores;
 
 //********* WIDGETS
 
@@ -130,8 +140,6 @@ public class MakeCtrlActivity extends AppCompatActivity {
         first = true;
         isSafe = true;
         isFinish = false;
-        listCapture = new ArrayList<>();
-        listBitmap = new ArrayList<>();
         agts = new ArrayList<>();
         notCtrl = "";
 
@@ -174,12 +182,11 @@ public class MakeCtrlActivity extends AppCompatActivity {
                 if( !agt.equals("0") ) {
                     if( agt.equals("-1") ) agt = "0";
 
-                    HttpTask task = new HttpTask(MakeCtrlActivity.this, HttpTask.HTTP_TASK_ACT_NEW_AGT, idRsd, "debugg=true&agt="+agt, "mbr=" + MainActivity.idMbr);
-                    task.execute(MainActivity.ACCESS_CODE);
-
-                    try {
-                        String result = task.get();
+                    // Une resélection du même agent pendant l'envoi rejoint la requête en cours
+                    HttpTask task = new HttpTask(MakeCtrlActivity.this);
+                    CompletableFuture<String> futureResult = task.executeHttpTask(HttpTask.HTTP_TASK_ACT_NEW_AGT, idRsd, "debugg=true&agt="+agt, "mbr=" + MainActivity.idMbr);
 
+                    futureResult.thenAccept(result -> runOnUiThread(() -> {
                         if( result != null && result.equals("1") ) {
                             Toast.makeText(MakeCtrlActivity.this, "Agent mis a jour", Toast.LENGTH_SHORT).show();
                         } else if( result != null ) {
@@ -187,9 +194,11 @@ public class MakeCtrlActivity extends AppCompatActivity {
                         } else {
                             Toast.makeText(MakeCtrlActivity.this, getResources().getString(R.string.mess_timeout), Toast.LENGTH_SHORT).show();
                         }
-                    } catch (InterruptedException | ExecutionException e) {
-                        e.printStackTrace();
-                    }
+                    })).exceptionally(ex -> {
+                        runOnUiThread(() -> Toast.makeText(MakeCtrlActivity.this, getResources().getString(R.string.mess_timeout), Toast.LENGTH_SHORT).show());
+
+                        return null;
+                    });
                 }
             }
             @Override
@@ -260,7 +269,7 @@ public class MakeCtrlActivity extends AppCompatActivity {
     }
     @Override
     public void onBackPressed() {
-        saveCtrl();
+        saveCtrl(true);
 
         if( isSafe ) {
             setResult(MAKE_CTRL_RESULT_CANCEL);
@@ -294,7 +303,7 @@ public class MakeCtrlActivity extends AppCompatActivity {
 
             finish();
         } else {
-            saveCtrl();
+            saveCtrl(true);
 
             //
             if( !notCtrl.equals("!") ) {
@@ -319,7 +328,7 @@ public class MakeCtrlActivity extends AppCompatActivity {
         }
     }
     private void finishActivity() {
-        saveCtrl();
+        saveCtrl(true);
 
         //if( isSafe ) {
         setResult(MAKE_CTRL_RESULT_CANCEL);
@@ -397,7 +406,7 @@ public class MakeCtrlActivity extends AppCompatActivity {
     }
 
     private void makeResid() {
-        ListResidModel data = SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(idRsd));
+        ListResidModel data = ResidenceRepository.getInstance().get(idRsd);
 
         mScrollView.setVisibility(View.GONE);
         mWaitGrill.setVisibility(View.VISIBLE);
@@ -622,7 +631,7 @@ public class MakeCtrlActivity extends AppCompatActivity {
         //Log.e(TAG, functionName+"START");
 
         try{
-            ListResidModel data = SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(idRsd));
+            ListResidModel data = ResidenceRepository.getInstance().get(idRsd);
 
             fiche.setId(String.valueOf(storage.getResid()))
                     .setRef(data.getRef())
@@ -697,15 +706,9 @@ public class MakeCtrlActivity extends AppCompatActivity {
 
         //Log.e(TAG, functionName+"START");
 
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
+        AppExecutors.io().execute(() -> {
             try{
-                int pos = 0;
-                JSONObject obj_proxi = SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(idRsd)).getProxi();
-                Iterator<String> keys_proxi = obj_proxi.keys();
-                JSONObject obj_contra = SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(idRsd)).getContra();
-                Iterator<String> keys_contra = obj_contra.keys();
+                JSONObject structure = ResidenceRepository.getInstance().getStructure(idRsd, proxi.equals("1") || proxi.equals("true"), contra.equals("1") || contra.equals("true"));
 
                 //Log.e(TAG, functionName+"proxi : "+proxi);
                 //Log.e(TAG, functionName+"contra : "+contra);
@@ -721,48 +724,38 @@ public class MakeCtrlActivity extends AppCompatActivity {
                         //Log.e(TAG, functionName+"use storage without network");
 
                         isStorage = true;
-                        old = new JSONObject(storage.getCtrl_ctrl());
+
+                        if( storage.getCtrl_blob() != null ) {
+                            saved = CtrlCodec.decode(storage.getCtrl_blob());
+                            old = new JSONObject();
+                        } else {
+                            saved = null;
+                            old = new JSONObject(storage.getCtrl_ctrl());
+                        }
                     } else {
                         //Log.e(TAG, functionName+"use SelectActivity without network");
 
                         isStorage = false;
-                        old = SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(idRsd)).getOldCtrl();
+                        saved = null;
+                        old = ResidenceRepository.getInstance().get(idRsd).getOldCtrl();
                     }
                 } else {
                     //Log.e(TAG, functionName+"use SelectActivity grille with network");
 
                     isStorage = false;
-                    old = SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(idRsd)).getOldCtrl();
+                    saved = null;
+                    old = ResidenceRepository.getInstance().get(idRsd).getOldCtrl();
                 }
 
-                if( proxi.equals("1") || proxi.equals("true") ) {
-                    //Log.e(TAG, functionName+"obj_proxi => "+obj_proxi);
-
-                    while( keys_proxi.hasNext() ) {
-                        String kz = obj_proxi.getString(keys_proxi.next());
+                for( Iterator<String> keys = structure.keys(); keys.hasNext(); ) {
+                    String pos = keys.next();
 
-                        //Log.e(TAG, functionName+"add "+kz+" to grill");
-
-                        grill.put(String.valueOf(pos), kz);
-                        pos++;
-                    }
-                }
-                if( contra.equals("1") || contra.equals("true") ) {
-                    //Log.e(TAG, functionName+"obj_contra => "+obj_contra);
-
-                    while( keys_contra.hasNext() ) {
-                        String kz = obj_contra.getString(keys_contra.next());
-
-                        //Log.e(TAG, functionName+"add "+kz+" to grill");
-
-                        grill.put(String.valueOf(pos), kz);
-                        pos++;
-                    }
+                    grill.put(pos, structure.getString(pos));
                 }
 
                 //Log.e(TAG, functionName+"old => "+old);
                 //Log.e(TAG, functionName+"grill => "+grill);
-            } catch (JSONException e) {
+            } catch (JSONException | IOException e) {
                 e.printStackTrace();
             } finally {
                 makeModel();
@@ -888,8 +881,6 @@ public class MakeCtrlActivity extends AppCompatActivity {
                     }
                 }
             }*/
-
-            Looper.loop();
         });
     }
 
@@ -898,119 +889,103 @@ public class MakeCtrlActivity extends AppCompatActivity {
         int positionZone = 0;
 
         //Log.e(TAG, functionName+"START");
-        //Log.e(TAG, functionName+"structure => "+MainActivity.structure);
         //Log.e(TAG, functionName+"grill => "+grill);
         //Log.e(TAG, functionName+"old => "+old);
 
         try{
-            Iterator<String> keys_zones = MainActivity.structure.keys();
+            GridSchema schema = SessionManager.getInstance(MakeCtrlActivity.this).getGridSchema();
+            Set<String> zonesGrill = new HashSet<>();
+            Iterator<String> keys_grill = grill.keys();
 
-            fiche.setCtrl(SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(idRsd)).getDate().toString());
+            fiche.setCtrl(ResidenceRepository.getInstance().get(idRsd).getDate().toString());
 
-            while( keys_zones.hasNext() ) {
-                String zone = keys_zones.next();
-                boolean inData = false;
-                Iterator<String> keys_grill = grill.keys();
-
-                //Log.e(TAG, functionName+"key_zon => "+zone);
+            while( keys_grill.hasNext() ) {
+                zonesGrill.add(grill.getString(keys_grill.next()));
+            }
 
-                while( keys_grill.hasNext() ) {
-                    String key_test = keys_grill.next();
+            for( int z = 0; z < schema.getZoneCount(); z++ ) {
+                GridSchema.Zone zone = schema.getZone(z);
 
-                    if( grill.getString(key_test).equals(zone) ) {
-                        inData = true;
-                    }
+                if( !zonesGrill.contains(zone.id) ) {
+                    continue;
                 }
 
-                if( inData ) {
-                    CellZoneCtrlModel modelZone = new CellZoneCtrlModel(positionZone);
-                    JSONObject structure_zon = MainActivity.structure.getJSONObject(zone);
-                    JSONObject structure_elm_zon = structure_zon.getJSONObject("e");
-                    Iterator<String> keys_elements = structure_elm_zon.keys();
-                    int positionElement = 0;
-
-                    //Log.e(TAG, functionName+"inData");
-                    //Log.e(TAG, functionName+"structure_zon => "+structure_zon);
-                    //Log.e(TAG, functionName+"structure_elm_zon => "+structure_elm_zon);
-
-                    modelZone.setId(zone);
-                    modelZone.setCoef(Integer.parseInt(structure_zon.getString("coef")));
-                    modelZone.setText(structure_zon.getString("txt"));
-
-                    while( keys_elements.hasNext() ) {
-                        String elm = keys_elements.next();
-                        CellElmtCtrlModel modelElement = new CellElmtCtrlModel(positionElement);
-                        JSONObject structure_elm = structure_elm_zon.getJSONObject(elm);
-                        JSONObject structure_cri_elm = structure_elm.getJSONObject("c");
-                        Iterator<String> keys_cri = structure_cri_elm.keys();
-                        int positionCritter = 0;
-
-                        //Log.e(TAG, functionName+"elm => "+elm);
-                        //Log.e(TAG, functionName+"structure_elm => "+structure_elm);
-                        //Log.e(TAG, functionName+"structure_cri_elm => "+structure_cri_elm);
-
-                        modelElement.setId(elm);
-                        modelElement.setCoef(Integer.parseInt(structure_elm.getString("coef")));
-                        modelElement.setText(structure_elm.getString("txt"));
-
-                        while( keys_cri.hasNext() ) {
-                            String cri = keys_cri.next();
-                            CellCriterCtrlModel modelCritter = new CellCriterCtrlModel(positionCritter);
-                            JSONObject structure_cri = structure_cri_elm.getJSONObject(cri);
-
-                            //Log.e(TAG, functionName+"cri => "+cri);
-                            //Log.e(TAG, functionName+"structure_cri => "+structure_cri);
-
-                            modelCritter.setId(cri);
-                            modelCritter.setText(structure_cri.getString("txt"));
-                            modelCritter.setCoef(Integer.parseInt(structure_cri.getString("coef")));
-
-                            if( old.has(zone) && old.getJSONObject(zone).has(elm) && old.getJSONObject(zone).getJSONObject(elm).has(cri) ) {
-                                //Log.e(TAG, functionName + "old => " + old.getJSONObject(zone).getJSONObject(elm).getJSONObject(cri));
-
-                                if( isStorage ) {
-                                    modelCritter.setValue(old.getJSONObject(zone).getJSONObject(elm).getJSONObject(cri).getInt("value"));
-                                    modelCritter.setComment(old.getJSONObject(zone).getJSONObject(elm).getJSONObject(cri).getString("comment"));
-                                    modelCritter.setCapture(old.getJSONObject(zone).getJSONObject(elm).getJSONObject(cri).getJSONObject("capture").getString("name"));
-                                    modelCritter.setCaptureUri(old.getJSONObject(zone).getJSONObject(elm).getJSONObject(cri).getJSONObject("capture").getString("img"));
-                                } else {
-                                    modelCritter.setValue(old.getJSONObject(zone).getJSONObject(elm).getJSONObject(cri).getInt("not"));
-                                    modelCritter.setComment(old.getJSONObject(zone).getJSONObject(elm).getJSONObject(cri).getJSONObject("com").getString("txt"));
-                                    modelCritter.setCapture(old.getJSONObject(zone).getJSONObject(elm).getJSONObject(cri).getJSONObject("com").getString("img"));
-                                    modelCritter.setCaptureUri(old.getJSONObject(zone).getJSONObject(elm).getJSONObject(cri).getJSONObject("com").getString("scr"));
-                                }
+                CellZoneCtrlModel modelZone = new CellZoneCtrlModel(positionZone, zone.id, zone.text, zone.coef);
+                JSONObject oldZone = old.optJSONObject(zone.id);
+                CtrlCodec.Zone savedZone = (saved != null) ? saved.findZone(zone.id) : null;
+
+                for( int e = 0; e < zone.getElementCount(); e++ ) {
+                    GridSchema.Element element = zone.getElement(e);
+                    CellElmtCtrlModel modelElement = new CellElmtCtrlModel(e);
+                    JSONObject oldElement = (oldZone != null) ? oldZone.optJSONObject(element.id) : null;
+                    CtrlCodec.Element savedElement = (savedZone != null) ? savedZone.findElement(element.id) : null;
+
+                    modelElement.setId(element.id);
+                    modelElement.setCoef(element.coef);
+                    modelElement.setText(element.text);
+
+                    for( int c = 0; c < element.getCriterCount(); c++ ) {
+                        GridSchema.Criter criter = element.getCriter(c);
+                        CellCriterCtrlModel modelCritter = new CellCriterCtrlModel(c);
+                        JSONObject oldCriter = (oldElement != null) ? oldElement.optJSONObject(criter.id) : null;
+                        CtrlCodec.Criter savedCriter = (savedElement != null) ? savedElement.findCriter(criter.id) : null;
+
+                        modelCritter.setId(criter.id);
+                        modelCritter.setText(criter.text);
+                        modelCritter.setCoef(criter.coef);
+
+                        if( savedCriter != null ) {
+                            modelCritter.setValue(savedCriter.value);
+                            modelCritter.setComment(savedCriter.comment);
+                            modelCritter.setCapture(savedCriter.capture);
+                            modelCritter.setCaptureUri(savedCriter.captureUri);
+                        } else if( oldCriter != null ) {
+                            if( isStorage ) {
+                                JSONObject capture = oldCriter.getJSONObject("capture");
+
+                                modelCritter.setValue(oldCriter.getInt("value"));
+                                modelCritter.setComment(oldCriter.getString("comment"));
+                                modelCritter.setCapture(capture.getString("name"));
+                                modelCritter.setCaptureUri(capture.getString("img"));
                             } else {
-                                modelCritter.setValue(0);
-                                modelCritter.setComment("");
-                                modelCritter.setCapture("");
-                                modelCritter.setCaptureUri("");
-                            }
+                                JSONObject comment = oldCriter.getJSONObject("com");
 
-                            //Log.e(TAG, functionName+"modelCritter id => "+modelCritter.getId());
-                            //Log.e(TAG, functionName+"modelCritter txt => "+modelCritter.getText());
-                            //Log.e(TAG, functionName+"modelCritter coef => "+modelCritter.getCoef());
-                            //Log.e(TAG, functionName+"modelCritter value => "+modelCritter.getValue());
-                            //Log.e(TAG, functionName+"modelCritter comment => "+modelCritter.getComment());
-                            //Log.e(TAG, functionName+"modelCritter capture => "+modelCritter.getCapture());
-
-                            modelElement.addCriter(modelCritter);
-                            positionCritter++;
+                                modelCritter.setValue(oldCriter.getInt("not"));
+                                modelCritter.setComment(comment.getString("txt"));
+                                modelCritter.setCapture(comment.getString("img"));
+                                modelCritter.setCaptureUri(comment.getString("scr"));
+                            }
+                        } else {
+                            modelCritter.setValue(0);
+                            modelCritter.setComment("");
+                            modelCritter.setCapture("");
+                            modelCritter.setCaptureUri("");
                         }
 
-                        modelZone.addElement(modelElement);
-                        positionElement++;
+                        modelElement.addCriter(modelCritter);
                     }
 
-                    fiche.addZone(modelZone);
-                    positionZone++;
+                    modelZone.addElement(modelElement);
                 }
+
+                fiche.addZone(modelZone);
+                positionZone++;
             }
         } catch (JSONException e) {
             e.printStackTrace();
         } finally {
+            makeScores();
             makeView();
         }
     }
+    private void makeScores() {
+        SharedPreferences preferences = getSharedPreferences(MainActivity.PREF_NAME_APPLI, MODE_PRIVATE);
+        int limTop = Integer.parseInt(Objects.requireNonNull(preferences.getString(MainActivity.PREF_KEY_LIMIT_TOP, "-1")));
+        int limDown = Integer.parseInt(Objects.requireNonNull(preferences.getString(MainActivity.PREF_KEY_LIMIT_DOWN, "-1")));
+
+        scores = new ScoreEngine(fiche, meteo).setLimits(limTop, limDown);
+        scores.addListener((zone, zonePercent, globalPercent) -> MakeCtrlActivity.this.runOnUiThread(this::updateZones));
+    }
     private void makeModel(String list) {
         String functionName = "makeModel1::";
         int positionZone = 0;
@@ -1153,9 +1128,9 @@ public class MakeCtrlActivity extends AppCompatActivity {
         try {
             //Iterator<String> zon_keys = data.keys();
             Iterator<String> zon_keys = MainActivity.structure.keys();
-            JSONObject old = SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(idRsd)).getOldCtrl();
+            JSONObject old = ResidenceRepository.getInstance().get(idRsd).getOldCtrl();
 
-            fiche.setCtrl(SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(idRsd)).getDate().toString());
+            fiche.setCtrl(ResidenceRepository.getInstance().get(idRsd).getDate().toString());
             //notCtrl = "!";
 
             while( zon_keys.hasNext() ) {
@@ -1292,36 +1267,11 @@ public class MakeCtrlActivity extends AppCompatActivity {
         //notCtrl = "!";
 
         try{
-            ListResidModel data_rsd = SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(idRsd));
-            JSONObject data_structure = new JSONObject();
-
-            if (proxi.equals("1") && contra.equals("1")) {
-                JSONObject obj = data_rsd.getProxi();
-                Iterator<String> keys = data_rsd.getContra().keys();
-
-                while (keys.hasNext()) {
-                    String kz = keys.next();
-
-                    try {
-                        obj.put(kz, data_rsd.getContra().get(kz));
-                    } catch (JSONException e) {
-                        e.printStackTrace();
-                    }
-                }
-
-                data_structure = obj;
-            } else {
-                if (proxi.equals("1")) {
-                    data_structure = data_rsd.getProxi();
-                }
-                if (contra.equals("1")) {
-                    data_structure = data_rsd.getContra();
-                }
-            }
+            JSONObject data_structure = ResidenceRepository.getInstance().getStructure(idRsd, proxi.equals("1") || proxi.equals("true"), contra.equals("1") || contra.equals("true"));
 
             //Log.e(TAG, functionName+"data_structure => "+data_structure);
 
-            JSONObject data_ctrl = new JSONObject(storage.getCtrl_ctrl());
+            JSONObject data_ctrl = new JSONObject(storage.getCtrlJSON());
             Iterator<String> zon_keys = data_structure.keys();
 
             //Log.e(TAG, functionName+"data_ctrl => "+data_ctrl);
@@ -1525,36 +1475,29 @@ public class MakeCtrlActivity extends AppCompatActivity {
 
     private void updateZones() {
         String functionName = "updateZones::";
-        NoteModel noteCtrl = new NoteModel();
-        SharedPreferences Preferences = getSharedPreferences(MainActivity.PREF_NAME_APPLI, MODE_PRIVATE);
-        int limTop = Integer.parseInt(Objects.requireNonNull(Preferences.getString(MainActivity.PREF_KEY_LIMIT_TOP, "-1")));
-        int limDown = Integer.parseInt(Objects.requireNonNull(Preferences.getString(MainActivity.PREF_KEY_LIMIT_DOWN, "-1")));
+        int limTop = scores.getLimitTop();
+        int limDown = scores.getLimitDown();
 
         //Log.e(TAG, functionName+"START => "+((isSafe) ? "true" : "false"));
 
         if( isSafe ) {
             //Log.e(TAG, functionName+"calc notes => "+notCtrl);
 
-            for (CellZoneCtrlModel item : fiche.getZones()) {
+            for( int i = 0; i < fiche.getZones().size(); i++ ) {
+                CellZoneCtrlModel item = fiche.getZone(i);
                 View view = mGrill.findViewWithTag(item.getPosition());
 
                 TextView cbl = (TextView) view.findViewById(item.getView());
-                NoteModel note = item.note();
                 String mess = "";
                 int calc = -1;
 
                 //Log.e(TAG, functionName+"cbl => '"+item+"'");
 
                 if( !notCtrl.equals("!") ) {
-                    if (note.max > 0) {
-                        calc = (int) ((note.note * 100) / note.max);
-
-                        if (calc > 100) calc = 100;
+                    calc = scores.getZonePercent(i);
 
+                    if (calc >= 0) {
                         mess = calc + " %";
-
-                        noteCtrl.note += note.note;
-                        noteCtrl.max += note.max;
                     } else {
                         mess = "SO";
                     }
@@ -1581,7 +1524,7 @@ public class MakeCtrlActivity extends AppCompatActivity {
                 }
             }
 
-            if (noteCtrl.max > 0) {
+            if( !notCtrl.equals("!") && scores.getGlobalNote().max > 0 ) {
                 //int calc = (int) ((noteCtrl.note * 100) / noteCtrl.max);
 
                 //if (calc > 100) calc = 100;
@@ -1642,7 +1585,6 @@ public class MakeCtrlActivity extends AppCompatActivity {
         Storage storage = new Storage();
         //JSONObject captures = new JSONObject();
         StringBuilder ctrl_type = new StringBuilder();
-        JSONObject grill = new JSONObject();
         //JSONObject comment = new JSONObject();
 
         /*if( listCapture.size() > 0 ) {
@@ -1665,239 +1607,187 @@ public class MakeCtrlActivity extends AppCompatActivity {
             ctrl_type.append("contra");
         }
 
-        try {
-            for( CellZoneCtrlModel zone : fiche.getZones() ) {
-                boolean bZone = false;
-                //StringBuilder zoneBuilder = new StringBuilder();
-                JSONObject zoneBuilder = new JSONObject();
-
-                for( CellElmtCtrlModel element : zone.getElements() ) {
-                    boolean bElement = false;
-                    //StringBuilder elementBuilder = new StringBuilder();
-                    JSONObject elementBuilder = new JSONObject();
-
-                    for( CellCriterCtrlModel criter : element.getCriters() ) {
-                        //String vCriter = criter.getId() + "=" + criter.getValue();
-
-                        JSONObject vCriter = new JSONObject();
-                        JSONObject capture = new JSONObject();
-
-                        vCriter.put("id", criter.getId());
-                        vCriter.put("value", criter.getValue());
-                        vCriter.put("comment", criter.getComment());
-
-                        capture.put("name", criter.getCapture());
-                        capture.put("img", criter.getCaptureUri());
-                        vCriter.put("capture", capture);
-
-                        elementBuilder.put(criter.getId(), vCriter);
-
-                        /*if( elementBuilder.length() > 0 ) {
-                            elementBuilder.append(",");
-                        }
-                        elementBuilder.append(vCriter);
-
-                        if( criter.hasComment() || criter.hasCapture() ) {
-                            String vComment = zone.getId() + "_" + element.getId() + "_" + criter.getId() + "#02" + hashComment(criter.getComment()) + "£" + criter.getCapture();
-
-                            if( comment.length() > 0 ) {
-                                comment.append("#01");
-                            }
-
-                            comment.append(vComment);
-                        }
-
-                        bElement = true;*/
-                    }
-
-                    zoneBuilder.put(element.getId(), elementBuilder);
-                    /*if( bElement ) {
-                        bZone = true;
-                        String vElement = element.getId() + ":" + elementBuilder;
-
-                        if( zoneBuilder.length() > 0 ) {
-                            zoneBuilder.append(";");
-                        }
-
-                        zoneBuilder.append(vElement);
-                    }*/
-                }
-
-                grill.put(zone.getId(), zoneBuilder);
-                /*if( bZone ) {
-                    String vZone = zone.getId() + "_" + zoneBuilder;
-
-                    if( grill.length() > 0 ) {
-                        grill.append("£");
-                    }
-
-                    grill.append(vZone);
-                }*/
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
-
         storage.setResid(Integer.parseInt(idRsd));
         storage.setDate(Integer.parseInt(fiche.getCtrl()));
         storage.setConfig(confCtrl);
         storage.setTypeCtrl(typeCtrl);
         storage.setCtrl_type(ctrl_type.toString());
-        storage.setCtrl_ctrl(grill.toString());
+        storage.setCtrl_ctrl("");
+        storage.setCtrl_blob(CtrlCodec.encode(fiche));
 
         //Log.e(TAG, functionName+"storage => "+storage);
 
         AndyUtils.ProtectResidence(MakeCtrlActivity.this, storage);
     }
     private void saveCtrl() {
+        saveCtrl(false);
+    }
+    private void saveCtrl(boolean closing) {
         String functionName = "saveCtrl::";
 
         //Log.e(TAG, functionName+"START");
 
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
+        AppExecutors.io().execute(() -> {
+            boolean online = AndyUtils.isNetworkAcceptable(MakeCtrlActivity.this);
+            int capturePriority = (closing) ? UploadScheduler.PRIORITY_CLOSING_CAPTURE : UploadScheduler.PRIORITY_BACKGROUND_CAPTURE;
+            String idCtrl = fiche.getId() + "a" + fiche.getCtrl();
+            String confCtrl = typeCtrl + "£" + MakeCtrlActivity.this.confCtrl;
+            StringBuilder grillBuilder = new StringBuilder();
+            StringBuilder commentBuilder = new StringBuilder();
 
-            if( AndyUtils.isNetworkAcceptable(MakeCtrlActivity.this) ) {
-                String idCtrl = fiche.getId() + "a" + fiche.getCtrl();
-                String confCtrl = typeCtrl + "£" + MakeCtrlActivity.this.confCtrl;
-                StringBuilder grillBuilder = new StringBuilder();
-                StringBuilder commentBuilder = new StringBuilder();
+            // Après un premier enregistrement acquitté, seuls les critères modifiés sont envoyés
+            int baseVersion = fiche.getAckVersion();
+            boolean delta = baseVersion > 0;
+            int version = fiche.nextSaveVersion();
+            List<CellCriterCtrlModel> sentCriters = new ArrayList<>();
+            List<Integer> sentRevisions = new ArrayList<>();
 
-                //Log.e(TAG, functionName+"idCtrl => "+idCtrl);
-                //Log.e(TAG, functionName+"confCtrl => "+confCtrl);
+            //Log.e(TAG, functionName+"idCtrl => "+idCtrl);
+            //Log.e(TAG, functionName+"confCtrl => "+confCtrl);
 
-                showWait(true);
+            for( CellZoneCtrlModel zone : fiche.getZones() ) {
+                boolean bZone = false;
+                StringBuilder zoneBuilder = new StringBuilder();
 
-                for( CellZoneCtrlModel zone : fiche.getZones() ) {
-                    boolean bZone = false;
-                    StringBuilder zoneBuilder = new StringBuilder();
+                if( delta && !zone.isDirty() ) {
+                    continue;
+                }
 
-                    for( CellElmtCtrlModel element : zone.getElements() ) {
-                        boolean bElement = false;
-                        StringBuilder elementBuilder = new StringBuilder();
+                for( CellElmtCtrlModel element : zone.getElements() ) {
+                    boolean bElement = false;
+                    StringBuilder elementBuilder = new StringBuilder();
 
-                        for( CellCriterCtrlModel criter : element.getCriters() ) {
-                            String vCriter = criter.getId() + "=" + criter.getValue();
+                    if( delta && !element.isDirty() ) {
+                        continue;
+                    }
 
-                            if( elementBuilder.length() > 0 ) {
-                                elementBuilder.append(",");
-                            }
-                            elementBuilder.append(vCriter);
+                    for( CellCriterCtrlModel criter : element.getCriters() ) {
+                        if( delta && !criter.isDirty() ) {
+                            continue;
+                        }
 
-                            if( criter.hasComment() || criter.hasCapture() ) {
-                                String vComment = zone.getId() + "_" + element.getId() + "_" + criter.getId() + "#02" + hashComment(criter.getComment()) + "£" + criter.getCapture();
-                                Bitmap img = AndyUtils.StringToBitMap(criter.getCaptureUri());
+                        String vCriter = criter.getId() + "=" + criter.getValue();
 
-                                if( img != null ) {
-                                    new UploadImage(MakeCtrlActivity.this, img, criter.getCapture(), UploadImage.UPLOAD_IMAGE_TYPE_CAPTURE);
-                                }
+                        sentCriters.add(criter);
+                        sentRevisions.add(criter.getRevision());
 
-                                if( commentBuilder.length() > 0 ) {
-                                    commentBuilder.append("#01");
-                                }
+                        if( elementBuilder.length() > 0 ) {
+                            elementBuilder.append(",");
+                        }
+                        elementBuilder.append(vCriter);
 
-                                commentBuilder.append(vComment);
-                            }
+                        if( criter.hasComment() || criter.hasCapture() ) {
+                            String vComment = zone.getId() + "_" + element.getId() + "_" + criter.getId() + "#02" + hashComment(criter.getComment()) + "£" + criter.getCapture();
 
-                            bElement = true;
-                        }
+                            if( !delta || criter.isCaptureDirty() ) {
+                                Bitmap img = BlobStore.getInstance(MakeCtrlActivity.this).decodeBitmap(criter.getCaptureUri());
 
-                        if( bElement ) {
-                            bZone = true;
-                            String vElement = element.getId() + ":" + elementBuilder;
+                                if( img != null ) {
+                                    // Hors ligne, la prise de vue attend sur disque que UploadScheduler.retryPending() la renvoie
+                                    int captureRevision = criter.getCaptureRevision();
+                                    CompletableFuture<String> upload = ( online )
+                                            ? new UploadImage(MakeCtrlActivity.this, img, criter.getCapture(), UploadImage.UPLOAD_IMAGE_TYPE_CAPTURE, capturePriority).getUpload()
+                                            : UploadScheduler.getInstance(MakeCtrlActivity.this).submit(img, criter.getCapture(), UploadImage.UPLOAD_IMAGE_TYPE_CAPTURE, capturePriority);
+
+                                    upload.thenAccept(result -> {
+                                        if( UploadScheduler.isSuccess(result) ) {
+                                            criter.markCaptureSaved(captureRevision);
+                                        }
+                                    });
+                                }
+                            }
 
-                            if( zoneBuilder.length() > 0 ) {
-                                zoneBuilder.append(";");
+                            if( commentBuilder.length() > 0 ) {
+                                commentBuilder.append("#01");
                             }
 
-                            zoneBuilder.append(vElement);
+                            commentBuilder.append(vComment);
                         }
+
+                        bElement = true;
                     }
 
-                    if( bZone ) {
-                        String vZone = zone.getId() + "_" + zoneBuilder;
+                    if( bElement ) {
+                        bZone = true;
+                        String vElement = element.getId() + ":" + elementBuilder;
 
-                        if( grillBuilder.length() > 0 ) {
-                            grillBuilder.append("£");
+                        if( zoneBuilder.length() > 0 ) {
+                            zoneBuilder.append(";");
                         }
 
-                        grillBuilder.append(vZone);
+                        zoneBuilder.append(vElement);
                     }
                 }
 
-                if( grillBuilder.length() > 0 ) {
-                    String postBuilder = "&conf=" + confCtrl;
+                if( bZone ) {
+                    String vZone = zone.getId() + "_" + zoneBuilder;
 
-                    postBuilder += "&grill=" + grillBuilder;
-                    postBuilder += "&comment=" + commentBuilder;
-                    postBuilder += "&note=" + mNoteCtrl.getText().toString();
+                    if( grillBuilder.length() > 0 ) {
+                        grillBuilder.append("£");
+                    }
+
+                    grillBuilder.append(vZone);
+                }
+            }
 
-                    //Log.e(TAG, functionName+"postBuilder => "+postBuilder);
+            // Copie locale conservée tant que le serveur n'a pas acquitté l'enregistrement
+            secureCtrl();
 
-                    HttpTask task = new HttpTask(MakeCtrlActivity.this, HttpTask.HTTP_TASK_ACT_SAVE, idCtrl, "", "mbr=" + MainActivity.idMbr + postBuilder);
-                    task.execute(MainActivity.ACCESS_CODE);
+            if( grillBuilder.length() > 0 ) {
+                String postBuilder = "&conf=" + confCtrl;
 
-                    try {
-                        String result = task.get();
+                postBuilder += "&grill=" + grillBuilder;
+                postBuilder += "&comment=" + commentBuilder;
+                postBuilder += "&note=" + mNoteCtrl.getText().toString();
+                postBuilder += "&mode=" + ((delta) ? "delta&base=" + baseVersion : "full");
+                postBuilder += "&ver=" + version;
 
-                        //Log.e(TAG, functionName+"result => "+result);
+                //Log.e(TAG, functionName+"postBuilder => "+postBuilder);
 
-                        if( result != null && result.charAt(0) == '1' ) {
-                            isSafe = true;
+                if( online ) {
+                    showWait(true);
+                }
 
-                            notCtrl = result.substring(1);
+                Outbox.getInstance(MakeCtrlActivity.this)
+                        .enqueue(HttpTask.HTTP_TASK_ACT_SAVE + ":" + idCtrl, fiche.getId(), HttpTask.HTTP_TASK_ACT_SAVE, idCtrl, "", "mbr=" + MainActivity.idMbr + postBuilder)
+                        .thenAccept(result -> {
+                            //Log.e(TAG, functionName+"result => "+result);
 
-                            if( listCapture.size() > 0 ) {
-                                int i = 0;
-                                ArrayList<String> listName = new ArrayList<>(listCapture);
-                                ArrayList<Bitmap> listImg = new ArrayList<>(listBitmap);
+                            if( result != null && result.charAt(0) == '1' ) {
+                                isSafe = true;
 
-                                listCapture.clear();
-                                listBitmap.clear();
+                                fiche.setAckVersion(version);
 
-                                for( String img : listName ) {
-                                    new UploadImage(MakeCtrlActivity.this, listImg.get(i), img, UploadImage.UPLOAD_IMAGE_TYPE_CAPTURE);
-                                    i++;
+                                for( int i = 0; i < sentCriters.size(); i++ ) {
+                                    sentCriters.get(i).markSaved(sentRevisions.get(i));
                                 }
-                            }
-
-                            Storages storages = new Storages(MakeCtrlActivity.this);
-                            Storage storage = storages.getStorage(fiche.getId());
 
-                            if( storage.getId() > 0 ) {
-                                PrefDatabase.getInstance(MakeCtrlActivity.this).mStorageDao().deleteStorageById(storage.getId());
-                            }
-                            if( !storages.getAllStorages().isEmpty() ) {
-                                Intent intent = new Intent(MakeCtrlActivity.this, SynchronizeActivity.class);
+                                notCtrl = result.substring(1);
 
-                                startActivity(intent);
-                            }
+                                UploadScheduler.getInstance(MakeCtrlActivity.this).retryPending();
 
-                            MakeCtrlActivity.this.runOnUiThread(this::updateZones);
-                        } else {
-                            secureCtrl();
+                                Storages storages = new Storages(MakeCtrlActivity.this);
 
-                            MakeCtrlActivity.this.runOnUiThread(this::updateZones);
-                        }
+                                storages.deleteStorageRsd(Integer.parseInt(fiche.getId()));
 
-                        showWait(false);
-                    } catch( InterruptedException | ExecutionException e ) {
-                        e.printStackTrace();
+                                if( storages.hasStorages() ) {
+                                    Intent intent = new Intent(MakeCtrlActivity.this, SynchronizeActivity.class);
 
-                        secureCtrl();
-                        showWait(false);
+                                    startActivity(intent);
+                                }
+                            } else if( delta && result != null && result.charAt(0) == '2' ) {
+                                // Version du serveur différente de la base : renvoi complet
+                                fiche.setAckVersion(0);
+                                saveCtrl(closing);
+                            }
 
-                        MakeCtrlActivity.this.runOnUiThread(this::updateZones);
-                    }
-                }
-            } else {
-                //Toast.makeText(MakeCtrlActivity.this, getResources().getString(R.string.conextion_lost), Toast.LENGTH_LONG).show();
-                secureCtrl();
+                            showWait(false);
 
-                MakeCtrlActivity.this.runOnUiThread(this::updateZones);
+                            MakeCtrlActivity.this.runOnUiThread(this::updateZones);
+                        });
             }
 
-            Looper.loop();
+            MakeCtrlActivity.this.runOnUiThread(this::updateZones);
         });
     }
 
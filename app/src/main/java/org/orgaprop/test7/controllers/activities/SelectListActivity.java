@@ -7,24 +7,22 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.orgaprop.test7.R;
 import org.orgaprop.test7.databinding.ActivitySelectListBinding;
-import org.orgaprop.test7.models.ObjProp;
 import org.orgaprop.test7.models.SelectItem;
 import org.orgaprop.test7.models.SelectListAdapter;
-import org.orgaprop.test7.models.prop.ObjCriter;
-import org.orgaprop.test7.models.prop.ObjElement;
-import org.orgaprop.test7.models.prop.ObjGrille;
-import org.orgaprop.test7.models.prop.ObjZone;
+import org.orgaprop.test7.security.session.SessionManager;
+import org.orgaprop.test7.security.session.SessionSnapshot;
 import org.orgaprop.test7.services.HttpTask;
+import org.orgaprop.test7.services.ResidencePrefetcher;
+import org.orgaprop.test7.services.ResidenceRepository;
+import org.orgaprop.test7.services.ResidenceSearchIndex;
+import org.orgaprop.test7.services.SelectItemReader;
+import org.orgaprop.test7.utils.AndyUtils;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
 public class SelectListActivity extends AppCompatActivity {
@@ -48,6 +46,12 @@ public class SelectListActivity extends AppCompatActivity {
     private int parentId = 0;
     private String mess = "";
 
+    private volatile boolean firstBatch = true;
+    private volatile int publishedCount = 0;
+
+    /** Lignes lues avant chaque mise à jour de la liste pendant le téléchargement. */
+    private static final int DISPLAY_BATCH = 20;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -62,6 +66,13 @@ public class SelectListActivity extends AppCompatActivity {
 
         if( type.equals(SELECT_LIST_TYPE_AGC) ) {
             recupAgences();
+        } else if( type.equals(SELECT_LIST_TYPE_SEARCH) ) {
+            searchLocal();
+
+            // La recherche serveur complète les résultats locaux quand le réseau est là
+            if( AndyUtils.isNetworkAvailable(this) ) {
+                fetchData();
+            }
         } else {
             fetchData();
         }
@@ -74,135 +85,62 @@ public class SelectListActivity extends AppCompatActivity {
     }
 
     private void recupAgences() {
-        try {
-            items.clear();
+        items.clear();
 
-            for( Iterator<String> it = MainActivity.mapAgences.keys(); it.hasNext(); ) {
-                String key = it.next();
-                JSONObject jsonItem = MainActivity.mapAgences.getJSONObject(key);
+        for( SessionSnapshot.Agency agency : SessionManager.getInstance(SelectListActivity.this).getSnapshot().getAgences() ) {
+            items.add(new SelectItem(agency.id, agency.text));
+        }
 
-                items.add(new SelectItem(jsonItem.getInt("id"), jsonItem.getString("txt")));
-            }
+        runOnUiThread(() -> adapter.notifyDataSetChanged());
+    }
+    private void searchLocal() {
+        List<SelectItem> found = ResidenceSearchIndex.getInstance().search(mess);
+
+        items.clear();
+        items.addAll(found);
+        adapter.notifyDataSetChanged();
 
-            runOnUiThread(() -> adapter.notifyDataSetChanged());
-        } catch (JSONException e) {
-            Toast.makeText(SelectListActivity.this, "Erreur de traitement des données", Toast.LENGTH_SHORT).show();
+        if( found.isEmpty() && !AndyUtils.isNetworkAvailable(this) ) {
+            Toast.makeText(SelectListActivity.this, getResources().getString(R.string.mess_timeout), Toast.LENGTH_SHORT).show();
         }
     }
     private void fetchData() {
         String postString = "mbr=" + MainActivity.idMbr + "&search=" + mess;
+        List<SelectItem> received = new ArrayList<>();
+        SelectItemReader reader = new SelectItemReader(type, (item, resid) -> {
+            received.add(item);
+
+            // Une ligne affichée peut être ouverte avant la fin de la réponse : sa résidence doit déjà être connue
+            if( resid != null ) {
+                ResidenceRepository.getInstance().put(resid);
+            }
+            if( received.size() % DISPLAY_BATCH == 0 ) {
+                publish(received);
+            }
+        });
 
         HttpTask task = new HttpTask(SelectListActivity.this);
-        CompletableFuture<String> futureResult = task.executeHttpTask(HttpTask.HTTP_TASK_ACT_LIST, type, "val="+parentId, postString);
+        CompletableFuture<String> futureResult = task.executeHttpTask(HttpTask.HTTP_TASK_ACT_LIST, type, "val="+parentId, postString, in -> {
+            // Une nouvelle tentative reprend la liste depuis le début
+            received.clear();
+            firstBatch = true;
+
+            return reader.read(in);
+        });
 
         futureResult.thenAccept(result -> {
-            try {
-                JSONObject jsonResponse = new JSONObject(result);
-
-                if( jsonResponse.getBoolean("status") ) {
-                    JSONObject dataObject = jsonResponse.getJSONObject("data");
-
-                    items.clear();
-
-                    for( Iterator<String> it = dataObject.keys(); it.hasNext(); ) {
-                        String key = it.next();
-                        JSONObject jsonItem = dataObject.getJSONObject(key);
-
-                        if( type.equals(SELECT_LIST_TYPE_GRP) ) {
-                            items.add(new SelectItem(jsonItem.getInt("id"), jsonItem.getString("txt")));
-                        } else {
-                            SelectItem item = new SelectItem(
-                                    jsonItem.getInt("id"),
-                                    jsonItem.getInt("agency"),
-                                    jsonItem.getInt("group"),
-                                    jsonItem.getString("ref"),
-                                    jsonItem.getString("name"),
-                                    jsonItem.getString("entry"),
-                                    jsonItem.getJSONObject("adr").getString("rue"),
-                                    jsonItem.getJSONObject("adr").getString("cp"),
-                                    jsonItem.getJSONObject("adr").getString("city"),
-                                    jsonItem.getString("last"),
-                                    jsonItem.getBoolean("delay"),
-                                    jsonItem.getString("comment")
-                                    );
-
-                            item.getObjProp().getObjZones().setProxi(jsonItem.getJSONObject("prop").getJSONObject("zones").getJSONArray("proxi"));
-                            item.getObjProp().getObjZones().setContrat(jsonItem.getJSONObject("prop").getJSONObject("zones").getJSONArray("contrat"));
-                            item.getObjProp().getObjConfig().setVisite(jsonItem.getJSONObject("prop").getJSONObject("ctrl").getJSONObject("conf").getBoolean("visite"));
-                            item.getObjProp().getObjConfig().setMeteo(jsonItem.getJSONObject("prop").getJSONObject("ctrl").getJSONObject("conf").getBoolean("meteo"));
-                            item.getObjProp().getObjConfig().setAffichage(jsonItem.getJSONObject("prop").getJSONObject("ctrl").getJSONObject("conf").getBoolean("affichage"));
-                            item.getObjProp().getObjConfig().setProduits(jsonItem.getJSONObject("prop").getJSONObject("ctrl").getJSONObject("conf").getBoolean("produits"));
-                            item.getObjProp().getObjDateCtrl().setValue(jsonItem.getJSONObject("prop").getJSONObject("ctrl").getJSONObject("data").getInt("val"));
-                            item.getObjProp().getObjDateCtrl().setTxt(jsonItem.getJSONObject("prop").getJSONObject("ctrl").getJSONObject("data").getString("txt"));
-                            item.getObjProp().setNote(jsonItem.getJSONObject("prop").getJSONObject("ctrl").getInt("note"));
-
-                            JSONObject jsonGrille = jsonItem.getJSONObject("prop").getJSONObject("ctrl").getJSONObject("grille");
-                            ObjGrille grille = item.getObjProp().getGrille();
-
-                            for( Iterator<String> itZone = jsonGrille.keys(); itZone.hasNext(); ) {
-                                String keyZone = itZone.next();
-                                JSONObject zone = jsonGrille.getJSONObject(keyZone);
-                                ObjZone objZone = new ObjZone();
-
-                                objZone.setId(Integer.parseInt(keyZone));
-                                objZone.setNote(-1);
-
-                                for( Iterator<String> itElement = zone.keys(); itElement.hasNext(); ) {
-                                    String keyElement = itElement.next();
-                                    JSONObject element = zone.getJSONObject(keyElement);
-                                    ObjElement objElement = new ObjElement();
-
-                                    objElement.setId(Integer.parseInt(keyElement));
-                                    objElement.setNote(-1);
-
-                                    for( Iterator<String> itCriter = element.keys(); itCriter.hasNext(); ) {
-                                        String keyCrtiter = itCriter.next();
-                                        JSONObject criter = element.getJSONObject(keyCrtiter);
-                                        ObjCriter objCriter = new ObjCriter();
-
-                                        objCriter.setId(Integer.parseInt(keyCrtiter));
-                                        objCriter.setNote(criter.getInt("note"));
-
-                                        if( criter.has("com") ) {
-                                            objCriter.getComment().setTxt(criter.getJSONObject("com").getString("txt"));
-                                            objCriter.getComment().setImg(criter.getJSONObject("com").getString("img"));
-                                        }
-
-                                        objElement.addCriter(objCriter);
-                                    }
-
-                                    objZone.addElement(objElement);
-                                }
-
-                                grille.addZone(objZone);
-                            }
-
-                            item.getObjProp().setGrille(grille);
-
-                            if( type.equals(SELECT_LIST_TYPE_SEARCH) ) {
-                                JSONObject jsonComment = new JSONObject(Objects.requireNonNull(jsonItem.getString("comment")));
-
-                                item.setNameAgency(jsonComment.getJSONObject("agency").getString("txt"));
-                                item.setNameGroup(jsonComment.getJSONObject("groupe").getString("txt"));
-                                item.setComment("");
-                            }
-
-                            items.add(item);
-                        }
-                    }
-
-                    runOnUiThread(() -> adapter.notifyDataSetChanged());
-                } else {
-                    runOnUiThread(() -> {
-                        try {
-                            Toast.makeText(SelectListActivity.this, jsonResponse.getString("message"), Toast.LENGTH_SHORT).show();
-                        } catch (JSONException e) {
-                            Toast.makeText(SelectListActivity.this, "Erreur de traitement des données", Toast.LENGTH_SHORT).show();
-                        }
-                    });
+            if( result != null && result.startsWith("1") ) {
+                publish(received);
+
+                ResidenceSearchIndex.getInstance().addAll(received);
+
+                if( type.equals(SELECT_LIST_TYPE_RSD) ) {
+                    ResidencePrefetcher.getInstance(SelectListActivity.this).prefetch(received);
                 }
-            } catch (JSONException e) {
-                throw new RuntimeException(e);
+            } else {
+                String message = ( result != null && result.startsWith("0") ) ? result.substring(1) : getResources().getString(R.string.mess_timeout);
+
+                runOnUiThread(() -> Toast.makeText(SelectListActivity.this, message, Toast.LENGTH_SHORT).show());
             }
         }).exceptionally(ex -> {
             runOnUiThread(() -> Toast.makeText(SelectListActivity.this, getResources().getString(R.string.mess_timeout), Toast.LENGTH_SHORT).show());
@@ -210,7 +148,31 @@ public class SelectListActivity extends AppCompatActivity {
             return null;
         });
     }
+    /**
+     * Affiche les éléments reçus depuis le dernier envoi. Le premier lot de la réponse remplace
+     * la liste affichée (résultats locaux d'une recherche).
+     */
+    private void publish(List<SelectItem> received) {
+        boolean replace = firstBatch;
+        List<SelectItem> batch = new ArrayList<>(received.subList(( replace ) ? 0 : publishedCount, received.size()));
+
+        firstBatch = false;
+        publishedCount = received.size();
+
+        runOnUiThread(() -> {
+            if( replace ) {
+                int removed = items.size();
+
+                items.clear();
+                adapter.notifyItemRangeRemoved(0, removed);
+            }
+
+            int start = items.size();
 
+            items.addAll(batch);
+            adapter.notifyItemRangeInserted(start, batch.size());
+        });
+    }
     private void onItemSelected(SelectItem item) {
         Intent resultIntent = new Intent();
 
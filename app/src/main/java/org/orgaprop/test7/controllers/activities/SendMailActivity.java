@@ -5,7 +5,6 @@ import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.graphics.Bitmap;
 import android.os.Bundle;
-import android.os.Looper;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.view.View;
@@ -25,7 +24,9 @@ import org.orgaprop.test7.databases.PrefDatabase;
 import org.orgaprop.test7.models.Storage;
 import org.orgaprop.test7.services.Contacts;
 import org.orgaprop.test7.services.HttpTask;
+import org.orgaprop.test7.services.executors.AppExecutors;
 import org.orgaprop.test7.utils.AndyUtils;
+import org.orgaprop.test7.utils.ImagePipeline;
 import org.orgaprop.test7.utils.UploadImage;
 
 import java.io.UnsupportedEncodingException;
@@ -33,7 +34,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -131,9 +131,7 @@ public class SendMailActivity extends AppCompatActivity {
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
 
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
+        AppExecutors.io().execute(() -> {
             if( !AndyUtils.isNetworkAcceptable(SendMailActivity.this) ) {
                 //Toast.makeText(SendMailActivity.this, getResources().getString(R.string.conextion_lost), Toast.LENGTH_LONG).show();
                 Storage storage = PrefDatabase.getInstance(SendMailActivity.this).mStorageDao().getStorageRsd(Integer.parseInt(MakeCtrlActivity.fiche.getId())).getValue();
@@ -176,12 +174,10 @@ public class SendMailActivity extends AppCompatActivity {
                             uploadPicture();
                         }
                     } else {
-                        Toast.makeText(SendMailActivity.this, "ECHEC RECUPERATION PRISE DE VUE", Toast.LENGTH_LONG).show();
+                        runOnUiThread(() -> Toast.makeText(SendMailActivity.this, "ECHEC RECUPERATION PRISE DE VUE", Toast.LENGTH_LONG).show());
                     }
                 }
             }
-
-            Looper.loop();
         });
     }
 
@@ -200,9 +196,7 @@ public class SendMailActivity extends AppCompatActivity {
 //********* PRIVATE FUNCTIONS
 
     private void send() {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
+        AppExecutors.io().execute(() -> {
             if( !AndyUtils.isNetworkAcceptable(SendMailActivity.this) ) {
                 //Toast.makeText(SendMailActivity.this, getResources().getString(R.string.conextion_lost), Toast.LENGTH_LONG).show();
                 Storage storage = PrefDatabase.getInstance(SendMailActivity.this).mStorageDao().getStorageRsd(Integer.parseInt(MakeCtrlActivity.fiche.getId())).getValue();
@@ -293,20 +287,18 @@ public class SendMailActivity extends AppCompatActivity {
                     //Log.e(TAG, functionName+"result => "+result);
 
                     if( result != null && result.startsWith("1") ) {
-                        Toast.makeText(SendMailActivity.this, "Mail envoyé avec succés", Toast.LENGTH_SHORT).show();
+                        runOnUiThread(() -> Toast.makeText(SendMailActivity.this, "Mail envoyé avec succés", Toast.LENGTH_SHORT).show());
 
                         finish();
                     } else if( result != null ) {
-                        Toast.makeText(SendMailActivity.this, result.substring(1), Toast.LENGTH_SHORT).show();
+                        runOnUiThread(() -> Toast.makeText(SendMailActivity.this, result.substring(1), Toast.LENGTH_SHORT).show());
                     } else {
-                        Toast.makeText(SendMailActivity.this, getResources().getString(R.string.mess_timeout), Toast.LENGTH_SHORT).show();
+                        runOnUiThread(() -> Toast.makeText(SendMailActivity.this, getResources().getString(R.string.mess_timeout), Toast.LENGTH_SHORT).show());
                     }
                 } catch(InterruptedException | ExecutionException | UnsupportedEncodingException e ) {
                     e.printStackTrace();
                 }
             }
-
-            Looper.loop();
         });
     }
     private void finishActivity() {
@@ -323,9 +315,7 @@ public class SendMailActivity extends AppCompatActivity {
     private void getHistoDest() {
         String functionName = "getHistoDest";
 
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
+        AppExecutors.io().execute(() -> {
             Contacts contacts = new Contacts(SendMailActivity.this);
             List<String> list = contacts.getListContacts();
             ArrayAdapter<String> adapter = new ArrayAdapter<>(SendMailActivity.this, android.R.layout.simple_list_item_1, list);
@@ -334,16 +324,12 @@ public class SendMailActivity extends AppCompatActivity {
             setAdapterOnThis(mDest2, adapter);
             setAdapterOnThis(mDest3, adapter);
             setAdapterOnThis(mDest4, adapter);
-
-            Looper.loop();
         });
     }
     private void addHistoDest(String dest) {
         String functionName = "addHistoDest";
 
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
+        AppExecutors.io().execute(() -> {
             Contacts contacts = new Contacts(SendMailActivity.this);
             List<String> list = contacts.getListContacts();
             StringTokenizer tokenizer = new StringTokenizer(dest, ";");
@@ -355,21 +341,15 @@ public class SendMailActivity extends AppCompatActivity {
                     contacts.setContact(line.trim());
                 }
             }
-
-            Looper.loop();
         });
     }
     private void uploadPicture() {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
-            imgAttach = (int)(System.currentTimeMillis()/1000) + ".png";
+        AppExecutors.io().execute(() -> {
+            imgAttach = ImagePipeline.fileName(String.valueOf((int)(System.currentTimeMillis()/1000)), UploadImage.UPLOAD_IMAGE_TYPE_SEND);
 
             //String image = AndyUtils.putBitmapToGallery(SendMailActivity.this, bitmap, imgAttach);
 
             new UploadImage(SendMailActivity.this, bitmap, imgAttach, UploadImage.UPLOAD_IMAGE_TYPE_SEND);
-
-            Looper.loop();
         });
     }
     private void setAdapterOnThis(AutoCompleteTextView v, ArrayAdapter<String> a) {
@@ -17,6 +17,9 @@ import com.github.gcacace.signaturepad.views.SignaturePad;
 
 import org.orgaprop.test7.R;
 import org.orgaprop.test7.utils.AndyUtils;
+import org.orgaprop.test7.utils.BlobStore;
+
+import java.io.IOException;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -161,13 +164,13 @@ public class SignatureActivity extends AppCompatActivity {
 
         if( ctrlHasSigned ) {
             Bitmap imageBitmap = mSignatureCtrl.getSignatureBitmap();
-            sig1 = AndyUtils.bitmapToString(imageBitmap);// mSignatureCtrl.getSignatureSvg();// imageBitmap.toString();
+            sig1 = storeSignature(imageBitmap);// mSignatureCtrl.getSignatureSvg();// imageBitmap.toString();
 
             //sig1 = AndyUtils.putBitmapToGallery(SignatureActivity.this, imageBitmap, "sig1.png");
 
             if( agtHasSigned ) {
                 Bitmap imageBitmap2 = mSignatureAgt.getSignatureBitmap();
-                sig2 = AndyUtils.bitmapToString(imageBitmap2);// mSignatureAgt.getSignatureSvg();
+                sig2 = storeSignature(imageBitmap2);// mSignatureAgt.getSignatureSvg();
 
                 //sig2 = AndyUtils.putBitmapToGallery(SignatureActivity.this, imageBitmap2, "sig2.png");
                 agt = mNameAgtInput.getText().toString();
@@ -183,6 +186,18 @@ public class SignatureActivity extends AppCompatActivity {
             finish();
         }
     }
+    /**
+     * Référence de la signature dans le magasin d'images, ou Base64 si l'écriture échoue.
+     */
+    private String storeSignature(Bitmap signature) {
+        try {
+            return BlobStore.getInstance(SignatureActivity.this).put(signature);
+        } catch (IOException e) {
+            e.printStackTrace();
+
+            return AndyUtils.bitmapToString(signature);
+        }
+    }
     private void finishActivity() {
         setResult(FinishCtrlActivity.FINISH_ACTIVITY_RESULT_CANCEL);
         finish();
@@ -16,6 +16,7 @@ import androidx.core.content.ContextCompat;
 
 import org.orgaprop.test7.R;
 import org.orgaprop.test7.databinding.ActivityStartCtrlBinding;
+import org.orgaprop.test7.services.ResidenceRepository;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -85,10 +86,12 @@ public class StartCtrlActivity extends AppCompatActivity {
         altCtrl = intent.getStringExtra(TypeCtrlActivity.TYPE_CTRL_ACTIVITY_ALT_CTRL);
         typeCtrl = intent.getStringExtra(TypeCtrlActivity.TYPE_CTRL_ACTIVITY_TYPE_CTRL);
 
-        ctrlInopine = SelectActivity.ficheResid. SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(rsd)).getStrConfCtrl().startsWith("1");
-        meteoPerturbe = SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(rsd)).getStrConfCtrl().startsWith("1", 2);
-        prodPresent = SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(rsd)).getStrConfCtrl().startsWith("1", 4);
-        affConforme = SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(rsd)).getStrConfCtrl().startsWith("1", 6);
+        String confCtrl = ResidenceRepository.getInstance().get(rsd).getStrConfCtrl();
+
+        ctrlInopine = confCtrl.startsWith("1");
+        meteoPerturbe = confCtrl.startsWith("1", 2);
+        prodPresent = confCtrl.startsWith("1", 4);
+        affConforme = confCtrl.startsWith("1", 6);
 
         //Log.e(TAG, "onCreate::config => "+SelectActivity.nameRsds.get(SelectActivity.idRsds.indexOf(rsd)).getStrConfCtrl());
         //Log.e(TAG, "onCreate::ctrl => "+((ctrlInopine) ? "inopine" : "programme"));
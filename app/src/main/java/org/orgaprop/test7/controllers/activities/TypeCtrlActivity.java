@@ -12,7 +12,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.orgaprop.test7.R;
 import org.orgaprop.test7.databinding.ActivityTypeCtrlBinding;
-import org.orgaprop.test7.services.HttpTask;
+import org.orgaprop.test7.services.ResidencePrefetcher;
 import org.orgaprop.test7.utils.AndyUtils;
 
 import java.util.concurrent.CompletableFuture;
@@ -83,11 +83,7 @@ public class TypeCtrlActivity extends AppCompatActivity {
 
             if( isSafely || ( !typeCtrl.equals(TYPE_CTRL_ACTIVITY_TAG_RANDOM) && !typeCtrl.equals(TYPE_CTRL_ACTIVITY_TAG_LEVEE) ) ) {
                 if( typeCtrl.equals(TYPE_CTRL_ACTIVITY_TAG_LEVEE) ) {
-                    String stringGet = "mod=" + HttpTask.HTTP_TASK_MOD_GET + "&rsd=" + rsd;
-                    String stringPost = "mbr=" + MainActivity.idMbr + "&mac=" + MainActivity.adrMac;
-
-                    HttpTask task = new HttpTask(TypeCtrlActivity.this);
-                    CompletableFuture<String> futureResult = task.executeHttpTask(HttpTask.HTTP_TASK_ACT_PROP, HttpTask.HTTP_TASK_CBL_PLAN_ACTIONS, stringGet, stringPost);
+                    CompletableFuture<String> futureResult = ResidencePrefetcher.getInstance(TypeCtrlActivity.this).getPlan(TypeCtrlActivity.this, rsd);
 
                     futureResult.thenAccept(result -> {
                        try {
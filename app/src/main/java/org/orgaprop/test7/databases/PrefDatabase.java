@@ -2,6 +2,7 @@ package org.orgaprop.test7.databases;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 
 import androidx.annotation.NonNull;
 import androidx.room.Database;
@@ -11,14 +12,25 @@ import androidx.room.RoomDatabase;
 import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import org.orgaprop.test7.databases.dao.BlobRefDao;
 import org.orgaprop.test7.databases.dao.ContactDao;
+import org.orgaprop.test7.databases.dao.OutboxDao;
 import org.orgaprop.test7.databases.dao.PrefDao;
 import org.orgaprop.test7.databases.dao.StorageDao;
+import org.orgaprop.test7.databases.dao.SyncCheckpointDao;
+import org.orgaprop.test7.models.BlobRef;
 import org.orgaprop.test7.models.Contact;
+import org.orgaprop.test7.models.OutboxJob;
 import org.orgaprop.test7.models.Pref;
 import org.orgaprop.test7.models.Storage;
+import org.orgaprop.test7.models.SyncCheckpoint;
+import org.orgaprop.test7.services.Storages;
+import org.orgaprop.test7.utils.BlobStore;
 
-@Database(entities = {Pref.class, Contact.class, Storage.class}, version = 3, exportSchema = false)
+import java.util.HashMap;
+import java.util.Map;
+
+@Database(entities = {Pref.class, Contact.class, Storage.class, OutboxJob.class, SyncCheckpoint.class, BlobRef.class}, version = 8, exportSchema = false)
 public abstract class PrefDatabase extends RoomDatabase {
 
     public static final String TAG = "PrefDatabase";
@@ -85,6 +97,8 @@ public abstract class PrefDatabase extends RoomDatabase {
     public static final int STORAGE_COL_SEND_TYPE_CTRL_NUM = 16;
     public static final String STORAGE_COL_SEND_SRC = "send_src";
     public static final int STORAGE_COL_SEND_SRC_NUM = 17;
+    public static final String STORAGE_COL_CTRL_BLOB = "ctrl_blob";
+    public static final int STORAGE_COL_CTRL_BLOB_NUM = 18;
 
     public static final String[] STORAGE_PROJECTION = {
         STORAGE_COL_ID,
@@ -104,9 +118,73 @@ public abstract class PrefDatabase extends RoomDatabase {
         STORAGE_COL_SEND_ID_PLAN,
         STORAGE_COL_SEND_DATE_CTRL,
         STORAGE_COL_SEND_TYPE_CTRL,
-        STORAGE_COL_SEND_SRC
+        STORAGE_COL_SEND_SRC,
+        STORAGE_COL_CTRL_BLOB
     };
 
+    /** Poids en octets des colonnes lourdes, calculé par SQLite sans les charger. */
+    public static final String STORAGE_COL_SIZE = "size";
+    public static final String STORAGE_SUMMARY_COLUMNS = STORAGE_COL_ID +
+            "," + STORAGE_COL_RESID +
+            "," + STORAGE_COL_DATE +
+            "," + STORAGE_COL_TYPE_CTRL +
+            ",length(" + STORAGE_COL_CTRL_CTRL + ")" +
+            "+length(" + STORAGE_COL_CTRL_SIG1 + ")" +
+            "+length(" + STORAGE_COL_CTRL_SIG2 + ")" +
+            "+length(" + STORAGE_COL_CTRL_SIG + ")" +
+            "+length(" + STORAGE_COL_PLAN_CONTENT + ")" +
+            "+ifnull(length(" + STORAGE_COL_CTRL_BLOB + "),0) AS " + STORAGE_COL_SIZE;
+
+    public static final String OUTBOX_TABLE_NAME = "Outbox";
+    public static final String OUTBOX_COL_ID = "id";
+    public static final int OUTBOX_COL_ID_NUM = 0;
+    public static final String OUTBOX_COL_KEY = "job_key";
+    public static final int OUTBOX_COL_KEY_NUM = 1;
+    public static final String OUTBOX_COL_RESID = "resid";
+    public static final int OUTBOX_COL_RESID_NUM = 2;
+    public static final String OUTBOX_COL_ACT = "act";
+    public static final int OUTBOX_COL_ACT_NUM = 3;
+    public static final String OUTBOX_COL_CBL = "cbl";
+    public static final int OUTBOX_COL_CBL_NUM = 4;
+    public static final String OUTBOX_COL_GET = "get_params";
+    public static final int OUTBOX_COL_GET_NUM = 5;
+    public static final String OUTBOX_COL_POST = "post_params";
+    public static final int OUTBOX_COL_POST_NUM = 6;
+    public static final String OUTBOX_COL_STATE = "state";
+    public static final int OUTBOX_COL_STATE_NUM = 7;
+    public static final String OUTBOX_COL_ATTEMPTS = "attempts";
+    public static final int OUTBOX_COL_ATTEMPTS_NUM = 8;
+    public static final String OUTBOX_COL_CREATED = "created";
+    public static final int OUTBOX_COL_CREATED_NUM = 9;
+    public static final String OUTBOX_COL_ERROR = "error";
+    public static final int OUTBOX_COL_ERROR_NUM = 10;
+
+    public static final String SYNC_TABLE_NAME = "SyncCheckpoint";
+    public static final String SYNC_COL_ID = "id";
+    public static final int SYNC_COL_ID_NUM = 0;
+    public static final String SYNC_COL_RUN = "run";
+    public static final int SYNC_COL_RUN_NUM = 1;
+    public static final String SYNC_COL_CHUNK = "chunk";
+    public static final int SYNC_COL_CHUNK_NUM = 2;
+    public static final String SYNC_COL_FIRST_ROW = "first_row";
+    public static final int SYNC_COL_FIRST_ROW_NUM = 3;
+    public static final String SYNC_COL_LAST_ROW = "last_row";
+    public static final int SYNC_COL_LAST_ROW_NUM = 4;
+    public static final String SYNC_COL_ROWS = "rows";
+    public static final int SYNC_COL_ROWS_NUM = 5;
+    public static final String SYNC_COL_BYTES = "bytes";
+    public static final int SYNC_COL_BYTES_NUM = 6;
+    public static final String SYNC_COL_ACKED = "acked";
+    public static final int SYNC_COL_ACKED_NUM = 7;
+    public static final String SYNC_COL_REFUSED = "refused";
+    public static final int SYNC_COL_REFUSED_NUM = 8;
+
+    public static final String BLOB_REF_TABLE_NAME = "BlobRef";
+    public static final String BLOB_REF_COL_HASH = "hash";
+    public static final int BLOB_REF_COL_HASH_NUM = 0;
+    public static final String BLOB_REF_COL_REFS = "refs";
+    public static final int BLOB_REF_COL_REFS_NUM = 1;
+
     // --- MIGRATIONS ---
     static final Migration MIGRATION_1_2 = new Migration(1, 2) {
         @Override
@@ -234,6 +312,91 @@ public abstract class PrefDatabase extends RoomDatabase {
         }
     };
 
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS " + OUTBOX_TABLE_NAME +
+                    "(" + OUTBOX_COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL" +
+                    "," + OUTBOX_COL_KEY + " TEXT NOT NULL" +
+                    "," + OUTBOX_COL_RESID + " INTEGER NOT NULL" +
+                    "," + OUTBOX_COL_ACT + " TEXT NOT NULL" +
+                    "," + OUTBOX_COL_CBL + " TEXT NOT NULL" +
+                    "," + OUTBOX_COL_GET + " TEXT NOT NULL" +
+                    "," + OUTBOX_COL_POST + " TEXT NOT NULL" +
+                    "," + OUTBOX_COL_STATE + " INTEGER NOT NULL" +
+                    "," + OUTBOX_COL_ATTEMPTS + " INTEGER NOT NULL" +
+                    "," + OUTBOX_COL_CREATED + " INTEGER NOT NULL" +
+                    "," + OUTBOX_COL_ERROR + " TEXT NOT NULL" +
+                    ")");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS index_" + OUTBOX_TABLE_NAME + "_" + OUTBOX_COL_KEY + " ON " + OUTBOX_TABLE_NAME + "(" + OUTBOX_COL_KEY + ")");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_" + OUTBOX_TABLE_NAME + "_" + OUTBOX_COL_RESID + " ON " + OUTBOX_TABLE_NAME + "(" + OUTBOX_COL_RESID + ")");
+        }
+    };
+
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE " + STORAGE_TABLE_NAME + " ADD COLUMN " + STORAGE_COL_CTRL_BLOB + " BLOB");
+        }
+    };
+
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS " + SYNC_TABLE_NAME +
+                    "(" + SYNC_COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL" +
+                    "," + SYNC_COL_RUN + " TEXT NOT NULL" +
+                    "," + SYNC_COL_CHUNK + " INTEGER NOT NULL" +
+                    "," + SYNC_COL_FIRST_ROW + " INTEGER NOT NULL" +
+                    "," + SYNC_COL_LAST_ROW + " INTEGER NOT NULL" +
+                    "," + SYNC_COL_ROWS + " INTEGER NOT NULL" +
+                    "," + SYNC_COL_BYTES + " INTEGER NOT NULL" +
+                    "," + SYNC_COL_ACKED + " INTEGER NOT NULL" +
+                    ")");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_" + SYNC_TABLE_NAME + "_" + SYNC_COL_RUN + " ON " + SYNC_TABLE_NAME + "(" + SYNC_COL_RUN + ")");
+        }
+    };
+
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS " + BLOB_REF_TABLE_NAME +
+                    "(" + BLOB_REF_COL_HASH + " TEXT PRIMARY KEY NOT NULL" +
+                    "," + BLOB_REF_COL_REFS + " INTEGER NOT NULL" +
+                    ")");
+
+            // Les compteurs sont recalculés depuis les lignes : ceux des préférences ont pu
+            // diverger de la table lors d'une transaction annulée
+            Map<String, Integer> refs = new HashMap<>();
+
+            try ( Cursor cursor = db.query("SELECT " + String.join(",", STORAGE_PROJECTION) + " FROM " + STORAGE_TABLE_NAME) ) {
+                while( cursor.moveToNext() ) {
+                    for( String value : Storages.blobRefs(Storages.makStorage(cursor)) ) {
+                        if( BlobStore.isRef(value) ) {
+                            refs.merge(value.substring(BlobStore.REF_PREFIX.length()), 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+
+            for( Map.Entry<String, Integer> ref : refs.entrySet() ) {
+                ContentValues contentValues = new ContentValues();
+
+                contentValues.put(BLOB_REF_COL_HASH, ref.getKey());
+                contentValues.put(BLOB_REF_COL_REFS, ref.getValue());
+
+                db.insert(BLOB_REF_TABLE_NAME, OnConflictStrategy.REPLACE, contentValues);
+            }
+        }
+    };
+
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE " + SYNC_TABLE_NAME + " ADD COLUMN " + SYNC_COL_REFUSED + " TEXT");
+        }
+    };
+
     // --- SINGLETON ---
     private static volatile PrefDatabase INSTANCE;
 
@@ -241,6 +404,9 @@ public abstract class PrefDatabase extends RoomDatabase {
     public abstract PrefDao mPrefDao();
     public abstract ContactDao mContactDao();
     public abstract StorageDao mStorageDao();
+    public abstract OutboxDao mOutboxDao();
+    public abstract SyncCheckpointDao mSyncCheckpointDao();
+    public abstract BlobRefDao mBlobRefDao();
 
     // --- INSTANCE ---
     public static PrefDatabase getInstance(Context context) {
@@ -249,7 +415,7 @@ public abstract class PrefDatabase extends RoomDatabase {
                 if( INSTANCE == null ) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(), PrefDatabase.class, "pref2.db")
                         .addCallback(prepopulateDatabase())
-                        .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_1_3)
+                        .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_1_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
                         .build();
                 }
             }
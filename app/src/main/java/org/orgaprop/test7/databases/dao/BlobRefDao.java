@@ -0,0 +1,26 @@
+package org.orgaprop.test7.databases.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import org.orgaprop.test7.databases.PrefDatabase;
+import org.orgaprop.test7.models.BlobRef;
+
+import java.util.List;
+
+@Dao
+public interface BlobRefDao {
+
+    @Query("SELECT "+PrefDatabase.BLOB_REF_COL_HASH+" FROM "+PrefDatabase.BLOB_REF_TABLE_NAME+" WHERE "+PrefDatabase.BLOB_REF_COL_REFS+" > 0") List<String> getReferencedHashes();
+    @Query("SELECT COUNT(*) FROM "+PrefDatabase.BLOB_REF_TABLE_NAME+" WHERE "+PrefDatabase.BLOB_REF_COL_REFS+" > 0") int countReferenced();
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertRef(BlobRef ref);
+
+    @Query("UPDATE "+PrefDatabase.BLOB_REF_TABLE_NAME+" SET "+PrefDatabase.BLOB_REF_COL_REFS+" = "+PrefDatabase.BLOB_REF_COL_REFS+" + :delta WHERE "+PrefDatabase.BLOB_REF_COL_HASH+" = :hash") int addRefs(String hash, int delta);
+
+    @Query("DELETE FROM "+PrefDatabase.BLOB_REF_TABLE_NAME+" WHERE "+PrefDatabase.BLOB_REF_COL_REFS+" <= 0") int deleteUnreferenced();
+
+}
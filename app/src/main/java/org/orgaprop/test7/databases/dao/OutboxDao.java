@@ -0,0 +1,28 @@
+package org.orgaprop.test7.databases.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import org.orgaprop.test7.databases.PrefDatabase;
+import org.orgaprop.test7.models.OutboxJob;
+
+import java.util.List;
+
+@Dao
+public interface OutboxDao {
+
+    @Query("SELECT * FROM "+PrefDatabase.OUTBOX_TABLE_NAME+" WHERE "+PrefDatabase.OUTBOX_COL_STATE+" = "+OutboxJob.STATE_PENDING+" AND "+PrefDatabase.OUTBOX_COL_RESID+" NOT IN (:blocked) ORDER BY "+PrefDatabase.OUTBOX_COL_ID+" LIMIT :limit") List<OutboxJob> getPendingJobsExcept(List<Integer> blocked, int limit);
+    @Query("SELECT COUNT(*) FROM "+PrefDatabase.OUTBOX_TABLE_NAME+" WHERE "+PrefDatabase.OUTBOX_COL_STATE+" = "+OutboxJob.STATE_PENDING) int countPendingJobs();
+    @Query("SELECT COUNT(*) FROM "+PrefDatabase.OUTBOX_TABLE_NAME+" WHERE "+PrefDatabase.OUTBOX_COL_STATE+" = "+OutboxJob.STATE_PENDING+" AND "+PrefDatabase.OUTBOX_COL_RESID+" = :resid") int countPendingJobsRsd(int resid);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertJob(OutboxJob job);
+
+    @Query("UPDATE "+PrefDatabase.OUTBOX_TABLE_NAME+" SET "+PrefDatabase.OUTBOX_COL_GET+" = :get, "+PrefDatabase.OUTBOX_COL_POST+" = :post, "+PrefDatabase.OUTBOX_COL_STATE+" = "+OutboxJob.STATE_PENDING+", "+PrefDatabase.OUTBOX_COL_ATTEMPTS+" = 0 WHERE "+PrefDatabase.OUTBOX_COL_KEY+" = :key") int updateJobPayload(String key, String get, String post);
+    @Query("UPDATE "+PrefDatabase.OUTBOX_TABLE_NAME+" SET "+PrefDatabase.OUTBOX_COL_ATTEMPTS+" = :attempts, "+PrefDatabase.OUTBOX_COL_STATE+" = :state, "+PrefDatabase.OUTBOX_COL_ERROR+" = :error WHERE "+PrefDatabase.OUTBOX_COL_ID+" = :jobId") int updateJobFailure(long jobId, int attempts, int state, String error);
+
+    @Query("DELETE FROM "+PrefDatabase.OUTBOX_TABLE_NAME+" WHERE "+PrefDatabase.OUTBOX_COL_ID+" = :jobId") int deleteJobById(long jobId);
+
+}
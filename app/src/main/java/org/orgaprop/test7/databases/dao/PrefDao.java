@@ -11,9 +11,12 @@ import androidx.room.Update;
 import org.orgaprop.test7.databases.PrefDatabase;
 import org.orgaprop.test7.models.Pref;
 
+import java.util.List;
+
 @Dao
 public interface PrefDao {
 
+    @Query("SELECT * FROM "+PrefDatabase.PREF_TABLE_NAME) List<Pref> getAllPrefs();
     @Query("SELECT * FROM "+PrefDatabase.PREF_TABLE_NAME+" WHERE "+PrefDatabase.PREF_COL_PARAM_NAME+" = :param") LiveData<Pref> getPrefFromParam(String param);
     @Query("SELECT * FROM "+PrefDatabase.PREF_TABLE_NAME+" WHERE "+PrefDatabase.PREF_COL_ID_NAME+" = :paramId") LiveData<Pref> getPrefFromId(long paramId);
     @Query("SELECT * FROM "+PrefDatabase.PREF_TABLE_NAME+" WHERE "+PrefDatabase.PREF_COL_PARAM_NAME+" = :param") Cursor getPrefFromParamWithCursor(String param);
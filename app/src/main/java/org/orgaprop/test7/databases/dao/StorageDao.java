@@ -11,8 +11,11 @@ import androidx.room.Update;
 
 import org.orgaprop.test7.databases.PrefDatabase;
 import org.orgaprop.test7.models.Storage;
+import org.orgaprop.test7.models.StorageSummary;
 import org.orgaprop.test7.services.MyDataProvider;
 
+import java.util.List;
+
 @Dao
 public interface StorageDao {
 
@@ -23,6 +26,13 @@ public interface StorageDao {
     @Query("SELECT * FROM "+PrefDatabase.STORAGE_TABLE_NAME+" WHERE "+PrefDatabase.STORAGE_COL_ID+" = :storageId") Cursor getStorageWithCursor(int storageId);
     @Query("SELECT * FROM "+PrefDatabase.STORAGE_TABLE_NAME+" WHERE "+PrefDatabase.STORAGE_COL_RESID+" = :storageRsd") Cursor getStorageRsdWithCursor(int storageRsd);
 
+    @Query("SELECT "+PrefDatabase.STORAGE_SUMMARY_COLUMNS+" FROM "+PrefDatabase.STORAGE_TABLE_NAME+" ORDER BY "+PrefDatabase.STORAGE_COL_ID) List<StorageSummary> getStorageSummaries();
+    @Query("SELECT "+PrefDatabase.STORAGE_SUMMARY_COLUMNS+" FROM "+PrefDatabase.STORAGE_TABLE_NAME+" WHERE "+PrefDatabase.STORAGE_COL_RESID+" = :storageRsd") StorageSummary getStorageSummaryRsd(int storageRsd);
+    @Query("SELECT "+PrefDatabase.STORAGE_SUMMARY_COLUMNS+" FROM "+PrefDatabase.STORAGE_TABLE_NAME+" WHERE "+PrefDatabase.STORAGE_COL_ID+" > :afterId ORDER BY "+PrefDatabase.STORAGE_COL_ID+" LIMIT :limit") List<StorageSummary> getStorageSummaryPage(long afterId, int limit);
+    @Query("SELECT COUNT(*) FROM "+PrefDatabase.STORAGE_TABLE_NAME) int countStorages();
+    @Query("SELECT EXISTS(SELECT 1 FROM "+PrefDatabase.STORAGE_TABLE_NAME+")") boolean hasStorages();
+    @Query("SELECT EXISTS(SELECT 1 FROM "+PrefDatabase.STORAGE_TABLE_NAME+" WHERE "+PrefDatabase.STORAGE_COL_RESID+" = :storageRsd)") boolean hasStorageRsd(int storageRsd);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     long insertStorage(Storage storage);
 
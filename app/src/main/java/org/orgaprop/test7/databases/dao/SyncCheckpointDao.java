@@ -0,0 +1,23 @@
+package org.orgaprop.test7.databases.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import org.orgaprop.test7.databases.PrefDatabase;
+import org.orgaprop.test7.models.SyncCheckpoint;
+
+import java.util.List;
+
+@Dao
+public interface SyncCheckpointDao {
+
+    @Query("SELECT * FROM "+PrefDatabase.SYNC_TABLE_NAME+" ORDER BY "+PrefDatabase.SYNC_COL_ID+" DESC LIMIT 1") SyncCheckpoint getLastCheckpoint();
+    @Query("SELECT * FROM "+PrefDatabase.SYNC_TABLE_NAME+" WHERE "+PrefDatabase.SYNC_COL_RUN+" = :run AND "+PrefDatabase.SYNC_COL_REFUSED+" IS NOT NULL ORDER BY "+PrefDatabase.SYNC_COL_ID) List<SyncCheckpoint> getRefusedCheckpoints(String run);
+
+    @Insert
+    long insertCheckpoint(SyncCheckpoint checkpoint);
+
+    @Query("DELETE FROM "+PrefDatabase.SYNC_TABLE_NAME) int deleteAllCheckpoints();
+
+}
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.widget.Toast;
 
 import org.orgaprop.test7.R;
+import org.orgaprop.test7.security.auth.LoginManager;
 import org.orgaprop.test7.services.HttpTask;
 import org.orgaprop.test7.services.Prefs;
 
@@ -52,6 +53,8 @@ public class DisconnectionManager {
 		prefs.setAgency("");
 		prefs.setGroup("");
 		prefs.setResidence("");
+
+		LoginManager.clearResidences();
 	}
 
 }
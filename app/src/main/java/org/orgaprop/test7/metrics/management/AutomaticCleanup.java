@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.management;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -24,11 +26,7 @@ public class AutomaticCleanup implements AutoCloseable {
 	private ScheduledFuture<?> cleanupTask;
 
 	public AutomaticCleanup(CleanupStrategy strategy) {
-		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-			Thread t = new Thread(r, "cleanup-worker");
-			t.setDaemon(true);
-			return t;
-		});
+		this.scheduler = AppExecutors.scheduler("cleanup-worker");
 		this.isRunning = new AtomicBoolean(false);
 		this.isPaused = new AtomicBoolean(false);
 		this.cleanupCounter = new AtomicInteger(0);
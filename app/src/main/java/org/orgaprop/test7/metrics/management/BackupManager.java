@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.management;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -26,7 +28,7 @@ public class BackupManager implements AutoCloseable {
 
 		Map<String, Object> backupConfig = (Map<String, Object>) managementConfig.getProperty("backup");
 		this.backupDirectory = Paths.get((String) backupConfig.get("backupLocation"));
-		this.scheduler = Executors.newScheduledThreadPool(1);
+		this.scheduler = AppExecutors.scheduler("backup-manager");
 
 		initialize();
 	}
@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.management;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -34,11 +36,7 @@ public class CacheManager implements AutoCloseable {
 	}
 
 	private ScheduledExecutorService createCleanupScheduler() {
-		return Executors.newSingleThreadScheduledExecutor(r -> {
-			Thread t = new Thread(r, "cache-cleanup");
-			t.setDaemon(true);
-			return t;
-		});
+		return AppExecutors.scheduler("cache-cleanup");
 	}
 
 	public void put(String cacheId, String key, Object value) {
@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.management;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -28,7 +30,7 @@ public class CriticalResourceManager implements AutoCloseable {
 		this.resourceLocks = new ConcurrentHashMap<>();
 		this.criticalResources = ConcurrentHashMap.newKeySet();
 		this.monitoringExecutor = createMonitoringExecutor();
-		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		this.scheduler = AppExecutors.scheduler("critical-resource");
 		this.alertSystem = alertSystem;
 		this.metrics = new ResourceMetrics();
 		this.isRunning = new AtomicBoolean(true);
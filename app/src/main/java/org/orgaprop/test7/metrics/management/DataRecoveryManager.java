@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.management;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -25,7 +27,7 @@ public class DataRecoveryManager implements AutoCloseable {
 		this.recoveryQueue = new ConcurrentLinkedQueue<>();
 		this.isRecovering = new AtomicBoolean(false);
 		this.recoveryAttempts = new AtomicInteger(0);
-		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		this.scheduler = AppExecutors.scheduler("data-recovery");
 		this.metrics = new RecoveryMetrics();
 		this.alertSystem = alertSystem;
 	}
@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.management;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -36,7 +38,7 @@ public class LifecycleManager implements AutoCloseable {
 			throw new IllegalStateException("Configuration manquante");
 		}
 
-		this.healthChecker = Executors.newScheduledThreadPool(1);
+		this.healthChecker = AppExecutors.scheduler("health-checker");
 		startHealthCheck();
 
 		startLifecycleMonitoring();
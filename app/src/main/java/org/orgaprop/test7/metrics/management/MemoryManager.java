@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.management;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.atomic.AtomicLong;
@@ -7,7 +9,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -46,7 +47,7 @@ public class MemoryManager implements AutoCloseable {
 			throw new IllegalStateException("Configuration manquante");
 		}
 
-		this.monitor = Executors.newScheduledThreadPool(1);
+		this.monitor = AppExecutors.scheduler("memory-monitor");
 		startMonitoring();
 	}
 
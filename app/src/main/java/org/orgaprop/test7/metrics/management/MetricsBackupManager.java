@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.management;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.nio.file.*;
@@ -29,11 +31,7 @@ public class MetricsBackupManager implements AutoCloseable {
 
 	public MetricsBackupManager(Path backupDir) {
 		this.backupDir = backupDir;
-		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-			Thread t = new Thread(r, "backup-worker");
-			t.setDaemon(true);
-			return t;
-		});
+		this.scheduler = AppExecutors.scheduler("backup-worker");
 		this.isRunning = new AtomicBoolean(false);
 		this.backupFailureCount = new AtomicInteger(0);
 		this.validator = new BackupValidator();
@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.management;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -123,21 +125,7 @@ public class OperationsManager implements AutoCloseable {
 	}
 
 	private ExecutorService createExecutor() {
-		return new ThreadPoolExecutor(
-				DEFAULT_THREAD_POOL_SIZE,
-				DEFAULT_THREAD_POOL_SIZE,
-				60L, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<>(),
-				new ThreadFactory() {
-					private final AtomicInteger count = new AtomicInteger(0);
-
-					@Override
-					public Thread newThread(Runnable r) {
-						Thread t = new Thread(r, "operations-worker-" + count.incrementAndGet());
-						t.setDaemon(true);
-						return t;
-					}
-				});
+		return AppExecutors.view("operations-worker", AppExecutors.compute(), DEFAULT_THREAD_POOL_SIZE, null);
 	}
 
 	@Override
@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.management;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -33,11 +35,7 @@ public class RetentionManager implements AutoCloseable {
 	}
 
 	private ScheduledExecutorService createScheduler() {
-		return Executors.newSingleThreadScheduledExecutor(r -> {
-			Thread t = new Thread(r, "retention-manager");
-			t.setDaemon(true);
-			return t;
-		});
+		return AppExecutors.scheduler("retention-manager");
 	}
 
 	private void startCleanupTask() {
@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.management;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -30,11 +32,7 @@ public class SecurityManager implements AutoCloseable {
 	}
 
 	private ScheduledExecutorService createScheduler() {
-		return Executors.newSingleThreadScheduledExecutor(r -> {
-			Thread t = new Thread(r, "security-monitor");
-			t.setDaemon(true);
-			return t;
-		});
+		return AppExecutors.scheduler("security-monitor");
 	}
 
 	private void startSecurityMonitoring() {
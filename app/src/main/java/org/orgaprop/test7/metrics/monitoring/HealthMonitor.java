@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.monitoring;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -32,12 +34,7 @@ public class HealthMonitor implements AutoCloseable {
 	}
 
 	private ScheduledExecutorService createScheduler() {
-		return Executors.newSingleThreadScheduledExecutor(r -> {
-			Thread t = new Thread(r, "health-monitor");
-			t.setDaemon(true);
-			t.setPriority(Thread.MAX_PRIORITY);
-			return t;
-		});
+		return AppExecutors.scheduler("health-monitor");
 	}
 
 	public void start() {
@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.monitoring;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -31,7 +33,7 @@ public class MetricsMonitor implements AutoCloseable {
 		int threadPoolSize = (int) schedulerConfig.get("threadPoolSize");
 
 		this.metricTrackers = new ConcurrentHashMap<>();
-		this.scheduler = Executors.newScheduledThreadPool(threadPoolSize);
+		this.scheduler = AppExecutors.view("metrics-monitor", AppExecutors.io(), threadPoolSize, null);
 		this.alertSystem = alertSystem;
 		this.isRunning = new AtomicBoolean(true);
 		this.statistics = new MetricsStatistics();
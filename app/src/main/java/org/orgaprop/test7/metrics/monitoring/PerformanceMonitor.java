@@ -4,8 +4,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.function.Supplier;
 
 public class PerformanceMonitor implements AutoCloseable {
 	private static final Logger logger = LoggerFactory.getLogger(PerformanceMonitor.class);
@@ -14,6 +16,13 @@ public class PerformanceMonitor implements AutoCloseable {
 	private static final int HISTORY_SIZE = 1000;
 	private static final double THRESHOLD_MULTIPLIER = 2.0;
 
+	/**
+	 * Sources de statistiques externes (transport HTTP, pools, caches...) fusionnées dans
+	 * {@link #getStats()}. Statique pour que les services puissent s'enregistrer sans
+	 * connaître l'instance du moniteur.
+	 */
+	private static final Map<String, Supplier<Map<String, Object>>> statsSources = new ConcurrentHashMap<>();
+
 	private final ScheduledExecutorService scheduler;
 	private final NavigableMap<Long, PerformanceMetric> metricsHistory;
 	private final Map<String, OperationStats> operationStats;
@@ -114,6 +123,33 @@ public class PerformanceMonitor implements AutoCloseable {
 		operationStats.forEach((op, opStats) -> stats.put(op, opStats.getStats()));
 		stats.put("rollingAverage", rollingAverage.getAverage());
 		stats.put("historySize", metricsHistory.size());
+		stats.putAll(getSourcesStats());
+		return stats;
+	}
+
+	/**
+	 * Enregistre une source de statistiques sous un nom unique, remplace la précédente.
+	 */
+	public static void registerStatsSource(String name, Supplier<Map<String, Object>> source) {
+		statsSources.put(name, source);
+	}
+
+	public static void unregisterStatsSource(String name) {
+		statsSources.remove(name);
+	}
+
+	/**
+	 * Statistiques courantes de toutes les sources enregistrées.
+	 */
+	public static Map<String, Object> getSourcesStats() {
+		Map<String, Object> stats = new HashMap<>();
+		statsSources.forEach((name, source) -> {
+			try {
+				stats.put(name, source.get());
+			} catch (Exception e) {
+				logger.warn("Source de statistiques indisponible : {}", name, e);
+			}
+		});
 		return stats;
 	}
 
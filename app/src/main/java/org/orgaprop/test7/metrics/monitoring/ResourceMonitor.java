@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.monitoring;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -25,11 +27,7 @@ public class ResourceMonitor implements AutoCloseable {
 
 	public ResourceMonitor(AlertSystem alertSystem) {
 		this.activeOperations = new AtomicInteger(0);
-		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-			Thread t = new Thread(r, "resource-monitor");
-			t.setDaemon(true);
-			return t;
-		});
+		this.scheduler = AppExecutors.scheduler("resource-monitor");
 		this.alertSystem = alertSystem;
 		this.isRunning = new AtomicBoolean(true);
 		this.metrics = new ResourceMetrics();
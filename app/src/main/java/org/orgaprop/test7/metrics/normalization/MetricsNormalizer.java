@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.normalization;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -35,7 +37,7 @@ public class MetricsNormalizer implements AutoCloseable {
 		this.rules = new ConcurrentHashMap<>();
 		this.converters = new ConcurrentHashMap<>();
 		this.requestQueue = new LinkedBlockingQueue<>(queueCapacity);
-		this.executor = Executors.newFixedThreadPool(threadPoolSize);
+		this.executor = AppExecutors.view("metrics-normalizer", AppExecutors.compute(), threadPoolSize, null);
 		this.isRunning = new AtomicBoolean(true);
 		this.metrics = new NormalizationMetrics();
 		this.validationManager = validationManager;
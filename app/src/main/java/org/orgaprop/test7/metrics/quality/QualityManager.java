@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.quality;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -32,7 +34,7 @@ public class QualityManager implements AutoCloseable {
 		int threadPoolSize = (int) processingConfig.get("threadPoolSize");
 
 		this.checkQueue = new LinkedBlockingQueue<>(maxQueueSize);
-		this.executor = Executors.newFixedThreadPool(threadPoolSize);
+		this.executor = AppExecutors.view("quality-manager", AppExecutors.compute(), threadPoolSize, null);
 		this.isRunning = new AtomicBoolean(true);
 		this.metrics = new QualityMetrics();
 		this.qualityService = new MetricsQuality(qualityConfig);
@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.utils;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -97,20 +99,7 @@ public class EventDispatcher<T extends Event> implements AutoCloseable {
 	}
 
 	private ExecutorService createExecutor() {
-		return new ThreadPoolExecutor(
-				2, 4, 60L, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<>(1000),
-				new ThreadFactory() {
-					private final AtomicInteger count = new AtomicInteger(0);
-
-					@Override
-					public Thread newThread(Runnable r) {
-						Thread t = new Thread(r, "event-dispatcher-" + count.incrementAndGet());
-						t.setDaemon(true);
-						return t;
-					}
-				},
-				new ThreadPoolExecutor.CallerRunsPolicy());
+		return AppExecutors.view("event-dispatcher", AppExecutors.compute(), 4, null);
 	}
 
 	@Override
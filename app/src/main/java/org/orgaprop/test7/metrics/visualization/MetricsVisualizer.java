@@ -1,5 +1,7 @@
 package org.orgaprop.test7.metrics.visualization;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
@@ -30,7 +32,7 @@ public class MetricsVisualizer implements AutoCloseable {
 		this.transformers = new ConcurrentHashMap<>();
 
 		Map<String, Object> perfConfig = (Map<String, Object>) visualConfig.getProperty("performance");
-		this.executor = Executors.newFixedThreadPool((int) perfConfig.get("threadPoolSize"));
+		this.executor = AppExecutors.view("metrics-visualizer", AppExecutors.compute(), (int) perfConfig.get("threadPoolSize"), null);
 
 		this.isRunning = new AtomicBoolean(true);
 		this.metrics = new VisualizationMetrics();
@@ -0,0 +1,47 @@
+package org.orgaprop.test7.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+import org.orgaprop.test7.databases.PrefDatabase;
+
+/**
+ * Nombre de lignes de {@link Storage} qui référencent un fichier du magasin d'images. Le
+ * compteur est modifié dans la transaction qui écrit ou efface la ligne : une annulation
+ * le laisse cohérent avec la table.
+ */
+@Entity(tableName = PrefDatabase.BLOB_REF_TABLE_NAME)
+public class BlobRef {
+
+//************ ENTITIES
+
+    @PrimaryKey
+    @ColumnInfo(name = PrefDatabase.BLOB_REF_COL_HASH)
+    @NonNull private String hash = "";
+
+    @ColumnInfo(name = PrefDatabase.BLOB_REF_COL_REFS)
+    @NonNull private Integer refs = 0;
+
+//************ CONSTRUCTORS
+
+    public BlobRef() {}
+    @Ignore
+    public BlobRef(@NonNull String hash, int refs) {
+        this.hash = hash;
+        this.refs = refs;
+    }
+
+//************ GETTERS
+
+    @NonNull public String getHash() { return this.hash; }
+    public int getRefs() { return this.refs; }
+
+//************ SETTERS
+
+    public void setHash(@NonNull String hash) { this.hash = hash; }
+    public void setRefs(int refs) { this.refs = refs; }
+
+}
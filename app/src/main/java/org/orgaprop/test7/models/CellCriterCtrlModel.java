@@ -20,6 +20,11 @@ public class CellCriterCtrlModel {
     private boolean hasComment = false;
     private boolean hasCapture = false;
 
+    private int revision = 0;
+    private int savedRevision = 0;
+    private int captureRevision = 0;
+    private int savedCaptureRevision = 0;
+
 //********* STATIC VARIABLES
 
     private static final String TAG = "CellCriterCtrlModel";
@@ -111,6 +116,10 @@ public class CellCriterCtrlModel {
     }
 
     public CellCriterCtrlModel setValue(int value) {
+        if( this.value != value ) {
+            revision++;
+        }
+
         this.value = value;
 
         return this;
@@ -129,6 +138,10 @@ public class CellCriterCtrlModel {
     }
 
     public CellCriterCtrlModel setComment(String comment) {
+        if( changed(this.comment, comment) ) {
+            revision++;
+        }
+
         this.comment = comment;
         hasComment = (this.comment.length() > 0);
 
@@ -139,6 +152,11 @@ public class CellCriterCtrlModel {
     }
 
     public CellCriterCtrlModel setCapture(String capture) {
+        if( changed(this.capture, capture) ) {
+            revision++;
+            captureRevision++;
+        }
+
         this.capture = capture;
         hasCapture = (this.capture.length() > 0);
 
@@ -149,6 +167,10 @@ public class CellCriterCtrlModel {
     }
 
     public void setCaptureUri(String uri) {
+        if( changed(this.captureUri, uri) ) {
+            captureRevision++;
+        }
+
         this.captureUri = uri;
     }
     public String getCaptureUri() {
@@ -185,4 +207,45 @@ public class CellCriterCtrlModel {
         return hasCapture;
     }
 
+    /**
+     * Vrai si la valeur, le commentaire ou la capture ont changé depuis le dernier
+     * enregistrement acquitté par le serveur.
+     */
+    public boolean isDirty() {
+        return revision != savedRevision;
+    }
+    public boolean isCaptureDirty() {
+        return captureRevision != savedCaptureRevision;
+    }
+    public int getRevision() {
+        return revision;
+    }
+    public int getCaptureRevision() {
+        return captureRevision;
+    }
+
+    /**
+     * Marque comme enregistrée la révision envoyée ; une modification faite depuis
+     * l'envoi reste à transmettre.
+     */
+    public void markSaved(int revision) {
+        savedRevision = Math.max(savedRevision, revision);
+    }
+    /**
+     * Marque comme envoyée l'image de la révision {@code captureRevision}, une fois son envoi
+     * acquitté : l'enregistrement de la grille ne suffit pas.
+     */
+    public void markCaptureSaved(int captureRevision) {
+        savedCaptureRevision = Math.max(savedCaptureRevision, captureRevision);
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private static boolean changed(String oldValue, String newValue) {
+        String a = (oldValue != null) ? oldValue : "";
+        String b = (newValue != null) ? newValue : "";
+
+        return !a.equals(b);
+    }
+
 }
@@ -1,7 +1,5 @@
 package org.orgaprop.test7.models;
 
-import org.orgaprop.test7.controllers.activities.MakeCtrlActivity;
-
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
@@ -175,7 +173,17 @@ public class CellElmtCtrlModel {
         return this;
     }
 
-    public NoteModel note() {
+    public boolean isDirty() {
+        for( CellCriterCtrlModel criter : listCriters ) {
+            if( criter.isDirty() ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public NoteModel note(int meteo) {
         NoteModel result = new NoteModel();
         float note = 0;
         int max = 0;
@@ -186,7 +194,7 @@ public class CellElmtCtrlModel {
 
                 if( calc < 0 ) calc = 0;
 
-                note += (((calc * criter.getCoef()) + ((calc * criter.getCoef()) * (MakeCtrlActivity.meteo / 10.0))) * coef);
+                note += (((calc * criter.getCoef()) + ((calc * criter.getCoef()) * (meteo / 10.0))) * coef);
                 max += (criter.getCoef() * coef);
             }
         }
@@ -169,13 +169,23 @@ public class CellZoneCtrlModel {
         return listElements;
     }
 
-    public NoteModel note() {
+    public boolean isDirty() {
+        for( CellElmtCtrlModel item : listElements ) {
+            if( item.isDirty() ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public NoteModel note(int meteo) {
         NoteModel result = new NoteModel();
         float note = 0;
         int max = 0;
 
         for( CellElmtCtrlModel item : listElements ) {
-            NoteModel noteElement = item.note();
+            NoteModel noteElement = item.note(meteo);
 
             note += noteElement.note * coef;
             max += noteElement.max * coef;
@@ -0,0 +1,484 @@
+package org.orgaprop.test7.models;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodage binaire versionné d'un contrôle en cours, stocké dans la colonne BLOB
+ * {@code ctrl_blob} de {@link Storage} à la place du JSON de {@code ctrl_ctrl}.
+ *
+ * <p>Format : en-tête {@code 'C' 'T' version flags}, puis la charge utile, compressée
+ * par Deflater lorsque {@link #FLAG_DEFLATE} est positionné :
+ * table des chaînes (identifiants, commentaires, noms et URI de captures, la chaîne vide
+ * en position 0), puis l'arbre zones / éléments / critères où chaque chaîne est un indice
+ * de la table. Entiers en varint, notes en zigzag.</p>
+ */
+public final class CtrlCodec {
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "CtrlCodec";
+
+    public static final int VERSION = 1;
+    public static final int FLAG_DEFLATE = 0x01;
+
+    private static final byte MAGIC_0 = 'C';
+    private static final byte MAGIC_1 = 'T';
+    private static final int HEADER_SIZE = 4;
+
+    /** En dessous de cette taille la compression ne rapporte rien. */
+    private static final int DEFLATE_THRESHOLD = 512;
+
+//********* CONSTRUCTORS
+
+    private CtrlCodec() {}
+
+//********* PUBLIC FUNCTIONS
+
+    /**
+     * Encode l'état saisi de la fiche (note, commentaire et capture de chaque critère).
+     */
+    public static byte[] encode(FicheResidModel fiche) {
+        Writer writer = new Writer();
+
+        for( CellZoneCtrlModel zone : fiche.getZones() ) {
+            writer.zone(zone.getId());
+
+            for( CellElmtCtrlModel element : zone.getElements() ) {
+                writer.element(element.getId());
+
+                for( CellCriterCtrlModel criter : element.getCriters() ) {
+                    writer.criter(criter.getId(), criter.getValue(), criter.getComment(), criter.getCapture(), criter.getCaptureUri());
+                }
+            }
+        }
+
+        return writer.toByteArray();
+    }
+
+    public static Grid decode(byte[] data) throws IOException {
+        if( data == null || data.length < HEADER_SIZE || data[0] != MAGIC_0 || data[1] != MAGIC_1 ) {
+            throw new IOException("En-tête de contrôle invalide");
+        }
+
+        int version = data[2] & 0xFF;
+        int flags = data[3] & 0xFF;
+
+        if( version != VERSION ) {
+            throw new IOException("Version de contrôle non supportée : " + version);
+        }
+
+        Reader in = ((flags & FLAG_DEFLATE) != 0)
+                ? new Reader(inflate(data, HEADER_SIZE))
+                : new Reader(data, HEADER_SIZE);
+
+        // Les tailles et indices viennent du stockage : bornés par ce qu'il reste à lire avant
+        // toute allocation, chaque entrée occupant au moins un octet par varint
+        String[] strings = new String[in.readCount(1)];
+
+        for( int i = 0; i < strings.length; i++ ) {
+            strings[i] = in.readString();
+        }
+
+        Zone[] zones = new Zone[in.readCount(2)];
+
+        for( int z = 0; z < zones.length; z++ ) {
+            String idZone = strings[in.readIndex(strings.length)];
+            Element[] elements = new Element[in.readCount(2)];
+
+            for( int e = 0; e < elements.length; e++ ) {
+                String idElement = strings[in.readIndex(strings.length)];
+                Criter[] criters = new Criter[in.readCount(5)];
+
+                for( int c = 0; c < criters.length; c++ ) {
+                    String idCriter = strings[in.readIndex(strings.length)];
+                    int value = in.readZigzag();
+                    String comment = strings[in.readIndex(strings.length)];
+                    String capture = strings[in.readIndex(strings.length)];
+                    String captureUri = strings[in.readIndex(strings.length)];
+
+                    criters[c] = new Criter(idCriter, value, comment, capture, captureUri);
+                }
+
+                elements[e] = new Element(idElement, criters);
+            }
+
+            zones[z] = new Zone(idZone, elements);
+        }
+
+        return new Grid(zones);
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private static byte[] inflate(byte[] data, int offset) throws IOException {
+        Inflater inflater = new Inflater();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        byte[] buffer = new byte[4096];
+
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+
+            while( !inflater.finished() ) {
+                int count = inflater.inflate(buffer);
+
+                if( count == 0 && (inflater.needsInput() || inflater.needsDictionary()) ) {
+                    throw new IOException("Contrôle compressé tronqué");
+                }
+
+                out.write(buffer, 0, count);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+
+        return out.toByteArray();
+    }
+
+//********* PUBLIC CLASSES
+
+    /**
+     * Construit l'encodage dans l'ordre zone, ses éléments, leurs critères.
+     */
+    public static final class Writer {
+
+        private final Map<String, Integer> stringIndex = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        // Le nombre d'enfants précède les enfants dans le flux : chaque élément est
+        // tamponné jusqu'à ce que ses critères soient connus
+        private final List<Integer> zoneIds = new ArrayList<>();
+        private final List<List<byte[]>> zoneElements = new ArrayList<>();
+        private ByteArrayOutputStream elementTree;
+        private int elementId;
+        private int criterCount;
+
+        public Writer() {
+            intern("");
+        }
+
+        public Writer zone(String id) {
+            closeElement();
+
+            zoneIds.add(intern(id));
+            zoneElements.add(new ArrayList<>());
+
+            return this;
+        }
+        public Writer element(String id) {
+            if( zoneIds.isEmpty() ) {
+                throw new IllegalStateException("Élément hors zone : " + id);
+            }
+
+            closeElement();
+
+            elementId = intern(id);
+            elementTree = new ByteArrayOutputStream();
+            criterCount = 0;
+
+            return this;
+        }
+        public Writer criter(String id, int value, String comment, String capture, String captureUri) {
+            if( elementTree == null ) {
+                throw new IllegalStateException("Critère hors élément : " + id);
+            }
+
+            writeVarint(elementTree, intern(id));
+            writeVarint(elementTree, (value << 1) ^ (value >> 31));
+            writeVarint(elementTree, intern(comment));
+            writeVarint(elementTree, intern(capture));
+            writeVarint(elementTree, intern(captureUri));
+            criterCount++;
+
+            return this;
+        }
+
+        public byte[] toByteArray() {
+            closeElement();
+
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+
+            writeVarint(payload, strings.size());
+
+            for( String value : strings ) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+                writeVarint(payload, bytes.length);
+                payload.write(bytes, 0, bytes.length);
+            }
+
+            writeVarint(payload, zoneIds.size());
+
+            for( int z = 0; z < zoneIds.size(); z++ ) {
+                List<byte[]> elements = zoneElements.get(z);
+
+                writeVarint(payload, zoneIds.get(z));
+                writeVarint(payload, elements.size());
+
+                for( byte[] element : elements ) {
+                    payload.write(element, 0, element.length);
+                }
+            }
+
+            byte[] raw = payload.toByteArray();
+            byte[] body = raw;
+            int flags = 0;
+
+            if( raw.length >= DEFLATE_THRESHOLD ) {
+                byte[] deflated = deflate(raw);
+
+                if( deflated.length < raw.length ) {
+                    body = deflated;
+                    flags |= FLAG_DEFLATE;
+                }
+            }
+
+            byte[] result = new byte[HEADER_SIZE + body.length];
+
+            result[0] = MAGIC_0;
+            result[1] = MAGIC_1;
+            result[2] = (byte) VERSION;
+            result[3] = (byte) flags;
+            System.arraycopy(body, 0, result, HEADER_SIZE, body.length);
+
+            return result;
+        }
+
+        private void closeElement() {
+            if( elementTree != null ) {
+                ByteArrayOutputStream element = new ByteArrayOutputStream(elementTree.size() + 8);
+
+                writeVarint(element, elementId);
+                writeVarint(element, criterCount);
+                element.write(elementTree.toByteArray(), 0, elementTree.size());
+
+                zoneElements.get(zoneElements.size() - 1).add(element.toByteArray());
+                elementTree = null;
+            }
+        }
+
+        private int intern(String value) {
+            String key = (value != null) ? value : "";
+            Integer index = stringIndex.get(key);
+
+            if( index == null ) {
+                index = strings.size();
+                strings.add(key);
+                stringIndex.put(key, index);
+            }
+
+            return index;
+        }
+
+        private static byte[] deflate(byte[] raw) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+
+            try {
+                deflater.setInput(raw);
+                deflater.finish();
+
+                while( !deflater.finished() ) {
+                    int count = deflater.deflate(buffer);
+
+                    out.write(buffer, 0, count);
+                }
+            } finally {
+                deflater.end();
+            }
+
+            return out.toByteArray();
+        }
+
+        private static void writeVarint(ByteArrayOutputStream out, int value) {
+            while( (value & ~0x7F) != 0 ) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            out.write(value);
+        }
+    }
+
+    /**
+     * Contrôle décodé. Les recherches par identifiant sont linéaires : une zone compte
+     * quelques dizaines d'éléments au plus.
+     */
+    public static final class Grid {
+        private final Zone[] zones;
+
+        Grid(Zone[] zones) {
+            this.zones = zones;
+        }
+
+        public int getZoneCount() {
+            return zones.length;
+        }
+        public Zone getZone(int position) {
+            return zones[position];
+        }
+        public Zone findZone(String id) {
+            for( Zone zone : zones ) {
+                if( zone.id.equals(id) ) {
+                    return zone;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    public static final class Zone {
+        public final String id;
+        private final Element[] elements;
+
+        Zone(String id, Element[] elements) {
+            this.id = id;
+            this.elements = elements;
+        }
+
+        public int getElementCount() {
+            return elements.length;
+        }
+        public Element getElement(int position) {
+            return elements[position];
+        }
+        public Element findElement(String id) {
+            for( Element element : elements ) {
+                if( element.id.equals(id) ) {
+                    return element;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    public static final class Element {
+        public final String id;
+        private final Criter[] criters;
+
+        Element(String id, Criter[] criters) {
+            this.id = id;
+            this.criters = criters;
+        }
+
+        public int getCriterCount() {
+            return criters.length;
+        }
+        public Criter getCriter(int position) {
+            return criters[position];
+        }
+        public Criter findCriter(String id) {
+            for( Criter criter : criters ) {
+                if( criter.id.equals(id) ) {
+                    return criter;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    public static final class Criter {
+        public final String id;
+        public final int value;
+        public final String comment;
+        public final String capture;
+        public final String captureUri;
+
+        Criter(String id, int value, String comment, String capture, String captureUri) {
+            this.id = id;
+            this.value = value;
+            this.comment = comment;
+            this.capture = capture;
+            this.captureUri = captureUri;
+        }
+    }
+
+//********* PRIVATE CLASSES
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this(data, 0);
+        }
+        Reader(byte[] data, int offset) {
+            this.data = data;
+            this.position = offset;
+        }
+
+        int readVarint() throws IOException {
+            int result = 0;
+
+            for( int shift = 0; shift < 35; shift += 7 ) {
+                if( position >= data.length ) {
+                    throw new IOException("Contrôle tronqué");
+                }
+
+                int b = data[position++];
+
+                result |= (b & 0x7F) << shift;
+
+                if( (b & 0x80) == 0 ) {
+                    return result;
+                }
+            }
+
+            throw new IOException("Varint invalide");
+        }
+        /**
+         * Nombre d'entrées qui suivent, chacune occupant au moins {@code minSize} octets.
+         */
+        int readCount(int minSize) throws IOException {
+            int count = readVarint();
+
+            if( count < 0 || count > (data.length - position) / minSize ) {
+                throw new IOException("Nombre d'entrées invalide : " + count);
+            }
+
+            return count;
+        }
+        int readIndex(int size) throws IOException {
+            int index = readVarint();
+
+            if( index < 0 || index >= size ) {
+                throw new IOException("Indice de chaîne invalide : " + index);
+            }
+
+            return index;
+        }
+        int readZigzag() throws IOException {
+            int raw = readVarint();
+
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+        String readString() throws IOException {
+            int length = readVarint();
+
+            if( length < 0 || length > data.length - position ) {
+                throw new IOException("Chaîne tronquée");
+            }
+
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+
+            position += length;
+
+            return value;
+        }
+    }
+
+}
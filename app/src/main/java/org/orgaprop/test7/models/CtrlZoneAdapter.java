@@ -80,7 +80,7 @@ public class CtrlZoneAdapter extends ArrayAdapter<CellElmtCtrlModel> {
             assert item != null;
 
             String m = "S O";
-            NoteModel note = item.note();
+            NoteModel note = item.note(MakeCtrlActivity.meteo);
 
             if( note.max > 0 ) {
                 int calc = (int) ((note.note * 100) / note.max);
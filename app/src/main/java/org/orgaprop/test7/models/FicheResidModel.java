@@ -27,6 +27,9 @@ public class FicheResidModel {
 
     private String commentRsd;
 
+    private int saveVersion = 0;
+    private int ackVersion = 0;
+
 //********* STATIC VARIABLES
 
     private static final String TAG = "FicheResidModel";
@@ -285,4 +288,24 @@ public class FicheResidModel {
         return this.commentRsd;
     }
 
+    /**
+     * Version du prochain enregistrement envoyé au serveur.
+     */
+    public synchronized int nextSaveVersion() {
+        return ++saveVersion;
+    }
+
+    /**
+     * Dernière version acquittée par le serveur, base des enregistrements différentiels ;
+     * 0 impose un enregistrement complet.
+     */
+    public synchronized FicheResidModel setAckVersion(int version) {
+        this.ackVersion = (version == 0) ? 0 : Math.max(this.ackVersion, version);
+
+        return this;
+    }
+    public synchronized int getAckVersion() {
+        return ackVersion;
+    }
+
 }
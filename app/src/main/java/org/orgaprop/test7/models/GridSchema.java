@@ -0,0 +1,168 @@
+package org.orgaprop.test7.models;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Grille de contrôle compilée une fois par session à partir de la structure JSON reçue
+ * à la connexion : zones, éléments et critères dans des tableaux indexés, coefficients
+ * déjà convertis. Les instances sont immuables et peuvent être partagées entre threads.
+ */
+public final class GridSchema {
+
+//********* PRIVATE VARIABLES
+
+    private final Zone[] zones;
+    private final Map<String, Integer> zoneIndex;
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "GridSchema";
+
+    public static final String KEY_COEF = "coef";
+    public static final String KEY_TEXT = "txt";
+    public static final String KEY_ELEMENTS = "e";
+    public static final String KEY_CRITERS = "c";
+
+    public static final GridSchema EMPTY = new GridSchema(new Zone[0]);
+
+//********* CONSTRUCTORS
+
+    private GridSchema(Zone[] zones) {
+        this.zones = zones;
+        this.zoneIndex = new HashMap<>(zones.length * 2);
+
+        for( int i = 0; i < zones.length; i++ ) {
+            zoneIndex.put(zones[i].id, i);
+        }
+    }
+
+    /**
+     * Compile la structure {zone: {coef, txt, e: {élément: {coef, txt, c: {critère: {coef, txt}}}}}}
+     * en conservant l'ordre des clés.
+     */
+    public static GridSchema compile(JSONObject structure) throws JSONException {
+        Zone[] zones = new Zone[structure.length()];
+        Iterator<String> keysZones = structure.keys();
+        int z = 0;
+
+        while( keysZones.hasNext() ) {
+            String idZone = keysZones.next();
+            JSONObject jsonZone = structure.getJSONObject(idZone);
+            JSONObject jsonElements = jsonZone.getJSONObject(KEY_ELEMENTS);
+            Element[] elements = new Element[jsonElements.length()];
+            Iterator<String> keysElements = jsonElements.keys();
+            int e = 0;
+
+            while( keysElements.hasNext() ) {
+                String idElement = keysElements.next();
+                JSONObject jsonElement = jsonElements.getJSONObject(idElement);
+                JSONObject jsonCriters = jsonElement.getJSONObject(KEY_CRITERS);
+                Criter[] criters = new Criter[jsonCriters.length()];
+                Iterator<String> keysCriters = jsonCriters.keys();
+                int c = 0;
+
+                while( keysCriters.hasNext() ) {
+                    String idCriter = keysCriters.next();
+                    JSONObject jsonCriter = jsonCriters.getJSONObject(idCriter);
+
+                    criters[c++] = new Criter(idCriter, jsonCriter.getString(KEY_TEXT), parseCoef(jsonCriter));
+                }
+
+                elements[e++] = new Element(idElement, jsonElement.getString(KEY_TEXT), parseCoef(jsonElement), criters);
+            }
+
+            zones[z++] = new Zone(idZone, jsonZone.getString(KEY_TEXT), parseCoef(jsonZone), elements);
+        }
+
+        return new GridSchema(zones);
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public int getZoneCount() {
+        return zones.length;
+    }
+    public Zone getZone(int position) {
+        return zones[position];
+    }
+    public int indexOfZone(String idZone) {
+        Integer position = zoneIndex.get(idZone);
+
+        return (position != null) ? position : -1;
+    }
+    public boolean isEmpty() {
+        return zones.length == 0;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private static int parseCoef(JSONObject json) throws JSONException {
+        try {
+            return Integer.parseInt(json.getString(KEY_COEF));
+        } catch (NumberFormatException e) {
+            throw new JSONException("Coefficient invalide : " + json.opt(KEY_COEF));
+        }
+    }
+
+//********* PUBLIC CLASSES
+
+    public static final class Zone {
+        public final String id;
+        public final String text;
+        public final int coef;
+        private final Element[] elements;
+
+        Zone(String id, String text, int coef, Element[] elements) {
+            this.id = id;
+            this.text = text;
+            this.coef = coef;
+            this.elements = elements;
+        }
+
+        public int getElementCount() {
+            return elements.length;
+        }
+        public Element getElement(int position) {
+            return elements[position];
+        }
+    }
+
+    public static final class Element {
+        public final String id;
+        public final String text;
+        public final int coef;
+        private final Criter[] criters;
+
+        Element(String id, String text, int coef, Criter[] criters) {
+            this.id = id;
+            this.text = text;
+            this.coef = coef;
+            this.criters = criters;
+        }
+
+        public int getCriterCount() {
+            return criters.length;
+        }
+        public Criter getCriter(int position) {
+            return criters[position];
+        }
+    }
+
+    public static final class Criter {
+        public final String id;
+        public final String text;
+        public final int coef;
+
+        Criter(String id, String text, int coef) {
+            this.id = id;
+            this.text = text;
+            this.coef = coef;
+        }
+    }
+
+}
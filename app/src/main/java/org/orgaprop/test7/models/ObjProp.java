@@ -22,6 +22,7 @@ public class ObjProp implements Serializable {
     /*  CONSTRUCTORS    */
     public ObjProp() {
         this.objConfig = new ObjConfig();
+        this.grille = new ObjGrille();
     }
 
     /*  GETTERS */
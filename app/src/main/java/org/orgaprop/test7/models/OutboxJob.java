@@ -0,0 +1,121 @@
+package org.orgaprop.test7.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.orgaprop.test7.databases.PrefDatabase;
+
+@Entity(tableName = PrefDatabase.OUTBOX_TABLE_NAME,
+        indices = {@Index(value = {PrefDatabase.OUTBOX_COL_KEY}, unique = true), @Index(value = {PrefDatabase.OUTBOX_COL_RESID})})
+public class OutboxJob {
+
+//************ ENTITIES
+
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = PrefDatabase.OUTBOX_COL_ID)
+    private long id;
+
+    @ColumnInfo(name = PrefDatabase.OUTBOX_COL_KEY)
+    @NonNull private String key = "";
+
+    @ColumnInfo(name = PrefDatabase.OUTBOX_COL_RESID)
+    @NonNull private Integer resid = 0;
+
+    @ColumnInfo(name = PrefDatabase.OUTBOX_COL_ACT)
+    @NonNull private String act = "";
+
+    @ColumnInfo(name = PrefDatabase.OUTBOX_COL_CBL)
+    @NonNull private String cbl = "";
+
+    @ColumnInfo(name = PrefDatabase.OUTBOX_COL_GET)
+    @NonNull private String get = "";
+
+    @ColumnInfo(name = PrefDatabase.OUTBOX_COL_POST)
+    @NonNull private String post = "";
+
+    @ColumnInfo(name = PrefDatabase.OUTBOX_COL_STATE)
+    @NonNull private Integer state = STATE_PENDING;
+
+    @ColumnInfo(name = PrefDatabase.OUTBOX_COL_ATTEMPTS)
+    @NonNull private Integer attempts = 0;
+
+    @ColumnInfo(name = PrefDatabase.OUTBOX_COL_CREATED)
+    @NonNull private Long created = 0L;
+
+    @ColumnInfo(name = PrefDatabase.OUTBOX_COL_ERROR)
+    @NonNull private String error = "";
+
+//************ CONSTANTS
+
+    public static final int STATE_PENDING = 0;
+    public static final int STATE_DEAD = 2;
+
+    public static final String OUTBOX_PARAM_KEY = "key";
+    public static final String OUTBOX_PARAM_ACT = "act";
+    public static final String OUTBOX_PARAM_CBL = "cbl";
+    public static final String OUTBOX_PARAM_GET = "get";
+    public static final String OUTBOX_PARAM_POST = "post";
+
+//************ CONSTRUCTORS
+
+    public OutboxJob() {}
+    @Ignore
+    public OutboxJob(@NonNull String key, int resid, @NonNull String act, @NonNull String cbl, @NonNull String get, @NonNull String post) {
+        this.key = key;
+        this.resid = resid;
+        this.act = act;
+        this.cbl = cbl;
+        this.get = get;
+        this.post = post;
+        this.created = System.currentTimeMillis();
+    }
+
+//************ GETTERS
+
+    public long getId() { return this.id; }
+    @NonNull public String getKey() { return this.key; }
+    public int getResid() { return this.resid; }
+    @NonNull public String getAct() { return this.act; }
+    @NonNull public String getCbl() { return this.cbl; }
+    @NonNull public String getGet() { return this.get; }
+    @NonNull public String getPost() { return this.post; }
+    public int getState() { return this.state; }
+    public int getAttempts() { return this.attempts; }
+    public long getCreated() { return this.created; }
+    @NonNull public String getError() { return this.error; }
+
+//************ SETTERS
+
+    public void setId(long id) { this.id = id; }
+    public void setKey(@NonNull String key) { this.key = key; }
+    public void setResid(int resid) { this.resid = resid; }
+    public void setAct(@NonNull String act) { this.act = act; }
+    public void setCbl(@NonNull String cbl) { this.cbl = cbl; }
+    public void setGet(@NonNull String get) { this.get = get; }
+    public void setPost(@NonNull String post) { this.post = post; }
+    public void setState(int state) { this.state = state; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public void setCreated(long created) { this.created = created; }
+    public void setError(@NonNull String error) { this.error = error; }
+
+//************  UTILS
+
+    public JSONObject toJSON() throws JSONException {
+        JSONObject result = new JSONObject();
+
+        result.put(OUTBOX_PARAM_KEY, key);
+        result.put(OUTBOX_PARAM_ACT, act);
+        result.put(OUTBOX_PARAM_CBL, cbl);
+        result.put(OUTBOX_PARAM_GET, get);
+        result.put(OUTBOX_PARAM_POST, post);
+
+        return result;
+    }
+
+}
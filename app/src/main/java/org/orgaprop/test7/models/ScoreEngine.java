@@ -0,0 +1,244 @@
+package org.orgaprop.test7.models;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Notes d'un contrôle tenues à jour de façon incrémentale. Les notes des éléments et des
+ * zones sont conservées ; une modification ne recalcule que l'élément concerné puis
+ * ré-agrège sa zone et le total à partir des valeurs conservées, dans le même ordre que
+ * {@link CellElmtCtrlModel#note(int)} et {@link CellZoneCtrlModel#note(int)} : les
+ * résultats sont identiques au bit près. Les limites de couleur sont lues une seule fois.
+ */
+public class ScoreEngine {
+
+//********* PRIVATE VARIABLES
+
+    private final FicheResidModel fiche;
+    private final List<ScoreListener> listeners = new CopyOnWriteArrayList<>();
+
+    private int meteo;
+    private int limitTop = -1;
+    private int limitDown = -1;
+
+    private NoteModel[][] elementNotes;
+    private NoteModel[] zoneNotes;
+    private final NoteModel globalNote = new NoteModel();
+
+//********* STATIC VARIABLES
+
+    private static final String TAG = "ScoreEngine";
+
+//********* INTERFACES
+
+    public interface ScoreListener {
+        /**
+         * @param zone position de la zone modifiée, -1 si toutes les zones ont changé
+         */
+        void onScoresChanged(int zone, int zonePercent, int globalPercent);
+    }
+
+//********* CONSTRUCTORS
+
+    public ScoreEngine(FicheResidModel fiche, int meteo) {
+        this.fiche = fiche;
+        this.meteo = meteo;
+
+        rebuild();
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public ScoreEngine setLimits(int limitTop, int limitDown) {
+        this.limitTop = limitTop;
+        this.limitDown = limitDown;
+
+        return this;
+    }
+    public int getLimitTop() {
+        return limitTop;
+    }
+    public int getLimitDown() {
+        return limitDown;
+    }
+
+    public void addListener(ScoreListener listener) {
+        listeners.add(listener);
+    }
+    public void removeListener(ScoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Valeur ou coefficient d'un critère, ou coefficient d'un élément, modifié.
+     */
+    public void onElementChanged(int zone, int element) {
+        int zonePercent;
+        int globalPercent;
+
+        synchronized (this) {
+            CellZoneCtrlModel modelZone = fiche.getZone(zone);
+            NoteModel previous = elementNotes[zone][element];
+            NoteModel current = modelZone.getElement(element).note(meteo);
+
+            elementNotes[zone][element] = current;
+
+            if( previous.max == current.max && Float.compare(previous.note, current.note) == 0 ) {
+                return;
+            }
+
+            refoldZone(zone, modelZone.getCoef());
+            refoldGlobal();
+
+            zonePercent = percent(zoneNotes[zone]);
+            globalPercent = percent(globalNote);
+        }
+
+        publish(zone, zonePercent, globalPercent);
+    }
+
+    /**
+     * Coefficient d'une zone modifié.
+     */
+    public void onZoneChanged(int zone) {
+        int zonePercent;
+        int globalPercent;
+
+        synchronized (this) {
+            refoldZone(zone, fiche.getZone(zone).getCoef());
+            refoldGlobal();
+
+            zonePercent = percent(zoneNotes[zone]);
+            globalPercent = percent(globalNote);
+        }
+
+        publish(zone, zonePercent, globalPercent);
+    }
+
+    public void setMeteo(int meteo) {
+        int globalPercent;
+
+        synchronized (this) {
+            if( this.meteo == meteo ) {
+                return;
+            }
+
+            this.meteo = meteo;
+            rebuild();
+
+            globalPercent = percent(globalNote);
+        }
+
+        publish(-1, -1, globalPercent);
+    }
+    public synchronized int getMeteo() {
+        return meteo;
+    }
+
+    /**
+     * Recalcule toutes les notes, après un ajout ou une suppression de zone ou d'élément.
+     */
+    public synchronized void rebuild() {
+        int nbZones = fiche.getZones().size();
+
+        elementNotes = new NoteModel[nbZones][];
+        zoneNotes = new NoteModel[nbZones];
+
+        for( int z = 0; z < nbZones; z++ ) {
+            CellZoneCtrlModel modelZone = fiche.getZone(z);
+            int nbElements = modelZone.getElements().size();
+
+            elementNotes[z] = new NoteModel[nbElements];
+
+            for( int e = 0; e < nbElements; e++ ) {
+                elementNotes[z][e] = modelZone.getElement(e).note(meteo);
+            }
+
+            refoldZone(z, modelZone.getCoef());
+        }
+
+        refoldGlobal();
+    }
+
+    public synchronized NoteModel getElementNote(int zone, int element) {
+        return copy(elementNotes[zone][element]);
+    }
+    public synchronized NoteModel getZoneNote(int zone) {
+        return copy(zoneNotes[zone]);
+    }
+    public synchronized NoteModel getGlobalNote() {
+        return copy(globalNote);
+    }
+
+    public synchronized int getElementPercent(int zone, int element) {
+        return percent(elementNotes[zone][element]);
+    }
+    public synchronized int getZonePercent(int zone) {
+        return percent(zoneNotes[zone]);
+    }
+    public synchronized int getGlobalPercent() {
+        return percent(globalNote);
+    }
+
+    /**
+     * Pourcentage affiché pour une note : -1 sans objet, plafonné à 100.
+     */
+    public static int percent(NoteModel note) {
+        if( note.max <= 0 ) {
+            return -1;
+        }
+
+        int calc = (int) ((note.note * 100) / note.max);
+
+        return (calc > 100) ? 100 : calc;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private void refoldZone(int zone, int coef) {
+        NoteModel result = new NoteModel();
+        float note = 0;
+        int max = 0;
+
+        for( NoteModel noteElement : elementNotes[zone] ) {
+            note += noteElement.note * coef;
+            max += noteElement.max * coef;
+        }
+
+        result.note = note;
+        result.max = max;
+
+        zoneNotes[zone] = result;
+    }
+
+    private void refoldGlobal() {
+        float note = 0;
+        int max = 0;
+
+        for( NoteModel noteZone : zoneNotes ) {
+            if( noteZone.max > 0 ) {
+                note += noteZone.note;
+                max += noteZone.max;
+            }
+        }
+
+        globalNote.note = note;
+        globalNote.max = max;
+    }
+
+    private void publish(int zone, int zonePercent, int globalPercent) {
+        for( ScoreListener listener : listeners ) {
+            listener.onScoresChanged(zone, zonePercent, globalPercent);
+        }
+    }
+
+    private static NoteModel copy(NoteModel note) {
+        NoteModel result = new NoteModel();
+
+        result.note = note.note;
+        result.max = note.max;
+
+        return result;
+    }
+
+}
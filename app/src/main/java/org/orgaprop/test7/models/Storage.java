@@ -3,6 +3,7 @@ package org.orgaprop.test7.models;
 import android.content.ContentValues;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
@@ -12,6 +13,9 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.orgaprop.test7.databases.PrefDatabase;
 
+import java.io.IOException;
+import java.util.function.UnaryOperator;
+
 @Entity(tableName = PrefDatabase.STORAGE_TABLE_NAME)
 public class Storage {
 
@@ -72,6 +76,9 @@ public class Storage {
     @ColumnInfo(name = PrefDatabase.STORAGE_COL_SEND_SRC)
     @NonNull private String send_src = "";
 
+    @ColumnInfo(name = PrefDatabase.STORAGE_COL_CTRL_BLOB, typeAffinity = ColumnInfo.BLOB)
+    @Nullable private byte[] ctrl_blob = null;
+
 //************ CONSTANTS
 
     public static final String STORAGE_PARAM_ID = "id";
@@ -125,6 +132,7 @@ public class Storage {
     public int getSend_dateCtrl() { return this.send_dateCtrl; }
     @NonNull public String getSend_typeCtrl() { return this.send_typeCtrl; }
     @NonNull public String getSend_src() { return this.send_src; }
+    @Nullable public byte[] getCtrl_blob() { return this.ctrl_blob; }
 
 //************ SETTERS
 
@@ -146,6 +154,7 @@ public class Storage {
     public void setSend_dateCtrl(int dateCtrl) { this.send_dateCtrl = dateCtrl; }
     public void setSend_typeCtrl(@NonNull String type) { this.send_typeCtrl = type; }
     public void setSend_src(@NonNull String src) { this.send_src = src; }
+    public void setCtrl_blob(@Nullable byte[] blob) { this.ctrl_blob = blob; }
 
 //************  UTILS
 
@@ -204,6 +213,10 @@ public class Storage {
             storage.setCtrl_ctrl(values.getAsString("ctrl"));
         }
 
+        if( values.containsKey("ctrl_blob") ) {
+            storage.setCtrl_blob(values.getAsByteArray("ctrl_blob"));
+        }
+
         if( values.containsKey(("sig1")) ) {
             storage.setCtrl_sig1(values.getAsString("sig1"));
         }
@@ -336,7 +349,7 @@ public class Storage {
             result.put("conf", this.getConfig());
 
             objCtrl.put("type", this.getCtrl_type());
-            objCtrl.put("grill", this.getCtrl_ctrl());
+            objCtrl.put("grill", this.getCtrlJSON());
             objCtrl.put("sig1", this.getCtrl_sig1());
             objCtrl.put("sig2", this.getCtrl_sig2());
             objCtrl.put("agt", this.getCtrl_sig());
@@ -360,4 +373,61 @@ public class Storage {
         return result;
     }
 
+    /**
+     * Grille saisie au format JSON historique {zone: {élément: {critère: {id, value, comment,
+     * capture: {name, img}}}}}, reconstruite depuis {@code ctrl_blob} lorsqu'il est renseigné.
+     */
+    @NonNull public String getCtrlJSON() {
+        return getCtrlJSON(UnaryOperator.identity());
+    }
+    /**
+     * Idem, chaque image de prise de vue passant par {@code images} (références du magasin
+     * remplacées par leur contenu pour le serveur).
+     */
+    @NonNull public String getCtrlJSON(UnaryOperator<String> images) {
+        if( ctrl_blob == null ) {
+            return this.ctrl_ctrl;
+        }
+
+        JSONObject grill = new JSONObject();
+
+        try {
+            CtrlCodec.Grid saved = CtrlCodec.decode(ctrl_blob);
+
+            for( int z = 0; z < saved.getZoneCount(); z++ ) {
+                CtrlCodec.Zone zone = saved.getZone(z);
+                JSONObject objZone = new JSONObject();
+
+                for( int e = 0; e < zone.getElementCount(); e++ ) {
+                    CtrlCodec.Element element = zone.getElement(e);
+                    JSONObject objElement = new JSONObject();
+
+                    for( int c = 0; c < element.getCriterCount(); c++ ) {
+                        CtrlCodec.Criter criter = element.getCriter(c);
+                        JSONObject objCriter = new JSONObject();
+                        JSONObject objCapture = new JSONObject();
+
+                        objCriter.put("id", criter.id);
+                        objCriter.put("value", criter.value);
+                        objCriter.put("comment", criter.comment);
+
+                        objCapture.put("name", criter.capture);
+                        objCapture.put("img", images.apply(criter.captureUri));
+                        objCriter.put("capture", objCapture);
+
+                        objElement.put(criter.id, objCriter);
+                    }
+
+                    objZone.put(element.id, objElement);
+                }
+
+                grill.put(zone.id, objZone);
+            }
+        } catch (IOException | JSONException e) {
+            e.printStackTrace();
+        }
+
+        return grill.toString();
+    }
+
 }
@@ -0,0 +1,48 @@
+package org.orgaprop.test7.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+
+import org.orgaprop.test7.databases.PrefDatabase;
+
+/**
+ * Projection légère d'une ligne de {@link Storage} : sans la grille, les signatures ni le plan
+ * d'actions, seulement leur poids total en octets. La ligne complète se charge à la demande
+ * avec {@link org.orgaprop.test7.services.Storages#getStorageById(long)}.
+ */
+public class StorageSummary {
+
+//************ ENTITIES
+
+    @ColumnInfo(name = PrefDatabase.STORAGE_COL_ID)
+    private long id;
+
+    @ColumnInfo(name = PrefDatabase.STORAGE_COL_RESID)
+    private int resid;
+
+    @ColumnInfo(name = PrefDatabase.STORAGE_COL_DATE)
+    private int date;
+
+    @ColumnInfo(name = PrefDatabase.STORAGE_COL_TYPE_CTRL)
+    @NonNull private String typeCtrl = "";
+
+    @ColumnInfo(name = PrefDatabase.STORAGE_COL_SIZE)
+    private long size;
+
+//************ GETTERS
+
+    public long getId() { return this.id; }
+    public int getResid() { return this.resid; }
+    public int getDate() { return this.date; }
+    @NonNull public String getTypeCtrl() { return this.typeCtrl; }
+    public long getSize() { return this.size; }
+
+//************ SETTERS
+
+    public void setId(long id) { this.id = id; }
+    public void setResid(int resid) { this.resid = resid; }
+    public void setDate(int date) { this.date = date; }
+    public void setTypeCtrl(@NonNull String typeCtrl) { this.typeCtrl = typeCtrl; }
+    public void setSize(long size) { this.size = size; }
+
+}
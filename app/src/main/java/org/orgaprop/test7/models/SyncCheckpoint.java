@@ -0,0 +1,90 @@
+package org.orgaprop.test7.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import org.orgaprop.test7.databases.PrefDatabase;
+
+/**
+ * Acquittement d'un lot de la synchronisation des contrôles hors ligne, ou refus d'une ligne
+ * ({@link #getRefused()} non nul, {@code firstRow} = identifiant de la ligne). Les lignes
+ * d'une synchronisation interrompue permettent de la reprendre sous le même identifiant sans
+ * renvoyer les lignes refusées ; elles sont effacées une fois la table parcourue.
+ */
+@Entity(tableName = PrefDatabase.SYNC_TABLE_NAME,
+        indices = {@Index(value = {PrefDatabase.SYNC_COL_RUN})})
+public class SyncCheckpoint {
+
+//************ ENTITIES
+
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = PrefDatabase.SYNC_COL_ID)
+    private long id;
+
+    @ColumnInfo(name = PrefDatabase.SYNC_COL_RUN)
+    @NonNull private String run = "";
+
+    @ColumnInfo(name = PrefDatabase.SYNC_COL_CHUNK)
+    @NonNull private Integer chunk = 0;
+
+    @ColumnInfo(name = PrefDatabase.SYNC_COL_FIRST_ROW)
+    @NonNull private Long firstRow = 0L;
+
+    @ColumnInfo(name = PrefDatabase.SYNC_COL_LAST_ROW)
+    @NonNull private Long lastRow = 0L;
+
+    @ColumnInfo(name = PrefDatabase.SYNC_COL_ROWS)
+    @NonNull private Integer rows = 0;
+
+    @ColumnInfo(name = PrefDatabase.SYNC_COL_BYTES)
+    @NonNull private Long bytes = 0L;
+
+    @ColumnInfo(name = PrefDatabase.SYNC_COL_ACKED)
+    @NonNull private Long acked = 0L;
+
+    @ColumnInfo(name = PrefDatabase.SYNC_COL_REFUSED)
+    private String refused;
+
+//************ CONSTRUCTORS
+
+    public SyncCheckpoint() {}
+    @Ignore
+    public SyncCheckpoint(@NonNull String run, int chunk, long firstRow, long lastRow, int rows, long bytes) {
+        this.run = run;
+        this.chunk = chunk;
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.acked = System.currentTimeMillis();
+    }
+
+//************ GETTERS
+
+    public long getId() { return this.id; }
+    @NonNull public String getRun() { return this.run; }
+    public int getChunk() { return this.chunk; }
+    public long getFirstRow() { return this.firstRow; }
+    public long getLastRow() { return this.lastRow; }
+    public int getRows() { return this.rows; }
+    public long getBytes() { return this.bytes; }
+    public long getAcked() { return this.acked; }
+    public String getRefused() { return this.refused; }
+
+//************ SETTERS
+
+    public void setId(long id) { this.id = id; }
+    public void setRun(@NonNull String run) { this.run = run; }
+    public void setChunk(int chunk) { this.chunk = chunk; }
+    public void setFirstRow(long firstRow) { this.firstRow = firstRow; }
+    public void setLastRow(long lastRow) { this.lastRow = lastRow; }
+    public void setRows(int rows) { this.rows = rows; }
+    public void setBytes(long bytes) { this.bytes = bytes; }
+    public void setAcked(long acked) { this.acked = acked; }
+    public void setRefused(String refused) { this.refused = refused; }
+
+}
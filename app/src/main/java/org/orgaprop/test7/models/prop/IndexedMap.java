@@ -0,0 +1,99 @@
+package org.orgaprop.test7.models.prop;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Vue {@code Map<Integer, V>} sur un stockage dense indexé de 0 à size()-1. Conserve
+ * l'API historique des getXxxMap() sans table de hachage ni clés boxées stockées.
+ */
+abstract class IndexedMap<V> extends AbstractMap<Integer, V> {
+
+    /*  ABSTRACT FUNCTIONS  */
+    abstract int count();
+    abstract V at(int index);
+    abstract void replace(int index, V value);
+    abstract void append(V value);
+
+    /**
+     * Valeur détachée du stockage, rendue par {@link #put} : à redéfinir quand {@link #at}
+     * rend une vue qui refléterait le remplacement.
+     */
+    V detach(int index) { return at(index); }
+
+    /*  MAP */
+    @Override
+    public int size() { return count(); }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (key instanceof Integer) && (Integer) key >= 0 && (Integer) key < count();
+    }
+
+    @Override
+    public V get(Object key) {
+        return containsKey(key) ? at((Integer) key) : null;
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        int index = key;
+
+        if( index == count() ) {
+            append(value);
+
+            return null;
+        }
+        if( index < 0 || index > count() ) {
+            throw new IllegalArgumentException("Index non contigu : " + index + " (taille " + count() + ")");
+        }
+
+        V previous = detach(index);
+        replace(index, value);
+
+        return previous;
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return new AbstractSet<Entry<Integer, V>>() {
+            @Override
+            public int size() { return count(); }
+
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                return new Iterator<Entry<Integer, V>>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() { return index < count(); }
+
+                    @Override
+                    public Entry<Integer, V> next() {
+                        if( !hasNext() ) {
+                            throw new NoSuchElementException();
+                        }
+
+                        int current = index++;
+
+                        return new SimpleImmutableEntry<>(current, at(current));
+                    }
+                };
+            }
+        };
+    }
+
+    /*  STATIC FUNCTIONS    */
+    /**
+     * Valeurs d'une map quelconque dans l'ordre croissant de leurs clés.
+     */
+    static <V> Iterable<V> valuesByKey(Map<Integer, V> map) {
+        return new TreeMap<>(map).values();
+    }
+
+}
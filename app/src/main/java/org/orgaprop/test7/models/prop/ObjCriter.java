@@ -4,11 +4,17 @@ import java.io.Serializable;
 
 public class ObjCriter implements Serializable {
 
+    private static final long serialVersionUID = 2L;
+
     /*  PRIVATE VARIABLES   */
     int id;
     int note;
     ObjComment comment;
 
+    /*  Vue sur le critère n° index d'un ObjElement (stockage en colonnes), null si autonome   */
+    private transient ObjElement owner;
+    private transient int index;
+
     /*  CONSTRUCTORS    */
     public ObjCriter() {
         this.id = 0;
@@ -25,19 +31,42 @@ public class ObjCriter implements Serializable {
         this.note = note;
         this.comment = new ObjComment();
     }
+    ObjCriter(int id, int note, ObjComment comment) {
+        this.id = id;
+        this.note = note;
+        this.comment = comment;
+    }
+    ObjCriter(ObjElement owner, int index) {
+        this.owner = owner;
+        this.index = index;
+    }
 
     /*  GETTERS */
-    public int getId() { return id; }
-    public int getNote() { return note; }
-    public ObjComment getComment() { return comment; }
+    public int getId() { return (owner != null) ? owner.criterId(index) : id; }
+    public int getNote() { return (owner != null) ? owner.criterNote(index) : note; }
+    public ObjComment getComment() { return (owner != null) ? owner.criterComment(index) : comment; }
 
     /*  SETTERS */
-    public void setId(int id) { this.id = id; }
-    public void setNote(int note) { this.note = note; }
-    public void setComment(ObjComment comment) { this.comment = comment; }
+    public void setId(int id) {
+        if( owner != null ) owner.setCriterId(index, id);
+        else this.id = id;
+    }
+    public void setNote(int note) {
+        if( owner != null ) owner.setCriterNote(index, note);
+        else this.note = note;
+    }
+    public void setComment(ObjComment comment) {
+        if( owner != null ) owner.setCriterComment(index, comment);
+        else this.comment = comment;
+    }
     public void setComment(String txt, String img) {
-        this.comment.setTxt(txt);
-        this.comment.setImg(img);
+        getComment().setTxt(txt);
+        getComment().setImg(img);
+    }
+
+    /*  SERIALIZATION   */
+    private Object writeReplace() {
+        return (owner != null) ? new ObjCriter(getId(), getNote(), getComment()) : this;
     }
 
 }
@@ -1,42 +1,201 @@
 package org.orgaprop.test7.models.prop;
 
-import java.io.Serializable;
-import java.util.HashMap;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
 
-public class ObjElement implements Serializable {
+/**
+ * Les critères sont rangés en colonnes (identifiants, notes, commentaires) ; les ObjCriter
+ * rendus par {@link #getCriter(int)} et {@link #getCriterMap()} lisent et écrivent
+ * directement dans ces colonnes. {@link #addCriter(ObjCriter)} copie le critère reçu.
+ */
+public class ObjElement implements Externalizable {
+
+    private static final long serialVersionUID = 2L;
 
     /*  PRIVATE VARIABLES   */
     int id;
     int note;
-    private Map<Integer, ObjCriter> criterMap;
+    private int[] criterIds;
+    private int[] criterNotes;
+    private ObjComment[] criterComments;
+    private int size;
 
     /*  CONSTRUCTORS    */
     public ObjElement() {
-        this.id = 0;
-        this.note = -1;
-        this.criterMap = new HashMap<>();
+        this(0, -1);
     }
     public ObjElement(int id) {
-        this.id = id;
-        this.note = -1;
-        this.criterMap = new HashMap<>();
+        this(id, -1);
     }
     public ObjElement(int id, int note) {
         this.id = id;
         this.note = note;
-        this.criterMap = new HashMap<>();
+        this.criterIds = new int[0];
+        this.criterNotes = new int[0];
+        this.criterComments = new ObjComment[0];
+        this.size = 0;
     }
 
     /*  GETTERS */
     public int getId() { return id; }
     public int getNote() { return note; }
-    public Map<Integer, ObjCriter> getCriterMap() { return criterMap; }
+    public Map<Integer, ObjCriter> getCriterMap() {
+        return new IndexedMap<ObjCriter>() {
+            @Override int count() { return size; }
+            @Override ObjCriter at(int index) { return getCriter(index); }
+            @Override ObjCriter detach(int index) { return new ObjCriter(criterIds[index], criterNotes[index], criterComment(index)); }
+            @Override void replace(int index, ObjCriter value) { setCriter(index, value); }
+            @Override void append(ObjCriter value) { addCriter(value); }
+        };
+    }
+    public int getCriterCount() { return size; }
+    public ObjCriter getCriter(int index) {
+        if( index < 0 || index >= size ) {
+            throw new IndexOutOfBoundsException("Critère " + index + " (taille " + size + ")");
+        }
+
+        return new ObjCriter(this, index);
+    }
 
     /*  SETTERS */
     public void setId(int id) { this.id = id; }
     public void setNote(int note) { this.note = note; }
-    public void setCriterMap(Map<Integer, ObjCriter> criterMap) { this.criterMap = criterMap; }
-    public void addCriter(ObjCriter criter) { this.criterMap.put(this.criterMap.size(), criter); }
+    public void setCriterMap(Map<Integer, ObjCriter> criterMap) {
+        int capacity = criterMap.size();
+        ObjCriter[] values = new ObjCriter[capacity];
+        int i = 0;
+
+        // Les valeurs peuvent être des vues sur cet élément : elles sont lues avant la remise à zéro
+        for( ObjCriter criter : IndexedMap.valuesByKey(criterMap) ) {
+            values[i++] = new ObjCriter(criter.getId(), criter.getNote(), criter.getComment());
+        }
+
+        this.criterIds = new int[capacity];
+        this.criterNotes = new int[capacity];
+        this.criterComments = new ObjComment[capacity];
+        this.size = 0;
+
+        for( ObjCriter criter : values ) {
+            addCriter(criter);
+        }
+    }
+    public void addCriter(ObjCriter criter) {
+        if( size == criterIds.length ) {
+            int capacity = Math.max(4, size * 2);
+
+            criterIds = Arrays.copyOf(criterIds, capacity);
+            criterNotes = Arrays.copyOf(criterNotes, capacity);
+            criterComments = Arrays.copyOf(criterComments, capacity);
+        }
+
+        size++;
+        setCriter(size - 1, criter);
+    }
+    public void trimToSize() {
+        if( criterIds.length != size ) {
+            criterIds = Arrays.copyOf(criterIds, size);
+            criterNotes = Arrays.copyOf(criterNotes, size);
+            criterComments = Arrays.copyOf(criterComments, size);
+        }
+    }
+
+    /*  CRITERS STORAGE */
+    int criterId(int index) { return criterIds[index]; }
+    int criterNote(int index) { return criterNotes[index]; }
+    ObjComment criterComment(int index) {
+        if( criterComments[index] == null ) {
+            criterComments[index] = new ObjComment();
+        }
+
+        return criterComments[index];
+    }
+    void setCriterId(int index, int id) { criterIds[index] = id; }
+    void setCriterNote(int index, int note) { criterNotes[index] = note; }
+    void setCriterComment(int index, ObjComment comment) { criterComments[index] = isEmpty(comment) ? null : comment; }
+
+    private void setCriter(int index, ObjCriter criter) {
+        criterIds[index] = criter.getId();
+        criterNotes[index] = criter.getNote();
+        setCriterComment(index, criter.getComment());
+    }
+
+    private static boolean isEmpty(ObjComment comment) {
+        return comment == null || (isEmpty(comment.getTxt()) && isEmpty(comment.getImg()));
+    }
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /*  SERIALIZATION   */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(id);
+        out.writeInt(note);
+        out.writeInt(size);
+
+        for( int i = 0; i < size; i++ ) {
+            ObjComment comment = criterComments[i];
+            boolean hasComment = !isEmpty(comment);
+
+            out.writeInt(criterIds[i]);
+            out.writeInt(criterNotes[i]);
+            out.writeBoolean(hasComment);
+
+            if( hasComment ) {
+                writeString(out, comment.getTxt());
+                writeString(out, comment.getImg());
+            }
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        id = in.readInt();
+        note = in.readInt();
+        size = in.readInt();
+        criterIds = new int[size];
+        criterNotes = new int[size];
+        criterComments = new ObjComment[size];
+
+        for( int i = 0; i < size; i++ ) {
+            criterIds[i] = in.readInt();
+            criterNotes[i] = in.readInt();
+
+            if( in.readBoolean() ) {
+                criterComments[i] = new ObjComment(readString(in), readString(in));
+            }
+        }
+    }
+
+    /**
+     * writeUTF est limité à 64 Ko encodés : la longueur est écrite à part.
+     */
+    private static void writeString(ObjectOutput out, String value) throws IOException {
+        if( value == null ) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+    private static String readString(ObjectInput in) throws IOException {
+        int length = in.readInt();
+
+        if( length < 0 ) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
 
 }
@@ -1,24 +1,83 @@
 package org.orgaprop.test7.models.prop;
 
-import java.io.Serializable;
-import java.util.HashMap;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
 import java.util.Map;
 
-public class ObjGrille implements Serializable {
+public class ObjGrille implements Externalizable {
+
+    private static final long serialVersionUID = 2L;
 
     /*  PRIVATE VARIABLES   */
-    Map<Integer, ObjZone> zoneMap;
+    private ObjZone[] zones;
+    private int size;
 
     /*  CONSTRUCTORS    */
     public ObjGrille() {
-        this.zoneMap = new HashMap<>();
+        this.zones = new ObjZone[0];
+        this.size = 0;
     }
 
     /*  GETTERS */
-    public Map<Integer, ObjZone> getZoneMap() { return zoneMap; }
+    public Map<Integer, ObjZone> getZoneMap() {
+        return new IndexedMap<ObjZone>() {
+            @Override int count() { return size; }
+            @Override ObjZone at(int index) { return zones[index]; }
+            @Override void replace(int index, ObjZone value) { zones[index] = value; }
+            @Override void append(ObjZone value) { addZone(value); }
+        };
+    }
+    public int getZoneCount() { return size; }
+    public ObjZone getZone(int index) { return zones[index]; }
 
     /*  SETTERS */
-    public void setZoneMap(Map<Integer, ObjZone> zoneMap) { this.zoneMap = zoneMap; }
-    public void addZone(ObjZone zone) { this.zoneMap.put(this.zoneMap.size(), zone); }
+    public void setZoneMap(Map<Integer, ObjZone> zoneMap) {
+        this.zones = new ObjZone[zoneMap.size()];
+        this.size = 0;
+
+        for( ObjZone zone : IndexedMap.valuesByKey(zoneMap) ) {
+            addZone(zone);
+        }
+    }
+    public void addZone(ObjZone zone) {
+        if( size == zones.length ) {
+            zones = Arrays.copyOf(zones, Math.max(4, size * 2));
+        }
+
+        zones[size++] = zone;
+    }
+    public void trimToSize() {
+        if( zones.length != size ) {
+            zones = Arrays.copyOf(zones, size);
+        }
+
+        for( int i = 0; i < size; i++ ) {
+            zones[i].trimToSize();
+        }
+    }
+
+    /*  SERIALIZATION   */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(size);
+
+        for( int i = 0; i < size; i++ ) {
+            zones[i].writeExternal(out);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        size = in.readInt();
+        zones = new ObjZone[size];
+
+        for( int i = 0; i < size; i++ ) {
+            zones[i] = new ObjZone();
+            zones[i].readExternal(in);
+        }
+    }
 
 }
@@ -1,42 +1,101 @@
 package org.orgaprop.test7.models.prop;
 
-import java.io.Serializable;
-import java.util.HashMap;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
 import java.util.Map;
 
-public class ObjZone implements Serializable {
+public class ObjZone implements Externalizable {
+
+    private static final long serialVersionUID = 2L;
 
     /*  PRIVATE VARIABLES   */
     int id;
     int note;
-    Map<Integer, ObjElement> elementMap;
+    private ObjElement[] elements;
+    private int size;
 
     /*  CONSTRUCTORS    */
     public ObjZone() {
-        this.id = 0;
-        this.note = -1;
-        this.elementMap = new HashMap<>();
+        this(0, -1);
     }
     public ObjZone(int id) {
-        this.id = id;
-        this.note = -1;
-        this.elementMap = new HashMap<>();
+        this(id, -1);
     }
     public ObjZone(int id, int note) {
         this.id = id;
         this.note = note;
-        this.elementMap = new HashMap<>();
+        this.elements = new ObjElement[0];
+        this.size = 0;
     }
 
     /*  GETTERS */
     public int getId() { return id; }
     public int getNote() { return note; }
-    public Map<Integer, ObjElement> getElementMap() { return elementMap; }
+    public Map<Integer, ObjElement> getElementMap() {
+        return new IndexedMap<ObjElement>() {
+            @Override int count() { return size; }
+            @Override ObjElement at(int index) { return elements[index]; }
+            @Override void replace(int index, ObjElement value) { elements[index] = value; }
+            @Override void append(ObjElement value) { addElement(value); }
+        };
+    }
+    public int getElementCount() { return size; }
+    public ObjElement getElement(int index) { return elements[index]; }
 
     /*  SETTERS */
     public void setId(int id) { this.id = id; }
     public void setNote(int note) { this.note = note; }
-    public void setElementMap(Map<Integer, ObjElement> elementMap) { this.elementMap = elementMap; }
-    public void addElement(ObjElement element) { this.elementMap.put(this.elementMap.size(), element); }
+    public void setElementMap(Map<Integer, ObjElement> elementMap) {
+        this.elements = new ObjElement[elementMap.size()];
+        this.size = 0;
+
+        for( ObjElement element : IndexedMap.valuesByKey(elementMap) ) {
+            addElement(element);
+        }
+    }
+    public void addElement(ObjElement element) {
+        if( size == elements.length ) {
+            elements = Arrays.copyOf(elements, Math.max(4, size * 2));
+        }
+
+        elements[size++] = element;
+    }
+    public void trimToSize() {
+        if( elements.length != size ) {
+            elements = Arrays.copyOf(elements, size);
+        }
+
+        for( int i = 0; i < size; i++ ) {
+            elements[i].trimToSize();
+        }
+    }
+
+    /*  SERIALIZATION   */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(id);
+        out.writeInt(note);
+        out.writeInt(size);
+
+        for( int i = 0; i < size; i++ ) {
+            elements[i].writeExternal(out);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        id = in.readInt();
+        note = in.readInt();
+        size = in.readInt();
+        elements = new ObjElement[size];
+
+        for( int i = 0; i < size; i++ ) {
+            elements[i] = new ObjElement();
+            elements[i].readExternal(in);
+        }
+    }
 
 }
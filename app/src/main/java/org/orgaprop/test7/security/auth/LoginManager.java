@@ -18,6 +18,7 @@ import org.json.JSONObject;
 
 import org.orgaprop.test7.controllers.activities.MainActivity;
 import org.orgaprop.test7.exceptions.BaseException;
+import org.orgaprop.test7.metrics.monitoring.PerformanceMonitor;
 import org.orgaprop.test7.exceptions.config.ConfigException;
 import org.orgaprop.test7.security.auth.callback.LoginCallbackManager;
 import org.orgaprop.test7.security.auth.device.LoginDeviceManager;
@@ -33,8 +34,13 @@ import org.orgaprop.test7.security.auth.config.LoginConfigManager;
 import org.orgaprop.test7.security.auth.report.LoginReportGenerator;
 import org.orgaprop.test7.security.network.NetworkMonitor;
 import org.orgaprop.test7.security.session.SessionManager;
+import org.orgaprop.test7.security.session.StructureCache;
 import org.orgaprop.test7.services.Prefs;
 import org.orgaprop.test7.services.HttpTask;
+import org.orgaprop.test7.services.ResidenceRepository;
+import org.orgaprop.test7.services.ResidenceSearchIndex;
+import org.orgaprop.test7.services.executors.AppExecutors;
+import org.orgaprop.test7.services.network.SingleFlight;
 
 import java.net.Inet4Address;
 import java.net.InetAddress;
@@ -44,7 +50,6 @@ import java.util.Enumeration;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.Map;
-import java.util.concurrent.Executors;
 
 /**
  * Gère l'authentification et la session utilisateur.
@@ -54,6 +59,8 @@ public class LoginManager implements NetworkMonitor.NetworkStateListener, Securi
 
 	private static final String TAG = LoginManager.class.getSimpleName();
 
+	private static final String LOGIN_FLIGHT_STATS_SOURCE = "login_single_flight";
+
 	private static volatile LoginManager instance;
 
 	private final Context context;
@@ -72,8 +79,10 @@ public class LoginManager implements NetworkMonitor.NetworkStateListener, Securi
 	private final SharedPreferences preferences;
 	private final Prefs prefs;
 	private final SessionManager sessionManager;
+	private final StructureCache structureCache;
 	private LoginInterfaces.LoginCallback loginCallback;
 	private final AuthManager authManager;
+	private final SingleFlight<JSONObject> loginFlight = new SingleFlight<>();
 
 	private LoginManager(Context context) {
 		validateContext(context);
@@ -96,8 +105,11 @@ public class LoginManager implements NetworkMonitor.NetworkStateListener, Securi
 		this.callbackManager = new LoginCallbackManager();
 		this.initializer = new LoginInitializer(context, preferences, prefs);
 		this.sessionManager = SessionManager.getInstance(this.context);
+		this.structureCache = StructureCache.getInstance(this.context);
 		this.authManager = new AuthManager(this.context);
 
+		PerformanceMonitor.registerStatsSource(LOGIN_FLIGHT_STATS_SOURCE, loginFlight::getStats);
+
 		// Configuration du NetworkMonitor
 		this.networkMonitor.setNetworkStateListener(this);
 		this.networkMonitor.startMonitoring();
@@ -110,7 +122,7 @@ public class LoginManager implements NetworkMonitor.NetworkStateListener, Securi
 				networkMonitor,
 				securityAnalyzer,
 				responseCache,
-				Executors.newSingleThreadScheduledExecutor());
+				AppExecutors.scheduler("login-resources"));
 	}
 
 	public static LoginManager getInstance(Context context) {
@@ -206,30 +218,11 @@ public class LoginManager implements NetworkMonitor.NetworkStateListener, Securi
 				return CompletableFuture.completedFuture(cachedResponse.get());
 			}
 
-			String stringGet = configManager.buildGetParameters();
-			String stringPost = configManager.buildPostParameters(username, password);
+			// Un double appui ou une relance pendant la connexion rejoint la demande en cours
+			String structureHash = structureCache.getHash();
+			String flightKey = configManager.buildGetParameters() + "\n" + configManager.buildPostParameters(username, password, structureHash);
 
-			HttpTask task = new HttpTask(context);
-			return task.executeHttpTask(
-					HttpTask.HTTP_TASK_ACT_CONEX,
-					HttpTask.HTTP_TASK_CBL_OK,
-					stringGet,
-					stringPost).thenApply(result -> {
-						JSONObject response = null;
-						try {
-							response = new JSONObject(result);
-							boolean success = response.optBoolean("status", false);
-							loginStatistics.recordLogin(username, System.currentTimeMillis(), success);
-							metricsManager.recordLoginAttempt(username, success, System.currentTimeMillis());
-							if (success) {
-								saveCredentials(username, password);
-								responseCache.cacheResponse(requestId, response);
-							}
-						} catch (JSONException | BaseException e) {
-							notifyError(ConfigException.ERR_MESS_BAD_DATA, e);
-						}
-						return response;
-					});
+			return loginFlight.run(flightKey, () -> requestLogin(username, password, requestId, structureHash));
 		} catch (Exception e) {
 			notifyError("Erreur lors de la connexion", e);
 			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
@@ -240,6 +233,44 @@ public class LoginManager implements NetworkMonitor.NetworkStateListener, Securi
 		}
 	}
 
+	/**
+	 * Envoie la demande de connexion. Une réponse sans grille est complétée depuis le disque ;
+	 * si ce n'est pas possible, la demande est refaite une fois sans hash.
+	 */
+	private CompletableFuture<JSONObject> requestLogin(String username, String password, String requestId, String structureHash) {
+		String stringGet = configManager.buildGetParameters();
+		String stringPost = configManager.buildPostParameters(username, password, structureHash);
+
+		HttpTask task = new HttpTask(context);
+		return task.executeHttpTask(
+				HttpTask.HTTP_TASK_ACT_CONEX,
+				HttpTask.HTTP_TASK_CBL_OK,
+				stringGet,
+				stringPost).thenCompose(result -> {
+					JSONObject response = null;
+					try {
+						response = new JSONObject(result);
+						boolean success = response.optBoolean("status", false);
+						if (success && !structureCache.resolve(response) && !structureHash.isEmpty()) {
+							Log.w(TAG, "Grille en cache indisponible, nouvelle demande complète");
+							structureCache.clear();
+							return requestLogin(username, password, requestId, "");
+						}
+						loginStatistics.recordLogin(username, System.currentTimeMillis(), success);
+						metricsManager.recordLoginAttempt(username, success, System.currentTimeMillis());
+						if (success) {
+							// Les résidences d'une session précédente, peut-être d'un autre agent, ne sont plus servies
+							clearResidences();
+							saveCredentials(username, password);
+							responseCache.cacheResponse(requestId, response);
+						}
+					} catch (JSONException | BaseException e) {
+						notifyError(ConfigException.ERR_MESS_BAD_DATA, e);
+					}
+					return CompletableFuture.completedFuture(response);
+				});
+	}
+
 	public CompletableFuture<JSONObject> logout(String username, String password) {
 		try {
 			checkNetworkConnection();
@@ -257,6 +288,9 @@ public class LoginManager implements NetworkMonitor.NetworkStateListener, Securi
 						JSONObject response = null;
 						try {
 							response = new JSONObject(result);
+							if (response.optBoolean("status", false)) {
+								clearResidences();
+							}
 						} catch (JSONException e) {
 							notifyError(ConfigException.ERR_MESS_BAD_DATA, e);
 						}
@@ -334,6 +368,16 @@ public class LoginManager implements NetworkMonitor.NetworkStateListener, Securi
 		editor.remove(MainActivity.PREF_KEY_MBR);
 		editor.remove(MainActivity.PREF_KEY_PWD);
 		editor.apply();
+
+		clearResidences();
+	}
+
+	/**
+	 * Oublie les résidences chargées pour l'agent connecté : dépôt et index de recherche hors ligne.
+	 */
+	public static void clearResidences() {
+		ResidenceRepository.getInstance().clear();
+		ResidenceSearchIndex.getInstance().clear();
 	}
 
 	private void validateLoginParameters(String username, String password) {
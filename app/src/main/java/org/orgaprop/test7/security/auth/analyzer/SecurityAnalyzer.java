@@ -3,6 +3,7 @@ package org.orgaprop.test7.security.auth.analyzer;
 import android.util.Log;
 
 import org.orgaprop.test7.security.auth.LoginManager;
+import org.orgaprop.test7.services.executors.AppExecutors;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -11,7 +12,6 @@ import java.util.Set;
 import java.util.HashSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.List;
@@ -37,7 +37,7 @@ public class SecurityAnalyzer {
 	}
 
 	public SecurityAnalyzer() {
-		this.scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+		this.scheduledExecutor = AppExecutors.scheduler("security-analyzer");
 	}
 
 	public void setSecurityEventListener(SecurityEventListener listener) {
@@ -71,6 +71,25 @@ public class LoginConfigManager {
 		}
 	}
 
+	/**
+	 * Paramètres de connexion avec le hash de la grille déjà enregistrée, pour que le serveur
+	 * ne la renvoie pas si elle n'a pas changé.
+	 */
+	public String buildPostParameters(String username, String password, String structureHash) {
+		String result = buildPostParameters(username, password);
+
+		if (structureHash == null || structureHash.isEmpty() || result.isEmpty()) {
+			return result;
+		}
+
+		try {
+			return result + "&struct=" + URLEncoder.encode(structureHash, ENCODING);
+		} catch (Exception e) {
+			Log.e(TAG, "Erreur lors de l'ajout du hash de la grille", e);
+			return result;
+		}
+	}
+
 	public int getConnectionTimeout() {
 		return CONNECTION_TIMEOUT;
 	}
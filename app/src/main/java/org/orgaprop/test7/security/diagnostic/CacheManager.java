@@ -6,13 +6,13 @@ import org.slf4j.LoggerFactory;
 import java.time.Duration;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.Map;
 import java.lang.ref.SoftReference;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.orgaprop.test7.security.diagnostic.DiagnosticResult;
+import org.orgaprop.test7.services.executors.AppExecutors;
 
 /**
  * Gestionnaire de cache pour les résultats de diagnostics de sécurité.
@@ -33,11 +33,7 @@ public class CacheManager implements AutoCloseable {
 	private static final Map<String, SoftReference<DiagnosticResult>> resultCache = new ConcurrentHashMap<>();
 
 	/** Exécuteur pour les tâches de nettoyage programmées */
-	private static final ScheduledExecutorService cleanupScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-		Thread t = new Thread(r, "Cache-Cleanup-Thread");
-		t.setDaemon(true);
-		return t;
-	});
+	private static final ScheduledExecutorService cleanupScheduler = AppExecutors.scheduler("cache-cleanup");
 
 	/** Indicateur d'arrêt du gestionnaire */
 	private static final AtomicBoolean isShutdown = new AtomicBoolean(false);
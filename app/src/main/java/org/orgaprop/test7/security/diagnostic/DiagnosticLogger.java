@@ -24,11 +24,11 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.CompletableFuture;
 
 import org.orgaprop.test7.security.diagnostic.SecurityCategory;
 import org.orgaprop.test7.security.diagnostic.SecuritySeverity;
+import org.orgaprop.test7.services.executors.AppExecutors;
 
 /**
  * Logger spécialisé pour les diagnostics de sécurité.
@@ -69,17 +69,9 @@ public class DiagnosticLogger implements AutoCloseable {
 	private Duration retentionPeriod = RETENTION_PERIOD;
 	private int maxHistory = MAX_HISTORY;
 
-	private final ExecutorService asyncExecutor = Executors.newSingleThreadExecutor(r -> {
-		Thread t = new Thread(r, "AsyncDiagnosticLogger");
-		t.setDaemon(true);
-		return t;
-	});
-
-	private final ScheduledExecutorService maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
-		Thread t = new Thread(r, "DiagnosticMaintenance");
-		t.setDaemon(true);
-		return t;
-	});
+	private final ExecutorService asyncExecutor = AppExecutors.serial("diagnostic-logger");
+
+	private final ScheduledExecutorService maintenanceExecutor = AppExecutors.scheduler("diagnostic-maintenance");
 
 	private volatile LoggerState state = LoggerState.ACTIVE;
 
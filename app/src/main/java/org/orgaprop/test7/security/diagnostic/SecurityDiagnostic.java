@@ -25,6 +25,7 @@ import org.orgaprop.test7.security.diagnostic.EmergencyProtocol;
 import org.orgaprop.test7.security.diagnostic.SecurityError;
 import org.orgaprop.test7.security.diagnostic.ResourceManager;
 import org.orgaprop.test7.security.diagnostic.DiagnosticResult;
+import org.orgaprop.test7.services.executors.AppExecutors;
 
 public class SecurityDiagnostic implements AutoCloseable {
 	private static final UnifiedSystemMonitoring systemMonitor = new UnifiedSystemMonitoring();
@@ -46,7 +47,7 @@ public class SecurityDiagnostic implements AutoCloseable {
 	private static volatile long lastCheckTime;
 
 	private static final long CHECK_TIMEOUT_MS = 5000; // 5 secondes
-	private static final ExecutorService executorService = Executors.newCachedThreadPool();
+	private static final ExecutorService executorService = AppExecutors.view("security-diagnostic", AppExecutors.io(), AppExecutors.IO_THREADS, null);
 
 	private static final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
 	private static final Lock readLock = cacheLock.readLock();
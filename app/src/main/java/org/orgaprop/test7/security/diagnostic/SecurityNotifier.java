@@ -1,5 +1,7 @@
 package org.orgaprop.test7.security.diagnostic;
 
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 public class SecurityNotifier {
 	private static final int MAX_HISTORY = 100;
 	private final Queue<NotificationRecord> notificationHistory = new ConcurrentLinkedQueue<>();
@@ -25,7 +27,7 @@ public class SecurityNotifier {
 
 	private final Map<SecuritySeverity, List<SecurityIssueListener>> listenersByType = new EnumMap<>(
 			SecuritySeverity.class);
-	private final ExecutorService notificationExecutor = Executors.newSingleThreadExecutor();
+	private final ExecutorService notificationExecutor = AppExecutors.serial("security-notifier");
 
 	public void addListener(SecuritySeverity severity, SecurityIssueListener listener) {
 		listenersByType.computeIfAbsent(severity, k -> new CopyOnWriteArrayList<>()).add(listener);
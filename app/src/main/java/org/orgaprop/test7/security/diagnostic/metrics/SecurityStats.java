@@ -1,13 +1,14 @@
 package org.orgaprop.test7.security.metrics;
 
 // Imports Android
+import org.orgaprop.test7.services.executors.AppExecutors;
+
 import androidx.annotation.NonNull;
 
 // Imports Java standard
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -82,7 +83,7 @@ public class SecurityStats {
 	 * Analyse les tendances de sécurité toutes les heures.
 	 */
 	private void trackSecurityEvents() {
-		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		ScheduledExecutorService scheduler = AppExecutors.scheduler("security-stats");
 		scheduler.scheduleAtFixedRate(() -> {
 			try {
 				analyzeSecurityTrends();
@@ -1,13 +1,13 @@
 package org.orgaprop.test7.security.diagnostic.scheduler;
 
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.orgaprop.test7.security.diagnostic.DiagnosticResult;
+import org.orgaprop.test7.services.executors.AppExecutors;
 
 public class DiagnosticScheduler {
-	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+	private final ScheduledExecutorService scheduler = AppExecutors.scheduler("diagnostic-scheduler");
 	private final SecurityDiagnostic diagnostic;
 	private final SecurityNotifier notifier;
 
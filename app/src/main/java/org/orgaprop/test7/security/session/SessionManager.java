@@ -7,9 +7,12 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import org.orgaprop.test7.controllers.activities.MainActivity;
+import org.orgaprop.test7.models.GridSchema;
 import org.orgaprop.test7.security.config.SecurityConfig;
 import org.orgaprop.test7.services.Prefs;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class SessionManager {
 
 	private static volatile SessionManager instance;
@@ -20,8 +23,8 @@ public class SessionManager {
 	private String idMbr;
 	private String adrMac;
 	private boolean hasContrat;
-	private JSONObject structure;
-	private JSONObject mapAgences;
+	private volatile SessionSnapshot snapshot = SessionSnapshot.EMPTY;
+	private final AtomicLong versions = new AtomicLong();
 
 	// Stockage des préférences
 	private final SharedPreferences preferences;
@@ -64,13 +67,14 @@ public class SessionManager {
 			throw new IllegalArgumentException("JSON de réponse invalide: champs requis manquants");
 		}
 
-		idMbr = jsonResponse.getString("idMbr");
-		adrMac = jsonResponse.getString("adrMac");
+		SessionSnapshot session = SessionSnapshot.of(versions.incrementAndGet(), jsonResponse);
+
+		idMbr = session.getIdMbr();
+		adrMac = session.getAdrMac();
 		isFirst = false;
 		isConnected = true;
-		hasContrat = jsonResponse.getBoolean("hasContrat");
-		structure = jsonResponse.getJSONObject("structure");
-		mapAgences = jsonResponse.getJSONObject("agences");
+		hasContrat = session.hasContrat();
+		snapshot = session;
 		saveSessionData(jsonResponse);
 	}
 
@@ -97,8 +101,7 @@ public class SessionManager {
 		idMbr = "new";
 		adrMac = "new";
 		hasContrat = false;
-		structure = new JSONObject();
-		mapAgences = new JSONObject();
+		snapshot = SessionSnapshot.empty(versions.incrementAndGet());
 		lastActivityTime = 0;
 		isAuthenticated = false;
 
@@ -130,12 +133,23 @@ public class SessionManager {
 		return hasContrat;
 	}
 
-	public JSONObject getStructure() throws JSONException {
-		return new JSONObject(structure.toString());
+	/**
+	 * État de la session courante, partagé sans copie. Remplacé, avec une nouvelle version,
+	 * à chaque ouverture ou fermeture de session.
+	 */
+	public SessionSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public long getVersion() {
+		return snapshot.getVersion();
 	}
 
-	public JSONObject getMapAgences() throws JSONException {
-		return new JSONObject(mapAgences.toString());
+	/**
+	 * Grille compilée à l'ouverture de session.
+	 */
+	public GridSchema getGridSchema() {
+		return snapshot.getGridSchema();
 	}
 
 	public long getLastActivityTime() { return lastActivityTime; }
@@ -0,0 +1,102 @@
+package org.orgaprop.test7.security.session;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import org.orgaprop.test7.models.GridSchema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * État d'une session ouverte, construit une seule fois à la connexion : grille compilée et
+ * agences déjà extraites du JSON. Les instances sont immuables et partagées entre écrans et
+ * threads sans copie. Le numéro de version change à chaque ouverture ou fermeture de session :
+ * un cache construit à partir d'un snapshot est périmé dès que la version diffère.
+ */
+public final class SessionSnapshot {
+
+	public static final SessionSnapshot EMPTY = new SessionSnapshot(0, "new", "new", false, GridSchema.EMPTY, Collections.emptyList());
+
+	private final long version;
+	private final String idMbr;
+	private final String adrMac;
+	private final boolean hasContrat;
+	private final GridSchema gridSchema;
+	private final List<Agency> agences;
+
+	private SessionSnapshot(long version, String idMbr, String adrMac, boolean hasContrat, GridSchema gridSchema, List<Agency> agences) {
+		this.version = version;
+		this.idMbr = idMbr;
+		this.adrMac = adrMac;
+		this.hasContrat = hasContrat;
+		this.gridSchema = gridSchema;
+		this.agences = agences;
+	}
+
+	/**
+	 * Construit le snapshot à partir de la réponse de connexion.
+	 */
+	static SessionSnapshot of(long version, JSONObject jsonResponse) throws JSONException {
+		JSONObject jsonAgences = jsonResponse.getJSONObject("agences");
+		List<Agency> agences = new ArrayList<>(jsonAgences.length());
+
+		for (Iterator<String> keys = jsonAgences.keys(); keys.hasNext(); ) {
+			JSONObject jsonAgency = jsonAgences.getJSONObject(keys.next());
+
+			agences.add(new Agency(jsonAgency.getInt("id"), jsonAgency.getString("txt")));
+		}
+
+		return new SessionSnapshot(
+				version,
+				jsonResponse.getString("idMbr"),
+				jsonResponse.getString("adrMac"),
+				jsonResponse.getBoolean("hasContrat"),
+				GridSchema.compile(jsonResponse.getJSONObject("structure")),
+				Collections.unmodifiableList(agences));
+	}
+
+	static SessionSnapshot empty(long version) {
+		return new SessionSnapshot(version, EMPTY.idMbr, EMPTY.adrMac, EMPTY.hasContrat, EMPTY.gridSchema, EMPTY.agences);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public String getIdMbr() {
+		return idMbr;
+	}
+
+	public String getAdrMac() {
+		return adrMac;
+	}
+
+	public boolean hasContrat() {
+		return hasContrat;
+	}
+
+	public GridSchema getGridSchema() {
+		return gridSchema;
+	}
+
+	/**
+	 * Agences dans l'ordre reçu du serveur. La liste n'est pas modifiable.
+	 */
+	public List<Agency> getAgences() {
+		return agences;
+	}
+
+	public static final class Agency {
+		public final int id;
+		public final String text;
+
+		Agency(int id, String text) {
+			this.id = id;
+			this.text = text;
+		}
+	}
+
+}
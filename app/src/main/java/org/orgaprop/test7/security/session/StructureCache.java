@@ -0,0 +1,140 @@
+package org.orgaprop.test7.security.session;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Copie sur disque de la grille ({@code structure}) et des agences ({@code agences}) reçues à la
+ * connexion, identifiée par le hash de version fourni par le serveur.
+ *
+ * <p>Le hash est envoyé avec la demande de connexion. Si la grille n'a pas changé, le serveur
+ * répond sans {@code structure} ni {@code agences} et {@link #resolve(JSONObject)} les remet
+ * dans la réponse à partir du disque. Les données sont écrites avant le hash : un hash présent
+ * désigne toujours des données complètes.</p>
+ */
+public class StructureCache {
+
+	private static final String TAG = "StructureCache";
+
+	public static final String KEY_HASH = "structureHash";
+	public static final String KEY_STRUCTURE = "structure";
+	public static final String KEY_AGENCES = "agences";
+
+	private static final String FILE_DATA = "structure.json";
+	private static final String FILE_HASH = "structure.hash";
+
+	private static volatile StructureCache instance;
+
+	private final File dataFile;
+	private final File hashFile;
+
+	private StructureCache(Context context) {
+		File dir = context.getApplicationContext().getFilesDir();
+
+		this.dataFile = new File(dir, FILE_DATA);
+		this.hashFile = new File(dir, FILE_HASH);
+	}
+
+	public static StructureCache getInstance(Context context) {
+		if (instance == null) {
+			synchronized (StructureCache.class) {
+				if (instance == null) {
+					instance = new StructureCache(context);
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * @return le hash de la grille enregistrée, ou une chaîne vide s'il n'y en a pas
+	 */
+	public synchronized String getHash() {
+		try {
+			return hashFile.exists() ? new String(Files.readAllBytes(hashFile.toPath()), StandardCharsets.UTF_8).trim() : "";
+		} catch (IOException e) {
+			Log.w(TAG, "Lecture du hash impossible", e);
+			return "";
+		}
+	}
+
+	/**
+	 * Complète une réponse de connexion réussie.
+	 *
+	 * <p>Une réponse avec grille est enregistrée si elle porte un hash. Une réponse sans grille
+	 * reçoit celle du disque, à condition que le hash corresponde.</p>
+	 *
+	 * @return false si la réponse n'a pas de grille et que le disque ne peut pas la fournir
+	 */
+	public synchronized boolean resolve(JSONObject response) throws JSONException {
+		String hash = response.optString(KEY_HASH, "");
+
+		if (response.has(KEY_STRUCTURE)) {
+			if (!hash.isEmpty()) {
+				save(hash, response.getJSONObject(KEY_STRUCTURE), response.getJSONObject(KEY_AGENCES));
+			}
+			return true;
+		}
+
+		if (hash.isEmpty() || !hash.equals(getHash())) {
+			return false;
+		}
+
+		try {
+			JSONObject data = new JSONObject(new String(Files.readAllBytes(dataFile.toPath()), StandardCharsets.UTF_8));
+
+			response.put(KEY_STRUCTURE, data.getJSONObject(KEY_STRUCTURE));
+			response.put(KEY_AGENCES, data.getJSONObject(KEY_AGENCES));
+			return true;
+		} catch (IOException | JSONException e) {
+			Log.w(TAG, "Grille en cache illisible", e);
+			clear();
+			return false;
+		}
+	}
+
+	public synchronized void clear() {
+		if (hashFile.exists() && !hashFile.delete()) {
+			Log.w(TAG, "Suppression du hash impossible");
+		}
+		if (dataFile.exists() && !dataFile.delete()) {
+			Log.w(TAG, "Suppression de la grille impossible");
+		}
+	}
+
+	private void save(String hash, JSONObject structure, JSONObject agences) throws JSONException {
+		JSONObject data = new JSONObject();
+
+		data.put(KEY_STRUCTURE, structure);
+		data.put(KEY_AGENCES, agences);
+
+		try {
+			// Le hash précédent ne doit pas survivre à une écriture interrompue des nouvelles données
+			clear();
+			write(dataFile, data.toString());
+			write(hashFile, hash);
+		} catch (IOException e) {
+			Log.w(TAG, "Enregistrement de la grille impossible", e);
+			clear();
+		}
+	}
+
+	private static void write(File file, String content) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+
+		Files.write(tmp.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+		if (!tmp.renameTo(file)) {
+			throw new IOException("Renommage impossible: " + file);
+		}
+	}
+
+}
@@ -8,10 +8,10 @@ import android.util.Log;
 
 import org.orgaprop.test7.databases.PrefDatabase;
 import org.orgaprop.test7.models.Contact;
+import org.orgaprop.test7.services.executors.AppExecutors;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
 
 public class Contacts {
 
@@ -34,7 +34,7 @@ public class Contacts {
 //************ SETTERS
 
     public void setContact(String address) {
-        Executors.newSingleThreadExecutor().execute(() -> {
+        AppExecutors.io().execute(() -> {
             ContentValues values = new ContentValues();
 
             values.put("address", address);
@@ -1,24 +1,29 @@
 package org.orgaprop.test7.services;
 
 import android.content.Context;
-import android.util.Log;
 
 import org.orgaprop.test7.controllers.activities.MainActivity;
+import org.orgaprop.test7.metrics.monitoring.PerformanceMonitor;
+import org.orgaprop.test7.services.executors.AppExecutors;
+import org.orgaprop.test7.services.network.BatchRequest;
+import org.orgaprop.test7.services.network.CachePolicy;
+import org.orgaprop.test7.services.network.CachingHttpTransport;
+import org.orgaprop.test7.services.network.HttpRequest;
+import org.orgaprop.test7.services.network.HttpResponse;
+import org.orgaprop.test7.services.network.HttpTransport;
+import org.orgaprop.test7.services.network.PooledHttpTransport;
+import org.orgaprop.test7.services.network.RetryPolicy;
+import org.orgaprop.test7.services.network.RetryScheduler;
+import org.orgaprop.test7.services.network.SingleFlight;
 import org.orgaprop.test7.utils.AndyUtils;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-
-import javax.net.ssl.HttpsURLConnection;
+import java.util.function.Consumer;
 
 import static org.orgaprop.test7.utils.AndyUtils.isNetworkAvailable;
 
@@ -30,6 +35,21 @@ public class HttpTask {
     //private static final String HTTP_ADRESS_SERVER = "https://www.orgaprop.org/cs/app/";
     private static final String HTTP_ADRESS_SERVER = "https://www.benysoftware.fr/cs/app/";
 
+    private static final String STATS_SOURCE = "http_transport";
+    private static final String RETRY_STATS_SOURCE = "http_retry";
+    private static final String CACHE_STATS_SOURCE = "http_cache";
+    private static final String CACHE_DIR = "http";
+    private static final String SINGLE_FLIGHT_STATS_SOURCE = "http_single_flight";
+
+    private static volatile HttpTransport transport;
+    private static volatile CachingHttpTransport cache;
+
+    private static final Map<String, CachePolicy> cachePolicies = new HashMap<>();
+    private static final Map<String, String[]> invalidatedReads = new HashMap<>();
+    private static CachePolicy planCachePolicy;
+
+    private static final SingleFlight<String> singleFlight = new SingleFlight<>();
+
     private Context context;
 
 //********* PUBLIC VARIABLES
@@ -60,9 +80,21 @@ public class HttpTask {
     public static final String HTTP_TASK_ACT_LOG = "log";
     public static final String HTTP_TASK_ACT_TEST = "test";
     public static final String HTTP_TASK_ACT_SYNCHRO = "synchro";
+    public static final String HTTP_TASK_CBL_BATCH = "batch";
 
     public static final int TIME_OUT = 10;
     public static final int RETRY_DELAY_MS = 1000;
+    public static final int RETRY_MAX_DELAY_MS = 8000;
+
+    static {
+        cache = new CachingHttpTransport(new PooledHttpTransport(), CachingHttpTransport.DEFAULT_MAX_BYTES, AppExecutors.view("http-revalidate", AppExecutors.network(), 1, null));
+
+        setTransport(cache);
+        configureRetries(RetryScheduler.getInstance());
+        configureCache();
+
+        PerformanceMonitor.registerStatsSource(SINGLE_FLIGHT_STATS_SOURCE, singleFlight::getStats);
+    }
 
 //********* CONSTRUCTORS
 
@@ -72,105 +104,242 @@ public class HttpTask {
 
 //********* PUBLIC FUNCTIONS
 
+    public static void setTransport(HttpTransport httpTransport) {
+        HttpTransport previous = transport;
+
+        transport = httpTransport;
+        PerformanceMonitor.registerStatsSource(STATS_SOURCE, httpTransport::getStats);
+
+        if( previous != null && previous != httpTransport ) {
+            previous.shutdown();
+        }
+    }
+    public static HttpTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Une requête identique (act, cbl, paramètres GET et POST) déjà en cours n'est pas relancée :
+     * l'appelant reçoit le résultat de la première.
+     */
     public CompletableFuture<String> executeHttpTask(String... params) {
-        return CompletableFuture.supplyAsync(() -> {
-            int retryCount = 0;
+        String paramsPost = params[3];
+        String key = params[0] + "\n" + params[1] + "\n" + normalize(params[2]) + "\n" + normalize(paramsPost);
 
-            while ( retryCount < TIME_OUT ) {
-                if( !isNetworkAvailable(this.context) ) {
-                    return "No internet connection";
-                }
+        return singleFlight.run(key, () -> execute(params[0], params[1], params[2], request -> request.setBody(paramsPost)));
+    }
+    /**
+     * Variante dont le corps POST est écrit directement dans la connexion par {@code body},
+     * rappelé à chaque tentative.
+     */
+    public CompletableFuture<String> executeHttpTask(String paramsAct, String paramsCbl, String paramsGet, HttpRequest.BodyWriter body) {
+        return execute(paramsAct, paramsCbl, paramsGet, request -> request.setBodyWriter(body));
+    }
+    /**
+     * Variante dont la réponse est lue en flux par {@code reader}, rappelé à chaque tentative ;
+     * le futur reçoit ce qu'il retourne.
+     */
+    public CompletableFuture<String> executeHttpTask(String paramsAct, String paramsCbl, String paramsGet, String paramsPost, HttpRequest.BodyReader reader) {
+        return execute(paramsAct, paramsCbl, paramsGet, request -> request.setBody(paramsPost).setBodyReader(reader));
+    }
+
+    /**
+     * Envoie les étapes de {@code batch} en une seule requête synchro/batch.
+     *
+     * <p>Le futur reçoit les résultats par clé d'étape ; une étape sans résultat (réseau absent,
+     * délai dépassé, erreur serveur, groupe annulé) n'a pas été appliquée. Il reçoit null si le
+     * serveur ne gère pas l'envoi groupé (refus 4xx ou réponse non multipart) : les étapes sont
+     * alors à envoyer une par une.</p>
+     */
+    public CompletableFuture<Map<String, String>> executeBatch(BatchRequest batch) {
+        final String url = buildUrl(HTTP_TASK_ACT_SYNCHRO, HTTP_TASK_CBL_BATCH, "mbr=" + MainActivity.idMbr);
+        final Map<String, String> noResult = Collections.emptyMap();
+
+        return RetryScheduler.getInstance().submit(HTTP_TASK_ACT_SYNCHRO, remainingMs -> {
+            if( !isNetworkAvailable(this.context) ) {
+                return noResult;
+            }
+
+            openCache();
 
-                String stringUrl = HTTP_ADRESS_SERVER;
-                String paramsAct = params[0];
-                String paramsCbl = params[1];
-                String paramsGet = params[2];
-                String paramsPost = params[3];
-
-                if( !paramsAct.isEmpty() && !paramsCbl.isEmpty() ) {
-                    URL url;
-                    HttpsURLConnection urlConnection = null;
-                    String result = null;
-
-                    stringUrl += MainActivity.ACCESS_CODE + ".php";
-                    stringUrl += "?act=" + paramsAct;
-                    stringUrl += "&cbl=" + paramsCbl;
-
-                    if( !paramsGet.isEmpty() ) {
-                        stringUrl += "&" + paramsGet;
-                    }
-
-                    try {
-                        url = new URL(stringUrl);
-
-                        urlConnection = (HttpsURLConnection) url.openConnection();
-
-                        urlConnection.setReadTimeout(AndyUtils.LAPS_TIME_TEST_CONNECT);
-                        urlConnection.setConnectTimeout(AndyUtils.LAPS_TIME_TEST_CONNECT);
-                        urlConnection.setRequestMethod("POST");
-                        urlConnection.setDoInput(true);
-                        urlConnection.setDoOutput(true);
-
-                        try (
-                                OutputStream outputStream = urlConnection.getOutputStream();
-                                BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))
-                        ) {
-                            bufferedWriter.write(paramsPost);
-                        }
-
-                        int responseCode = urlConnection.getResponseCode();
-
-                        if( responseCode == HttpsURLConnection.HTTP_OK ) {
-                            try ( InputStream in = new BufferedInputStream(urlConnection.getInputStream()) ) {
-                                result = readStream(in);
-                            }
-                        }
-
-                        return result;
-                    } catch (IOException e) {
-                        retryCount++;
-
-                        try {
-                            Thread.sleep(RETRY_DELAY_MS);
-                        } catch (InterruptedException ie) {
-                            Log.d(TAG, "InterruptedException occurred: " + ie.getMessage(), ie);
-                        }
-                    } finally {
-                        if (urlConnection != null) {
-                            urlConnection.disconnect();
-                        }
-                    }
-                } else {
-                    return "0Parametres manquants !!!";
+            int timeout = (int) Math.min(AndyUtils.LAPS_TIME_TEST_CONNECT, remainingMs);
+            HttpResponse response = transport.execute(batch.toHttpRequest(url).setTimeouts(timeout, timeout));
+            Map<String, String> results = batch.readResults(response);
+
+            if( results != null && response.isOk() ) {
+                for( BatchRequest.Step step : batch.getSteps() ) {
+                    invalidateReads(step.act);
                 }
             }
 
-            return "0Request timed out";
-        });
+            return results;
+        }, noResult);
     }
 
 //********* PRIVATE FUNCTIONS
 
-    private String readStream(InputStream in) {
-        StringBuilder result = new StringBuilder();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
-        String line;
+    private CompletableFuture<String> execute(String paramsAct, String paramsCbl, String paramsGet, Consumer<HttpRequest> body) {
+        if( paramsAct.isEmpty() || paramsCbl.isEmpty() ) {
+            return CompletableFuture.completedFuture("0Parametres manquants !!!");
+        }
+
+        final String url = buildUrl(paramsAct, paramsCbl, paramsGet);
+        final CachePolicy cachePolicy = getCachePolicy(paramsAct, paramsGet);
+
+        return RetryScheduler.getInstance().submit(paramsAct, remainingMs -> {
+            if( !isNetworkAvailable(this.context) ) {
+                return "No internet connection";
+            }
+
+            openCache();
+
+            int timeout = (int) Math.min(AndyUtils.LAPS_TIME_TEST_CONNECT, remainingMs);
+            HttpRequest request = new HttpRequest(url)
+                    .setMethod("POST")
+                    .setTimeouts(timeout, timeout)
+                    .setCachePolicy(cachePolicy);
+
+            body.accept(request);
+
+            HttpResponse response = transport.execute(request);
 
-        try {
-            while( ( line = reader.readLine() ) != null) {
-                result.append(line).append("\n");
+            if( cachePolicy == null && response.isOk() ) {
+                invalidateReads(paramsAct);
             }
-        } catch (IOException e) {
-            e.printStackTrace(); // Gestion de l'erreur, tu peux aussi retourner un message d'erreur
-        } finally {
-            try {
-                reader.close(); // Assurez-vous de fermer le BufferedReader
-            } catch (IOException e) {
-                e.printStackTrace(); // Gérer l'exception lors de la fermeture
+
+            return ( response.isOk() ) ? response.getBody() : null;
+        }, "0Request timed out");
+    }
+
+    private static String buildUrl(String paramsAct, String paramsCbl, String paramsGet) {
+        String stringUrl = HTTP_ADRESS_SERVER;
+
+        stringUrl += MainActivity.ACCESS_CODE + ".php";
+        stringUrl += "?act=" + paramsAct;
+        stringUrl += "&cbl=" + paramsCbl;
+
+        if( !paramsGet.isEmpty() ) {
+            stringUrl += "&" + paramsGet;
+        }
+
+        return stringUrl;
+    }
+
+    /**
+     * Paramètres triés : l'ordre d'écriture ne distingue pas deux requêtes.
+     */
+    private static String normalize(String query) {
+        if( query == null || query.isEmpty() ) {
+            return "";
+        }
+
+        String[] pairs = query.split("&");
+
+        Arrays.sort(pairs);
+
+        return String.join("&", pairs);
+    }
+
+    private void openCache() {
+        CachingHttpTransport httpCache = cache;
+
+        if( httpCache != null && this.context != null ) {
+            httpCache.open(new File(this.context.getCacheDir(), CACHE_DIR));
+        }
+    }
+
+    /**
+     * Une écriture rend obsolètes les lectures de la même action et celles qui affichent son effet.
+     */
+    private static void invalidateReads(String paramsAct) {
+        CachingHttpTransport httpCache = cache;
+
+        if( httpCache == null ) {
+            return;
+        }
+
+        httpCache.invalidate("?act=" + paramsAct + "&");
+
+        String[] reads = invalidatedReads.get(paramsAct);
+
+        if( reads != null ) {
+            for( String read : reads ) {
+                httpCache.invalidate("?act=" + read + "&");
             }
         }
+    }
+
+    /**
+     * Politique de cache des lectures ; null pour les écritures, qui partent toujours au serveur.
+     */
+    private static CachePolicy getCachePolicy(String paramsAct, String paramsGet) {
+        if( paramsAct.equals(HTTP_TASK_ACT_PROP) ) {
+            return ( paramsGet.startsWith("mod=" + HTTP_TASK_MOD_GET + "&") ) ? planCachePolicy : null;
+        }
+
+        return cachePolicies.get(paramsAct);
+    }
+
+    private static void configureCache() {
+        // Listes et recherches : servies tout de suite, rafraîchies en arrière-plan pendant la tournée
+        cachePolicies.put(HTTP_TASK_ACT_LIST, new CachePolicy()
+                .setMaxAge(2 * 60 * 1000)
+                .setStaleWhileRevalidate(30 * 60 * 1000));
+        cachePolicies.put(HTTP_TASK_ACT_SEARCH, new CachePolicy()
+                .setMaxAge(60 * 1000)
+                .setStaleWhileRevalidate(10 * 60 * 1000));
+        cachePolicies.put(HTTP_TASK_ACT_FICH, new CachePolicy()
+                .setMaxAge(5 * 60 * 1000)
+                .setStaleWhileRevalidate(60 * 60 * 1000));
+
+        // Plan d'actions : modifiable depuis l'application, jamais servi périmé
+        planCachePolicy = new CachePolicy()
+                .setMaxAge(30 * 1000);
+
+        // Lectures invalidées par chaque écriture
+        String[] controlReads = { HTTP_TASK_ACT_FICH, HTTP_TASK_ACT_LIST, HTTP_TASK_ACT_SEARCH };
+        String[] planReads = { HTTP_TASK_ACT_PROP, HTTP_TASK_ACT_FICH };
+
+        invalidatedReads.put(HTTP_TASK_ACT_SAVE, controlReads);
+        invalidatedReads.put(HTTP_TASK_ACT_SIGNATURE, controlReads);
+        invalidatedReads.put(HTTP_TASK_ACT_SYNCHRO, controlReads);
+        invalidatedReads.put(HTTP_TASK_ACT_SEND, controlReads);
+        invalidatedReads.put(HTTP_TASK_ACT_PLAN, planReads);
+        invalidatedReads.put(HTTP_TASK_ACT_VALID_PLAN, planReads);
+
+        PerformanceMonitor.registerStatsSource(CACHE_STATS_SOURCE, cache::getCacheStats);
+    }
 
-        return result.toString().trim(); // Retourne le résultat sous forme de chaîne, sans saut de ligne final
+    private static void configureRetries(RetryScheduler scheduler) {
+        RetryPolicy interactive = new RetryPolicy()
+                .setMaxAttempts(3)
+                .setBackoff(RETRY_DELAY_MS / 2, RETRY_MAX_DELAY_MS / 4, 2.0)
+                .setDeadline(20000)
+                .setBudget(0.1, 5);
+        RetryPolicy upload = new RetryPolicy()
+                .setMaxAttempts(TIME_OUT)
+                .setBackoff(RETRY_DELAY_MS, RETRY_MAX_DELAY_MS, 2.0)
+                .setDeadline(120000)
+                .setBudget(0.5, 20);
+
+        scheduler.setDefaultPolicy(new RetryPolicy()
+                .setMaxAttempts(TIME_OUT)
+                .setBackoff(RETRY_DELAY_MS, RETRY_MAX_DELAY_MS, 2.0)
+                .setDeadline(60000)
+                .setBudget(0.2, 10));
+
+        // Lectures interactives : l'utilisateur attend, mieux vaut échouer vite
+        scheduler.setPolicy(HTTP_TASK_ACT_LIST, interactive);
+        scheduler.setPolicy(HTTP_TASK_ACT_SEARCH, interactive);
+        scheduler.setPolicy(HTTP_TASK_ACT_FICH, interactive);
+
+        // Écritures porteuses de données saisies sur le terrain
+        scheduler.setPolicy(HTTP_TASK_ACT_SAVE, upload);
+        scheduler.setPolicy(HTTP_TASK_ACT_SYNCHRO, upload);
+        scheduler.setPolicy(HTTP_TASK_ACT_SIGNATURE, upload);
+        scheduler.setPolicy(HTTP_TASK_ACT_SEND, upload);
+
+        PerformanceMonitor.registerStatsSource(RETRY_STATS_SOURCE, scheduler::getStats);
     }
 
 }
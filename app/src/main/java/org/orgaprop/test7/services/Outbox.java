@@ -0,0 +1,357 @@
+package org.orgaprop.test7.services;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.orgaprop.test7.databases.PrefDatabase;
+import org.orgaprop.test7.databases.dao.OutboxDao;
+import org.orgaprop.test7.models.OutboxJob;
+import org.orgaprop.test7.services.executors.AppExecutors;
+import org.orgaprop.test7.services.network.BatchClient;
+import org.orgaprop.test7.services.network.BatchRequest;
+import org.orgaprop.test7.services.network.RetryPolicy;
+import org.orgaprop.test7.utils.AndyUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * File d'envoi persistante : chaque requête d'écriture (save, sign, planact, validplan, send)
+ * est enregistrée dans la table Outbox puis transmise par lots, dans l'ordre de création
+ * pour une même résidence, dès que le réseau est disponible.
+ *
+ * <p>Dans un lot, les jobs d'une même résidence sont appliqués ensemble : un refus définitif de
+ * l'un abandonne les autres (état mort), une annulation sans refus les laisse en attente sans
+ * compter de tentative. L'envoi unitaire de repli n'offre pas cette garantie.</p>
+ *
+ * <p>Chaque appel à {@link #enqueue} reçoit son propre futur, rattaché au contenu qu'il a
+ * enregistré : si une requête de même clé remplace ce contenu avant l'acquittement, le futur
+ * précédent échoue avec {@link SupersededException}.</p>
+ */
+public class Outbox {
+
+//************ PRIVATE VARIABLES
+
+    private static volatile Outbox instance;
+
+    private final Context mContext;
+    private final OutboxDao mDao;
+    // Le vidage attend les réponses du serveur : il occupe un thread réseau, pas un thread d'E/S
+    private final ExecutorService mDrainer = AppExecutors.view("outbox", AppExecutors.network(), 1, null);
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean(false);
+    private final Map<String, CompletableFuture<String>> mListeners = new ConcurrentHashMap<>();
+    private final RetryPolicy mRetryPolicy = new RetryPolicy().setBackoff(OUTBOX_RETRY_BASE_MS, OUTBOX_RETRY_MAX_MS, 2.0);
+
+    private ScheduledFuture<?> mRetry;
+    private int mRetryRound = 0;
+
+    private final BatchClient mBatchClient = new BatchClient(this::sendBatch, step -> execute(step.act, step.cbl, step.get, step.post));
+
+//************ STATIC VARIABLES
+
+    public static final String TAG = "Outbox";
+
+    public static final int OUTBOX_BATCH_SIZE = 20;
+    public static final int OUTBOX_MAX_ATTEMPTS = 50;
+    public static final long OUTBOX_RETRY_BASE_MS = 5000;
+    public static final long OUTBOX_RETRY_MAX_MS = 300000;
+
+//************ CONSTRUCTORS
+
+    private Outbox(Context context) {
+        mContext = context.getApplicationContext();
+        mDao = PrefDatabase.getInstance(mContext).mOutboxDao();
+
+        ConnectivityManager connectivityManager = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        if( connectivityManager != null ) {
+            connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    drain();
+                }
+            });
+        }
+    }
+
+    public static Outbox getInstance(Context context) {
+        if( instance == null ) {
+            synchronized (Outbox.class) {
+                if( instance == null ) {
+                    instance = new Outbox(context);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+//************ SETTERS
+
+    /**
+     * Enregistre une requête dans la file et déclenche un envoi.
+     * Une requête portant la même clé qu'un job en attente remplace son contenu sans
+     * changer sa place dans la file.
+     *
+     * @return complété avec la réponse du serveur lorsque ce contenu est acquitté par ce
+     * processus, en échec avec {@link SupersededException} s'il est remplacé avant
+     */
+    public CompletableFuture<String> enqueue(String key, String resid, String act, String cbl, String get, String post) {
+        return enqueueAll(Collections.singletonList(new OutboxJob(key, parseResid(resid), act, cbl, get, post))).get(0);
+    }
+    /**
+     * Enregistre plusieurs requêtes d'un coup : elles partent dans le même lot, donc dans la
+     * même transaction pour une même résidence.
+     *
+     * @return les réponses du serveur, dans l'ordre de {@code jobs}
+     */
+    public List<CompletableFuture<String>> enqueueAll(List<OutboxJob> jobs) {
+        List<CompletableFuture<String>> listeners = new ArrayList<>();
+
+        for( int i = 0; i < jobs.size(); i++ ) {
+            listeners.add(new CompletableFuture<>());
+        }
+
+        // Le futur est enregistré avec l'écriture du contenu, sur le même exécuteur que l'envoi :
+        // celui qui est en place quand un job est acquitté est toujours celui du contenu envoyé.
+        mDrainer.execute(() -> {
+            for( int i = 0; i < jobs.size(); i++ ) {
+                OutboxJob job = jobs.get(i);
+
+                if( mDao.insertJob(job) < 0 ) {
+                    mDao.updateJobPayload(job.getKey(), job.getGet(), job.getPost());
+                }
+
+                CompletableFuture<String> superseded = mListeners.put(job.getKey(), listeners.get(i));
+
+                if( superseded != null ) {
+                    superseded.completeExceptionally(new SupersededException(job.getKey()));
+                }
+            }
+
+            drain();
+        });
+
+        return listeners;
+    }
+
+//************ GETTERS
+
+    public int countPending() {
+        return mDao.countPendingJobs();
+    }
+    public boolean hasPending(String resid) {
+        return mDao.countPendingJobsRsd(parseResid(resid)) > 0;
+    }
+
+//************ PUBLIC FUNCTIONS
+
+    public void drain() {
+        if( mDrainScheduled.compareAndSet(false, true) ) {
+            mDrainer.execute(() -> {
+                mDrainScheduled.set(false);
+
+                try {
+                    drainPending();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+//************ PRIVATE FUNCTIONS
+
+    private void drainPending() throws InterruptedException {
+        Set<Integer> blocked = new HashSet<>();
+        boolean failed = false;
+
+        while( AndyUtils.isNetworkAvailable(mContext) ) {
+            // Une résidence en échec ne bloque que ses propres jobs, pas ceux des autres
+            List<OutboxJob> jobs = mDao.getPendingJobsExcept(new ArrayList<>(blocked), OUTBOX_BATCH_SIZE);
+
+            if( jobs.isEmpty() ) {
+                break;
+            }
+
+            Map<String, String> results = send(jobs);
+            Set<Integer> answered = new HashSet<>();
+            Map<Integer, String> refused = new HashMap<>();
+
+            for( OutboxJob job : jobs ) {
+                String result = results.get(job.getKey());
+
+                if( result != null ) {
+                    answered.add(job.getResid());
+
+                    if( !BatchClient.isTransient(result) && result.startsWith("0") && !refused.containsKey(job.getResid()) ) {
+                        refused.put(job.getResid(), result);
+                    }
+                }
+            }
+
+            for( OutboxJob job : jobs ) {
+                if( blocked.contains(job.getResid()) ) {
+                    continue;
+                }
+
+                String result = results.get(job.getKey());
+
+                if( result == null && answered.contains(job.getResid()) ) {
+                    // Annulé avec son groupe : ce n'est pas une tentative. Un refus définitif
+                    // d'une étape abandonne tout le groupe, qui ne part jamais en partie.
+                    if( refused.containsKey(job.getResid()) ) {
+                        markDead(job, job.getAttempts(), refused.get(job.getResid()));
+                    }
+
+                    blocked.add(job.getResid());
+                } else if( BatchClient.isTransient(result) ) {
+                    int attempts = job.getAttempts() + 1;
+                    String error = (result != null) ? result : "";
+
+                    if( attempts >= OUTBOX_MAX_ATTEMPTS ) {
+                        markDead(job, attempts, error);
+                    } else {
+                        mDao.updateJobFailure(job.getId(), attempts, OutboxJob.STATE_PENDING, error);
+
+                        failed = true;
+                    }
+
+                    blocked.add(job.getResid());
+                } else {
+                    mDao.deleteJobById(job.getId());
+
+                    CompletableFuture<String> listener = mListeners.remove(job.getKey());
+
+                    if( listener != null ) {
+                        listener.complete(result);
+                    } else {
+                        onOrphanAck(job, result);
+                    }
+                }
+            }
+        }
+
+        scheduleRetry(failed);
+    }
+
+    /**
+     * Relance différée après un échec transitoire alors que le réseau reste disponible, avec
+     * un délai croissant tant que les vidages suivants échouent encore.
+     */
+    private synchronized void scheduleRetry(boolean failed) {
+        if( mRetry != null ) {
+            mRetry.cancel(false);
+            mRetry = null;
+        }
+
+        if( !failed ) {
+            mRetryRound = 0;
+
+            return;
+        }
+
+        long delay = mRetryPolicy.nextDelay(++mRetryRound);
+
+        Log.d(TAG, "Echec transitoire, nouvel envoi dans " + delay + " ms");
+
+        mRetry = AppExecutors.scheduled().schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Envoie les jobs en une seule requête synchro/batch, chaque résidence formant un groupe
+     * transactionnel, ou un par un si le serveur ne gère pas le lot.
+     */
+    private Map<String, String> send(List<OutboxJob> jobs) throws InterruptedException {
+        List<BatchRequest.Step> steps = new ArrayList<>();
+
+        for( OutboxJob job : jobs ) {
+            steps.add(new BatchRequest.Step(job.getKey(), String.valueOf(job.getResid()), job.getAct(), job.getCbl(), job.getGet(), job.getPost()));
+        }
+
+        return mBatchClient.send(steps);
+    }
+
+    private Map<String, String> sendBatch(BatchRequest batch) throws InterruptedException {
+        try {
+            Map<String, String> results = new HttpTask(mContext).executeBatch(batch).get();
+
+            if( results == null ) {
+                Log.w(TAG, "Envoi par lot non supporté, envoi unitaire");
+            }
+
+            return results;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+
+            return Collections.emptyMap();
+        }
+    }
+
+    private void markDead(OutboxJob job, int attempts, String error) {
+        mDao.updateJobFailure(job.getId(), attempts, OutboxJob.STATE_DEAD, error);
+
+        CompletableFuture<String> listener = mListeners.remove(job.getKey());
+
+        if( listener != null ) {
+            listener.completeExceptionally(new IllegalStateException("Job " + job.getKey() + " abandonné : " + error));
+        }
+    }
+
+    /**
+     * Acquittement d'un job enregistré par un processus précédent : personne n'attend sa réponse.
+     * La copie locale d'un contrôle enregistré est effacée ici, sinon la synchronisation le
+     * renverrait une seconde fois.
+     */
+    private void onOrphanAck(OutboxJob job, String result) {
+        if( job.getAct().equals(HttpTask.HTTP_TASK_ACT_SAVE) && result.startsWith("1") ) {
+            new Storages(mContext).deleteStorageRsd(job.getResid());
+        }
+    }
+
+    private String execute(String act, String cbl, String get, String post) throws InterruptedException {
+        try {
+            return new HttpTask(mContext).executeHttpTask(act, cbl, get, post).get();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+
+            return null;
+        }
+    }
+
+    /**
+     * Fin d'un futur dont le contenu a été remplacé par une requête de même clé avant d'être
+     * acquitté : la réponse arrivera sur le futur de la nouvelle requête.
+     */
+    public static class SupersededException extends CancellationException {
+        public SupersededException(String key) {
+            super("Job " + key + " remplacé");
+        }
+    }
+
+    private static int parseResid(String resid) {
+        try {
+            return Integer.parseInt(resid);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+}
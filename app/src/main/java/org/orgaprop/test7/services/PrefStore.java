@@ -0,0 +1,208 @@
+package org.orgaprop.test7.services;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import org.orgaprop.test7.databases.PrefDatabase;
+import org.orgaprop.test7.metrics.monitoring.PerformanceMonitor;
+import org.orgaprop.test7.models.Pref;
+import org.orgaprop.test7.services.executors.AppExecutors;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache mémoire de la table Pref, chargé une seule fois au démarrage sur la file d'écriture.
+ *
+ * <p>Les lectures sont servies directement par le cache. Les écritures y sont appliquées tout
+ * de suite puis regroupées : celles qui arrivent pendant {@link #FLUSH_DELAY_MS} sont
+ * enregistrées ensemble dans une seule transaction Room. Le cache est aussi vidé quand
+ * l'application passe en pause.</p>
+ */
+public class PrefStore {
+
+//********* PRIVATE VARIABLES
+
+    private static volatile PrefStore instance;
+
+    private final Context mContext;
+    private final ScheduledExecutorService writer;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final Map<String, Pref> dirty = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsFlushed = new AtomicLong();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "PrefStore";
+    public static final String STATS_SOURCE = "pref_store";
+
+    private static final long FLUSH_DELAY_MS = 200;
+    private static final long FLUSH_RETRY_DELAY_MS = 5000;
+
+//********* CONSTRUCTORS
+
+    private PrefStore(Context context) {
+        mContext = context.getApplicationContext();
+
+        this.writer = AppExecutors.serial("pref-writer");
+        this.writer.execute(this::load);
+
+        new Handler(Looper.getMainLooper()).post(() -> ProcessLifecycleOwner.get().getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if( event == Lifecycle.Event.ON_PAUSE ) {
+                flushAsync();
+            }
+        }));
+    }
+
+    public static PrefStore getInstance(Context context) {
+        if( instance == null ) {
+            synchronized (PrefStore.class) {
+                if( instance == null ) {
+                    instance = new PrefStore(context);
+                    PerformanceMonitor.registerStatsSource(STATS_SOURCE, instance::getStats);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    /**
+     * Valeur en cache. Attend la fin du chargement initial s'il n'est pas terminé.
+     */
+    public String get(String param, String defaultValue) {
+        awaitLoaded();
+
+        String result = values.get(param);
+
+        return ( result != null ) ? result : defaultValue;
+    }
+
+    public void set(String rowId, String param, String value) {
+        Pref pref = new Pref(param, value);
+
+        pref.setId(Long.parseLong(rowId));
+        values.put(param, value);
+        writes.incrementAndGet();
+
+        synchronized (dirty) {
+            dirty.put(param, pref);
+
+            if( !flushScheduled ) {
+                flushScheduled = true;
+                writer.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Enregistre sans attendre le délai de regroupement, sur la file d'écriture.
+     */
+    public void flushAsync() {
+        writer.execute(this::flush);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+
+        stats.put("writes", writes.get());
+        stats.put("flushes", flushes.get());
+        stats.put("rows_flushed", rowsFlushed.get());
+
+        synchronized (dirty) {
+            stats.put("pending", dirty.size());
+        }
+
+        return stats;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private void load() {
+        try {
+            for( Pref pref : PrefDatabase.getInstance(mContext).mPrefDao().getAllPrefs() ) {
+                synchronized (dirty) {
+                    // Une écriture arrivée avant la fin du chargement est plus récente
+                    if( pref.getValue() != null && !dirty.containsKey(pref.getParam()) ) {
+                        values.put(pref.getParam(), pref.getValue());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            loaded.countDown();
+        }
+    }
+
+    private void flush() {
+        Map<String, Pref> batch;
+
+        synchronized (dirty) {
+            flushScheduled = false;
+
+            if( dirty.isEmpty() ) {
+                return;
+            }
+
+            batch = new LinkedHashMap<>(dirty);
+            dirty.clear();
+        }
+
+        PrefDatabase db = PrefDatabase.getInstance(mContext);
+
+        try {
+            db.runInTransaction(() -> {
+                for( Pref pref : batch.values() ) {
+                    db.mPrefDao().updatePref(pref);
+                }
+            });
+
+            flushes.incrementAndGet();
+            rowsFlushed.addAndGet(batch.size());
+        } catch (Exception e) {
+            e.printStackTrace();
+
+            // Les valeurs non enregistrées repartent avec le prochain lot, sauf si elles ont été remplacées
+            // entre-temps. Ce lot est programmé même si aucune écriture ne suit.
+            synchronized (dirty) {
+                for( Map.Entry<String, Pref> entry : batch.entrySet() ) {
+                    dirty.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+
+                if( !flushScheduled ) {
+                    flushScheduled = true;
+                    writer.schedule(this::flush, FLUSH_RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    private void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
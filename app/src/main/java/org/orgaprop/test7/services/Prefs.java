@@ -1,22 +1,19 @@
 package org.orgaprop.test7.services;
 
-import android.content.ContentValues;
 import android.content.Context;
-import android.database.Cursor;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
 
 import org.orgaprop.test7.databases.PrefDatabase;
-import org.orgaprop.test7.models.Pref;
-
-import java.util.concurrent.Executors;
 
+/**
+ * Accès aux préférences de la table Pref, servies par le cache {@link PrefStore}.
+ */
 public class Prefs {
 
 //************ PRIVATE VARIABLES
 
-    private final Context mContext;
+    private final PrefStore mStore;
 
 //************ STATIC VARIABLES
 
@@ -25,168 +22,72 @@ public class Prefs {
 //************ CONSTRUCTORS
 
     public Prefs(Context context) {
-        mContext = context;
+        mStore = PrefStore.getInstance(context);
     }
 
 //************ SETTERS
 
     public void setMbr(String idMbr) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
-            ContentValues values = new ContentValues();
-
-            values.put("id", Long.parseLong(PrefDatabase.PREF_ROW_ID_MBR_NUM));
-            values.put("param", PrefDatabase.PREF_ROW_ID_MBR);
-            values.put("value", idMbr);
-
-            PrefDatabase.getInstance(mContext).mPrefDao().updatePref(Pref.fromContentValues(values));
-
-            Looper.loop();
-        });
+        mStore.set(PrefDatabase.PREF_ROW_ID_MBR_NUM, PrefDatabase.PREF_ROW_ID_MBR, idMbr);
     }
     public void setAdrMac(String adrMac) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
-            ContentValues values = new ContentValues();
-
-            values.put("id", Long.parseLong(PrefDatabase.PREF_ROW_ADR_MAC_NUM));
-            values.put("param", PrefDatabase.PREF_ROW_ADR_MAC);
-            values.put("value", adrMac);
-
-            PrefDatabase.getInstance(mContext).mPrefDao().updatePref(Pref.fromContentValues(values));
-
-            Looper.loop();
-        });
+        mStore.set(PrefDatabase.PREF_ROW_ADR_MAC_NUM, PrefDatabase.PREF_ROW_ADR_MAC, adrMac);
     }
     public void setAgency(String agency) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
-            ContentValues values = new ContentValues();
-
-            values.put("id", Long.parseLong(PrefDatabase.PREF_ROW_AGENCY_NUM));
-            values.put("param", PrefDatabase.PREF_ROW_AGENCY);
-            values.put("value", agency);
-
-            PrefDatabase.getInstance(mContext).mPrefDao().updatePref(Pref.fromContentValues(values));
-
-            Looper.loop();
-        });
+        mStore.set(PrefDatabase.PREF_ROW_AGENCY_NUM, PrefDatabase.PREF_ROW_AGENCY, agency);
     }
     public void setGroup(String group) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
-            ContentValues values = new ContentValues();
-
-            values.put("id", Long.parseLong(PrefDatabase.PREF_ROW_GROUP_NUM));
-            values.put("param", PrefDatabase.PREF_ROW_GROUP);
-            values.put("value", group);
-
-            PrefDatabase.getInstance(mContext).mPrefDao().updatePref(Pref.fromContentValues(values));
-
-            Looper.loop();
-        });
+        mStore.set(PrefDatabase.PREF_ROW_GROUP_NUM, PrefDatabase.PREF_ROW_GROUP, group);
     }
     public void setResidence(String residence) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
-            ContentValues values = new ContentValues();
-
-            values.put("id", Long.parseLong(PrefDatabase.PREF_ROW_RESIDENCE_NUM));
-            values.put("param", PrefDatabase.PREF_ROW_RESIDENCE);
-            values.put("value", residence);
-
-            PrefDatabase.getInstance(mContext).mPrefDao().updatePref(Pref.fromContentValues(values));
+        mStore.set(PrefDatabase.PREF_ROW_RESIDENCE_NUM, PrefDatabase.PREF_ROW_RESIDENCE, residence);
+    }
 
-            Looper.loop();
-        });
+    /**
+     * Enregistre tout de suite les écritures en attente, sans bloquer l'appelant.
+     */
+    public void flush() {
+        mStore.flushAsync();
     }
 
 //************ GETTERS
 
-    public void getMbr(Callback<String> callback) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
-            String result = "new";
-            Cursor cursor = PrefDatabase.getInstance(mContext).mPrefDao().getPrefFromParamWithCursor(PrefDatabase.PREF_ROW_ID_MBR);
-
-            if( cursor != null && cursor.moveToFirst() ) {
-                result = cursor.getString(2);
-                cursor.close();
-            }
+    public String getMbr() {
+        return mStore.get(PrefDatabase.PREF_ROW_ID_MBR, "new");
+    }
+    public String getAdrMac() {
+        return mStore.get(PrefDatabase.PREF_ROW_ADR_MAC, "new");
+    }
+    public String getAgency() {
+        return mStore.get(PrefDatabase.PREF_ROW_AGENCY, "");
+    }
+    public String getGroup() {
+        return mStore.get(PrefDatabase.PREF_ROW_GROUP, "");
+    }
+    public String getResidence() {
+        return mStore.get(PrefDatabase.PREF_ROW_RESIDENCE, "");
+    }
 
-            String finalResult = result;
-            new Handler(Looper.getMainLooper()).post(() -> callback.onResult(finalResult));
-        });
+    public void getMbr(Callback<String> callback) {
+        post(callback, getMbr());
     }
     public void getAdrMac(Callback<String> callback) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
-            String result = "new";
-            Cursor cursor = PrefDatabase.getInstance(mContext).mPrefDao().getPrefFromParamWithCursor(PrefDatabase.PREF_ROW_ADR_MAC);
-
-            if (cursor != null && cursor.moveToFirst()) {
-                result = cursor.getString(2);
-                cursor.close();
-            }
-
-            String finalResult = result;
-            new Handler(Looper.getMainLooper()).post(() -> callback.onResult(finalResult));
-        });
+        post(callback, getAdrMac());
     }
     public void getAgency(Callback<String> callback) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
-            String result = "";
-            Cursor cursor = PrefDatabase.getInstance(mContext).mPrefDao().getPrefFromParamWithCursor(PrefDatabase.PREF_ROW_AGENCY);
-
-            if( cursor != null && cursor.moveToFirst() ) {
-                result = cursor.getString(2);
-                cursor.close();
-            }
-
-            String finalResult = result;
-            new Handler(Looper.getMainLooper()).post(() -> callback.onResult(finalResult));
-        });
+        post(callback, getAgency());
     }
     public void getGroup(Callback<String> callback) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
-            String result = "";
-            Cursor cursor = PrefDatabase.getInstance(mContext).mPrefDao().getPrefFromParamWithCursor(PrefDatabase.PREF_ROW_GROUP);
-
-            if( cursor != null && cursor.moveToFirst() ) {
-                result = cursor.getString(2);
-                cursor.close();
-            }
-
-            String finalResult = result;
-            new Handler(Looper.getMainLooper()).post(() -> callback.onResult(finalResult));
-        });
+        post(callback, getGroup());
     }
     public void getResidence(Callback<String> callback) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
-
-            String result = "";
-            Cursor cursor = PrefDatabase.getInstance(mContext).mPrefDao().getPrefFromParamWithCursor(PrefDatabase.PREF_ROW_RESIDENCE);
+        post(callback, getResidence());
+    }
 
-            if( cursor != null && cursor.moveToFirst() ) {
-                result = cursor.getString(2);
-                cursor.close();
-            }
+//************ PRIVATE FUNCTIONS
 
-            String finalResult = result;
-            new Handler(Looper.getMainLooper()).post(() -> callback.onResult(finalResult));
-        });
+    private static void post(Callback<String> callback, String result) {
+        new Handler(Looper.getMainLooper()).post(() -> callback.onResult(result));
     }
 
 //************** INTERFACES
@@ -0,0 +1,440 @@
+package org.orgaprop.test7.services;
+
+import android.content.Context;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.orgaprop.test7.controllers.activities.MainActivity;
+import org.orgaprop.test7.metrics.monitoring.PerformanceMonitor;
+import org.orgaprop.test7.models.SelectItem;
+import org.orgaprop.test7.services.executors.AppExecutors;
+import org.orgaprop.test7.utils.AndyUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Préchargement des plans d'actions des résidences qu'un agent va probablement ouvrir.
+ *
+ * <p>Dès qu'un groupement est choisi, ses résidences sont classées (non visitées d'abord,
+ * puis dernier contrôle le plus ancien) et les premières sont demandées en arrière-plan,
+ * {@link #MAX_IN_FLIGHT} à la fois, dans la limite d'un budget d'octets téléchargés par
+ * groupement. Les réponses sont gardées dans le cache de l'application, dans la limite d'un
+ * budget disque, les plus anciennes étant supprimées d'abord.</p>
+ *
+ * <p>{@link #getPlan(Context, String)} sert la réponse préchargée si elle est encore fraîche
+ * et interroge le serveur sinon : les activités n'ont pas à savoir si la donnée a été
+ * préchargée.</p>
+ */
+public class ResidencePrefetcher {
+
+//********* PRIVATE VARIABLES
+
+    private static volatile ResidencePrefetcher instance;
+
+    private final Context mContext;
+    private final File dir;
+
+    /** Entrées du cache disque, de la plus ancienne à la plus récente. */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long storedBytes = 0;
+
+    private final Deque<String> pending = new ArrayDeque<>();
+    private int inFlight = 0;
+    private int generation = 0;
+    private long downloadedBytes = 0;
+
+    /** Invalidations par clé : une réponse demandée avant la dernière n'est pas gardée. */
+    private final Map<String, Integer> keyGenerations = new HashMap<>();
+
+    private int maxResidences = 10;
+    private long bandwidthBudget = 512 * 1024;
+    private long storageBudget = 2 * 1024 * 1024;
+    private long ttlMs = 30 * 60 * 1000;
+    private boolean unmeteredOnly = false;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "ResidencePrefetcher";
+    public static final String STATS_SOURCE = "prefetch";
+
+    private static final int MAX_IN_FLIGHT = 2;
+    private static final String DIR_NAME = "prefetch";
+    private static final String PREFIX_PLAN = "plan_";
+    private static final String SUFFIX_TEMP = ".tmp";
+
+    private static final String[] LAST_FORMATS = { "dd/MM/yyyy", "yyyy-MM-dd", "dd/MM/yy" };
+
+//********* CONSTRUCTORS
+
+    private ResidencePrefetcher(Context context) {
+        mContext = context.getApplicationContext();
+        dir = new File(mContext.getCacheDir(), DIR_NAME);
+
+        AppExecutors.io().execute(this::loadEntries);
+    }
+
+    public static ResidencePrefetcher getInstance(Context context) {
+        if( instance == null ) {
+            synchronized (ResidencePrefetcher.class) {
+                if( instance == null ) {
+                    instance = new ResidencePrefetcher(context);
+                    PerformanceMonitor.registerStatsSource(STATS_SOURCE, instance::getStats);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public synchronized ResidencePrefetcher setMaxResidences(int maxResidences) {
+        this.maxResidences = maxResidences;
+
+        return this;
+    }
+    /**
+     * Octets téléchargés au plus pour un groupement.
+     */
+    public synchronized ResidencePrefetcher setBandwidthBudget(long bytes) {
+        this.bandwidthBudget = bytes;
+
+        return this;
+    }
+    /**
+     * Octets gardés au plus sur le disque.
+     */
+    public synchronized ResidencePrefetcher setStorageBudget(long bytes) {
+        this.storageBudget = bytes;
+        AppExecutors.io().execute(this::trim);
+
+        return this;
+    }
+    public synchronized ResidencePrefetcher setTtl(long ttlMs) {
+        this.ttlMs = ttlMs;
+
+        return this;
+    }
+    public synchronized ResidencePrefetcher setUnmeteredOnly(boolean unmeteredOnly) {
+        this.unmeteredOnly = unmeteredOnly;
+
+        return this;
+    }
+
+    /**
+     * Remplace le préchargement en cours par celui des résidences du groupement choisi.
+     */
+    public void prefetch(List<SelectItem> residences) {
+        if( !AndyUtils.isNetworkAvailable(mContext) || ( isUnmeteredOnly() && AndyUtils.isNetworkMetered(mContext) ) ) {
+            return;
+        }
+
+        List<SelectItem> ranked = new ArrayList<>(residences);
+
+        ranked.removeIf(item -> item.getRef() == null);
+        ranked.sort(Comparator.comparing((SelectItem item) -> item.getIsVisited()).thenComparingLong(item -> parseLast(item.getLast())));
+
+        synchronized (this) {
+            generation++;
+            downloadedBytes = 0;
+            pending.clear();
+
+            for( SelectItem item : ranked ) {
+                if( pending.size() >= maxResidences ) {
+                    break;
+                }
+
+                String rsd = String.valueOf(item.getId());
+
+                if( !isFresh(PREFIX_PLAN + rsd) ) {
+                    pending.add(rsd);
+                }
+            }
+        }
+
+        pump();
+    }
+
+    /**
+     * Plan d'actions de la résidence, préchargé s'il est frais, sinon demandé au serveur.
+     */
+    public CompletableFuture<String> getPlan(Context context, String rsd) {
+        String key = PREFIX_PLAN + rsd;
+
+        if( isFresh(key) ) {
+            return CompletableFuture.supplyAsync(() -> read(key), AppExecutors.io()).thenCompose(cached -> {
+                if( cached != null ) {
+                    hits.incrementAndGet();
+
+                    return CompletableFuture.completedFuture(cached);
+                }
+
+                misses.incrementAndGet();
+
+                return fetchPlan(context, rsd);
+            });
+        }
+
+        misses.incrementAndGet();
+
+        return fetchPlan(context, rsd);
+    }
+
+    /**
+     * À appeler quand le plan d'une résidence est modifié.
+     */
+    public void invalidatePlan(String rsd) {
+        String key = PREFIX_PLAN + rsd;
+
+        synchronized (this) {
+            Long size = entries.remove(key);
+
+            keyGenerations.merge(key, 1, Integer::sum);
+
+            if( size != null ) {
+                storedBytes -= size;
+            }
+        }
+
+        AppExecutors.io().execute(() -> new File(dir, key).delete());
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("fetched", fetched.get());
+        stats.put("evicted", evicted.get());
+        stats.put("pending", pending.size());
+        stats.put("inFlight", inFlight);
+        stats.put("entries", entries.size());
+        stats.put("storedBytes", storedBytes);
+        stats.put("downloadedBytes", downloadedBytes);
+
+        return stats;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private synchronized boolean isUnmeteredOnly() {
+        return unmeteredOnly;
+    }
+
+    private static CompletableFuture<String> fetchPlan(Context context, String rsd) {
+        String stringGet = "mod=" + HttpTask.HTTP_TASK_MOD_GET + "&rsd=" + rsd;
+        String stringPost = "mbr=" + MainActivity.idMbr + "&mac=" + MainActivity.adrMac;
+
+        return new HttpTask(context).executeHttpTask(HttpTask.HTTP_TASK_ACT_PROP, HttpTask.HTTP_TASK_CBL_PLAN_ACTIONS, stringGet, stringPost);
+    }
+
+    /**
+     * Lance les demandes suivantes tant que le budget de la génération le permet.
+     */
+    private void pump() {
+        List<String> launch = new ArrayList<>();
+        final int gen;
+
+        synchronized (this) {
+            gen = generation;
+
+            while( inFlight < MAX_IN_FLIGHT && !pending.isEmpty() && downloadedBytes < bandwidthBudget ) {
+                launch.add(pending.poll());
+                inFlight++;
+            }
+        }
+
+        for( String rsd : launch ) {
+            String key = PREFIX_PLAN + rsd;
+            int keyGen = getKeyGeneration(key);
+
+            fetchPlan(mContext, rsd).whenComplete((result, error) -> {
+                synchronized (this) {
+                    inFlight--;
+
+                    // Une réponse d'un groupement précédent ne compte pas dans le budget du nouveau
+                    if( result != null && gen == generation ) {
+                        downloadedBytes += result.length();
+                    }
+                }
+
+                if( result != null && isSuccess(result) ) {
+                    fetched.incrementAndGet();
+                    AppExecutors.io().execute(() -> write(key, keyGen, result));
+                }
+
+                pump();
+            });
+        }
+    }
+
+    private static boolean isSuccess(String result) {
+        try {
+            return new JSONObject(result).getBoolean("status");
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    private synchronized int getKeyGeneration(String key) {
+        return keyGenerations.getOrDefault(key, 0);
+    }
+
+    private synchronized boolean isFresh(String key) {
+        File file = new File(dir, key);
+
+        return entries.containsKey(key) && System.currentTimeMillis() - file.lastModified() < ttlMs;
+    }
+
+    private String read(String key) {
+        try {
+            String result = new String(Files.readAllBytes(new File(dir, key).toPath()), StandardCharsets.UTF_8);
+
+            synchronized (this) {
+                // Accès en ordre d'utilisation : l'entrée lue est la dernière supprimée
+                entries.get(key);
+            }
+
+            return result;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Garde la réponse si la clé n'a pas été invalidée depuis la demande ({@code keyGen}). Le
+     * fichier est écrit à part puis mis en place sous le verrou, après ce contrôle.
+     */
+    private void write(String key, int keyGen, String value) {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+
+        try {
+            if( !dir.exists() && !dir.mkdirs() ) {
+                return;
+            }
+
+            File temp = File.createTempFile(key, SUFFIX_TEMP, dir);
+
+            Files.write(temp.toPath(), data);
+
+            synchronized (this) {
+                if( keyGen != getKeyGeneration(key) ) {
+                    temp.delete();
+
+                    return;
+                }
+
+                Files.move(temp.toPath(), new File(dir, key).toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+                Long old = entries.put(key, (long) data.length);
+
+                storedBytes += data.length - (( old != null ) ? old : 0);
+            }
+
+            trim();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Supprime les entrées les moins récemment utilisées au-delà du budget disque.
+     */
+    private void trim() {
+        List<String> remove = new ArrayList<>();
+
+        synchronized (this) {
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+
+            while( storedBytes > storageBudget && it.hasNext() ) {
+                Map.Entry<String, Long> entry = it.next();
+
+                storedBytes -= entry.getValue();
+                remove.add(entry.getKey());
+                it.remove();
+            }
+        }
+
+        for( String key : remove ) {
+            new File(dir, key).delete();
+            evicted.incrementAndGet();
+        }
+    }
+
+    private void loadEntries() {
+        File[] files = dir.listFiles();
+
+        if( files == null ) {
+            return;
+        }
+
+        List<File> list = new ArrayList<>();
+
+        for( File file : files ) {
+            // Écriture interrompue avant sa mise en place
+            if( file.getName().endsWith(SUFFIX_TEMP) ) {
+                file.delete();
+            } else {
+                list.add(file);
+            }
+        }
+
+        list.sort(Comparator.comparingLong(File::lastModified));
+
+        synchronized (this) {
+            for( File file : list ) {
+                entries.put(file.getName(), file.length());
+                storedBytes += file.length();
+            }
+        }
+
+        trim();
+    }
+
+    /**
+     * Date du dernier contrôle ; une résidence jamais contrôlée passe en premier.
+     */
+    private static long parseLast(String last) {
+        if( last == null || last.trim().isEmpty() ) {
+            return 0;
+        }
+
+        for( String format : LAST_FORMATS ) {
+            try {
+                SimpleDateFormat parser = new SimpleDateFormat(format, Locale.FRANCE);
+
+                parser.setLenient(false);
+
+                return parser.parse(last.trim()).getTime();
+            } catch (ParseException e) {
+                // Format suivant
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+}
@@ -0,0 +1,201 @@
+package org.orgaprop.test7.services;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.orgaprop.test7.models.ListResidModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Résidences chargées pendant la sélection, indexées par identifiant.
+ *
+ * <p>Remplace la recherche {@code idRsds.indexOf(idRsd)} dans des listes parallèles : la
+ * résidence courante est trouvée en temps constant, et les résidences d'une agence, d'un
+ * groupement ou d'une référence sans parcourir toute la liste. Les structures proxi/contrat
+ * fusionnées d'une grille sont gardées dans un cache borné : elles ne sont recalculées qu'au
+ * rechargement de la résidence.</p>
+ */
+public class ResidenceRepository {
+
+//********* PRIVATE VARIABLES
+
+    private static volatile ResidenceRepository instance;
+
+    private final Map<Integer, ListResidModel> byId = new HashMap<>();
+    private final Map<String, List<ListResidModel>> byAgency = new HashMap<>();
+    private final Map<String, List<ListResidModel>> byGroup = new HashMap<>();
+    private final Map<String, List<ListResidModel>> byRef = new HashMap<>();
+
+    private final Map<String, JSONObject> structures = new LinkedHashMap<String, JSONObject>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JSONObject> eldest) {
+            return size() > MAX_STRUCTURES;
+        }
+    };
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "ResidenceRepository";
+
+    private static final int MAX_STRUCTURES = 32;
+
+//********* CONSTRUCTORS
+
+    private ResidenceRepository() {}
+
+    public static ResidenceRepository getInstance() {
+        if( instance == null ) {
+            synchronized (ResidenceRepository.class) {
+                if( instance == null ) {
+                    instance = new ResidenceRepository();
+                }
+            }
+        }
+
+        return instance;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    /**
+     * Ajoute ou remplace une résidence. Sa structure fusionnée en cache est oubliée.
+     */
+    public synchronized void put(ListResidModel resid) {
+        ListResidModel old = byId.put(resid.getId(), resid);
+
+        if( old != null ) {
+            unindex(old);
+        }
+
+        index(byAgency, resid.getAgc(), resid);
+        index(byGroup, resid.getGrp(), resid);
+        index(byRef, resid.getRef(), resid);
+    }
+    public synchronized void putAll(Collection<ListResidModel> resids) {
+        for( ListResidModel resid : resids ) {
+            put(resid);
+        }
+    }
+
+    public synchronized void clear() {
+        byId.clear();
+        byAgency.clear();
+        byGroup.clear();
+        byRef.clear();
+        structures.clear();
+    }
+
+    public synchronized ListResidModel get(int id) {
+        return byId.get(id);
+    }
+    /**
+     * @return la résidence, ou null si l'identifiant est vide, invalide ou inconnu
+     */
+    public ListResidModel get(String id) {
+        try {
+            return ( id != null ) ? get(Integer.parseInt(id.trim())) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public synchronized List<ListResidModel> getByAgency(String agc) {
+        return copy(byAgency.get(agc));
+    }
+    public synchronized List<ListResidModel> getByGroup(String grp) {
+        return copy(byGroup.get(grp));
+    }
+    public synchronized List<ListResidModel> getByRef(String ref) {
+        return copy(byRef.get(ref));
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    /**
+     * Structure des zones contrôlées : proxi, contrat ou les deux fusionnés. Les zones sont
+     * renumérotées "0".."n" dans l'ordre, celles de contrat à la suite de celles de proxi. Le
+     * résultat est partagé : il ne doit pas être modifié.
+     *
+     * @return la structure, ou null si la résidence est inconnue
+     */
+    public synchronized JSONObject getStructure(String id, boolean proxi, boolean contra) throws JSONException {
+        ListResidModel resid = get(id);
+
+        if( resid == null ) {
+            return null;
+        }
+
+        String key = resid.getId() + ":" + proxi + ":" + contra;
+        JSONObject result = structures.get(key);
+
+        if( result == null ) {
+            result = new JSONObject();
+
+            if( proxi ) {
+                merge(result, resid.getProxi());
+            }
+            if( contra ) {
+                merge(result, resid.getContra());
+            }
+
+            structures.put(key, result);
+        }
+
+        return result;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private void index(Map<String, List<ListResidModel>> index, String key, ListResidModel resid) {
+        List<ListResidModel> list = index.get(key);
+
+        if( list == null ) {
+            list = new ArrayList<>();
+            index.put(key, list);
+        }
+
+        list.add(resid);
+    }
+
+    private void unindex(ListResidModel resid) {
+        unindex(byAgency, resid.getAgc(), resid);
+        unindex(byGroup, resid.getGrp(), resid);
+        unindex(byRef, resid.getRef(), resid);
+
+        structures.keySet().removeIf(key -> key.startsWith(resid.getId() + ":"));
+    }
+    private void unindex(Map<String, List<ListResidModel>> index, String key, ListResidModel resid) {
+        List<ListResidModel> list = index.get(key);
+
+        if( list != null ) {
+            list.remove(resid);
+
+            if( list.isEmpty() ) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static List<ListResidModel> copy(List<ListResidModel> list) {
+        return ( list != null ) ? new ArrayList<>(list) : Collections.emptyList();
+    }
+
+    private static void merge(JSONObject result, JSONObject zones) throws JSONException {
+        int pos = result.length();
+
+        for( Iterator<String> keys = zones.keys(); keys.hasNext(); ) {
+            result.put(String.valueOf(pos), zones.getString(keys.next()));
+            pos++;
+        }
+    }
+
+}
@@ -0,0 +1,355 @@
+package org.orgaprop.test7.services;
+
+import org.orgaprop.test7.models.SelectItem;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Index de recherche local sur les résidences téléchargées.
+ *
+ * <p>Nom, référence, adresse, ville et entrée sont ramenés en minuscules sans accents puis
+ * découpés en mots. Chaque mot de la recherche doit correspondre à un mot de la résidence,
+ * par préfixe ou, à défaut, par trigrammes : un mot contenu dans un autre, ou mal orthographié
+ * d'une lettre, est retrouvé. Les résidences sont classées par qualité de correspondance puis
+ * par nom.</p>
+ *
+ * <p>Les index de mots et de trigrammes sont tenus à jour à chaque ajout : une recherche ne
+ * parcourt que les listes des mots et trigrammes de la saisie.</p>
+ */
+public class ResidenceSearchIndex {
+
+//********* PRIVATE VARIABLES
+
+    private static volatile ResidenceSearchIndex instance;
+
+    private final List<SelectItem> items = new ArrayList<>();
+    private final List<String[]> itemWords = new ArrayList<>();
+    private final List<Set<String>> itemPrimaryWords = new ArrayList<>();
+    private final List<String> sortNames = new ArrayList<>();
+    private final Map<Integer, Integer> slots = new HashMap<>();
+
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    private final Map<String, Postings> trigrams = new HashMap<>();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "ResidenceSearchIndex";
+
+    public static final int DEFAULT_LIMIT = 50;
+
+    private static final int SCORE_EXACT = 6;
+    private static final int SCORE_PREFIX = 4;
+    private static final int SCORE_TRIGRAM = 2;
+    private static final int SCORE_TRIGRAM_TYPO = 1;
+    /** Bonus d'un mot trouvé dans le nom ou la référence plutôt que dans l'adresse. */
+    private static final int SCORE_PRIMARY = 1;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern DIGITS = Pattern.compile("[0-9]");
+
+//********* CONSTRUCTORS
+
+    private ResidenceSearchIndex() {}
+
+    public static ResidenceSearchIndex getInstance() {
+        if( instance == null ) {
+            synchronized (ResidenceSearchIndex.class) {
+                if( instance == null ) {
+                    instance = new ResidenceSearchIndex();
+                }
+            }
+        }
+
+        return instance;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    /**
+     * Ajoute ou remplace les résidences. Les éléments sans référence (agences, groupements)
+     * sont ignorés.
+     */
+    public synchronized void addAll(Collection<SelectItem> list) {
+        for( SelectItem item : list ) {
+            if( item.getRef() != null ) {
+                add(item);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        items.clear();
+        itemWords.clear();
+        itemPrimaryWords.clear();
+        sortNames.clear();
+        slots.clear();
+        words.clear();
+        trigrams.clear();
+    }
+
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    public List<SelectItem> search(String query) {
+        return search(query, DEFAULT_LIMIT);
+    }
+    /**
+     * @return au plus {@code limit} résidences dont chaque mot de {@code query} correspond à un
+     * de leurs mots, les meilleures en premier
+     */
+    public synchronized List<SelectItem> search(String query, int limit) {
+        String[] terms = tokenize(query);
+        List<SelectItem> result = new ArrayList<>();
+
+        if( terms.length == 0 || slots.isEmpty() ) {
+            return result;
+        }
+
+        int[] total = null;
+
+        for( String term : terms ) {
+            int[] scores = scoreTerm(term);
+
+            if( total == null ) {
+                total = scores;
+            } else {
+                for( int slot = 0; slot < total.length; slot++ ) {
+                    total[slot] = ( total[slot] > 0 && scores[slot] > 0 ) ? total[slot] + scores[slot] : 0;
+                }
+            }
+        }
+
+        List<Integer> found = new ArrayList<>();
+
+        for( int slot = 0; slot < total.length; slot++ ) {
+            if( total[slot] > 0 ) {
+                found.add(slot);
+            }
+        }
+
+        final int[] scores = total;
+
+        found.sort((a, b) -> ( scores[a] != scores[b] ) ? Integer.compare(scores[b], scores[a]) : sortNames.get(a).compareTo(sortNames.get(b)));
+
+        for( int i = 0; i < found.size() && i < limit; i++ ) {
+            result.add(items.get(found.get(i)));
+        }
+
+        return result;
+    }
+
+    /**
+     * Minuscules, sans accents, sans ponctuation.
+     */
+    public static String normalize(String text) {
+        if( text == null ) {
+            return "";
+        }
+
+        String result = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+
+        return SEPARATORS.matcher(result.toLowerCase()).replaceAll(" ").trim();
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private void add(SelectItem item) {
+        Integer slot = slots.get(item.getId());
+
+        if( slot != null ) {
+            unindex(slot);
+        } else {
+            slot = items.size();
+            items.add(null);
+            itemWords.add(null);
+            itemPrimaryWords.add(null);
+            sortNames.add(null);
+        }
+
+        Set<String> primary = new HashSet<>();
+        Set<String> unique = new HashSet<>();
+
+        primary.addAll(Arrays.asList(tokenize(item.getName())));
+        primary.addAll(Arrays.asList(tokenize(item.getRef())));
+        unique.addAll(primary);
+
+        for( String field : new String[] { item.getAddress(), item.getCity(), item.getEntry() } ) {
+            unique.addAll(Arrays.asList(tokenize(field)));
+        }
+
+        String[] tokens = unique.toArray(new String[0]);
+
+        items.set(slot, item);
+        itemWords.set(slot, tokens);
+        itemPrimaryWords.set(slot, primary);
+        sortNames.set(slot, normalize(item.getName()));
+        slots.put(item.getId(), slot);
+
+        for( String token : tokens ) {
+            words.computeIfAbsent(token, k -> new Postings()).add(slot);
+
+            for( String trigram : trigramsOf(token) ) {
+                trigrams.computeIfAbsent(trigram, k -> new Postings()).add(slot);
+            }
+        }
+    }
+
+    private void unindex(int slot) {
+        for( String token : itemWords.get(slot) ) {
+            remove(words, token, slot);
+
+            for( String trigram : trigramsOf(token) ) {
+                remove(trigrams, trigram, slot);
+            }
+        }
+    }
+    private static void remove(Map<String, Postings> index, String key, int slot) {
+        Postings postings = index.get(key);
+
+        if( postings != null && postings.remove(slot) && postings.size == 0 ) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Meilleur score de chaque résidence pour un mot de la recherche ; 0 si aucun de ses mots
+     * ne correspond.
+     */
+    private int[] scoreTerm(String term) {
+        int[] scores = new int[items.size()];
+
+        for( Map.Entry<String, Postings> entry : words.subMap(term, true, term + Character.MAX_VALUE, false).entrySet() ) {
+            String word = entry.getKey();
+            int score = word.equals(term) ? SCORE_EXACT : SCORE_PREFIX;
+            Postings postings = entry.getValue();
+
+            for( int i = 0; i < postings.size; i++ ) {
+                int slot = postings.slots[i];
+                int slotScore = itemPrimaryWords.get(slot).contains(word) ? score + SCORE_PRIMARY : score;
+
+                scores[slot] = Math.max(scores[slot], slotScore);
+            }
+        }
+
+        // Trop court pour des trigrammes : le préfixe suffit
+        if( term.length() < 3 ) {
+            return scores;
+        }
+
+        Set<String> grams = new HashSet<>(trigramsOf(term));
+        int[] hits = new int[items.size()];
+
+        for( String trigram : grams ) {
+            Postings postings = trigrams.get(trigram);
+
+            if( postings != null ) {
+                for( int i = 0; i < postings.size; i++ ) {
+                    hits[postings.slots[i]]++;
+                }
+            }
+        }
+
+        // Une lettre fausse fait perdre jusqu'à trois trigrammes. Pas de tolérance sur les
+        // nombres : une référence voisine n'est pas une faute de frappe.
+        int tolerance = ( grams.size() >= 4 && !DIGITS.matcher(term).find() ) ? Math.min(3, grams.size() / 2) : 0;
+
+        int needed = grams.size() - tolerance;
+
+        for( int slot = 0; slot < hits.length; slot++ ) {
+            if( scores[slot] == 0 && hits[slot] >= needed ) {
+                scores[slot] = ( hits[slot] == grams.size() ) ? SCORE_TRIGRAM : SCORE_TRIGRAM_TYPO;
+
+                if( primaryHits(slot, grams) >= needed ) {
+                    scores[slot] += SCORE_PRIMARY;
+                }
+            }
+        }
+
+        return scores;
+    }
+    /**
+     * Trigrammes trouvés dans le meilleur mot du nom ou de la référence.
+     */
+    private int primaryHits(int slot, Set<String> grams) {
+        int best = 0;
+
+        for( String word : itemPrimaryWords.get(slot) ) {
+            int count = 0;
+
+            for( String trigram : grams ) {
+                if( word.contains(trigram) ) {
+                    count++;
+                }
+            }
+
+            best = Math.max(best, count);
+        }
+
+        return best;
+    }
+
+    private static String[] tokenize(String text) {
+        String normalized = normalize(text);
+
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    private static List<String> trigramsOf(String token) {
+        List<String> result = new ArrayList<>();
+
+        for( int i = 0; i + 3 <= token.length(); i++ ) {
+            result.add(token.substring(i, i + 3));
+        }
+
+        return result;
+    }
+
+//********* PRIVATE CLASSES
+
+    /**
+     * Liste de positions sans doublon, en tableau d'entiers pour éviter un objet par entrée.
+     */
+    private static class Postings {
+        int[] slots = new int[4];
+        int size = 0;
+
+        void add(int slot) {
+            // Une résidence est indexée d'un seul tenant, après retrait de son ancienne version :
+            // un doublon ne peut être que la dernière entrée
+            if( size > 0 && slots[size - 1] == slot ) {
+                return;
+            }
+
+            if( size == slots.length ) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+
+            slots[size++] = slot;
+        }
+
+        boolean remove(int slot) {
+            for( int i = 0; i < size; i++ ) {
+                if( slots[i] == slot ) {
+                    slots[i] = slots[--size];
+
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+}
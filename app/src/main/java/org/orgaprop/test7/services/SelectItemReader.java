@@ -0,0 +1,466 @@
+package org.orgaprop.test7.services;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.orgaprop.test7.models.ListResidModel;
+import org.orgaprop.test7.models.SelectItem;
+import org.orgaprop.test7.models.prop.ObjCriter;
+import org.orgaprop.test7.models.prop.ObjElement;
+import org.orgaprop.test7.models.prop.ObjGrille;
+import org.orgaprop.test7.models.prop.ObjZone;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Lecture en flux d'une réponse {@code list2} : {@code {"status":..,"message":..,"data":{..}}}.
+ *
+ * <p>Chaque entrée de {@code data} est lue champ par champ directement dans un
+ * {@link SelectItem} et transmise au {@link Listener} dès qu'elle est complète : la mémoire
+ * utilisée ne dépasse pas une entrée et les premières lignes peuvent s'afficher pendant le
+ * téléchargement.</p>
+ */
+public class SelectItemReader {
+
+//********* PRIVATE VARIABLES
+
+    private final String type;
+    private final Listener listener;
+
+    private boolean status = false;
+    private String message = "";
+    private int count = 0;
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "SelectItemReader";
+
+    public static final String TYPE_GRP = "grp";
+    public static final String TYPE_SEARCH = "search";
+
+//********* CONSTRUCTORS
+
+    /**
+     * @param type type de liste : les groupements n'ont qu'un identifiant et un texte
+     */
+    public SelectItemReader(String type, Listener listener) {
+        this.type = type;
+        this.listener = listener;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    /**
+     * Lit la réponse en entier.
+     *
+     * @return "1" si le serveur a répondu favorablement, "0" suivi de son message sinon
+     */
+    public String read(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        status = false;
+        message = "";
+        count = 0;
+
+        try {
+            reader.beginObject();
+
+            while( reader.hasNext() ) {
+                switch( reader.nextName() ) {
+                    case "status":
+                        status = reader.nextBoolean();
+                        break;
+                    case "message":
+                        message = nextString(reader);
+                        break;
+                    case "data":
+                        readData(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+        } catch (JSONException | IllegalStateException | NumberFormatException e) {
+            throw new IOException("Réponse list2 invalide", e);
+        }
+
+        return ( status ) ? "1" : "0" + message;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private void readData(JsonReader reader) throws IOException, JSONException {
+        if( reader.peek() != JsonToken.BEGIN_OBJECT ) {
+            reader.skipValue();
+
+            return;
+        }
+
+        reader.beginObject();
+
+        while( reader.hasNext() ) {
+            reader.nextName();
+
+            if( TYPE_GRP.equals(type) ) {
+                readGroup(reader);
+            } else {
+                readResid(reader);
+            }
+
+            count++;
+        }
+
+        reader.endObject();
+    }
+
+    private void readGroup(JsonReader reader) throws IOException {
+        int id = 0;
+        String txt = "";
+
+        reader.beginObject();
+
+        while( reader.hasNext() ) {
+            switch( reader.nextName() ) {
+                case "id":
+                    id = reader.nextInt();
+                    break;
+                case "txt":
+                    txt = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+
+        listener.onItem(new SelectItem(id, txt), null);
+    }
+
+    private void readResid(JsonReader reader) throws IOException, JSONException {
+        int id = 0, agency = 0, group = 0;
+        String ref = "", name = "", entry = "", rue = "", cp = "", city = "", last = "", comment = "";
+        boolean delay = false;
+        Prop prop = new Prop();
+
+        reader.beginObject();
+
+        while( reader.hasNext() ) {
+            switch( reader.nextName() ) {
+                case "id": id = reader.nextInt(); break;
+                case "agency": agency = reader.nextInt(); break;
+                case "group": group = reader.nextInt(); break;
+                case "ref": ref = nextString(reader); break;
+                case "name": name = nextString(reader); break;
+                case "entry": entry = nextString(reader); break;
+                case "last": last = nextString(reader); break;
+                case "delay": delay = reader.nextBoolean(); break;
+                case "comment": comment = nextString(reader); break;
+                case "adr":
+                    reader.beginObject();
+
+                    while( reader.hasNext() ) {
+                        switch( reader.nextName() ) {
+                            case "rue": rue = nextString(reader); break;
+                            case "cp": cp = nextString(reader); break;
+                            case "city": city = nextString(reader); break;
+                            default: reader.skipValue();
+                        }
+                    }
+
+                    reader.endObject();
+                    break;
+                case "prop":
+                    readProp(reader, prop);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+
+        SelectItem item = new SelectItem(id, agency, group, ref, name, entry, rue, cp, city, last, delay, comment);
+        ListResidModel resid = new ListResidModel();
+
+        item.getObjProp().getObjZones().setProxi(prop.proxi);
+        item.getObjProp().getObjZones().setContrat(prop.contrat);
+        item.getObjProp().getObjConfig().setVisite(prop.visite);
+        item.getObjProp().getObjConfig().setMeteo(prop.meteo);
+        item.getObjProp().getObjConfig().setAffichage(prop.affichage);
+        item.getObjProp().getObjConfig().setProduits(prop.produits);
+        item.getObjProp().getObjDateCtrl().setValue(prop.dateValue);
+        item.getObjProp().getObjDateCtrl().setTxt(prop.dateTxt);
+        item.getObjProp().setNote(prop.note);
+        item.getObjProp().setGrille(makeGrille(item.getObjProp().getGrille(), prop.grille));
+
+        if( TYPE_SEARCH.equals(type) ) {
+            JSONObject jsonComment = new JSONObject(comment);
+
+            item.setNameAgency(jsonComment.getJSONObject("agency").getString("txt"));
+            item.setNameGroup(jsonComment.getJSONObject("groupe").getString("txt"));
+            item.setComment("");
+        }
+
+        resid.setId(id);
+        resid.setAgc(String.valueOf(agency));
+        resid.setGrp(String.valueOf(group));
+        resid.setRef(ref);
+        resid.setName(name);
+        resid.setEntry(entry);
+        resid.setAdresse(rue);
+        resid.setCity(cp, city);
+        resid.setLast(last);
+        resid.setVisited(delay);
+        resid.setDate(prop.dateValue);
+        resid.setNote(String.valueOf(prop.note));
+        resid.setConfCtrl((prop.visite ? "1" : "0") + ";" + (prop.meteo ? "1" : "0") + ";" + (prop.produits ? "1" : "0") + ";" + (prop.affichage ? "1" : "0"));
+        resid.setProxi(toObject(prop.proxi));
+        resid.setContra(toObject(prop.contrat));
+        resid.setOldCtrl(prop.grille);
+
+        listener.onItem(item, resid);
+    }
+
+    private void readProp(JsonReader reader, Prop prop) throws IOException, JSONException {
+        reader.beginObject();
+
+        while( reader.hasNext() ) {
+            switch( reader.nextName() ) {
+                case "zones":
+                    reader.beginObject();
+
+                    while( reader.hasNext() ) {
+                        switch( reader.nextName() ) {
+                            case "proxi": prop.proxi = readArray(reader); break;
+                            case "contrat": prop.contrat = readArray(reader); break;
+                            default: reader.skipValue();
+                        }
+                    }
+
+                    reader.endObject();
+                    break;
+                case "ctrl":
+                    readCtrl(reader, prop);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+    }
+
+    private void readCtrl(JsonReader reader, Prop prop) throws IOException, JSONException {
+        reader.beginObject();
+
+        while( reader.hasNext() ) {
+            switch( reader.nextName() ) {
+                case "conf":
+                    reader.beginObject();
+
+                    while( reader.hasNext() ) {
+                        switch( reader.nextName() ) {
+                            case "visite": prop.visite = reader.nextBoolean(); break;
+                            case "meteo": prop.meteo = reader.nextBoolean(); break;
+                            case "affichage": prop.affichage = reader.nextBoolean(); break;
+                            case "produits": prop.produits = reader.nextBoolean(); break;
+                            default: reader.skipValue();
+                        }
+                    }
+
+                    reader.endObject();
+                    break;
+                case "data":
+                    reader.beginObject();
+
+                    while( reader.hasNext() ) {
+                        switch( reader.nextName() ) {
+                            case "val": prop.dateValue = reader.nextInt(); break;
+                            case "txt": prop.dateTxt = nextString(reader); break;
+                            default: reader.skipValue();
+                        }
+                    }
+
+                    reader.endObject();
+                    break;
+                case "note":
+                    prop.note = reader.nextInt();
+                    break;
+                case "grille":
+                    prop.grille = readObject(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+    }
+
+    /**
+     * Grille du dernier contrôle : notes des critères, commentaires éventuels.
+     */
+    private static ObjGrille makeGrille(ObjGrille grille, JSONObject jsonGrille) throws JSONException {
+        for( Iterator<String> itZone = jsonGrille.keys(); itZone.hasNext(); ) {
+            String keyZone = itZone.next();
+            JSONObject zone = jsonGrille.getJSONObject(keyZone);
+            ObjZone objZone = new ObjZone();
+
+            objZone.setId(Integer.parseInt(keyZone));
+            objZone.setNote(-1);
+
+            for( Iterator<String> itElement = zone.keys(); itElement.hasNext(); ) {
+                String keyElement = itElement.next();
+                JSONObject element = zone.getJSONObject(keyElement);
+                ObjElement objElement = new ObjElement();
+
+                objElement.setId(Integer.parseInt(keyElement));
+                objElement.setNote(-1);
+
+                for( Iterator<String> itCriter = element.keys(); itCriter.hasNext(); ) {
+                    String keyCriter = itCriter.next();
+                    JSONObject criter = element.getJSONObject(keyCriter);
+                    ObjCriter objCriter = new ObjCriter();
+
+                    objCriter.setId(Integer.parseInt(keyCriter));
+                    objCriter.setNote(criter.getInt("note"));
+
+                    if( criter.has("com") ) {
+                        objCriter.getComment().setTxt(criter.getJSONObject("com").getString("txt"));
+                        objCriter.getComment().setImg(criter.getJSONObject("com").getString("img"));
+                    }
+
+                    objElement.addCriter(objCriter);
+                }
+
+                objZone.addElement(objElement);
+            }
+
+            grille.addZone(objZone);
+        }
+
+        grille.trimToSize();
+
+        return grille;
+    }
+
+    private static JSONObject toObject(JSONArray array) throws JSONException {
+        JSONObject result = new JSONObject();
+
+        for( int i = 0; i < array.length(); i++ ) {
+            result.put(String.valueOf(i), array.get(i));
+        }
+
+        return result;
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        if( reader.peek() == JsonToken.NULL ) {
+            reader.nextNull();
+
+            return "";
+        }
+
+        return reader.nextString();
+    }
+
+    private static JSONObject readObject(JsonReader reader) throws IOException, JSONException {
+        JSONObject result = new JSONObject();
+
+        if( reader.peek() != JsonToken.BEGIN_OBJECT ) {
+            // Grille vide envoyée en tableau par le serveur
+            reader.skipValue();
+
+            return result;
+        }
+
+        reader.beginObject();
+
+        while( reader.hasNext() ) {
+            String name = reader.nextName();
+
+            result.put(name, readValue(reader));
+        }
+
+        reader.endObject();
+
+        return result;
+    }
+    private static JSONArray readArray(JsonReader reader) throws IOException, JSONException {
+        JSONArray result = new JSONArray();
+
+        reader.beginArray();
+
+        while( reader.hasNext() ) {
+            result.put(readValue(reader));
+        }
+
+        reader.endArray();
+
+        return result;
+    }
+    private static Object readValue(JsonReader reader) throws IOException, JSONException {
+        switch( reader.peek() ) {
+            case BEGIN_OBJECT:
+                return readObject(reader);
+            case BEGIN_ARRAY:
+                return readArray(reader);
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NUMBER: {
+                String number = reader.nextString();
+
+                try {
+                    return Long.parseLong(number);
+                } catch (NumberFormatException e) {
+                    return Double.parseDouble(number);
+                }
+            }
+            case NULL:
+                reader.nextNull();
+
+                return JSONObject.NULL;
+            default:
+                return reader.nextString();
+        }
+    }
+
+//********* PRIVATE CLASSES
+
+    /**
+     * Champs de {@code prop}, lus dans l'ordre où le serveur les envoie.
+     */
+    private static class Prop {
+        JSONArray proxi = new JSONArray();
+        JSONArray contrat = new JSONArray();
+        boolean visite, meteo, affichage, produits;
+        int dateValue = 0;
+        String dateTxt = "";
+        int note = 0;
+        JSONObject grille = new JSONObject();
+    }
+
+//********* INTERFACES
+
+    public interface Listener {
+        /**
+         * @param resid la résidence pour {@link ResidenceRepository}, null pour un groupement
+         */
+        void onItem(SelectItem item, ListResidModel resid);
+    }
+
+}
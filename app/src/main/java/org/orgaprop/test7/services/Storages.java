@@ -3,14 +3,17 @@ package org.orgaprop.test7.services;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
-import android.os.Looper;
 
 import org.orgaprop.test7.databases.PrefDatabase;
+import org.orgaprop.test7.models.CtrlCodec;
 import org.orgaprop.test7.models.Storage;
+import org.orgaprop.test7.models.StorageSummary;
+import org.orgaprop.test7.services.executors.AppExecutors;
+import org.orgaprop.test7.utils.BlobStore;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
 
 public class Storages {
 
@@ -31,13 +34,74 @@ public class Storages {
 //************ SETTERS
 
     public void addStorage(ContentValues values) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Looper.prepare();
+        AppExecutors.io().execute(() -> saveStorage(Storage.fromContentValues(values)));
+    }
+    /**
+     * Enregistre le contrôle à la place de celui de la même résidence : l'ancienne ligne est
+     * effacée dans la même transaction (la nouvelle reçoit un nouvel identifiant), les images du
+     * magasin référencées par la nouvelle ligne sont retenues, celles de l'ancienne relâchées.
+     */
+    public void saveStorage(Storage storage) {
+        PrefDatabase db = PrefDatabase.getInstance(mContext);
+        BlobStore blobs = BlobStore.getInstance(mContext);
+
+        db.runInTransaction(() -> {
+            Storage previous = getStorage(String.valueOf(storage.getResid()));
+
+            blobs.retain(blobRefs(storage));
+
+            if( previous.getId() > 0 ) {
+                db.mStorageDao().deleteStorageByRsd(storage.getResid());
+                blobs.release(blobRefs(previous));
+            }
+
+            db.mStorageDao().insertStorage(storage);
+        });
+    }
+    public void deleteStorageRsd(int residId) {
+        PrefDatabase db = PrefDatabase.getInstance(mContext);
 
-            PrefDatabase.getInstance(mContext).mStorageDao().insertStorage(Storage.fromContentValues(values));
+        db.runInTransaction(() -> {
+            Storage previous = getStorage(String.valueOf(residId));
 
-            Looper.loop();
+            if( previous.getId() > 0 ) {
+                db.mStorageDao().deleteStorageByRsd(residId);
+                BlobStore.getInstance(mContext).release(blobRefs(previous));
+            }
+        });
+    }
+    /**
+     * Peut être appelé dans une transaction plus large, comme l'acquittement d'un lot de la
+     * synchronisation : les références ne sont relâchées que si elle aboutit.
+     */
+    public void deleteStorageById(long storageId) {
+        PrefDatabase db = PrefDatabase.getInstance(mContext);
+
+        db.runInTransaction(() -> {
+            Storage previous = getStorageById(storageId);
+
+            if( previous.getId() > 0 ) {
+                db.mStorageDao().deleteStorageById(storageId);
+                BlobStore.getInstance(mContext).release(blobRefs(previous));
+            }
+        });
+    }
+    /**
+     * Vide la table après une synchronisation réussie et efface les images devenues orphelines.
+     */
+    public void deleteAllStorages() {
+        PrefDatabase db = PrefDatabase.getInstance(mContext);
+        BlobStore blobs = BlobStore.getInstance(mContext);
+
+        db.runInTransaction(() -> {
+            for( StorageSummary summary : getStorageSummaries() ) {
+                blobs.release(blobRefs(getStorageById(summary.getId())));
+            }
+
+            db.mStorageDao().deleteAllStorage();
         });
+
+        blobs.gc();
     }
 
 //************ GETTERS
@@ -46,12 +110,48 @@ public class Storages {
         Storage result = new Storage();
         Cursor cursor = PrefDatabase.getInstance(mContext).mStorageDao().getStorageRsdWithCursor(Integer.parseInt(residId));
 
-        if( cursor != null && cursor.moveToFirst() ) {
-            result = makStorage(cursor);
+        if( cursor != null ) {
+            if( cursor.moveToFirst() ) {
+                result = makStorage(cursor);
+            }
+
+            cursor.close();
+        }
+
+        return result;
+    }
+    /**
+     * Ligne complète, colonnes lourdes comprises (grille, signatures, plan d'actions).
+     */
+    public Storage getStorageById(long storageId) {
+        Storage result = new Storage();
+        Cursor cursor = PrefDatabase.getInstance(mContext).mStorageDao().getStorageWithCursor((int) storageId);
+
+        if( cursor != null ) {
+            if( cursor.moveToFirst() ) {
+                result = makStorage(cursor);
+            }
+
+            cursor.close();
         }
 
         return result;
     }
+    /**
+     * Contrôles en attente sans leurs colonnes lourdes.
+     */
+    public List<StorageSummary> getStorageSummaries() {
+        return PrefDatabase.getInstance(mContext).mStorageDao().getStorageSummaries();
+    }
+    public int countStorages() {
+        return PrefDatabase.getInstance(mContext).mStorageDao().countStorages();
+    }
+    public boolean hasStorages() {
+        return PrefDatabase.getInstance(mContext).mStorageDao().hasStorages();
+    }
+    public boolean hasStorage(String residId) {
+        return PrefDatabase.getInstance(mContext).mStorageDao().hasStorageRsd(Integer.parseInt(residId));
+    }
     public List<Storage> getAllStorages() {
         List<Storage> result = new ArrayList<>();
         Cursor cursor = PrefDatabase.getInstance(mContext).mStorageDao().getAllStorageWithCursor();
@@ -73,6 +173,38 @@ public class Storages {
 
 //************ UTILS
 
+    /**
+     * Références du magasin d'images portées par la ligne : signatures et prises de vue.
+     */
+    public static List<String> blobRefs(Storage storage) {
+        List<String> result = new ArrayList<>();
+
+        result.add(storage.getCtrl_sig1());
+        result.add(storage.getCtrl_sig2());
+
+        if( storage.getCtrl_blob() != null ) {
+            try {
+                CtrlCodec.Grid grid = CtrlCodec.decode(storage.getCtrl_blob());
+
+                for( int z = 0; z < grid.getZoneCount(); z++ ) {
+                    CtrlCodec.Zone zone = grid.getZone(z);
+
+                    for( int e = 0; e < zone.getElementCount(); e++ ) {
+                        CtrlCodec.Element element = zone.getElement(e);
+
+                        for( int c = 0; c < element.getCriterCount(); c++ ) {
+                            result.add(element.getCriter(c).captureUri);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return result;
+    }
+
     public static Storage makStorage(Cursor cursor) {
         Storage r = new Storage();
 
@@ -94,6 +226,10 @@ public class Storages {
         r.setSend_typeCtrl(cursor.getString(PrefDatabase.STORAGE_COL_SEND_TYPE_CTRL_NUM));
         r.setSend_src(cursor.getString(PrefDatabase.STORAGE_COL_SEND_SRC_NUM));
 
+        if( !cursor.isNull(PrefDatabase.STORAGE_COL_CTRL_BLOB_NUM) ) {
+            r.setCtrl_blob(cursor.getBlob(PrefDatabase.STORAGE_COL_CTRL_BLOB_NUM));
+        }
+
         return r;
     }
 
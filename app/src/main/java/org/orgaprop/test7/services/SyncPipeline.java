@@ -0,0 +1,343 @@
+package org.orgaprop.test7.services;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.orgaprop.test7.databases.PrefDatabase;
+import org.orgaprop.test7.models.Storage;
+import org.orgaprop.test7.models.StorageSummary;
+import org.orgaprop.test7.models.SyncCheckpoint;
+import org.orgaprop.test7.utils.BlobStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Synchronisation des contrôles hors ligne par lots.
+ *
+ * <p>Les lignes de Storage sont lues par pages de résumés, puis chaque lot est envoyé comme une
+ * requête {@code synchro} ordinaire dont le JSON est écrit ligne par ligne dans la connexion.
+ * Dès que le serveur acquitte un lot, ses lignes sont effacées et l'acquittement est noté dans
+ * {@link SyncCheckpoint} dans la même transaction. Une synchronisation interrompue reprend au
+ * lot suivant sous le même identifiant ; les points de reprise sont effacés une fois la table
+ * parcourue. Les résidences qui ont encore un job dans l'{@link Outbox} sont laissées de côté.</p>
+ *
+ * <p>Un lot refusé est renvoyé ligne par ligne pour isoler les lignes en cause. Une ligne
+ * refusée (réponse du serveur ou image illisible) est notée dans {@link SyncCheckpoint} et
+ * reste dans Storage ; l'envoi continue avec les suivantes et les refus sont rapportés à la
+ * fin du parcours. Ils seront retentés à la synchronisation suivante.</p>
+ */
+public class SyncPipeline {
+
+//********* PRIVATE VARIABLES
+
+    private final Context mContext;
+    private final Storages storages;
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "SyncPipeline";
+
+    public static final String RESULT_OK = "1";
+
+    /** Lignes lues par page, et au plus par lot. */
+    private static final int CHUNK_ROWS = 20;
+    /** Poids des colonnes lourdes au-delà duquel le lot est fermé (hors images du magasin). */
+    private static final long CHUNK_BYTES = 2L * 1024 * 1024;
+
+//********* CONSTRUCTORS
+
+    public SyncPipeline(Context context) {
+        mContext = context.getApplicationContext();
+        storages = new Storages(mContext);
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    /**
+     * Envoie tous les contrôles en attente. Bloquant sur le réseau : à appeler depuis
+     * {@link org.orgaprop.test7.services.executors.AppExecutors#network()}.
+     *
+     * @return {@link #RESULT_OK} quand toutes les lignes sont acquittées, {@code "0"} suivi des
+     * refus séparés par {@code £} quand la table est parcourue mais que des lignes ont été
+     * refusées, ou null si le serveur n'a pas répondu
+     */
+    public String run(String idMbr) {
+        PrefDatabase db = PrefDatabase.getInstance(mContext);
+        SyncCheckpoint last = db.mSyncCheckpointDao().getLastCheckpoint();
+        String syncId = ( last != null ) ? last.getRun() : UUID.randomUUID().toString();
+        int chunk = ( last != null ) ? last.getChunk() + 1 : 0;
+        long afterId = 0;
+        Set<Long> refusedRows = new HashSet<>();
+        List<String> refused = new ArrayList<>();
+
+        // Refus notés avant l'interruption d'une synchronisation reprise
+        for( SyncCheckpoint checkpoint : db.mSyncCheckpointDao().getRefusedCheckpoints(syncId) ) {
+            refusedRows.add(checkpoint.getFirstRow());
+            refused.add(checkpoint.getRefused());
+        }
+
+        while( true ) {
+            List<StorageSummary> page = db.mStorageDao().getStorageSummaryPage(afterId, CHUNK_ROWS);
+
+            if( page.isEmpty() ) {
+                break;
+            }
+
+            List<StorageSummary> rows = takeChunk(withoutOutboxPending(withoutRows(page, refusedRows)));
+
+            if( rows.isEmpty() ) {
+                afterId = page.get(page.size() - 1).getId();
+
+                continue;
+            }
+
+            String result = sendChunk(idMbr, syncId, chunk, rows);
+
+            if( result == null ) {
+                return null;
+            }
+
+            if( RESULT_OK.equals(result) ) {
+                acknowledge(syncId, chunk++, rows);
+            } else if( rows.size() == 1 ) {
+                refused.add(refuse(syncId, chunk++, rows.get(0), result));
+            } else {
+                // Le refus ne désigne pas de ligne : chacune est renvoyée seule
+                chunk++;
+
+                for( StorageSummary row : rows ) {
+                    List<StorageSummary> single = Collections.singletonList(row);
+                    String rowResult = sendChunk(idMbr, syncId, chunk, single);
+
+                    if( rowResult == null ) {
+                        return null;
+                    }
+
+                    if( RESULT_OK.equals(rowResult) ) {
+                        acknowledge(syncId, chunk++, single);
+                    } else {
+                        refused.add(refuse(syncId, chunk++, row, rowResult));
+                    }
+                }
+            }
+
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+
+        db.mSyncCheckpointDao().deleteAllCheckpoints();
+        BlobStore.getInstance(mContext).gc();
+
+        return refused.isEmpty() ? RESULT_OK : "0" + String.join("£", refused);
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    /**
+     * Les résidences dont l'Outbox a encore un job en attente lui sont laissées : la ligne sert
+     * de copie locale et sera effacée à l'acquittement, l'envoyer ici le soumettrait deux fois.
+     */
+    private List<StorageSummary> withoutOutboxPending(List<StorageSummary> page) {
+        Outbox outbox = Outbox.getInstance(mContext);
+        List<StorageSummary> result = new ArrayList<>();
+
+        for( StorageSummary summary : page ) {
+            if( !outbox.hasPending(String.valueOf(summary.getResid())) ) {
+                result.add(summary);
+            }
+        }
+
+        return result;
+    }
+
+    private static List<StorageSummary> withoutRows(List<StorageSummary> page, Set<Long> rowIds) {
+        List<StorageSummary> result = new ArrayList<>();
+
+        for( StorageSummary summary : page ) {
+            if( !rowIds.contains(summary.getId()) ) {
+                result.add(summary);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Début de la page dans la limite de poids, une ligne au moins.
+     */
+    private static List<StorageSummary> takeChunk(List<StorageSummary> page) {
+        List<StorageSummary> result = new ArrayList<>();
+        long bytes = 0;
+
+        for( StorageSummary summary : page ) {
+            if( !result.isEmpty() && bytes + summary.getSize() > CHUNK_BYTES ) {
+                break;
+            }
+
+            result.add(summary);
+            bytes += summary.getSize();
+        }
+
+        return result;
+    }
+
+    private String sendChunk(String idMbr, String syncId, int chunk, List<StorageSummary> rows) {
+        HttpTask task = new HttpTask(mContext);
+
+        try {
+            return task.executeHttpTask(HttpTask.HTTP_TASK_ACT_SYNCHRO, "prop", "", out -> writeChunk(out, idMbr, syncId, chunk, rows)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return null;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+
+            // Image manquante : inutile de relancer, le lot est refusé côté application
+            return ( e.getCause() instanceof UncheckedIOException ) ? "0" + e.getCause().getMessage() : null;
+        }
+    }
+
+    /**
+     * Même corps que l'envoi d'un seul bloc, limité aux lignes du lot, complété de l'identifiant
+     * de synchronisation et du numéro de lot. Chaque ligne est relue et sérialisée à part.
+     */
+    private void writeChunk(OutputStream out, String idMbr, String syncId, int chunk, List<StorageSummary> rows) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        boolean first = true;
+
+        writer.write("mbr=" + idMbr + "&sync=" + syncId + "&chunk=" + chunk + "&data={");
+
+        for( StorageSummary summary : rows ) {
+            JSONObject item = makeJsonFromRow(summary.getId());
+
+            if( item == null ) {
+                continue;
+            }
+
+            if( !first ) {
+                writer.write(',');
+            }
+
+            writer.write(JSONObject.quote(String.valueOf(summary.getResid())));
+            writer.write(':');
+            writer.write(item.toString());
+            writer.flush();
+
+            first = false;
+        }
+
+        writer.write('}');
+        writer.flush();
+    }
+
+    /**
+     * Efface les lignes acquittées et note le lot. Une ligne réenregistrée pendant l'envoi a
+     * reçu un nouvel identifiant : elle reste en attente pour le lot suivant.
+     */
+    private void acknowledge(String syncId, int chunk, List<StorageSummary> rows) {
+        PrefDatabase db = PrefDatabase.getInstance(mContext);
+        long bytes = 0;
+
+        for( StorageSummary summary : rows ) {
+            bytes += summary.getSize();
+        }
+
+        SyncCheckpoint checkpoint = new SyncCheckpoint(syncId, chunk, rows.get(0).getId(), rows.get(rows.size() - 1).getId(), rows.size(), bytes);
+
+        db.runInTransaction(() -> {
+            db.mSyncCheckpointDao().insertCheckpoint(checkpoint);
+
+            for( StorageSummary summary : rows ) {
+                storages.deleteStorageById(summary.getId());
+            }
+        });
+    }
+
+    /**
+     * Note le refus d'une ligne, qui reste dans Storage, et retourne le message à rapporter.
+     */
+    private String refuse(String syncId, int chunk, StorageSummary row, String result) {
+        SyncCheckpoint checkpoint = new SyncCheckpoint(syncId, chunk, row.getId(), row.getId(), 1, row.getSize());
+        String message = "Résidence " + row.getResid() + " : " + (result.startsWith("0") ? result.substring(1) : result);
+
+        checkpoint.setRefused(message);
+        PrefDatabase.getInstance(mContext).mSyncCheckpointDao().insertCheckpoint(checkpoint);
+
+        return message;
+    }
+
+    private JSONObject makeJsonFromRow(long storageId) throws IOException {
+        Cursor cursor = PrefDatabase.getInstance(mContext).mStorageDao().getStorageWithCursor((int) storageId);
+
+        if( cursor == null ) {
+            return null;
+        }
+
+        try {
+            return cursor.moveToFirst() ? makeJsonFromCursor(cursor) : null;
+        } catch (JSONException e) {
+            throw new IOException("Erreur de traitement du JSON", e);
+        } finally {
+            cursor.close();
+        }
+    }
+    private JSONObject makeJsonFromCursor(Cursor cursor) throws JSONException {
+        JSONObject result = new JSONObject();
+        JSONObject ctrl = new JSONObject();
+        JSONObject plan = new JSONObject();
+        JSONObject send = new JSONObject();
+
+        result.put(Storage.STORAGE_PARAM_ID, cursor.getInt(PrefDatabase.STORAGE_COL_ID_NUM));
+        result.put(Storage.STORAGE_PARAM_RESID, cursor.getInt(PrefDatabase.STORAGE_COL_RESID_NUM));
+        result.put(Storage.STORAGE_PARAM_DATE, cursor.getInt(PrefDatabase.STORAGE_COL_DATE_NUM));
+        result.put(Storage.STORAGE_PARAM_TYPE, cursor.getString(PrefDatabase.STORAGE_COL_TYPE_CTRL_NUM));
+        result.put(Storage.STORAGE_PARAM_CONFIG, cursor.getString(PrefDatabase.STORAGE_COL_CONFIG_NUM));
+
+        ctrl.put(Storage.STORAGE_PARAM_CTRL_TYPE, cursor.getString(PrefDatabase.STORAGE_COL_CTRL_TYPE_NUM));
+        ctrl.put(Storage.STORAGE_PARAM_CTRL_GRILLE, Storages.makStorage(cursor).getCtrlJSON(this::inlineImage));
+        ctrl.put(Storage.STORAGE_PARAM_CTRL_SIG1, inlineImage(cursor.getString(PrefDatabase.STORAGE_COL_CTRL_SIG1_NUM)));
+        ctrl.put(Storage.STORAGE_PARAM_CTRL_SIG2, inlineImage(cursor.getString(PrefDatabase.STORAGE_COL_CTRL_SIG2_NUM)));
+        ctrl.put(Storage.STORAGE_PARAM_CTRL_AGT, cursor.getString(PrefDatabase.STORAGE_COL_CTRL_SIG_NUM));
+        result.put(Storage.STORAGE_PARAM_CTRL, ctrl);
+
+        plan.put(Storage.STORAGE_PARAM_PLAN_ECHEANCE, cursor.getInt(PrefDatabase.STORAGE_COL_PLAN_END_NUM));
+        plan.put(Storage.STORAGE_PARAM_PLAN_CONTENT, cursor.getString(PrefDatabase.STORAGE_COL_PLAN_CONTENT_NUM));
+        plan.put(Storage.STORAGE_PARAM_PLAN_VALIDATE, cursor.getInt(PrefDatabase.STORAGE_COL_PLAN_VALIDATE_NUM));
+        result.put(Storage.STORAGE_PARAM_PLAN_ACTIONS, plan);
+
+        send.put(Storage.STORAGE_PARAM_SEND_DEST, cursor.getString(PrefDatabase.STORAGE_COL_SEND_DEST_NUM));
+        send.put(Storage.STORAGE_PARAM_SEND_PLAN_ID, cursor.getInt(PrefDatabase.STORAGE_COL_SEND_ID_PLAN_NUM));
+        send.put(Storage.STORAGE_PARAM_SEND_CTRL_DATE, cursor.getInt(PrefDatabase.STORAGE_COL_SEND_DATE_CTRL_NUM));
+        send.put(Storage.STORAGE_PARAM_SEND_CTRL_TYPE, cursor.getString(PrefDatabase.STORAGE_COL_SEND_TYPE_CTRL_NUM));
+        send.put(Storage.STORAGE_PARAM_SEND_SRC, cursor.getString(PrefDatabase.STORAGE_COL_SEND_SRC_NUM));
+        result.put(Storage.STORAGE_PARAM_SEND, send);
+
+        return result;
+    }
+    /**
+     * Le serveur attend les images en Base64 : les références du magasin sont développées.
+     * Une image absente ou illisible fait refuser le lot, puis la seule ligne qui la porte.
+     */
+    private String inlineImage(String value) {
+        try {
+            return BlobStore.getInstance(mContext).toBase64(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Image illisible : " + value, e);
+        }
+    }
+
+}
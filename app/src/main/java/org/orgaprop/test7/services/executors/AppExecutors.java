@@ -0,0 +1,155 @@
+package org.orgaprop.test7.services.executors;
+
+import org.orgaprop.test7.metrics.monitoring.PerformanceMonitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pools partagés de l'application, dimensionnés sur le nombre de cœurs.
+ *
+ * <ul>
+ *     <li>{@link #io()} : base de données, fichiers ;</li>
+ *     <li>{@link #compute()} : calculs et encodages ;</li>
+ *     <li>{@link #network()} : appels réseau bloquants ;</li>
+ *     <li>{@link #scheduled()} : déclenchements différés et périodiques, tâches courtes.</li>
+ * </ul>
+ *
+ * <p>Les files sont bornées : une tâche refusée lève {@code RejectedExecutionException}. Un
+ * client qui avait son propre exécuteur prend une {@link PoolView} avec {@link #serial},
+ * {@link #view} ou {@link #scheduler} : il garde l'API d'un {@code ExecutorService} et son
+ * {@code shutdown()} sans créer de thread. Profondeur des files, attente et durée des tâches
+ * sont publiées dans {@link PerformanceMonitor} sous {@link #STATS_SOURCE}.</p>
+ */
+public final class AppExecutors {
+
+//********* PRIVATE VARIABLES
+
+    private static final InstrumentedThreadPool IO;
+    private static final InstrumentedThreadPool COMPUTE;
+    private static final InstrumentedThreadPool NETWORK;
+    private static final InstrumentedScheduledPool SCHEDULED;
+
+    private static final Set<PoolView> views = ConcurrentHashMap.newKeySet();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "AppExecutors";
+    public static final String STATS_SOURCE = "executors";
+
+    public static final int CORES = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    public static final int IO_THREADS = Math.min(8, Math.max(2, CORES));
+    public static final int COMPUTE_THREADS = Math.max(1, CORES - 1);
+    public static final int NETWORK_THREADS = Math.max(4, CORES);
+    public static final int SCHEDULED_THREADS = 2;
+
+    private static final int IO_QUEUE_CAPACITY = 512;
+    private static final int COMPUTE_QUEUE_CAPACITY = 256;
+    private static final int NETWORK_QUEUE_CAPACITY = 256;
+    private static final int VIEW_QUEUE_CAPACITY = 256;
+
+    static {
+        IO = new InstrumentedThreadPool("io", IO_THREADS, IO_QUEUE_CAPACITY, namedFactory("io"));
+        COMPUTE = new InstrumentedThreadPool("compute", COMPUTE_THREADS, COMPUTE_QUEUE_CAPACITY, namedFactory("compute"));
+        NETWORK = new InstrumentedThreadPool("network", NETWORK_THREADS, NETWORK_QUEUE_CAPACITY, namedFactory("network"));
+        SCHEDULED = new InstrumentedScheduledPool("scheduled", SCHEDULED_THREADS, namedFactory("scheduled"));
+
+        PerformanceMonitor.registerStatsSource(STATS_SOURCE, AppExecutors::getStats);
+    }
+
+//********* CONSTRUCTORS
+
+    private AppExecutors() {}
+
+//********* PUBLIC FUNCTIONS
+
+    public static Executor io() {
+        return IO;
+    }
+    public static Executor compute() {
+        return COMPUTE;
+    }
+    public static Executor network() {
+        return NETWORK;
+    }
+    /**
+     * Pool planifié partagé. Les tâches y tournent directement : elles doivent rester courtes
+     * et passer le travail long à un autre pool.
+     */
+    public static ScheduledExecutorService scheduled() {
+        return SCHEDULED;
+    }
+
+    /**
+     * Exécuteur ordonné sur le pool d'entrées/sorties, à la place d'un
+     * {@code Executors.newSingleThreadExecutor()}.
+     */
+    public static PoolView serial(String name) {
+        return view(name, IO, 1, null);
+    }
+    /**
+     * Remplaçant d'un {@code ScheduledExecutorService} privé : déclenché par le pool planifié,
+     * exécuté dans l'ordre sur le pool d'entrées/sorties.
+     */
+    public static PoolView scheduler(String name) {
+        return view(name, IO, 1, null);
+    }
+    /**
+     * Vue limitée à {@code maxConcurrency} tâches à la fois sur {@code target}. {@code queue}
+     * fixe l'ordre de la file (par exemple une {@code PriorityQueue}) ; null pour FIFO.
+     */
+    public static PoolView view(String name, Executor target, int maxConcurrency, Queue<Runnable> queue) {
+        PoolView[] holder = new PoolView[1];
+
+        holder[0] = new PoolView(name, target, SCHEDULED, maxConcurrency, VIEW_QUEUE_CAPACITY, queue, () -> views.remove(holder[0]));
+        views.add(holder[0]);
+
+        return holder[0];
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Map<String, Object> viewStats = new HashMap<>();
+
+        stats.put(IO.getName(), IO.getStats());
+        stats.put(COMPUTE.getName(), COMPUTE.getStats());
+        stats.put(NETWORK.getName(), NETWORK.getStats());
+        stats.put(SCHEDULED.getName(), SCHEDULED.getStats());
+        stats.put("maxThreads", IO_THREADS + COMPUTE_THREADS + NETWORK_THREADS + SCHEDULED_THREADS);
+
+        for( PoolView view : views ) {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> sameName = (List<Map<String, Object>>) viewStats.computeIfAbsent(view.getName(), n -> new ArrayList<Map<String, Object>>());
+
+            sameName.add(view.getStats());
+        }
+
+        stats.put("views", viewStats);
+
+        return stats;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private static ThreadFactory namedFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        };
+    }
+
+}
@@ -0,0 +1,134 @@
+package org.orgaprop.test7.services.executors;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pool planifié partagé. L'attente mesurée est le retard pris sur l'heure prévue ; la file
+ * compte les tâches planifiées, périodiques comprises.
+ */
+class InstrumentedScheduledPool extends ScheduledThreadPoolExecutor {
+
+//********* PRIVATE VARIABLES
+
+    private final String name;
+    private final PoolStats stats = new PoolStats();
+
+//********* CONSTRUCTORS
+
+    InstrumentedScheduledPool(String name, int threads, ThreadFactory threadFactory) {
+        super(threads, threadFactory);
+
+        this.name = name;
+
+        setRemoveOnCancelPolicy(true);
+        setRejectedExecutionHandler((runnable, executor) -> {
+            stats.recordRejected();
+
+            throw new RejectedExecutionException("Pool " + name + " arrêté");
+        });
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+
+        result.put("threads", getPoolSize());
+        result.put("maxThreads", getCorePoolSize());
+        result.put("largestThreads", getLargestPoolSize());
+        result.put("active", getActiveCount());
+        result.put("queued", getQueue().size());
+        stats.putInto(result);
+
+        return result;
+    }
+
+//********* PROTECTED FUNCTIONS
+
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task) {
+        return new TimedTask<>(task);
+    }
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task) {
+        return new TimedTask<>(task);
+    }
+
+//********* PRIVATE CLASSES
+
+    private class TimedTask<V> implements RunnableScheduledFuture<V> {
+        private final RunnableScheduledFuture<V> task;
+
+        TimedTask(RunnableScheduledFuture<V> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if( task.isCancelled() ) {
+                return;
+            }
+
+            long late = -task.getDelay(TimeUnit.NANOSECONDS);
+            long start = System.nanoTime();
+
+            task.run();
+
+            // Une tâche périodique qui a levé une exception n'est plus replanifiée
+            stats.recordRun(late, System.nanoTime() - start, !task.isDone() || !isFailed());
+        }
+
+        private boolean isFailed() {
+            if( task.isCancelled() ) {
+                return false;
+            }
+
+            try {
+                task.get(0, TimeUnit.NANOSECONDS);
+
+                return false;
+            } catch (ExecutionException e) {
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                return false;
+            } catch (TimeoutException e) {
+                return false;
+            }
+        }
+
+        @Override public boolean isPeriodic() { return task.isPeriodic(); }
+        @Override public long getDelay(TimeUnit unit) { return task.getDelay(unit); }
+        @Override public int compareTo(Delayed other) { return task.compareTo(( other instanceof TimedTask ) ? ((TimedTask<?>) other).task : other); }
+        @Override public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = task.cancel(mayInterruptIfRunning);
+
+            // La file contient l'enveloppe, que la tâche d'origine ne sait pas retirer
+            if( cancelled ) {
+                remove(this);
+            }
+
+            return cancelled;
+        }
+        @Override public boolean isCancelled() { return task.isCancelled(); }
+        @Override public boolean isDone() { return task.isDone(); }
+        @Override public V get() throws InterruptedException, ExecutionException { return task.get(); }
+        @Override public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException { return task.get(timeout, unit); }
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.orgaprop.test7.services.executors;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool de taille fixe à file bornée qui mesure l'attente et la durée de chaque tâche.
+ * Une tâche refusée lève {@link RejectedExecutionException} chez l'appelant.
+ */
+class InstrumentedThreadPool extends ThreadPoolExecutor {
+
+//********* PRIVATE VARIABLES
+
+    private final String name;
+    private final int queueCapacity;
+    private final PoolStats stats = new PoolStats();
+
+//********* CONSTRUCTORS
+
+    InstrumentedThreadPool(String name, int threads, int queueCapacity, ThreadFactory threadFactory) {
+        super(threads, threads, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity), threadFactory);
+
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler((runnable, executor) -> {
+            stats.recordRejected();
+
+            throw new RejectedExecutionException("Pool " + name + " saturé (" + queueCapacity + " tâches en attente)");
+        });
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    @Override
+    public void execute(Runnable command) {
+        if( command == null ) {
+            throw new NullPointerException();
+        }
+
+        super.execute(new TimedRunnable(command, System.nanoTime()));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+
+        result.put("threads", getPoolSize());
+        result.put("maxThreads", getMaximumPoolSize());
+        result.put("largestThreads", getLargestPoolSize());
+        result.put("active", getActiveCount());
+        result.put("queued", getQueue().size());
+        result.put("queueCapacity", queueCapacity);
+        stats.putInto(result);
+
+        return result;
+    }
+
+//********* PRIVATE CLASSES
+
+    private class TimedRunnable implements Runnable {
+        private final Runnable command;
+        private final long enqueuedAt;
+
+        TimedRunnable(Runnable command, long enqueuedAt) {
+            this.command = command;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            boolean success = false;
+
+            try {
+                command.run();
+                success = true;
+            } finally {
+                stats.recordRun(start - enqueuedAt, System.nanoTime() - start, success);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package org.orgaprop.test7.services.executors;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compteurs d'un pool : temps d'attente en file, temps d'exécution et refus.
+ */
+class PoolStats {
+
+//********* PRIVATE VARIABLES
+
+    private final AtomicLong tasks = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong runNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+//********* PUBLIC FUNCTIONS
+
+    void recordRun(long wait, long run, boolean success) {
+        tasks.incrementAndGet();
+        waitNanos.addAndGet(Math.max(0, wait));
+        runNanos.addAndGet(run);
+        maxWaitNanos.accumulateAndGet(wait, Math::max);
+        maxRunNanos.accumulateAndGet(run, Math::max);
+
+        if( !success ) {
+            failed.incrementAndGet();
+        }
+    }
+    void recordRejected() {
+        rejected.incrementAndGet();
+    }
+
+    void putInto(Map<String, Object> stats) {
+        long count = tasks.get();
+
+        stats.put("tasks", count);
+        stats.put("failed", failed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("waitAvgMs", ( count > 0 ) ? TimeUnit.NANOSECONDS.toMillis(waitNanos.get() / count) : 0L);
+        stats.put("waitMaxMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        stats.put("runAvgMs", ( count > 0 ) ? TimeUnit.NANOSECONDS.toMillis(runNanos.get() / count) : 0L);
+        stats.put("runMaxMs", TimeUnit.NANOSECONDS.toMillis(maxRunNanos.get()));
+    }
+
+}
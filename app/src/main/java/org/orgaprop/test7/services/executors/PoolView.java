@@ -0,0 +1,423 @@
+package org.orgaprop.test7.services.executors;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vue d'un pool partagé pour un seul client, qui remplace un exécuteur privé.
+ *
+ * <p>Au plus {@code maxConcurrency} tâches de la vue occupent le pool en même temps ; les
+ * suivantes attendent dans la file de la vue, dans l'ordre de sa {@link Queue} (FIFO par
+ * défaut). Avec une concurrence de 1, les tâches s'exécutent dans l'ordre, comme sur
+ * {@code Executors.newSingleThreadExecutor()}. Les tâches planifiées sont déclenchées par le
+ * pool planifié partagé puis exécutées dans la vue.</p>
+ *
+ * <p>{@link #shutdown()} n'arrête que la vue : il annule ses tâches planifiées, y compris les
+ * tâches différées pas encore déclenchées, et laisse finir celles déjà en file.
+ * {@link #shutdownNow()} vide la file et interrompt les tâches de la vue en cours.</p>
+ */
+public class PoolView extends AbstractExecutorService implements ScheduledExecutorService {
+
+//********* PRIVATE VARIABLES
+
+    private final String name;
+    private final Executor target;
+    private final ScheduledExecutorService timer;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+
+    private final Queue<Runnable> queue;
+    private final Set<Thread> running = new HashSet<>();
+    private final Set<ScheduledFuture<?>> scheduled = ConcurrentHashMap.newKeySet();
+    private int active = 0;
+    private boolean shutdown = false;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final Runnable onTerminated;
+
+//********* STATIC VARIABLES
+
+    private static final long REDISPATCH_DELAY_MS = 10;
+
+//********* CONSTRUCTORS
+
+    PoolView(String name, Executor target, ScheduledExecutorService timer, int maxConcurrency, int queueCapacity, Queue<Runnable> queue, Runnable onTerminated) {
+        this.name = name;
+        this.target = target;
+        this.timer = timer;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.queueCapacity = queueCapacity;
+        this.queue = ( queue != null ) ? queue : new ArrayDeque<>();
+        this.onTerminated = onTerminated;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if( command == null ) {
+            throw new NullPointerException();
+        }
+
+        synchronized (this) {
+            if( shutdown ) {
+                rejected.incrementAndGet();
+
+                throw new RejectedExecutionException("Vue " + name + " arrêtée");
+            }
+
+            if( active >= maxConcurrency ) {
+                if( queue.size() >= queueCapacity ) {
+                    rejected.incrementAndGet();
+
+                    throw new RejectedExecutionException("Vue " + name + " saturée (" + queueCapacity + " tâches en attente)");
+                }
+
+                queue.add(command);
+
+                return;
+            }
+
+            active++;
+        }
+
+        try {
+            target.execute(new Worker(command));
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                active--;
+                notifyAll();
+            }
+
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return schedule(new FutureTask<Void>(command, null), delay, unit);
+    }
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return schedule(new FutureTask<>(callable), delay, unit);
+    }
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        Periodic periodic = new Periodic(command);
+
+        checkNotShutdown();
+
+        return track(periodic.bind(timer.scheduleAtFixedRate(periodic, initialDelay, period, unit)));
+    }
+    /**
+     * Le délai court depuis le déclenchement précédent : une exécution plus longue que le délai
+     * en saute une, sans jamais se chevaucher.
+     */
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        Periodic periodic = new Periodic(command);
+
+        checkNotShutdown();
+
+        return track(periodic.bind(timer.scheduleWithFixedDelay(periodic, initialDelay, delay, unit)));
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+        }
+
+        cancelScheduled();
+        checkTerminated();
+    }
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending;
+
+        synchronized (this) {
+            shutdown = true;
+            pending = new ArrayList<>(queue);
+            queue.clear();
+
+            for( Thread thread : running ) {
+                thread.interrupt();
+            }
+        }
+
+        cancelScheduled();
+        checkTerminated();
+
+        return pending;
+    }
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+    @Override
+    public synchronized boolean isTerminated() {
+        return shutdown && active == 0 && queue.isEmpty();
+    }
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while( !isTerminated() ) {
+            long remaining = deadline - System.nanoTime();
+
+            if( remaining <= 0 ) {
+                return false;
+            }
+
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+
+        return true;
+    }
+
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+
+        stats.put("active", active);
+        stats.put("maxConcurrency", maxConcurrency);
+        stats.put("queued", queue.size());
+        stats.put("scheduled", scheduled.size());
+        stats.put("rejected", rejected.get());
+
+        return stats;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private <V> ScheduledFuture<V> schedule(FutureTask<V> task, long delay, TimeUnit unit) {
+        checkNotShutdown();
+
+        DelayedTask<V> delayed = new DelayedTask<>(task);
+
+        return track(delayed.bind(timer.schedule(delayed::fire, delay, unit)));
+    }
+
+    private <F extends ScheduledFuture<?>> F track(F future) {
+        scheduled.removeIf(ScheduledFuture::isDone);
+        scheduled.add(future);
+
+        // Arrêt survenu pendant la planification
+        if( isShutdown() ) {
+            future.cancel(false);
+            scheduled.remove(future);
+        }
+
+        return future;
+    }
+
+    private void cancelScheduled() {
+        for( ScheduledFuture<?> future : scheduled ) {
+            future.cancel(false);
+        }
+
+        scheduled.clear();
+    }
+
+    private void checkNotShutdown() {
+        if( isShutdown() ) {
+            rejected.incrementAndGet();
+
+            throw new RejectedExecutionException("Vue " + name + " arrêtée");
+        }
+    }
+
+    private void checkTerminated() {
+        boolean terminated;
+
+        synchronized (this) {
+            terminated = isTerminated();
+            notifyAll();
+        }
+
+        if( terminated && onTerminated != null ) {
+            onTerminated.run();
+        }
+    }
+
+    /**
+     * Passe la tâche suivante de la file au pool. Si le pool la refuse, elle est reproposée
+     * un peu plus tard plutôt que perdue.
+     */
+    private void dispatchNext() {
+        Runnable next;
+
+        synchronized (this) {
+            next = queue.poll();
+
+            if( next == null ) {
+                active--;
+            }
+        }
+
+        if( next == null ) {
+            checkTerminated();
+        } else {
+            dispatch(next);
+        }
+    }
+    private void dispatch(Runnable command) {
+        try {
+            target.execute(new Worker(command));
+        } catch (RejectedExecutionException e) {
+            timer.schedule(() -> dispatch(command), REDISPATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+//********* PRIVATE CLASSES
+
+    private class Worker implements Runnable {
+        private final Runnable command;
+
+        Worker(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            Thread thread = Thread.currentThread();
+
+            synchronized (PoolView.this) {
+                running.add(thread);
+            }
+
+            try {
+                command.run();
+            } finally {
+                synchronized (PoolView.this) {
+                    running.remove(thread);
+                }
+
+                // Le thread retourne au pool partagé sans l'interruption destinée à la vue
+                Thread.interrupted();
+
+                dispatchNext();
+            }
+        }
+    }
+
+    /**
+     * Tâche différée : le pool planifié la déclenche, la vue l'exécute.
+     */
+    private class DelayedTask<V> implements ScheduledFuture<V> {
+        private final FutureTask<V> task;
+        private ScheduledFuture<?> trigger;
+
+        DelayedTask(FutureTask<V> task) {
+            this.task = task;
+        }
+
+        DelayedTask<V> bind(ScheduledFuture<?> trigger) {
+            this.trigger = trigger;
+
+            return this;
+        }
+
+        void fire() {
+            scheduled.remove(this);
+
+            try {
+                execute(task);
+            } catch (RejectedExecutionException e) {
+                task.cancel(false);
+            }
+        }
+
+        @Override public long getDelay(TimeUnit unit) { return trigger.getDelay(unit); }
+        @Override public int compareTo(Delayed other) { return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS)); }
+        @Override public boolean cancel(boolean mayInterruptIfRunning) {
+            trigger.cancel(false);
+            scheduled.remove(this);
+
+            return task.cancel(mayInterruptIfRunning);
+        }
+        @Override public boolean isCancelled() { return task.isCancelled(); }
+        @Override public boolean isDone() { return task.isDone(); }
+        @Override public V get() throws InterruptedException, ExecutionException { return task.get(); }
+        @Override public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException { return task.get(timeout, unit); }
+    }
+
+    /**
+     * Tâche périodique : chaque déclenchement l'exécute dans la vue, sauf si l'exécution
+     * précédente n'est pas finie. Une exception arrête les exécutions suivantes, comme sur
+     * un {@code ScheduledThreadPoolExecutor}.
+     */
+    private class Periodic implements Runnable {
+        private final Runnable command;
+        private final AtomicBoolean busy = new AtomicBoolean();
+        private volatile ScheduledFuture<?> trigger;
+
+        Periodic(Runnable command) {
+            this.command = command;
+        }
+
+        ScheduledFuture<?> bind(ScheduledFuture<?> trigger) {
+            this.trigger = trigger;
+
+            return trigger;
+        }
+
+        @Override
+        public void run() {
+            if( !busy.compareAndSet(false, true) ) {
+                return;
+            }
+
+            try {
+                execute(() -> {
+                    try {
+                        command.run();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+
+                        if( trigger != null ) {
+                            trigger.cancel(false);
+                            scheduled.remove(trigger);
+                        }
+                    } finally {
+                        busy.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                busy.set(false);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package org.orgaprop.test7.services.network;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Envoi d'une liste d'étapes : en un seul lot {@link BatchRequest} tant que le serveur l'accepte,
+ * sinon une par une. Un lot refusé fait passer les envois suivants directement en unitaire.
+ *
+ * <p>L'envoi unitaire n'est pas transactionnel : les étapes d'un groupe s'arrêtent au premier
+ * échec transitoire, celles déjà acquittées restent appliquées.</p>
+ */
+public class BatchClient {
+
+//********* PRIVATE VARIABLES
+
+    private final BatchCall batchCall;
+    private final StepCall stepCall;
+
+    private volatile boolean batchSupported = true;
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "BatchClient";
+
+//********* INTERFACES
+
+    /**
+     * Envoi du lot : null si le serveur ne le gère pas, une table sans résultat si le lot est
+     * à renvoyer plus tard.
+     */
+    public interface BatchCall {
+        Map<String, String> send(BatchRequest batch) throws InterruptedException;
+    }
+
+    /**
+     * Envoi d'une étape seule ; null ou un résultat transitoire si elle est à renvoyer.
+     */
+    public interface StepCall {
+        String send(BatchRequest.Step step) throws InterruptedException;
+    }
+
+//********* CONSTRUCTORS
+
+    public BatchClient(BatchCall batchCall, StepCall stepCall) {
+        this.batchCall = batchCall;
+        this.stepCall = stepCall;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    /**
+     * @return les résultats par clé d'étape ; une étape absente n'a pas été appliquée
+     */
+    public Map<String, String> send(List<BatchRequest.Step> steps) throws InterruptedException {
+        if( batchSupported && steps.size() > 1 ) {
+            BatchRequest batch = toBatch(steps);
+
+            if( batch != null ) {
+                Map<String, String> results = batchCall.send(batch);
+
+                if( results != null ) {
+                    return results;
+                }
+
+                batchSupported = false;
+            }
+        }
+
+        return sendSequential(steps);
+    }
+
+    public boolean isBatchSupported() {
+        return batchSupported;
+    }
+
+    public static boolean isTransient(String result) {
+        return result == null || result.isEmpty() || result.equals("0Request timed out") || result.equals("No internet connection");
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private Map<String, String> sendSequential(List<BatchRequest.Step> steps) throws InterruptedException {
+        Map<String, String> results = new LinkedHashMap<>();
+        Set<String> failed = new HashSet<>();
+
+        for( BatchRequest.Step step : steps ) {
+            if( failed.contains(step.group) ) {
+                continue;
+            }
+
+            String result = stepCall.send(step);
+
+            results.put(step.key, result);
+
+            if( isTransient(result) ) {
+                failed.add(step.group);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * @return null si une étape ne peut pas être portée par un lot
+     */
+    private static BatchRequest toBatch(List<BatchRequest.Step> steps) {
+        BatchRequest batch = new BatchRequest();
+
+        try {
+            for( BatchRequest.Step step : steps ) {
+                batch.add(step);
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        return batch;
+    }
+
+}
@@ -0,0 +1,211 @@
+package org.orgaprop.test7.services.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Plusieurs requêtes d'écriture envoyées en une seule requête multipart/mixed.
+ *
+ * <p>Chaque partie porte une étape : sa clé, son groupe, act, cbl et paramètres GET en en-têtes,
+ * ses paramètres POST en corps. Le serveur applique les étapes d'un même groupe dans l'ordre et
+ * en transaction : si l'une échoue, aucune n'est gardée. La réponse reprend le même séparateur,
+ * une partie par étape identifiée par sa clé, avec le résultat habituel ("1...", "0message") ;
+ * les étapes annulées avec leur groupe n'y figurent pas.</p>
+ */
+public class BatchRequest {
+
+//********* PRIVATE VARIABLES
+
+    private final String boundary = "batch-" + UUID.randomUUID();
+    private final List<Step> steps = new ArrayList<>();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "BatchRequest";
+
+    public static final String HEADER_KEY = "X-Step-Key";
+    public static final String HEADER_GROUP = "X-Step-Group";
+    public static final String HEADER_ACT = "X-Act";
+    public static final String HEADER_CBL = "X-Cbl";
+    public static final String HEADER_GET = "X-Get";
+
+    private static final String CRLF = "\r\n";
+
+//********* CONSTRUCTORS
+
+    public BatchRequest() {}
+
+//********* PUBLIC FUNCTIONS
+
+    /**
+     * @param group étapes liées (par exemple une résidence) : appliquées ensemble ou pas du tout
+     * @throws IllegalArgumentException si une valeur d'en-tête contient un saut de ligne
+     */
+    public BatchRequest add(String key, String group, String act, String cbl, String get, String post) {
+        return add(new Step(key, group, act, cbl, get, post));
+    }
+    public BatchRequest add(Step step) {
+        for( String value : new String[] { step.key, step.group, step.act, step.cbl, step.get } ) {
+            if( value == null || value.indexOf('\r') >= 0 || value.indexOf('\n') >= 0 ) {
+                throw new IllegalArgumentException("Valeur d'étape invalide : " + value);
+            }
+        }
+
+        steps.add(step);
+
+        return this;
+    }
+
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    public String getContentType() {
+        return "multipart/mixed; boundary=" + boundary;
+    }
+
+    /**
+     * Requête POST portant le lot, dont la réponse est lue telle quelle pour
+     * {@link #parseResponse(String)}.
+     */
+    public HttpRequest toHttpRequest(String url) {
+        return new HttpRequest(url)
+                .setMethod("POST")
+                .addHeader("Content-Type", getContentType())
+                .setBodyWriter(this::writeTo)
+                .setBodyReader(BatchRequest::readAll);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        for( Step step : steps ) {
+            byte[] post = step.post.getBytes(StandardCharsets.UTF_8);
+            String headers = "--" + boundary + CRLF
+                    + HEADER_KEY + ": " + step.key + CRLF
+                    + HEADER_GROUP + ": " + step.group + CRLF
+                    + HEADER_ACT + ": " + step.act + CRLF
+                    + HEADER_CBL + ": " + step.cbl + CRLF
+                    + HEADER_GET + ": " + step.get + CRLF
+                    + "Content-Type: application/x-www-form-urlencoded" + CRLF
+                    + "Content-Length: " + post.length + CRLF
+                    + CRLF;
+
+            out.write(headers.getBytes(StandardCharsets.UTF_8));
+            out.write(post);
+            out.write(CRLF.getBytes(StandardCharsets.UTF_8));
+        }
+
+        out.write(("--" + boundary + "--" + CRLF).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Résultats de la réponse HTTP au lot.
+     *
+     * @return null si le serveur refuse le lot (4xx) ou répond autre chose qu'un multipart : il ne
+     * gère pas l'envoi groupé ; une table vide pour une erreur serveur (5xx), à renvoyer plus tard
+     */
+    public Map<String, String> readResults(HttpResponse response) {
+        int code = response.getCode();
+
+        if( code >= HttpURLConnection.HTTP_BAD_REQUEST && code < HttpURLConnection.HTTP_INTERNAL_ERROR ) {
+            return null;
+        }
+        if( code >= HttpURLConnection.HTTP_INTERNAL_ERROR ) {
+            return Collections.emptyMap();
+        }
+
+        return parseResponse(response.getBody());
+    }
+
+    /**
+     * Résultats par clé d'étape. Une étape absente de la réponse n'a pas de résultat.
+     *
+     * @return null si la réponse n'est pas un multipart de ce lot : le serveur ne gère pas
+     * l'envoi groupé
+     */
+    public Map<String, String> parseResponse(String body) {
+        String delimiter = "--" + boundary;
+
+        if( body == null || !body.startsWith(delimiter) ) {
+            return null;
+        }
+
+        Map<String, String> results = new LinkedHashMap<>();
+        String separator = CRLF + delimiter;
+        int position = delimiter.length();
+
+        while( body.startsWith(CRLF, position) ) {
+            int headersEnd = body.indexOf(CRLF + CRLF, position);
+            int next = ( headersEnd >= 0 ) ? body.indexOf(separator, headersEnd + 4) : -1;
+
+            if( next < 0 ) {
+                return null;
+            }
+
+            String key = null;
+
+            for( String line : body.substring(position + 2, headersEnd).split(CRLF) ) {
+                int colon = line.indexOf(':');
+
+                if( colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase(HEADER_KEY) ) {
+                    key = line.substring(colon + 1).trim();
+                }
+            }
+
+            if( key != null ) {
+                results.put(key, body.substring(headersEnd + 4, next));
+            }
+
+            position = next + separator.length();
+        }
+
+        return body.startsWith("--", position) ? results : null;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+
+        while( ( count = in.read(buffer) ) != -1 ) {
+            out.write(buffer, 0, count);
+        }
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+//********* PUBLIC CLASSES
+
+    public static final class Step {
+        public final String key;
+        public final String group;
+        public final String act;
+        public final String cbl;
+        public final String get;
+        public final String post;
+
+        public Step(String key, String group, String act, String cbl, String get, String post) {
+            this.key = key;
+            this.group = group;
+            this.act = act;
+            this.cbl = cbl;
+            this.get = get;
+            this.post = ( post != null ) ? post : "";
+        }
+    }
+
+}
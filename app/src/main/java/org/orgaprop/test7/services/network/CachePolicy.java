@@ -0,0 +1,50 @@
+package org.orgaprop.test7.services.network;
+
+/**
+ * Politique de cache d'une lecture : durée pendant laquelle la réponse enregistrée est servie
+ * sans contacter le serveur, puis durée pendant laquelle elle est encore servie pendant
+ * qu'une revalidation tourne en arrière-plan.
+ */
+public class CachePolicy {
+
+//********* PRIVATE VARIABLES
+
+    private long maxAgeMs = 60000;
+    private long staleWhileRevalidateMs = 0;
+
+//********* CONSTRUCTORS
+
+    public CachePolicy() {}
+
+//********* PUBLIC FUNCTIONS
+
+    public boolean isFresh(long ageMs) {
+        return ageMs < maxAgeMs;
+    }
+    public boolean isUsableStale(long ageMs) {
+        return ageMs < maxAgeMs + staleWhileRevalidateMs;
+    }
+
+//********* SETTERS
+
+    public CachePolicy setMaxAge(long maxAgeMs) {
+        this.maxAgeMs = maxAgeMs;
+
+        return this;
+    }
+    public CachePolicy setStaleWhileRevalidate(long staleWhileRevalidateMs) {
+        this.staleWhileRevalidateMs = staleWhileRevalidateMs;
+
+        return this;
+    }
+
+//********* GETTERS
+
+    public long getMaxAgeMs() {
+        return maxAgeMs;
+    }
+    public long getStaleWhileRevalidateMs() {
+        return staleWhileRevalidateMs;
+    }
+
+}
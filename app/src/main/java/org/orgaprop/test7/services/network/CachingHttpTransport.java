@@ -0,0 +1,693 @@
+package org.orgaprop.test7.services.network;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache disque des lectures, placé devant un autre transport.
+ *
+ * <p>Seules les requêtes portant une {@link CachePolicy} passent par le cache, identifiées par
+ * leur URL et leur corps. Une réponse fraîche est servie sans contacter le serveur ; une réponse
+ * périmée mais dans la fenêtre stale-while-revalidate est servie tout de suite et revalidée en
+ * arrière-plan ; au-delà, la requête part avec If-None-Match / If-Modified-Since et un 304 est
+ * servi depuis le disque. Un lecteur en flux ({@link HttpRequest.BodyReader}) reçoit les octets
+ * enregistrés comme s'ils venaient du réseau.</p>
+ *
+ * <p>Le corps lu en flux est copié au passage dans un fichier temporaire du cache, renommé
+ * une fois la réponse acceptée : il n'est jamais gardé en mémoire. Une réponse demandée avant
+ * une {@link #invalidate(String)} qui la concerne n'est pas enregistrée.</p>
+ *
+ * <p>Le cache est borné en octets, les entrées les moins récemment lues étant supprimées
+ * d'abord. Tant que {@link #open(File)} n'a pas été appelé, toutes les requêtes passent
+ * directement au transport.</p>
+ */
+public class CachingHttpTransport implements HttpTransport {
+
+//********* PRIVATE VARIABLES
+
+    private final HttpTransport delegate;
+    private final long maxBytes;
+    private final Executor revalidator;
+
+    private volatile File dir = null;
+
+    /** Entrées par clé, de la moins récemment lue à la plus récente. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long storedBytes = 0;
+
+    /** Génération de chaque partie d'URL invalidée, comparée à celle du début d'une requête. */
+    private final Map<String, Long> invalidated = new HashMap<>();
+    private long generation = 0;
+
+    private final Set<String> revalidating = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "CachingHttpTransport";
+
+    public static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    private static final String EXT_BODY = ".body";
+    private static final String EXT_META = ".meta";
+    private static final String EXT_TMP = ".tmp";
+
+    private static final String META_URL = "url";
+    private static final String META_ETAG = "etag";
+    private static final String META_LAST_MODIFIED = "lastModified";
+    private static final String META_STORED_AT = "storedAt";
+
+//********* CONSTRUCTORS
+
+    /**
+     * @param revalidator exécute les revalidations en arrière-plan
+     */
+    public CachingHttpTransport(HttpTransport delegate, long maxBytes, Executor revalidator) {
+        this.delegate = delegate;
+        this.maxBytes = maxBytes;
+        this.revalidator = revalidator;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    /**
+     * Active le cache dans {@code dir} et recharge les entrées déjà présentes. Sans effet si le
+     * cache est déjà ouvert.
+     */
+    public void open(File dir) {
+        if( this.dir != null ) {
+            return;
+        }
+
+        synchronized (entries) {
+            if( this.dir != null || ( !dir.exists() && !dir.mkdirs() ) ) {
+                return;
+            }
+
+            File[] temporary = dir.listFiles((d, name) -> name.endsWith(EXT_TMP));
+            File[] files = dir.listFiles((d, name) -> name.endsWith(EXT_META));
+            List<Entry> loaded = new ArrayList<>();
+
+            // Corps en cours de capture à l'arrêt précédent
+            if( temporary != null ) {
+                for( File file : temporary ) {
+                    file.delete();
+                }
+            }
+
+            if( files != null ) {
+                for( File file : files ) {
+                    String key = file.getName().substring(0, file.getName().length() - EXT_META.length());
+                    Entry entry = readMeta(key, file, new File(dir, key + EXT_BODY));
+
+                    if( entry != null ) {
+                        loaded.add(entry);
+                    } else {
+                        delete(dir, key);
+                    }
+                }
+            }
+
+            loaded.sort((a, b) -> Long.compare(a.storedAt, b.storedAt));
+
+            for( Entry entry : loaded ) {
+                entries.put(entry.key, entry);
+                storedBytes += entry.size;
+            }
+
+            this.dir = dir;
+        }
+
+        trim();
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        CachePolicy policy = request.getCachePolicy();
+        File cacheDir = dir;
+
+        if( policy == null || cacheDir == null || request.getBodyWriter() != null ) {
+            return delegate.execute(request);
+        }
+
+        String key = keyOf(request);
+        Entry entry;
+
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        if( entry != null ) {
+            long age = System.currentTimeMillis() - entry.storedAt;
+
+            if( policy.isFresh(age) ) {
+                HttpResponse response = serve(cacheDir, entry, request);
+
+                if( response != null ) {
+                    hits.incrementAndGet();
+
+                    return response;
+                }
+            } else if( policy.isUsableStale(age) ) {
+                HttpResponse response = serve(cacheDir, entry, request);
+
+                if( response != null ) {
+                    staleHits.incrementAndGet();
+                    revalidate(request, key, entry);
+
+                    return response;
+                }
+            }
+
+            synchronized (entries) {
+                entry = entries.get(key);
+            }
+        }
+
+        return fetch(request, key, entry);
+    }
+
+    /**
+     * Oublie les lectures dont l'URL contient {@code urlPart}, par exemple après une écriture
+     * qui les rend obsolètes.
+     */
+    public void invalidate(String urlPart) {
+        List<String> removed = new ArrayList<>();
+
+        synchronized (entries) {
+            invalidated.put(urlPart, ++generation);
+
+            for( Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+
+                if( entry.url.contains(urlPart) ) {
+                    storedBytes -= entry.size;
+                    removed.add(entry.key);
+                    it.remove();
+                }
+            }
+        }
+
+        File cacheDir = dir;
+
+        for( String key : removed ) {
+            delete(cacheDir, key);
+        }
+    }
+
+    public void clear() {
+        invalidate("");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return delegate.getStats();
+    }
+
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+
+        stats.put("hits", hits.get());
+        stats.put("staleHits", staleHits.get());
+        stats.put("notModified", notModified.get());
+        stats.put("misses", misses.get());
+        stats.put("stores", stores.get());
+        stats.put("evictions", evictions.get());
+        stats.put("bytesSaved", bytesSaved.get());
+        stats.put("revalidating", revalidating.size());
+
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("storedBytes", storedBytes);
+        }
+
+        stats.put("maxBytes", maxBytes);
+
+        return stats;
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    /**
+     * Requête vers le serveur, conditionnelle si une entrée existe. Le corps brut est copié au
+     * passage dans un fichier temporaire, y compris quand la requête le lit en flux.
+     */
+    private HttpResponse fetch(HttpRequest request, String key, Entry entry) throws IOException {
+        File cacheDir = dir;
+        long started = currentGeneration();
+        File body = File.createTempFile(key, EXT_TMP, cacheDir);
+        AtomicBoolean captured = new AtomicBoolean(false);
+        HttpRequest.BodyReader reader = request.getBodyReader();
+
+        if( entry != null ) {
+            if( entry.etag != null ) {
+                request.addHeader("If-None-Match", entry.etag);
+            }
+            if( entry.lastModified != null ) {
+                request.addHeader("If-Modified-Since", entry.lastModified);
+            }
+        }
+        if( reader != null ) {
+            request.setBodyReader(in -> {
+                // Une nouvelle tentative réécrit le fichier depuis le début
+                try ( OutputStream copy = new BufferedOutputStream(new FileOutputStream(body)) ) {
+                    TeeInputStream tee = new TeeInputStream(in, copy, maxBytes);
+                    String result = reader.readFrom(tee);
+
+                    tee.drain();
+                    captured.set(tee.isComplete());
+
+                    return result;
+                }
+            });
+        }
+
+        try {
+            HttpResponse response;
+
+            try {
+                response = delegate.execute(request);
+            } finally {
+                request.setBodyReader(reader);
+            }
+
+            if( response.getCode() == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null ) {
+                HttpResponse cached = serve(cacheDir, entry, request);
+
+                if( cached != null ) {
+                    notModified.incrementAndGet();
+                    touch(entry);
+
+                    return cached;
+                }
+            }
+
+            misses.incrementAndGet();
+
+            if( response.isOk() && !isError(response.getBody()) && isStorable(response) ) {
+                if( reader == null ) {
+                    write(body, response.getBody().getBytes(StandardCharsets.UTF_8));
+                    captured.set(true);
+                }
+
+                // Un corps plus grand que le cache n'a pas été capturé entièrement
+                if( captured.get() ) {
+                    store(key, request.getUrl(), response, body, started);
+                }
+            }
+
+            return response;
+        } finally {
+            // Déjà renommé s'il a été enregistré
+            body.delete();
+        }
+    }
+
+    /**
+     * Revalidation sans le lecteur de l'appelant, dont l'affichage a déjà eu lieu.
+     */
+    private void revalidate(HttpRequest request, String key, Entry entry) {
+        if( !revalidating.add(key) ) {
+            return;
+        }
+
+        HttpRequest copy = new HttpRequest(request.getUrl())
+                .setMethod(request.getMethod())
+                .setBody(request.getBody())
+                .setTimeouts(request.getConnectTimeout(), request.getReadTimeout())
+                .setCachePolicy(request.getCachePolicy());
+
+        for( Map.Entry<String, String> header : request.getHeaders().entrySet() ) {
+            copy.addHeader(header.getKey(), header.getValue());
+        }
+
+        if( request.getBodyReader() != null ) {
+            copy.setBodyReader(in -> "1");
+        }
+
+        try {
+            revalidator.execute(() -> {
+                try {
+                    fetch(copy, key, entry);
+                } catch (IOException e) {
+                    // La réponse périmée reste en place jusqu'à la prochaine lecture
+                } finally {
+                    revalidating.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            revalidating.remove(key);
+        }
+    }
+
+    /**
+     * @return la réponse enregistrée, ou null si elle est illisible : l'entrée est alors
+     * supprimée et la requête part vers le serveur
+     */
+    private HttpResponse serve(File cacheDir, Entry entry, HttpRequest request) {
+        byte[] data;
+        String body;
+
+        try {
+            data = Files.readAllBytes(new File(cacheDir, entry.key + EXT_BODY).toPath());
+            body = ( request.getBodyReader() != null ) ? request.getBodyReader().readFrom(new ByteArrayInputStream(data)) : new String(data, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            remove(entry.key);
+
+            return null;
+        }
+
+        bytesSaved.addAndGet(data.length);
+
+        return new HttpResponse(HttpURLConnection.HTTP_OK, body, null);
+    }
+
+    /**
+     * Met en place {@code body} sous {@code key}, sauf si l'URL a été invalidée depuis le début
+     * de la requête ({@code started}). Le contrôle et le renommage se font sous le verrou : une
+     * invalidation passe avant ou après, jamais entre les deux.
+     */
+    private void store(String key, String url, HttpResponse response, File body, long started) {
+        File cacheDir = dir;
+        Entry entry = new Entry(key, url, response.getHeader("ETag"), response.getHeader("Last-Modified"), System.currentTimeMillis(), body.length());
+
+        synchronized (entries) {
+            if( isInvalidatedSince(url, started) ) {
+                return;
+            }
+
+            try {
+                writeMeta(new File(cacheDir, key + EXT_META), entry);
+
+                if( !body.renameTo(new File(cacheDir, key + EXT_BODY)) ) {
+                    throw new IOException("Renommage impossible : " + body);
+                }
+            } catch (IOException e) {
+                Entry old = entries.remove(key);
+
+                if( old != null ) {
+                    storedBytes -= old.size;
+                }
+
+                delete(cacheDir, key);
+
+                return;
+            }
+
+            Entry old = entries.put(key, entry);
+
+            storedBytes += entry.size - (( old != null ) ? old.size : 0);
+        }
+
+        stores.incrementAndGet();
+        trim();
+    }
+
+    private long currentGeneration() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    private boolean isInvalidatedSince(String url, long started) {
+        for( Map.Entry<String, Long> part : invalidated.entrySet() ) {
+            if( part.getValue() > started && url.contains(part.getKey()) ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Un 304 rend sa fraîcheur à l'entrée.
+     */
+    private void touch(Entry entry) {
+        Entry renewed = new Entry(entry.key, entry.url, entry.etag, entry.lastModified, System.currentTimeMillis(), entry.size);
+
+        synchronized (entries) {
+            if( entries.get(entry.key) != entry ) {
+                return;
+            }
+
+            entries.put(entry.key, renewed);
+        }
+
+        try {
+            writeMeta(new File(dir, entry.key + EXT_META), renewed);
+        } catch (IOException e) {
+            remove(entry.key);
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (entries) {
+            Entry entry = entries.remove(key);
+
+            if( entry != null ) {
+                storedBytes -= entry.size;
+            }
+        }
+
+        delete(dir, key);
+    }
+
+    private void trim() {
+        List<String> removed = new ArrayList<>();
+
+        synchronized (entries) {
+            for( Iterator<Entry> it = entries.values().iterator(); storedBytes > maxBytes && it.hasNext(); ) {
+                Entry entry = it.next();
+
+                storedBytes -= entry.size;
+                removed.add(entry.key);
+                it.remove();
+            }
+        }
+
+        for( String key : removed ) {
+            delete(dir, key);
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Les deux conventions d'erreur du serveur : "0message" et {"status":false,...}.
+     */
+    private static boolean isError(String body) {
+        return body == null || body.isEmpty() || body.startsWith("0") || ( body.startsWith("{") && body.replace(" ", "").contains("\"status\":false") );
+    }
+
+    private static boolean isStorable(HttpResponse response) {
+        String cacheControl = response.getHeader("Cache-Control");
+
+        return cacheControl == null || !cacheControl.toLowerCase().contains("no-store");
+    }
+
+    private static String keyOf(HttpRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder result = new StringBuilder();
+
+            digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(request.getUrl().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(request.getBody().getBytes(StandardCharsets.UTF_8));
+
+            for( byte b : digest.digest() ) {
+                result.append(String.format("%02x", b));
+            }
+
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Entry readMeta(String key, File metaFile, File bodyFile) {
+        Properties meta = new Properties();
+
+        try ( InputStream in = new FileInputStream(metaFile) ) {
+            meta.load(in);
+
+            return new Entry(key, meta.getProperty(META_URL, ""), meta.getProperty(META_ETAG), meta.getProperty(META_LAST_MODIFIED),
+                    Long.parseLong(meta.getProperty(META_STORED_AT, "0")), bodyFile.length());
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void writeMeta(File file, Entry entry) throws IOException {
+        Properties meta = new Properties();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        meta.setProperty(META_URL, entry.url);
+        meta.setProperty(META_STORED_AT, String.valueOf(entry.storedAt));
+
+        if( entry.etag != null ) {
+            meta.setProperty(META_ETAG, entry.etag);
+        }
+        if( entry.lastModified != null ) {
+            meta.setProperty(META_LAST_MODIFIED, entry.lastModified);
+        }
+
+        meta.store(out, null);
+        write(file, out.toByteArray());
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+
+        try ( OutputStream out = new FileOutputStream(tmp) ) {
+            out.write(data);
+        }
+
+        if( !tmp.renameTo(file) ) {
+            throw new IOException("Renommage impossible : " + file);
+        }
+    }
+
+    private static void delete(File cacheDir, String key) {
+        if( cacheDir != null ) {
+            new File(cacheDir, key + EXT_BODY).delete();
+            new File(cacheDir, key + EXT_META).delete();
+        }
+    }
+
+//********* PRIVATE CLASSES
+
+    private static class Entry {
+        final String key;
+        final String url;
+        final String etag;
+        final String lastModified;
+        final long storedAt;
+        final long size;
+
+        Entry(String key, String url, String etag, String lastModified, long storedAt, long size) {
+            this.key = key;
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.storedAt = storedAt;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Copie les octets lus dans {@code copy}, jusqu'à {@code limit} octets : au-delà, la copie
+     * s'arrête et n'est pas complète.
+     */
+    private static class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+        private final long limit;
+        private long copied = 0;
+        private boolean overflow = false;
+
+        TeeInputStream(InputStream in, OutputStream copy, long limit) {
+            super(in);
+            this.copy = copy;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+
+            if( b != -1 && keep(1) ) {
+                copy.write(b);
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+
+            if( n > 0 && keep(n) ) {
+                copy.write(b, off, n);
+            }
+
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int read = read(buffer, 0, buffer.length);
+
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public void close() {
+            // Le flux appartient au transport, qui le ferme après l'avoir vidé
+        }
+
+        void drain() throws IOException {
+            byte[] buffer = new byte[8192];
+
+            while( read(buffer, 0, buffer.length) != -1 ) {
+                // Fin de réponse ignorée par le lecteur, gardée pour le cache
+            }
+        }
+
+        boolean isComplete() {
+            return !overflow;
+        }
+
+        private boolean keep(int n) {
+            if( overflow || copied + n > limit ) {
+                overflow = true;
+
+                return false;
+            }
+
+            copied += n;
+
+            return true;
+        }
+    }
+
+}
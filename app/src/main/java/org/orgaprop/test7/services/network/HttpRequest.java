@@ -0,0 +1,125 @@
+package org.orgaprop.test7.services.network;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class HttpRequest {
+
+//********* PRIVATE VARIABLES
+
+    private final String url;
+    private String method = "POST";
+    private String body = "";
+    private BodyWriter bodyWriter = null;
+    private BodyReader bodyReader = null;
+    private CachePolicy cachePolicy = null;
+    private int connectTimeout = 15000;
+    private int readTimeout = 30000;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+
+//********* CONSTRUCTORS
+
+    public HttpRequest(String url) {
+        this.url = url;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public String getUrl() {
+        return url;
+    }
+
+    public HttpRequest setMethod(String method) {
+        this.method = method;
+
+        return this;
+    }
+    public String getMethod() {
+        return method;
+    }
+
+    public HttpRequest setBody(String body) {
+        this.body = (body != null) ? body : "";
+
+        return this;
+    }
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Corps écrit directement dans la connexion, sans être construit en mémoire ; prend le
+     * pas sur {@link #setBody(String)}. Il est rappelé à chaque nouvelle tentative.
+     */
+    public HttpRequest setBodyWriter(BodyWriter bodyWriter) {
+        this.bodyWriter = bodyWriter;
+
+        return this;
+    }
+    public BodyWriter getBodyWriter() {
+        return bodyWriter;
+    }
+
+    /**
+     * Lecteur de la réponse : une réponse 200 lui est passée en flux au lieu d'être chargée en
+     * mémoire, et ce qu'il retourne devient le corps de la réponse. Il est rappelé à chaque
+     * nouvelle tentative.
+     */
+    public HttpRequest setBodyReader(BodyReader bodyReader) {
+        this.bodyReader = bodyReader;
+
+        return this;
+    }
+    public BodyReader getBodyReader() {
+        return bodyReader;
+    }
+
+    /**
+     * Rend la réponse réutilisable par un {@link CachingHttpTransport} selon {@code cachePolicy} ;
+     * sans politique, la requête n'est jamais servie depuis le cache.
+     */
+    public HttpRequest setCachePolicy(CachePolicy cachePolicy) {
+        this.cachePolicy = cachePolicy;
+
+        return this;
+    }
+    public CachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    public HttpRequest setTimeouts(int connectTimeout, int readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+
+        return this;
+    }
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public HttpRequest addHeader(String name, String value) {
+        headers.put(name, value);
+
+        return this;
+    }
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+//********* INTERFACES
+
+    public interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    public interface BodyReader {
+        String readFrom(InputStream in) throws IOException;
+    }
+
+}
@@ -0,0 +1,46 @@
+package org.orgaprop.test7.services.network;
+
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class HttpResponse {
+
+//********* PRIVATE VARIABLES
+
+    private final int code;
+    private final String body;
+    private final Map<String, List<String>> headers;
+
+//********* CONSTRUCTORS
+
+    public HttpResponse(int code, String body, Map<String, List<String>> headers) {
+        this.code = code;
+        this.body = body;
+        this.headers = (headers != null) ? headers : Collections.emptyMap();
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public int getCode() {
+        return code;
+    }
+    public String getBody() {
+        return body;
+    }
+    public boolean isOk() {
+        return code == HttpURLConnection.HTTP_OK;
+    }
+
+    public String getHeader(String name) {
+        for( Map.Entry<String, List<String>> entry : headers.entrySet() ) {
+            if( entry.getKey() != null && entry.getKey().equalsIgnoreCase(name) && !entry.getValue().isEmpty() ) {
+                return entry.getValue().get(0);
+            }
+        }
+
+        return null;
+    }
+
+}
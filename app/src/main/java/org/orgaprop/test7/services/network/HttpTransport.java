@@ -0,0 +1,29 @@
+package org.orgaprop.test7.services.network;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Couche de transport utilisée par {@link org.orgaprop.test7.services.HttpTask}.
+ * Une implémentation peut être substituée via {@code HttpTask.setTransport()}.
+ */
+public interface HttpTransport {
+
+    /**
+     * Exécute la requête de manière bloquante et retourne la réponse complète.
+     *
+     * @throws IOException en cas d'échec réseau, la requête peut être rejouée
+     */
+    HttpResponse execute(HttpRequest request) throws IOException;
+
+    /**
+     * Statistiques du transport (connexions actives, requêtes, octets, ...).
+     */
+    Map<String, Object> getStats();
+
+    /**
+     * Libère les connexions conservées par le transport.
+     */
+    void shutdown();
+
+}
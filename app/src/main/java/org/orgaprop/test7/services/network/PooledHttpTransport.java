@@ -0,0 +1,331 @@
+package org.orgaprop.test7.services.network;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Transport HTTP(S) partagé : les connexions sont conservées en keep-alive par le pool
+ * de la plateforme (aucun disconnect() après une réponse lue entièrement), les sessions
+ * TLS sont réutilisées via une SSLSocketFactory unique et le nombre de connexions
+ * simultanées est borné par hôte.
+ */
+public class PooledHttpTransport implements HttpTransport {
+
+//********* PRIVATE VARIABLES
+
+    private final int maxConnectionsPerHost;
+    private final SSLSocketFactory sslSocketFactory;
+    private final SSLSessionContext sessionContext;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> hostRequests = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong totalWaitMs = new AtomicLong();
+    private final AtomicLong totalTimeMs = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "PooledHttpTransport";
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 4;
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 8;
+    public static final int TLS_SESSION_CACHE_SIZE = 32;
+    public static final int TLS_SESSION_TIMEOUT_S = 4 * 60 * 60;
+
+    // Réglages du pool keep-alive de la plateforme, propres au processus : appliqués une seule fois
+    static {
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(DEFAULT_MAX_IDLE_CONNECTIONS));
+    }
+
+//********* CONSTRUCTORS
+
+    public PooledHttpTransport() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    }
+    public PooledHttpTransport(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+
+        SSLSocketFactory factory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        SSLSessionContext context = null;
+
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null);
+
+            context = sslContext.getClientSessionContext();
+            context.setSessionCacheSize(TLS_SESSION_CACHE_SIZE);
+            context.setSessionTimeout(TLS_SESSION_TIMEOUT_S);
+
+            factory = sslContext.getSocketFactory();
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            Log.w(TAG, "Contexte TLS par défaut utilisé", e);
+        }
+
+        this.sslSocketFactory = factory;
+        this.sessionContext = context;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        URL url = new URL(request.getUrl());
+        String host = url.getHost() + ":" + ((url.getPort() > 0) ? url.getPort() : url.getDefaultPort());
+        Semaphore permits = hostPermits.computeIfAbsent(host, h -> new Semaphore(maxConnectionsPerHost, true));
+        long waitStart = System.nanoTime();
+
+        waiting.incrementAndGet();
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Attente d'une connexion interrompue");
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        long start = System.nanoTime();
+        HttpURLConnection connection = null;
+
+        totalWaitMs.addAndGet((start - waitStart) / 1_000_000);
+        requests.incrementAndGet();
+        hostRequests.computeIfAbsent(host, h -> new AtomicLong()).incrementAndGet();
+        active.incrementAndGet();
+
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+
+            if( connection instanceof HttpsURLConnection ) {
+                ((HttpsURLConnection) connection).setSSLSocketFactory(sslSocketFactory);
+            }
+
+            connection.setConnectTimeout(request.getConnectTimeout());
+            connection.setReadTimeout(request.getReadTimeout());
+            connection.setRequestMethod(request.getMethod());
+            connection.setRequestProperty("Connection", "keep-alive");
+            connection.setDoInput(true);
+
+            for( Map.Entry<String, String> header : request.getHeaders().entrySet() ) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            if( request.getMethod().equals("POST") && request.getBodyWriter() != null ) {
+                connection.setDoOutput(true);
+                connection.setChunkedStreamingMode(0);
+
+                CountingOutputStream outputStream = new CountingOutputStream(connection.getOutputStream());
+
+                // Un corps interrompu ne doit pas être terminé proprement : le serveur le prendrait
+                // pour complet. La connexion est coupée sans fermer le flux.
+                try {
+                    request.getBodyWriter().writeTo(outputStream);
+                    outputStream.flush();
+                } catch (IOException | RuntimeException e) {
+                    connection.disconnect();
+
+                    throw e;
+                }
+
+                outputStream.close();
+                bytesSent.addAndGet(outputStream.count);
+            } else if( request.getMethod().equals("POST") ) {
+                byte[] payload = request.getBody().getBytes(StandardCharsets.UTF_8);
+
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(payload.length);
+
+                try ( OutputStream outputStream = connection.getOutputStream() ) {
+                    outputStream.write(payload);
+                }
+
+                bytesSent.addAndGet(payload.length);
+            }
+
+            int code = connection.getResponseCode();
+            InputStream in = (code < HttpURLConnection.HTTP_BAD_REQUEST) ? connection.getInputStream() : connection.getErrorStream();
+            String body = "";
+
+            // Le flux doit être lu jusqu'au bout pour que la socket retourne dans le pool
+            if( in != null && code == HttpURLConnection.HTTP_OK && request.getBodyReader() != null ) {
+                try ( CountingInputStream inputStream = new CountingInputStream(in) ) {
+                    body = request.getBodyReader().readFrom(inputStream);
+                    drain(inputStream);
+
+                    bytesReceived.addAndGet(inputStream.count);
+                }
+            } else if( in != null ) {
+                body = readStream(in);
+
+                long length = connection.getContentLengthLong();
+                bytesReceived.addAndGet((length >= 0) ? length : body.length());
+            }
+
+            return new HttpResponse(code, body, connection.getHeaderFields());
+        } catch (IOException e) {
+            failures.incrementAndGet();
+
+            if( connection != null ) {
+                connection.disconnect();
+            }
+
+            throw e;
+        } finally {
+            totalTimeMs.addAndGet((System.nanoTime() - start) / 1_000_000);
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Map<String, Object> hosts = new HashMap<>();
+        long count = requests.get();
+
+        for( Map.Entry<String, Semaphore> entry : hostPermits.entrySet() ) {
+            Map<String, Object> host = new HashMap<>();
+            AtomicLong hostCount = hostRequests.get(entry.getKey());
+
+            host.put("active", maxConnectionsPerHost - entry.getValue().availablePermits());
+            host.put("queued", entry.getValue().getQueueLength());
+            host.put("requests", (hostCount != null) ? hostCount.get() : 0L);
+
+            hosts.put(entry.getKey(), host);
+        }
+
+        stats.put("requests", count);
+        stats.put("failures", failures.get());
+        stats.put("active", active.get());
+        stats.put("waiting", waiting.get());
+        stats.put("avgWaitMs", (count > 0) ? totalWaitMs.get() / count : 0L);
+        stats.put("avgTimeMs", (count > 0) ? totalTimeMs.get() / count : 0L);
+        stats.put("bytesSent", bytesSent.get());
+        stats.put("bytesReceived", bytesReceived.get());
+        stats.put("maxConnectionsPerHost", maxConnectionsPerHost);
+        stats.put("tlsSessionsCached", (sessionContext != null) ? Collections.list(sessionContext.getIds()).size() : 0);
+        stats.put("hosts", hosts);
+
+        return stats;
+    }
+
+    @Override
+    public void shutdown() {
+        if( sessionContext != null ) {
+            sessionContext.setSessionCacheSize(0);
+            sessionContext.setSessionCacheSize(TLS_SESSION_CACHE_SIZE);
+        }
+
+        hostPermits.clear();
+        hostRequests.clear();
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private String readStream(InputStream in) throws IOException {
+        StringBuilder result = new StringBuilder();
+
+        try ( BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)) ) {
+            String line;
+
+            while( ( line = reader.readLine() ) != null ) {
+                result.append(line).append("\n");
+            }
+        }
+
+        return result.toString().trim();
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+
+        while( in.read(buffer) != -1 ) {
+            // Fin de réponse ignorée par le lecteur
+        }
+    }
+
+//********* PRIVATE CLASSES
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+
+            if( b != -1 ) {
+                count++;
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+
+            if( n > 0 ) {
+                count += n;
+            }
+
+            return n;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.orgaprop.test7.services.network;
+
+/**
+ * Seau à jetons limitant les relances d'un endpoint : quand un service est en panne,
+ * seule une fraction des requêtes est rejouée au lieu de toutes les multiplier.
+ */
+public class RetryBudget {
+
+//********* PRIVATE VARIABLES
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    private long requests = 0;
+    private long retries = 0;
+    private long rejected = 0;
+
+//********* CONSTRUCTORS
+
+    public RetryBudget(double ratio, int maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public synchronized void onRequest() {
+        requests++;
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryRetry() {
+        if( tokens >= 1.0 ) {
+            tokens -= 1.0;
+            retries++;
+
+            return true;
+        }
+
+        rejected++;
+
+        return false;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+    public synchronized long getRequests() {
+        return requests;
+    }
+    public synchronized long getRetries() {
+        return retries;
+    }
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+}
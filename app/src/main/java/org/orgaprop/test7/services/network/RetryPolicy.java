@@ -0,0 +1,90 @@
+package org.orgaprop.test7.services.network;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Politique de relance : backoff exponentiel avec jitter complet, nombre maximal de
+ * tentatives, échéance globale de la requête et budget de relances par endpoint.
+ */
+public class RetryPolicy {
+
+//********* PRIVATE VARIABLES
+
+    private int maxAttempts = 10;
+    private long baseDelayMs = 500;
+    private long maxDelayMs = 8000;
+    private double multiplier = 2.0;
+    private long deadlineMs = 60000;
+    private double budgetRatio = 0.2;
+    private int budgetMaxTokens = 10;
+
+//********* CONSTRUCTORS
+
+    public RetryPolicy() {}
+
+//********* PUBLIC FUNCTIONS
+
+    /**
+     * Délai avant la tentative suivante, tiré uniformément dans [0, plafond] où le
+     * plafond croît exponentiellement avec le numéro de tentative (1 = première relance).
+     */
+    public long nextDelay(int attempt) {
+        double ceiling = baseDelayMs * Math.pow(multiplier, Math.max(0, attempt - 1));
+        long cap = (long) Math.min(maxDelayMs, ceiling);
+
+        return ThreadLocalRandom.current().nextLong(0, Math.max(0, cap) + 1);
+    }
+
+//********* SETTERS
+
+    public RetryPolicy setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+
+        return this;
+    }
+    public RetryPolicy setBackoff(long baseDelayMs, long maxDelayMs, double multiplier) {
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.multiplier = multiplier;
+
+        return this;
+    }
+    public RetryPolicy setDeadline(long deadlineMs) {
+        this.deadlineMs = deadlineMs;
+
+        return this;
+    }
+
+    /**
+     * Chaque requête crédite {@code ratio} jeton au budget de son endpoint, chaque relance
+     * en consomme un ; le budget est plafonné à {@code maxTokens}.
+     */
+    public RetryPolicy setBudget(double ratio, int maxTokens) {
+        this.budgetRatio = ratio;
+        this.budgetMaxTokens = maxTokens;
+
+        return this;
+    }
+
+//********* GETTERS
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+    public long getBaseDelayMs() {
+        return baseDelayMs;
+    }
+    public long getMaxDelayMs() {
+        return maxDelayMs;
+    }
+    public long getDeadlineMs() {
+        return deadlineMs;
+    }
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+    public int getBudgetMaxTokens() {
+        return budgetMaxTokens;
+    }
+
+}
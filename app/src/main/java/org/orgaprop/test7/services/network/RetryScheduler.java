@@ -0,0 +1,183 @@
+package org.orgaprop.test7.services.network;
+
+import android.util.Log;
+
+import org.orgaprop.test7.services.executors.AppExecutors;
+import org.orgaprop.test7.services.executors.PoolView;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exécute des tentatives réseau bloquantes sur un pool borné et replanifie les échecs
+ * sur un timer : aucun thread n'est immobilisé pendant l'attente entre deux tentatives.
+ */
+public class RetryScheduler {
+
+//********* PRIVATE VARIABLES
+
+    private static volatile RetryScheduler instance;
+
+    private final ScheduledExecutorService timer;
+    private final PoolView worker;
+
+    private final Map<String, RetryPolicy> policies = new ConcurrentHashMap<>();
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> deadlineExceeded = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> attemptsExhausted = new ConcurrentHashMap<>();
+    private volatile RetryPolicy defaultPolicy = new RetryPolicy();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "RetryScheduler";
+
+//********* INTERFACES
+
+    /**
+     * Une tentative : une IOException déclenche une relance, toute autre exception est
+     * transmise telle quelle au CompletableFuture.
+     */
+    public interface Attempt<T> {
+        T call(long remainingMs) throws IOException;
+    }
+
+//********* CONSTRUCTORS
+
+    private RetryScheduler() {
+        this.timer = AppExecutors.scheduled();
+        this.worker = AppExecutors.view("http-worker", AppExecutors.network(), AppExecutors.NETWORK_THREADS, null);
+    }
+
+    public static RetryScheduler getInstance() {
+        if( instance == null ) {
+            synchronized (RetryScheduler.class) {
+                if( instance == null ) {
+                    instance = new RetryScheduler();
+                }
+            }
+        }
+
+        return instance;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public void setDefaultPolicy(RetryPolicy policy) {
+        this.defaultPolicy = policy;
+    }
+    public void setPolicy(String endpoint, RetryPolicy policy) {
+        policies.put(endpoint, policy);
+        budgets.remove(endpoint);
+    }
+    public RetryPolicy getPolicy(String endpoint) {
+        RetryPolicy policy = policies.get(endpoint);
+
+        return (policy != null) ? policy : defaultPolicy;
+    }
+
+    /**
+     * Lance {@code attempt} et le rejoue selon la politique de {@code endpoint}. Le futur
+     * est complété avec {@code giveUp} si l'échéance, le nombre de tentatives ou le budget
+     * de relances de l'endpoint est épuisé.
+     */
+    public <T> CompletableFuture<T> submit(String endpoint, Attempt<T> attempt, T giveUp) {
+        RetryPolicy policy = getPolicy(endpoint);
+        RetryBudget budget = budgets.computeIfAbsent(endpoint, e -> new RetryBudget(policy.getBudgetRatio(), policy.getBudgetMaxTokens()));
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long deadline = System.currentTimeMillis() + policy.getDeadlineMs();
+
+        budget.onRequest();
+        run(endpoint, policy, budget, attempt, giveUp, future, deadline, 0);
+
+        return future;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+
+        for( Map.Entry<String, RetryBudget> entry : budgets.entrySet() ) {
+            Map<String, Object> endpoint = new HashMap<>();
+            RetryBudget budget = entry.getValue();
+
+            endpoint.put("requests", budget.getRequests());
+            endpoint.put("retries", budget.getRetries());
+            endpoint.put("budgetRejected", budget.getRejected());
+            endpoint.put("budgetTokens", budget.getTokens());
+            endpoint.put("deadlineExceeded", counter(deadlineExceeded, entry.getKey()).get());
+            endpoint.put("attemptsExhausted", counter(attemptsExhausted, entry.getKey()).get());
+
+            stats.put(entry.getKey(), endpoint);
+        }
+
+        stats.put("workerActive", worker.getActiveCount());
+        stats.put("workerQueued", worker.getQueueSize());
+
+        return stats;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private <T> void run(String endpoint, RetryPolicy policy, RetryBudget budget, Attempt<T> attempt, T giveUp, CompletableFuture<T> future, long deadline, int attemptNo) {
+        try {
+            worker.execute(() -> {
+                long remaining = deadline - System.currentTimeMillis();
+
+                if( remaining <= 0 ) {
+                    counter(deadlineExceeded, endpoint).incrementAndGet();
+                    future.complete(giveUp);
+
+                    return;
+                }
+
+                try {
+                    future.complete(attempt.call(remaining));
+                } catch (IOException e) {
+                    Log.d(TAG, endpoint + " tentative " + (attemptNo + 1) + " : " + e.getMessage());
+                    retry(endpoint, policy, budget, attempt, giveUp, future, deadline, attemptNo + 1);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, endpoint + " : file réseau saturée");
+            future.complete(giveUp);
+        }
+    }
+
+    private <T> void retry(String endpoint, RetryPolicy policy, RetryBudget budget, Attempt<T> attempt, T giveUp, CompletableFuture<T> future, long deadline, int attemptNo) {
+        if( attemptNo >= policy.getMaxAttempts() ) {
+            counter(attemptsExhausted, endpoint).incrementAndGet();
+            future.complete(giveUp);
+
+            return;
+        }
+
+        long delay = policy.nextDelay(attemptNo);
+
+        if( System.currentTimeMillis() + delay >= deadline ) {
+            counter(deadlineExceeded, endpoint).incrementAndGet();
+            future.complete(giveUp);
+
+            return;
+        }
+        if( !budget.tryRetry() ) {
+            future.complete(giveUp);
+
+            return;
+        }
+
+        timer.schedule(() -> run(endpoint, policy, budget, attempt, giveUp, future, deadline, attemptNo), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static AtomicLong counter(Map<String, AtomicLong> counters, String endpoint) {
+        return counters.computeIfAbsent(endpoint, e -> new AtomicLong());
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.orgaprop.test7.services.network;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Regroupe les appels identiques en cours : tant que le premier n'est pas terminé, les suivants
+ * de même clé reçoivent son résultat au lieu de relancer l'appel. Une fois terminé, la clé est
+ * libérée et l'appel suivant repart normalement.
+ *
+ * <p>Chaque appelant reçoit son propre futur : en annuler un n'annule pas l'appel partagé.</p>
+ */
+public class SingleFlight<T> {
+
+//********* PRIVATE VARIABLES
+
+    private final Map<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "SingleFlight";
+
+//********* CONSTRUCTORS
+
+    public SingleFlight() {}
+
+//********* PUBLIC FUNCTIONS
+
+    public CompletableFuture<T> run(String key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<T> shared = inFlight.putIfAbsent(key, created);
+
+        calls.incrementAndGet();
+
+        if( shared != null ) {
+            collapsed.incrementAndGet();
+
+            return shared.thenApply(result -> result);
+        }
+
+        try {
+            call.get().whenComplete((result, error) -> {
+                inFlight.remove(key, created);
+
+                if( error != null ) {
+                    created.completeExceptionally(error);
+                } else {
+                    created.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+
+        return created.thenApply(result -> result);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+
+        stats.put("calls", calls.get());
+        stats.put("collapsed", collapsed.get());
+        stats.put("inFlight", inFlight.size());
+
+        return stats;
+    }
+
+}
@@ -14,7 +14,6 @@ import android.provider.MediaStore;
 import android.util.Base64;
 import android.util.Size;
 
-import org.orgaprop.test7.databases.PrefDatabase;
 import org.orgaprop.test7.models.Storage;
 import org.orgaprop.test7.services.Storages;
 
@@ -23,7 +22,6 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.List;
 
 public class AndyUtils {
 
@@ -59,6 +57,11 @@ public class AndyUtils {
 
         return false;
     }
+    public static boolean isNetworkMetered(Context context) {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        return connectivityManager == null || connectivityManager.isActiveNetworkMetered();
+    }
 
     public static String putBitmapToGallery(Context context, Bitmap bitmap, String imageName) {
         String result = "";
@@ -205,13 +208,10 @@ public class AndyUtils {
     }
 
     public static boolean hasOldCtrl(Context context) {
-        Storages storages = new Storages(context);
-        List<Storage> storageList = storages.getAllStorages();
-
-        return !storageList.isEmpty();
+        return new Storages(context).hasStorages();
     }
     public static void ProtectResidence(Context context, Storage residence) {
-        PrefDatabase.getInstance(context).mStorageDao().insertStorage(residence);
+        new Storages(context).saveStorage(residence);
     }
 
 //********* PRIVATE FUNCTIONS
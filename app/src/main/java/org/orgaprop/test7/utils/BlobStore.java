@@ -0,0 +1,305 @@
+package org.orgaprop.test7.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Base64;
+import android.util.Base64OutputStream;
+
+import org.orgaprop.test7.databases.PrefDatabase;
+import org.orgaprop.test7.databases.dao.BlobRefDao;
+import org.orgaprop.test7.metrics.monitoring.PerformanceMonitor;
+import org.orgaprop.test7.models.BlobRef;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Magasin de fichiers adressés par leur contenu (SHA-256) dans le stockage interne de
+ * l'application. Les signatures et prises de vue y sont écrites une seule fois ; les lignes
+ * Room et le modèle ne portent qu'une référence {@code blob:<empreinte>}.
+ *
+ * <p>Chaque ligne de {@link org.orgaprop.test7.models.Storage} retient ses références
+ * ({@link #retain}) et les relâche à sa suppression ({@link #release}), dans la transaction
+ * qui écrit la ligne : les compteurs de la table {@link BlobRef} suivent ainsi son annulation.
+ * {@link #gc()} efface les fichiers sans référence, une fois passé un délai de grâce qui
+ * protège les images encore tenues en mémoire par le contrôle en cours.</p>
+ */
+public class BlobStore {
+
+//********* PRIVATE VARIABLES
+
+    private static volatile BlobStore instance;
+
+    private final File dir;
+    private final BlobRefDao refs;
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "BlobStore";
+    public static final String STATS_SOURCE = "blob_store";
+
+    public static final String REF_PREFIX = "blob:";
+
+    private static final String BLOB_DIR = "blobs";
+    private static final String LEGACY_PREF_NAME = "blob_refs";
+    private static final long GC_GRACE_MS = 24L * 60 * 60 * 1000;
+
+//********* CONSTRUCTORS
+
+    private BlobStore(Context context) {
+        Context appContext = context.getApplicationContext();
+
+        this.dir = new File(appContext.getFilesDir(), BLOB_DIR);
+        this.refs = PrefDatabase.getInstance(appContext).mBlobRefDao();
+
+        // Compteurs repris depuis les lignes par la migration de la base
+        appContext.deleteSharedPreferences(LEGACY_PREF_NAME);
+    }
+
+    public static BlobStore getInstance(Context context) {
+        if( instance == null ) {
+            synchronized (BlobStore.class) {
+                if( instance == null ) {
+                    instance = new BlobStore(context);
+                    PerformanceMonitor.registerStatsSource(STATS_SOURCE, instance::getStats);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public static boolean isRef(String value) {
+        return value != null && value.startsWith(REF_PREFIX);
+    }
+
+    /**
+     * Encode le Bitmap en PNG directement dans le magasin et retourne sa référence.
+     */
+    public String put(Bitmap bitmap) throws IOException {
+        File tmp = newTempFile();
+        MessageDigest digest = ImagePipeline.newDigest();
+
+        try ( OutputStream out = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)), digest) ) {
+            if( !bitmap.compress(Bitmap.CompressFormat.PNG, 100, out) ) {
+                throw new IOException("Encodage de l'image impossible");
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        return commit(tmp, ImagePipeline.toHex(digest.digest()));
+    }
+
+    public String put(InputStream in) throws IOException {
+        File tmp = newTempFile();
+        MessageDigest digest = ImagePipeline.newDigest();
+        byte[] buffer = new byte[16 * 1024];
+
+        try ( OutputStream out = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)), digest) ) {
+            int read;
+
+            while( ( read = in.read(buffer) ) >= 0 ) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        return commit(tmp, ImagePipeline.toHex(digest.digest()));
+    }
+
+    public InputStream open(String ref) throws IOException {
+        return new BufferedInputStream(new FileInputStream(fileOf(ref)));
+    }
+
+    /**
+     * Bitmap d'une référence, ou d'une chaîne Base64 enregistrée avant le magasin.
+     */
+    public Bitmap decodeBitmap(String value) {
+        if( !isRef(value) ) {
+            return AndyUtils.StringToBitMap(value);
+        }
+
+        File file = fileOf(value);
+
+        return file.exists() ? BitmapFactory.decodeFile(file.getPath()) : null;
+    }
+
+    /**
+     * Contenu en Base64, pour les échanges avec le serveur qui attend l'image en ligne.
+     * Une valeur qui n'est pas une référence est rendue telle quelle.
+     */
+    public String toBase64(String value) throws IOException {
+        if( !isRef(value) ) {
+            return value;
+        }
+
+        File file = fileOf(value);
+        ByteArrayOutputStream result = new ByteArrayOutputStream((int) (file.length() * 4 / 3) + 16);
+        byte[] buffer = new byte[16 * 1024];
+
+        try ( InputStream in = new FileInputStream(file); OutputStream out = new Base64OutputStream(result, Base64.DEFAULT) ) {
+            int read;
+
+            while( ( read = in.read(buffer) ) >= 0 ) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        return result.toString("US-ASCII");
+    }
+
+    /**
+     * A appeler dans la transaction qui enregistre la ligne portant ces références.
+     */
+    public void retain(Collection<String> values) {
+        for( String value : values ) {
+            if( isRef(value) ) {
+                String hash = hashOf(value);
+
+                refs.insertRef(new BlobRef(hash, 0));
+                refs.addRefs(hash, 1);
+            }
+        }
+    }
+
+    /**
+     * A appeler dans la transaction qui efface la ligne portant ces références.
+     */
+    public void release(Collection<String> values) {
+        for( String value : values ) {
+            if( isRef(value) ) {
+                refs.addRefs(hashOf(value), -1);
+            }
+        }
+
+        refs.deleteUnreferenced();
+    }
+
+    /**
+     * Efface les fichiers sans référence plus anciens que le délai de grâce.
+     *
+     * @return le nombre de fichiers effacés
+     */
+    public synchronized int gc() {
+        File[] shards = dir.listFiles();
+        long limit = System.currentTimeMillis() - GC_GRACE_MS;
+        int deleted = 0;
+
+        if( shards == null ) {
+            return 0;
+        }
+
+        Set<String> referenced = new HashSet<>(refs.getReferencedHashes());
+
+        for( File shard : shards ) {
+            File[] files = shard.listFiles();
+
+            if( files == null ) {
+                // Fichier temporaire d'une écriture interrompue
+                if( shard.isFile() && shard.lastModified() < limit && shard.delete() ) {
+                    deleted++;
+                }
+
+                continue;
+            }
+
+            for( File file : files ) {
+                if( !referenced.contains(file.getName()) && file.lastModified() < limit && file.delete() ) {
+                    deleted++;
+                }
+            }
+        }
+
+        return deleted;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        File[] shards = dir.listFiles();
+        int count = 0;
+        long bytes = 0;
+
+        if( shards != null ) {
+            for( File shard : shards ) {
+                File[] files = shard.listFiles();
+
+                if( files != null ) {
+                    for( File file : files ) {
+                        count++;
+                        bytes += file.length();
+                    }
+                }
+            }
+        }
+
+        stats.put("blobs", count);
+        stats.put("bytes", bytes);
+        stats.put("referenced", refs.countReferenced());
+
+        return stats;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private File newTempFile() throws IOException {
+        if( !dir.exists() && !dir.mkdirs() ) {
+            throw new IOException("Impossible de créer " + dir);
+        }
+
+        return File.createTempFile("put", ".tmp", dir);
+    }
+
+    /**
+     * Le fichier temporaire devient le blob, sauf si un contenu identique existe déjà.
+     */
+    private synchronized String commit(File tmp, String hash) throws IOException {
+        File target = fileOfHash(hash);
+        File shard = target.getParentFile();
+
+        if( target.exists() ) {
+            tmp.delete();
+            target.setLastModified(System.currentTimeMillis());
+        } else if( (!shard.exists() && !shard.mkdirs()) || !tmp.renameTo(target) ) {
+            tmp.delete();
+            throw new IOException("Impossible d'enregistrer " + target);
+        }
+
+        return REF_PREFIX + hash;
+    }
+
+    private File fileOf(String ref) {
+        return fileOfHash(hashOf(ref));
+    }
+    private File fileOfHash(String hash) {
+        if( hash.length() < 3 || !hash.matches("[0-9a-f]+") ) {
+            throw new IllegalArgumentException("Référence invalide : " + hash);
+        }
+
+        return new File(new File(dir, hash.substring(0, 2)), hash);
+    }
+    private static String hashOf(String ref) {
+        return ref.substring(REF_PREFIX.length());
+    }
+
+}
@@ -0,0 +1,274 @@
+package org.orgaprop.test7.utils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Envoi d'un fichier image en multipart/form-data par morceaux. Chaque morceau est lu
+ * depuis le disque et écrit directement dans la connexion (aucune copie complète en
+ * mémoire, pas de Base64). L'offset acquitté par le serveur est conservé à côté du
+ * fichier pour qu'un envoi interrompu reprenne au morceau suivant.
+ */
+public class ChunkedImageUploader {
+
+//********* PRIVATE VARIABLES
+
+    private final String uploadUrl;
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "ChunkedImageUploader";
+
+    public static final int CHUNK_SIZE = 256 * 1024;
+    public static final int TIMEOUT_MS = 30000;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final String LINE_END = "\r\n";
+    private static final String OFFSET_SUFFIX = ".offset";
+
+    public static final String FIELD_NAME = "image_name";
+    public static final String FIELD_TYPE = "image_type";
+    public static final String FIELD_OFFSET = "image_offset";
+    public static final String FIELD_TOTAL = "image_total";
+    public static final String FIELD_DATA = "image_path";
+
+//********* INTERFACES
+
+    public interface ProgressListener {
+        void onProgress(long sent, long total);
+    }
+
+//********* CONSTRUCTORS
+
+    public ChunkedImageUploader(String uploadUrl) {
+        this.uploadUrl = uploadUrl;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    /**
+     * Envoie {@code file} à partir du dernier offset acquitté.
+     *
+     * @return la dernière réponse du serveur (JSON status/message)
+     * @throws IOException si un morceau n'a pas pu être transmis, l'envoi pourra être repris
+     */
+    public String upload(File file, String imageName, String typeUpload, ProgressListener listener) throws IOException {
+        return upload(file, imageName, typeUpload, "application/octet-stream", listener);
+    }
+    public String upload(File file, String imageName, String typeUpload, String contentType, ProgressListener listener) throws IOException {
+        UploadMetrics metrics = UploadMetrics.getInstance();
+        long total = file.length();
+        long offset = readOffset(file);
+        String response = "";
+
+        if( offset > 0 ) {
+            metrics.onResume(typeUpload, offset);
+        }
+
+        metrics.onStart(typeUpload, total - offset);
+
+        try ( RandomAccessFile source = new RandomAccessFile(file, "r") ) {
+            do {
+                int length = (int) Math.min(CHUNK_SIZE, total - offset);
+                long start = System.currentTimeMillis();
+
+                response = sendChunk(source, offset, length, total, imageName, typeUpload, contentType);
+
+                if( !isSuccess(response) ) {
+                    metrics.onFailure(typeUpload, total - offset);
+
+                    return response;
+                }
+
+                long acked = ackedOffset(response, offset + length);
+
+                // Un offset qui n'avance pas ferait boucler l'envoi, un offset au-delà du fichier
+                // corromprait la reprise : l'offset enregistré reste le dernier valide
+                if( acked > total || ( acked <= offset && offset < total ) ) {
+                    throw new IOException("Offset acquitté invalide : " + acked + " (envoyé " + offset + "+" + length + "/" + total + ")");
+                }
+
+                metrics.onProgress(typeUpload, acked - offset, System.currentTimeMillis() - start);
+
+                offset = acked;
+                writeOffset(file, offset);
+
+                if( listener != null ) {
+                    listener.onProgress(offset, total);
+                }
+            } while( offset < total );
+        } catch (IOException e) {
+            metrics.onFailure(typeUpload, total - offset);
+
+            throw e;
+        }
+
+        clearOffset(file);
+        metrics.onComplete(typeUpload);
+
+        return response;
+    }
+
+    public static void clearOffset(File file) {
+        File offsetFile = new File(file.getPath() + OFFSET_SUFFIX);
+
+        if( offsetFile.exists() && !offsetFile.delete() ) {
+            offsetFile.deleteOnExit();
+        }
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private String sendChunk(RandomAccessFile source, long offset, int length, long total, String imageName, String typeUpload, String contentType) throws IOException {
+        String boundary = "----orgaprop" + Long.toHexString(System.nanoTime());
+        HttpURLConnection connection = (HttpURLConnection) new URL(uploadUrl).openConnection();
+
+        try {
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setRequestMethod("POST");
+            connection.setDoInput(true);
+            connection.setDoOutput(true);
+            connection.setChunkedStreamingMode(BUFFER_SIZE);
+            connection.setRequestProperty("Connection", "keep-alive");
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+
+            try ( OutputStream out = connection.getOutputStream() ) {
+                writeField(out, boundary, FIELD_NAME, imageName);
+                writeField(out, boundary, FIELD_TYPE, typeUpload);
+                writeField(out, boundary, FIELD_OFFSET, String.valueOf(offset));
+                writeField(out, boundary, FIELD_TOTAL, String.valueOf(total));
+
+                out.write(("--" + boundary + LINE_END
+                        + "Content-Disposition: form-data; name=\"" + FIELD_DATA + "\"; filename=\"" + imageName + "\"" + LINE_END
+                        + "Content-Type: " + contentType + LINE_END + LINE_END).getBytes(StandardCharsets.UTF_8));
+
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int remaining = length;
+
+                source.seek(offset);
+
+                while( remaining > 0 ) {
+                    int read = source.read(buffer, 0, Math.min(buffer.length, remaining));
+
+                    if( read < 0 ) {
+                        throw new IOException("Fin de fichier inattendue à l'offset " + (offset + length - remaining));
+                    }
+
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+
+                out.write((LINE_END + "--" + boundary + "--" + LINE_END).getBytes(StandardCharsets.UTF_8));
+            }
+
+            int code = connection.getResponseCode();
+            InputStream in = (code == HttpURLConnection.HTTP_OK) ? connection.getInputStream() : connection.getErrorStream();
+
+            if( code != HttpURLConnection.HTTP_OK ) {
+                drain(in);
+
+                throw new IOException("HTTP " + code);
+            }
+
+            return readStream(in);
+        } catch (IOException e) {
+            connection.disconnect();
+
+            throw e;
+        }
+    }
+
+    private static void writeField(OutputStream out, String boundary, String name, String value) throws IOException {
+        out.write(("--" + boundary + LINE_END
+                + "Content-Disposition: form-data; name=\"" + name + "\"" + LINE_END + LINE_END
+                + value + LINE_END).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isSuccess(String response) {
+        try {
+            return new JSONObject(response).optString("status").equals("true");
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Le serveur peut retourner l'offset qu'il a réellement enregistré ; il fait foi.
+     */
+    private static long ackedOffset(String response, long expected) {
+        try {
+            return new JSONObject(response).optLong("offset", expected);
+        } catch (JSONException e) {
+            return expected;
+        }
+    }
+
+    private static long readOffset(File file) {
+        File offsetFile = new File(file.getPath() + OFFSET_SUFFIX);
+
+        if( !offsetFile.exists() ) {
+            return 0;
+        }
+
+        try ( BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(offsetFile), StandardCharsets.UTF_8)) ) {
+            long offset = Long.parseLong(reader.readLine().trim());
+
+            return (offset >= 0 && offset <= file.length()) ? offset : 0;
+        } catch (IOException | NumberFormatException | NullPointerException e) {
+            return 0;
+        }
+    }
+
+    private static void writeOffset(File file, long offset) {
+        try ( FileOutputStream out = new FileOutputStream(file.getPath() + OFFSET_SUFFIX) ) {
+            out.write(String.valueOf(offset).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String readStream(InputStream in) throws IOException {
+        StringBuilder result = new StringBuilder();
+
+        try ( BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)) ) {
+            String line;
+
+            while( ( line = reader.readLine() ) != null ) {
+                result.append(line);
+            }
+        }
+
+        return result.toString();
+    }
+
+    private static void drain(InputStream in) {
+        if( in == null ) {
+            return;
+        }
+
+        try ( InputStream stream = in ) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            while( stream.read(buffer) >= 0 ) {
+                // vide le flux pour libérer la connexion
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+package org.orgaprop.test7.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Préparation des images avant envoi : réduction à une dimension maximale puis
+ * ré-encodage (format et qualité propres à chaque type d'envoi) dans un fichier d'envoi.
+ * L'empreinte SHA-256 est celle de l'image source et des réglages, calculée avant tout
+ * encodage : une image inchangée déjà acquittée n'est ni réduite ni ré-encodée.
+ */
+public class ImagePipeline {
+
+//********* PRIVATE VARIABLES
+
+    private static final Map<String, Settings> settings = new HashMap<>();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "ImagePipeline";
+
+    public static final String UPLOAD_SPOOL_DIR = "uploads";
+
+    private static final Settings DEFAULT_SETTINGS = new Settings(1600, Bitmap.CompressFormat.JPEG, 80);
+
+    static {
+        // Signatures : trait noir sur fond blanc, petites et nettes
+        settings.put(UploadImage.UPLOAD_IMAGE_TYPE_SIGNATURE_CTRL, new Settings(800, Bitmap.CompressFormat.WEBP, 90));
+        settings.put(UploadImage.UPLOAD_IMAGE_TYPE_SIGNATURE_AGT, new Settings(800, Bitmap.CompressFormat.WEBP, 90));
+        settings.put(UploadImage.UPLOAD_IMAGE_TYPE_CAPTURE, new Settings(1600, Bitmap.CompressFormat.JPEG, 80));
+        settings.put(UploadImage.UPLOAD_IMAGE_TYPE_SEND, new Settings(1600, Bitmap.CompressFormat.JPEG, 80));
+    }
+
+//********* PUBLIC CLASSES
+
+    public static class Settings {
+        public final int maxDimension;
+        public final Bitmap.CompressFormat format;
+        public final int quality;
+
+        public Settings(int maxDimension, Bitmap.CompressFormat format, int quality) {
+            this.maxDimension = maxDimension;
+            this.format = format;
+            this.quality = quality;
+        }
+
+        public String getExtension() {
+            switch( format ) {
+                case JPEG: return "jpg";
+                case PNG: return "png";
+                default: return "webp";
+            }
+        }
+        public String getMimeType() {
+            switch( format ) {
+                case JPEG: return "image/jpeg";
+                case PNG: return "image/png";
+                default: return "image/webp";
+            }
+        }
+    }
+
+    public static class SpooledImage {
+        public final File file;
+        public final String hash;
+
+        SpooledImage(File file, String hash) {
+            this.file = file;
+            this.hash = hash;
+        }
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public static synchronized void setSettings(String typeUpload, Settings typeSettings) {
+        settings.put(typeUpload, typeSettings);
+    }
+    public static synchronized Settings getSettings(String typeUpload) {
+        Settings typeSettings = settings.get(typeUpload);
+
+        return (typeSettings != null) ? typeSettings : DEFAULT_SETTINGS;
+    }
+
+    /**
+     * Nom de fichier envoyé au serveur, avec l'extension du format encodé pour ce type d'envoi.
+     */
+    public static String fileName(String baseName, String typeUpload) {
+        return baseName + "." + getSettings(typeUpload).getExtension();
+    }
+
+    /**
+     * Empreinte de l'image source et des réglages d'encodage du type d'envoi. Les pixels sont lus
+     * ligne par ligne : aucune copie complète du Bitmap.
+     */
+    public static String hashSource(Bitmap bitmap, String typeUpload) throws IOException {
+        Settings typeSettings = getSettings(typeUpload);
+        MessageDigest digest = newDigest();
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] row = new int[width];
+        ByteBuffer bytes = ByteBuffer.allocate(width * 4);
+
+        digest.update((width + "x" + height + ";" + typeSettings.maxDimension + ";" + typeSettings.format + ";" + typeSettings.quality).getBytes(StandardCharsets.UTF_8));
+
+        for( int y = 0; y < height; y++ ) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            bytes.clear();
+            bytes.asIntBuffer().put(row);
+            digest.update(bytes.array());
+        }
+
+        return toHex(digest.digest());
+    }
+
+    public static Bitmap downscale(Bitmap bitmap, int maxDimension) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int largest = Math.max(width, height);
+
+        if( maxDimension <= 0 || largest <= maxDimension ) {
+            return bitmap;
+        }
+
+        float ratio = (float) maxDimension / largest;
+
+        return Bitmap.createScaledBitmap(bitmap, Math.max(1, Math.round(width * ratio)), Math.max(1, Math.round(height * ratio)), true);
+    }
+
+    /**
+     * Réduit et encode l'image dans le cache. Un fichier dont l'envoi a été interrompu
+     * est conservé tel quel pour reprendre à son offset.
+     *
+     * @param sourceHash empreinte rendue par {@link #hashSource(Bitmap, String)}
+     */
+    public static SpooledImage spool(Context context, Bitmap bitmap, String imageName, String typeUpload, String sourceHash) throws IOException {
+        File file = spoolFile(context, imageName);
+        File dir = file.getParentFile();
+
+        if( !dir.exists() && !dir.mkdirs() ) {
+            throw new IOException("Impossible de créer " + dir);
+        }
+        if( file.exists() && new File(file.getPath() + ".offset").exists() ) {
+            return new SpooledImage(file, sourceHash);
+        }
+
+        Settings typeSettings = getSettings(typeUpload);
+        Bitmap scaled = downscale(bitmap, typeSettings.maxDimension);
+
+        try ( OutputStream out = new BufferedOutputStream(new FileOutputStream(file)) ) {
+            if( !scaled.compress(typeSettings.format, typeSettings.quality, out) ) {
+                throw new IOException("Encodage de " + imageName + " impossible");
+            }
+        } finally {
+            if( scaled != bitmap ) {
+                scaled.recycle();
+            }
+        }
+
+        return new SpooledImage(file, sourceHash);
+    }
+
+    /**
+     * Fichier d'envoi d'une image. Il est conservé dans le stockage interne (et non le
+     * cache) tant que le serveur n'a pas acquitté l'image.
+     */
+    public static File spoolFile(Context context, String imageName) {
+        return new File(new File(context.getFilesDir(), UPLOAD_SPOOL_DIR), imageName.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    public static String hashFile(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[16 * 1024];
+
+        try ( InputStream in = new FileInputStream(file) ) {
+            int read;
+
+            while( ( read = in.read(buffer) ) >= 0 ) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        return toHex(digest.digest());
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+
+        for( byte b : bytes ) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.orgaprop.test7.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Empreintes des images déjà acquittées par le serveur, par nom d'image : une image
+ * dont le contenu n'a pas changé n'est pas renvoyée.
+ */
+public class ImageRegistry {
+
+//********* PRIVATE VARIABLES
+
+    private static volatile ImageRegistry instance;
+
+    private final SharedPreferences preferences;
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "ImageRegistry";
+
+    private static final String PREF_NAME = "uploaded_images";
+
+//********* CONSTRUCTORS
+
+    private ImageRegistry(Context context) {
+        preferences = context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static ImageRegistry getInstance(Context context) {
+        if( instance == null ) {
+            synchronized (ImageRegistry.class) {
+                if( instance == null ) {
+                    instance = new ImageRegistry(context);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public boolean isAcknowledged(String imageName, String hash) {
+        return hash != null && hash.equals(preferences.getString(imageName, null));
+    }
+
+    public void acknowledge(String imageName, String hash) {
+        preferences.edit().putString(imageName, hash).apply();
+    }
+
+    public void forget(String imageName) {
+        preferences.edit().remove(imageName).apply();
+    }
+
+}
@@ -2,49 +2,27 @@ package org.orgaprop.test7.utils;
 
 import android.app.Activity;
 import android.graphics.Bitmap;
-import android.util.Base64;
 import android.widget.Toast;
 
-import org.orgaprop.test7.controllers.activities.FinishCtrlActivity;
 import org.orgaprop.test7.controllers.activities.MakeCtrlActivity;
 import org.orgaprop.test7.databases.PrefDatabase;
 import org.orgaprop.test7.models.Storage;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public class UploadImage {
 
 //******** PRIVATE VARIABLES
 
-    private String imageNameFieldOnServer = "image_name";
-    private String imagePathFieldOnServer = "image_path";
-    private String imageUploadPathOnServer = "https://www.orgaprop.org/cs/app/imgToServer/capture_img_upload_to_server.php";
-
     private ParseContent parseContent;
 
     private Bitmap bitmap;
     private String imageName;
     private Activity activity;
-
-    private boolean check = true;
+    private CompletableFuture<String> upload;
 
 //********* PUBLIC VARIABLES
 
-    public final String convertImage;
     public final String typeUpload;
 
     public static final String TAG = "UploadImage";
@@ -57,6 +35,9 @@ public class UploadImage {
 //********* CONSTRUCTORS
 
     public UploadImage(Activity activity, Bitmap bitmap, String imageName, String typeUpload) {
+        this(activity, bitmap, imageName, typeUpload, UploadScheduler.priorityOf(typeUpload));
+    }
+    public UploadImage(Activity activity, Bitmap bitmap, String imageName, String typeUpload, int priority) {
         this.activity = activity;
         this.bitmap = bitmap;
         this.imageName = imageName;
@@ -64,14 +45,9 @@ public class UploadImage {
 
         parseContent = new ParseContent(this.activity);
 
-        ByteArrayOutputStream byteArrayOutputStreamObj = new ByteArrayOutputStream();
-
-        bitmap.compress(Bitmap.CompressFormat.PNG, 90, byteArrayOutputStreamObj);
-        byte[] byteArrayVar = byteArrayOutputStreamObj.toByteArray();
-
-        convertImage = Base64.encodeToString(byteArrayVar, Base64.DEFAULT);
+        upload = UploadScheduler.getInstance(activity).submit(bitmap, imageName, typeUpload, priority);
 
-        executeImageUpload().thenAccept(result -> {
+        upload.thenAccept(result -> {
             if (!parseContent.isSuccess(result)) {
                 String errorMsg = parseContent.getErrorCode(result);
                 handleFailure(errorMsg);
@@ -81,85 +57,37 @@ public class UploadImage {
         }).exceptionally(e -> {
             e.printStackTrace();
 
-            activity.runOnUiThread(() -> {
-                Toast.makeText(activity, "Upload failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            });
+            handleFailure("Upload failed: " + e.getMessage());
 
             return null;
         });
-    }
-
-
-    //********* PUBLIC CLASSES
 
-    public class ImageProcessClass {
-
-        public String ImageHttpRequest(String requestURL, HashMap<String, String> PData) {
-            StringBuilder stringBuilder = new StringBuilder();
-
-            try {
-                URL url = new URL(requestURL);
-                HttpURLConnection httpURLConnectionObj = (HttpURLConnection) url.openConnection();
-
-                httpURLConnectionObj.setReadTimeout(19000);
-                httpURLConnectionObj.setConnectTimeout(19000);
-                httpURLConnectionObj.setRequestMethod("POST");
-                httpURLConnectionObj.setDoInput(true);
-                httpURLConnectionObj.setDoOutput(true);
-
-                try (OutputStream outputStream = httpURLConnectionObj.getOutputStream();
-                     BufferedWriter bufferedWriterObj = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
-
-                    bufferedWriterObj.write(bufferedWriterDataFunction(PData));
-                    bufferedWriterObj.flush();
-                }
-
-                int responseCode = httpURLConnectionObj.getResponseCode();
-
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    try (BufferedReader bufferedReaderObj = new BufferedReader(new InputStreamReader(httpURLConnectionObj.getInputStream()))) {
-                        String line;
-                        while ((line = bufferedReaderObj.readLine()) != null) {
-                            stringBuilder.append(line);
-                        }
-                    }
-                }
-            } catch( IOException e ) {
-                e.printStackTrace();
-            }
-
-            return stringBuilder.toString();
+        // La prise de vue est sur disque, le Bitmap n'a plus à rester en mémoire
+        if( typeUpload.equals(UPLOAD_IMAGE_TYPE_CAPTURE) ) {
+            this.bitmap = null;
         }
-
     }
 
-//********* PRIVATE FUNCTIONS
-
-    private CompletableFuture<String> executeImageUpload() {
-        return CompletableFuture.supplyAsync(() -> {
-            ImageProcessClass imageProcessClass = new ImageProcessClass();
-            HashMap<String, String> hashMapParams = new HashMap<>();
+//********* GETTERS
 
-            hashMapParams.put(imageNameFieldOnServer, imageName);
-            hashMapParams.put(imagePathFieldOnServer, convertImage);
-
-            return imageProcessClass.ImageHttpRequest(imageUploadPathOnServer, hashMapParams);
-        });
+    /**
+     * Réponse du serveur à l'envoi, ou une erreur si l'envoi n'a pas abouti.
+     */
+    public CompletableFuture<String> getUpload() {
+        return upload;
     }
 
+//********* PRIVATE FUNCTIONS
+
     private void handleFailure(String errorMsg) {
-        Toast.makeText(activity, errorMsg, Toast.LENGTH_SHORT).show();
+        activity.runOnUiThread(() -> Toast.makeText(activity, errorMsg, Toast.LENGTH_SHORT).show());
 
         if( typeUpload.equals(UPLOAD_IMAGE_TYPE_CAPTURE) ) {
-            MakeCtrlActivity.listCapture.add(imageName);
-            MakeCtrlActivity.listBitmap.add(bitmap);
-
+            // La prise de vue reste sur disque, UploadScheduler.retryPending() la renverra
             activity.runOnUiThread(() -> {
                 Toast.makeText(activity, "Echec de l'envoi de la prise de vue !", Toast.LENGTH_SHORT).show();
             });
         } else {
-            FinishCtrlActivity.resultUpload = false;
-            FinishCtrlActivity.waitUpload = false;
             Storage storage = PrefDatabase.getInstance(activity)
                     .mStorageDao()
                     .getStorageRsd(Integer.parseInt(MakeCtrlActivity.fiche.getId()))
@@ -181,9 +109,6 @@ public class UploadImage {
 
     private void handleSuccess(String message) {
         if( typeUpload.equals(UPLOAD_IMAGE_TYPE_SIGNATURE_CTRL) || typeUpload.equals(UPLOAD_IMAGE_TYPE_SIGNATURE_AGT) ) {
-            FinishCtrlActivity.resultUpload = true;
-            FinishCtrlActivity.waitUpload = false;
-
             activity.runOnUiThread(() -> {
                 Toast.makeText(activity, "Signature enregistrée.", Toast.LENGTH_SHORT).show();
             });
@@ -194,23 +119,4 @@ public class UploadImage {
         }
     }
 
-    private String bufferedWriterDataFunction(HashMap<String, String> hashMapParams) throws UnsupportedEncodingException {
-        StringBuilder stringBuilderObj = new StringBuilder();
-        boolean check = true;
-
-        for (Map.Entry<String, String> entry : hashMapParams.entrySet()) {
-            if (!check) {
-                stringBuilderObj.append("&");
-            } else {
-                check = false;
-            }
-
-            stringBuilderObj.append(URLEncoder.encode(entry.getKey(), "UTF-8"));
-            stringBuilderObj.append("=");
-            stringBuilderObj.append(URLEncoder.encode(entry.getValue(), "UTF-8"));
-        }
-
-        return stringBuilderObj.toString();
-    }
-
 }
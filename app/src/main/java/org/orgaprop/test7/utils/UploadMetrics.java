@@ -0,0 +1,124 @@
+package org.orgaprop.test7.utils;
+
+import org.orgaprop.test7.metrics.monitoring.PerformanceMonitor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progression et débit des envois d'images, par type d'envoi (sig1, sig2, capture, send).
+ */
+public class UploadMetrics {
+
+//********* PRIVATE VARIABLES
+
+    private static volatile UploadMetrics instance;
+
+    private final Map<String, TypeStats> stats = new ConcurrentHashMap<>();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "UploadMetrics";
+    public static final String STATS_SOURCE = "image_upload";
+
+//********* CONSTRUCTORS
+
+    private UploadMetrics() {}
+
+    public static UploadMetrics getInstance() {
+        if( instance == null ) {
+            synchronized (UploadMetrics.class) {
+                if( instance == null ) {
+                    instance = new UploadMetrics();
+                    PerformanceMonitor.registerStatsSource(STATS_SOURCE, instance::getStats);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public void onStart(String typeUpload, long bytesToSend) {
+        TypeStats typeStats = get(typeUpload);
+
+        typeStats.started.incrementAndGet();
+        typeStats.pending.addAndGet(bytesToSend);
+    }
+    public void onProgress(String typeUpload, long bytes, long elapsedMs) {
+        TypeStats typeStats = get(typeUpload);
+
+        typeStats.bytesSent.addAndGet(bytes);
+        typeStats.pending.addAndGet(-bytes);
+        typeStats.sendMs.addAndGet(elapsedMs);
+    }
+    public void onComplete(String typeUpload) {
+        get(typeUpload).completed.incrementAndGet();
+    }
+    public void onFailure(String typeUpload, long bytesNotSent) {
+        TypeStats typeStats = get(typeUpload);
+
+        typeStats.failed.incrementAndGet();
+        typeStats.pending.addAndGet(-bytesNotSent);
+    }
+    public void onSkipped(String typeUpload) {
+        get(typeUpload).skipped.incrementAndGet();
+    }
+    public void onResume(String typeUpload, long offset) {
+        TypeStats typeStats = get(typeUpload);
+
+        typeStats.resumed.incrementAndGet();
+        typeStats.bytesSkipped.addAndGet(offset);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+
+        for( Map.Entry<String, TypeStats> entry : stats.entrySet() ) {
+            result.put(entry.getKey(), entry.getValue().toMap());
+        }
+
+        return result;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private TypeStats get(String typeUpload) {
+        return stats.computeIfAbsent(typeUpload, t -> new TypeStats());
+    }
+
+//********* PRIVATE CLASSES
+
+    private static class TypeStats {
+        final AtomicLong started = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong resumed = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong bytesSent = new AtomicLong();
+        final AtomicLong bytesSkipped = new AtomicLong();
+        final AtomicLong pending = new AtomicLong();
+        final AtomicLong sendMs = new AtomicLong();
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            long ms = sendMs.get();
+
+            map.put("started", started.get());
+            map.put("completed", completed.get());
+            map.put("failed", failed.get());
+            map.put("resumed", resumed.get());
+            map.put("skipped", skipped.get());
+            map.put("bytesSent", bytesSent.get());
+            map.put("bytesSkipped", bytesSkipped.get());
+            map.put("bytesPending", pending.get());
+            map.put("throughputBps", (ms > 0) ? bytesSent.get() * 1000 / ms : 0L);
+
+            return map;
+        }
+    }
+
+}
@@ -0,0 +1,315 @@
+package org.orgaprop.test7.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.orgaprop.test7.metrics.monitoring.PerformanceMonitor;
+import org.orgaprop.test7.services.executors.AppExecutors;
+import org.orgaprop.test7.services.executors.PoolView;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * File d'envoi des images : un nombre borné d'envois simultanés, servis par priorité
+ * (signatures, puis prises de vue de clôture, puis prises de vue en arrière-plan).
+ * L'image est encodée sur disque dès sa soumission, aucun Bitmap n'attend dans la file.
+ * Les prises de vue dont l'envoi a été interrompu restent sur disque et sont renvoyées par
+ * {@link #retryPending()}, au plus {@link #MAX_ATTEMPTS} fois ; celles refusées par le serveur
+ * sont abandonnées.
+ */
+public class UploadScheduler {
+
+//********* PRIVATE VARIABLES
+
+    private static volatile UploadScheduler instance;
+
+    private final Context context;
+    private final SharedPreferences pending;
+    private final PoolView worker;
+
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+//********* STATIC VARIABLES
+
+    public static final String TAG = "UploadScheduler";
+    public static final String STATS_SOURCE = "upload_scheduler";
+
+    public static final int PRIORITY_SIGNATURE = 0;
+    public static final int PRIORITY_CLOSING_CAPTURE = 1;
+    public static final int PRIORITY_BACKGROUND_CAPTURE = 2;
+
+    public static final String UPLOAD_URL = "https://www.orgaprop.org/cs/app/imgToServer/capture_img_upload_to_server.php";
+    public static final String UPLOAD_ALREADY_DONE = "{\"status\":\"true\",\"message\":\"\"}";
+
+    public static final int MAX_ATTEMPTS = 5;
+
+    private static final int WORKER_THREADS = 2;
+    private static final String PREF_NAME = "pending_uploads";
+
+//********* CONSTRUCTORS
+
+    private UploadScheduler(Context context) {
+        this.context = context.getApplicationContext();
+        this.pending = this.context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.worker = AppExecutors.view("image-upload", AppExecutors.network(), WORKER_THREADS, new PriorityQueue<>());
+    }
+
+    public static UploadScheduler getInstance(Context context) {
+        if( instance == null ) {
+            synchronized (UploadScheduler.class) {
+                if( instance == null ) {
+                    instance = new UploadScheduler(context);
+                    PerformanceMonitor.registerStatsSource(STATS_SOURCE, instance::getStats);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+//********* PUBLIC FUNCTIONS
+
+    public static int priorityOf(String typeUpload) {
+        if( typeUpload.equals(UploadImage.UPLOAD_IMAGE_TYPE_SIGNATURE_CTRL) || typeUpload.equals(UploadImage.UPLOAD_IMAGE_TYPE_SIGNATURE_AGT) ) {
+            return PRIORITY_SIGNATURE;
+        }
+        if( typeUpload.equals(UploadImage.UPLOAD_IMAGE_TYPE_CAPTURE) ) {
+            return PRIORITY_BACKGROUND_CAPTURE;
+        }
+
+        return PRIORITY_CLOSING_CAPTURE;
+    }
+
+    /**
+     * Encode {@code bitmap} sur disque puis place l'envoi dans la file. Le Bitmap n'est plus
+     * référencé au retour. Une image déjà en file ou en cours d'envoi n'est pas dupliquée ; une
+     * image inchangée déjà acquittée n'est pas encodée.
+     */
+    public CompletableFuture<String> submit(Bitmap bitmap, String imageName, String typeUpload, int priority) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(imageName, future);
+
+        if( running != null ) {
+            return running;
+        }
+
+        try {
+            String hash = ImagePipeline.hashSource(bitmap, typeUpload);
+
+            if( ImageRegistry.getInstance(context).isAcknowledged(imageName, hash) ) {
+                UploadMetrics.getInstance().onSkipped(typeUpload);
+                inFlight.remove(imageName);
+                future.complete(UPLOAD_ALREADY_DONE);
+
+                return future;
+            }
+
+            ImagePipeline.SpooledImage image = ImagePipeline.spool(context, bitmap, imageName, typeUpload, hash);
+
+            if( isRetryable(typeUpload) ) {
+                pending.edit().putString(imageName, pendingValue(typeUpload, priority, hash, 0)).apply();
+            }
+
+            worker.execute(new UploadJob(image, imageName, typeUpload, priority, 0, sequence.getAndIncrement(), future));
+        } catch (IOException | RejectedExecutionException e) {
+            // L'image reste sur disque : retryPending() la reprendra
+            inFlight.remove(imageName);
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Replace dans la file les prises de vue restées sur disque après un échec (ou un arrêt
+     * de l'application pendant l'envoi).
+     */
+    public void retryPending() {
+        for( Map.Entry<String, ?> entry : pending.getAll().entrySet() ) {
+            String imageName = entry.getKey();
+            String[] value = String.valueOf(entry.getValue()).split(";");
+            File file = ImagePipeline.spoolFile(context, imageName);
+            CompletableFuture<String> future = new CompletableFuture<>();
+
+            if( !file.exists() ) {
+                pending.edit().remove(imageName).apply();
+                continue;
+            }
+            if( inFlight.putIfAbsent(imageName, future) != null ) {
+                continue;
+            }
+
+            try {
+                int priority = (value.length > 1) ? Integer.parseInt(value[1]) : PRIORITY_BACKGROUND_CAPTURE;
+                String hash = (value.length > 2) ? value[2] : ImagePipeline.hashFile(file);
+                int attempts = (value.length > 3) ? Integer.parseInt(value[3]) : 0;
+                ImagePipeline.SpooledImage image = new ImagePipeline.SpooledImage(file, hash);
+
+                worker.execute(new UploadJob(image, imageName, value[0], priority, attempts, sequence.getAndIncrement(), future));
+            } catch (IOException | NumberFormatException | RejectedExecutionException e) {
+                e.printStackTrace();
+
+                inFlight.remove(imageName);
+            }
+        }
+    }
+
+    public int countPending() {
+        return pending.getAll().size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+
+        stats.put("queued", worker.getQueueSize());
+        stats.put("active", worker.getActiveCount());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("pendingOnDisk", countPending());
+
+        return stats;
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private void run(UploadJob job) {
+        String result;
+
+        try {
+            ImageRegistry registry = ImageRegistry.getInstance(context);
+
+            if( registry.isAcknowledged(job.imageName, job.image.hash) ) {
+                UploadMetrics.getInstance().onSkipped(job.typeUpload);
+                result = UPLOAD_ALREADY_DONE;
+            } else {
+                String contentType = ImagePipeline.getSettings(job.typeUpload).getMimeType();
+
+                result = new ChunkedImageUploader(UPLOAD_URL).upload(job.image.file, job.imageName, job.typeUpload, contentType, null);
+
+                if( isSuccess(result) ) {
+                    registry.acknowledge(job.imageName, job.image.hash);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Envoi de " + job.imageName + " interrompu : " + e.getMessage());
+
+            onFailure(job);
+            job.future.completeExceptionally(e);
+
+            return;
+        }
+
+        if( isSuccess(result) ) {
+            completed.incrementAndGet();
+            pending.edit().remove(job.imageName).apply();
+            deleteSpool(job.image.file);
+            inFlight.remove(job.imageName);
+        } else {
+            // Un refus du serveur se reproduirait à chaque renvoi
+            Log.w(TAG, "Envoi de " + job.imageName + " refusé : " + result);
+
+            rejected.incrementAndGet();
+            drop(job);
+        }
+
+        job.future.complete(result);
+    }
+
+    /**
+     * Échec de transport : une prise de vue reste en attente tant qu'il lui reste des tentatives.
+     */
+    private void onFailure(UploadJob job) {
+        failed.incrementAndGet();
+
+        // Les signatures et pièces jointes sont regénérées par l'écran appelant en cas d'échec
+        if( !isRetryable(job.typeUpload) || job.attempts + 1 >= MAX_ATTEMPTS ) {
+            drop(job);
+        } else {
+            pending.edit().putString(job.imageName, pendingValue(job.typeUpload, job.priority, job.image.hash, job.attempts + 1)).apply();
+            inFlight.remove(job.imageName);
+        }
+    }
+
+    private void drop(UploadJob job) {
+        pending.edit().remove(job.imageName).apply();
+        deleteSpool(job.image.file);
+        ChunkedImageUploader.clearOffset(job.image.file);
+        inFlight.remove(job.imageName);
+    }
+
+    private static String pendingValue(String typeUpload, int priority, String hash, int attempts) {
+        return typeUpload + ";" + priority + ";" + hash + ";" + attempts;
+    }
+
+    private static boolean isRetryable(String typeUpload) {
+        return typeUpload.equals(UploadImage.UPLOAD_IMAGE_TYPE_CAPTURE);
+    }
+
+    public static boolean isSuccess(String response) {
+        try {
+            return new JSONObject(response).optString("status").equals("true");
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    private static void deleteSpool(File file) {
+        if( file.exists() && !file.delete() ) {
+            file.deleteOnExit();
+        }
+    }
+
+//********* PRIVATE CLASSES
+
+    private class UploadJob implements Runnable, Comparable<UploadJob> {
+        final ImagePipeline.SpooledImage image;
+        final String imageName;
+        final String typeUpload;
+        final int priority;
+        final int attempts;
+        final long order;
+        final CompletableFuture<String> future;
+
+        UploadJob(ImagePipeline.SpooledImage image, String imageName, String typeUpload, int priority, int attempts, long order, CompletableFuture<String> future) {
+            this.image = image;
+            this.imageName = imageName;
+            this.typeUpload = typeUpload;
+            this.priority = priority;
+            this.attempts = attempts;
+            this.order = order;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            UploadScheduler.this.run(this);
+        }
+
+        @Override
+        public int compareTo(UploadJob other) {
+            if( priority != other.priority ) {
+                return Integer.compare(priority, other.priority);
+            }
+
+            return Long.compare(order, other.order);
+        }
+    }
+
+}
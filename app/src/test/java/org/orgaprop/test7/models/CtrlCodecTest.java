@@ -0,0 +1,226 @@
+package org.orgaprop.test7.models;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Aller-retour de {@link CtrlCodec} et taille face au JSON historique de {@code ctrl_ctrl}.
+ */
+public class CtrlCodecTest {
+
+    private static final int[] VALUES = { -1, 0, 1 };
+
+    @Test
+    public void roundTrip_restoresEveryCriter() throws IOException {
+        for( long seed = 1; seed <= 30; seed++ ) {
+            FicheResidModel fiche = randomFiche(new Random(seed), 2 + (int) seed % 10);
+
+            assertSameState(fiche, CtrlCodec.decode(CtrlCodec.encode(fiche)));
+        }
+    }
+
+    @Test
+    public void roundTrip_keepsNullAndUnicodeStrings() throws IOException {
+        FicheResidModel fiche = new FicheResidModel();
+        CellZoneCtrlModel zone = new CellZoneCtrlModel(0, "z1", "Hall", 1);
+        CellElmtCtrlModel element = new CellElmtCtrlModel(0);
+        CellCriterCtrlModel criter = new CellCriterCtrlModel(0, "c1", "Sol", 2);
+
+        element.setId("e1");
+        criter.setValue(-1).setComment("Tache près de l'entrée « ascenseur » ✓");
+        element.addCriter(criter);
+        element.addCriter(new CellCriterCtrlModel(1, "c2", "Murs", 1));
+        zone.addElement(element);
+        fiche.addZone(zone);
+
+        CtrlCodec.Criter restored = CtrlCodec.decode(CtrlCodec.encode(fiche)).findZone("z1").findElement("e1").findCriter("c1");
+        CtrlCodec.Criter empty = CtrlCodec.decode(CtrlCodec.encode(fiche)).findZone("z1").findElement("e1").findCriter("c2");
+
+        assertEquals(-1, restored.value);
+        assertEquals("Tache près de l'entrée « ascenseur » ✓", restored.comment);
+        assertEquals("", empty.comment);
+        assertEquals("", empty.capture);
+    }
+
+    @Test
+    public void largeGrid_isDeflated() throws IOException {
+        byte[] data = CtrlCodec.encode(randomFiche(new Random(3), 40));
+
+        assertEquals(CtrlCodec.FLAG_DEFLATE, data[3] & CtrlCodec.FLAG_DEFLATE);
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsForeignData() throws IOException {
+        CtrlCodec.decode("{\"z1\":{}}".getBytes());
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsTruncatedData() throws IOException {
+        byte[] data = CtrlCodec.encode(randomFiche(new Random(5), 2));
+        byte[] truncated = new byte[data.length / 2];
+
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        CtrlCodec.decode(truncated);
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsOutOfRangeIndex() throws IOException {
+        // Une chaîne (vide), une zone dont l'identifiant pointe hors de la table
+        CtrlCodec.decode(new byte[] { 'C', 'T', CtrlCodec.VERSION, 0, 1, 0, 1, 5, 0 });
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsOversizedCount() throws IOException {
+        // Table annoncée de 2^28 chaînes pour quelques octets de données
+        CtrlCodec.decode(new byte[] { 'C', 'T', CtrlCodec.VERSION, 0, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01, 0 });
+    }
+
+    @Test
+    public void largeGrid_isSmallerThanJson() throws IOException {
+        FicheResidModel fiche = randomFiche(new Random(11), 40);
+        byte[] data = CtrlCodec.encode(fiche);
+        int jsonBytes = legacyJson(fiche).getBytes("UTF-8").length;
+
+        assertTrue("blob " + data.length + " o, JSON " + jsonBytes + " o", data.length * 4 < jsonBytes);
+    }
+
+    /**
+     * Temps moyens d'un aller-retour sur une grande grille face à l'analyse et l'écriture du JSON
+     * historique par JSONObject. Le codec, compression comprise, doit rester plus rapide : la
+     * marge observée est large, la borne ne dépend donc pas de la machine de build.
+     */
+    @Test
+    public void largeGrid_roundTripIsFasterThanJson() throws IOException, JSONException {
+        FicheResidModel fiche = randomFiche(new Random(11), 40);
+        String json = legacyJson(fiche);
+        int rounds = 100;
+
+        for( int i = 0; i < 20; i++ ) {
+            CtrlCodec.decode(CtrlCodec.encode(fiche));
+            new JSONObject(json).toString();
+        }
+
+        long start = System.nanoTime();
+        for( int i = 0; i < rounds; i++ ) {
+            CtrlCodec.decode(CtrlCodec.encode(fiche));
+        }
+        long codecNanos = (System.nanoTime() - start) / rounds;
+
+        start = System.nanoTime();
+        for( int i = 0; i < rounds; i++ ) {
+            new JSONObject(json).toString();
+        }
+        long jsonNanos = (System.nanoTime() - start) / rounds;
+
+        assertTrue("codec " + codecNanos / 1000 + " µs, JSONObject " + jsonNanos / 1000 + " µs", codecNanos < jsonNanos);
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private static void assertSameState(FicheResidModel fiche, CtrlCodec.Grid grid) {
+        assertEquals(fiche.getZones().size(), grid.getZoneCount());
+
+        for( int z = 0; z < grid.getZoneCount(); z++ ) {
+            CellZoneCtrlModel zone = fiche.getZone(z);
+            CtrlCodec.Zone savedZone = grid.getZone(z);
+
+            assertEquals(zone.getId(), savedZone.id);
+            assertEquals(zone.getElements().size(), savedZone.getElementCount());
+
+            for( int e = 0; e < savedZone.getElementCount(); e++ ) {
+                CellElmtCtrlModel element = zone.getElement(e);
+                CtrlCodec.Element savedElement = savedZone.getElement(e);
+
+                assertEquals(element.getId(), savedElement.id);
+                assertEquals(element.getCriters().size(), savedElement.getCriterCount());
+
+                for( int c = 0; c < savedElement.getCriterCount(); c++ ) {
+                    CellCriterCtrlModel criter = element.getCriter(c);
+                    CtrlCodec.Criter savedCriter = savedElement.getCriter(c);
+
+                    assertEquals(criter.getId(), savedCriter.id);
+                    assertEquals(criter.getValue(), savedCriter.value);
+                    assertEquals(criter.getComment(), savedCriter.comment);
+                    assertEquals(criter.getCapture(), savedCriter.capture);
+                    assertEquals(criter.getCaptureUri(), savedCriter.captureUri);
+                    assertSame(savedCriter, savedZone.findElement(element.getId()).findCriter(criter.getId()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Même forme que le JSON écrit jusqu'ici dans {@code ctrl_ctrl}.
+     */
+    private static String legacyJson(FicheResidModel fiche) {
+        StringBuilder json = new StringBuilder("{");
+
+        for( CellZoneCtrlModel zone : fiche.getZones() ) {
+            json.append(quote(zone.getId())).append(":{");
+
+            for( CellElmtCtrlModel element : zone.getElements() ) {
+                json.append(quote(element.getId())).append(":{");
+
+                for( CellCriterCtrlModel criter : element.getCriters() ) {
+                    json.append(quote(criter.getId())).append(":{\"id\":").append(quote(criter.getId()))
+                            .append(",\"value\":").append(criter.getValue())
+                            .append(",\"comment\":").append(quote(criter.getComment()))
+                            .append(",\"capture\":{\"name\":").append(quote(criter.getCapture()))
+                            .append(",\"img\":").append(quote(criter.getCaptureUri())).append("}},");
+                }
+
+                json.setLength(json.length() - 1);
+                json.append("},");
+            }
+
+            json.setLength(json.length() - 1);
+            json.append("},");
+        }
+
+        json.setLength(json.length() - 1);
+
+        return json.append("}").toString();
+    }
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("/", "\\/") + "\"";
+    }
+
+    private static FicheResidModel randomFiche(Random random, int zoneCount) {
+        FicheResidModel fiche = new FicheResidModel();
+
+        for( int z = 0; z < zoneCount; z++ ) {
+            CellZoneCtrlModel zone = new CellZoneCtrlModel(z, "z" + (100 + z), "Zone " + z, 1 + random.nextInt(3));
+
+            for( int e = 0; e < 3 + random.nextInt(6); e++ ) {
+                CellElmtCtrlModel element = new CellElmtCtrlModel(e);
+
+                element.setId("e" + (200 + e));
+
+                for( int c = 0; c < 2 + random.nextInt(6); c++ ) {
+                    CellCriterCtrlModel criter = new CellCriterCtrlModel(c, "c" + (300 + c), "Critère " + c, 1 + random.nextInt(4));
+                    boolean noted = random.nextInt(4) == 0;
+
+                    criter.setValue(VALUES[random.nextInt(VALUES.length)]);
+                    criter.setComment(noted ? "Observation n°" + random.nextInt(20) : "");
+                    criter.setCapture(noted ? "capture_" + z + "_" + e + "_" + c + ".jpg" : "");
+                    criter.setCaptureUri(noted ? "file:///data/user/0/org.orgaprop.test7/files/uploads/capture_" + z + "_" + e + "_" + c + ".jpg" : "");
+
+                    element.addCriter(criter);
+                }
+
+                zone.addElement(element);
+            }
+
+            fiche.addZone(zone);
+        }
+
+        return fiche;
+    }
+
+}
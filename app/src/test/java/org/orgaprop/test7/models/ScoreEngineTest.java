@@ -0,0 +1,215 @@
+package org.orgaprop.test7.models;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Équivalence entre {@link ScoreEngine} et le calcul complet de
+ * {@link CellElmtCtrlModel#note(int)} / {@link CellZoneCtrlModel#note(int)}.
+ */
+public class ScoreEngineTest {
+
+    private static final int[] VALUES = { -1, 0, 1 };
+
+    @Test
+    public void initialScores_matchFullComputation() {
+        for( long seed = 1; seed <= 50; seed++ ) {
+            for( int meteo = 0; meteo <= 1; meteo++ ) {
+                FicheResidModel fiche = randomFiche(new Random(seed));
+                ScoreEngine engine = new ScoreEngine(fiche, meteo);
+
+                assertEquivalent(fiche, engine, meteo);
+            }
+        }
+    }
+
+    @Test
+    public void criterChanges_matchFullComputation() {
+        for( long seed = 1; seed <= 20; seed++ ) {
+            Random random = new Random(seed);
+            FicheResidModel fiche = randomFiche(random);
+            int meteo = (int) (seed % 2);
+            ScoreEngine engine = new ScoreEngine(fiche, meteo);
+
+            for( int step = 0; step < 200; step++ ) {
+                int z = random.nextInt(fiche.getZones().size());
+                CellZoneCtrlModel zone = fiche.getZone(z);
+                int e = random.nextInt(zone.getElements().size());
+                CellElmtCtrlModel element = zone.getElement(e);
+                CellCriterCtrlModel criter = element.getCriter(random.nextInt(element.getCriters().size()));
+
+                if( random.nextInt(5) == 0 ) {
+                    criter.setCoef(1 + random.nextInt(5));
+                } else {
+                    criter.setValue(VALUES[random.nextInt(VALUES.length)]);
+                }
+
+                engine.onElementChanged(z, e);
+
+                assertEquivalent(fiche, engine, meteo);
+            }
+        }
+    }
+
+    @Test
+    public void coefChanges_matchFullComputation() {
+        Random random = new Random(7);
+        FicheResidModel fiche = randomFiche(random);
+        ScoreEngine engine = new ScoreEngine(fiche, 1);
+
+        for( int step = 0; step < 100; step++ ) {
+            int z = random.nextInt(fiche.getZones().size());
+            CellZoneCtrlModel zone = fiche.getZone(z);
+
+            if( random.nextBoolean() ) {
+                zone.setCoef(1 + random.nextInt(4));
+                engine.onZoneChanged(z);
+            } else {
+                int e = random.nextInt(zone.getElements().size());
+
+                zone.getElement(e).setCoef(1 + random.nextInt(4));
+                engine.onElementChanged(z, e);
+            }
+
+            assertEquivalent(fiche, engine, 1);
+        }
+    }
+
+    @Test
+    public void meteoChange_matchesFullComputation() {
+        FicheResidModel fiche = randomFiche(new Random(3));
+        ScoreEngine engine = new ScoreEngine(fiche, 0);
+
+        assertEquivalent(fiche, engine, 0);
+
+        engine.setMeteo(1);
+
+        assertEquals(1, engine.getMeteo());
+        assertEquivalent(fiche, engine, 1);
+    }
+
+    @Test
+    public void listener_receivesZoneAndGlobalPercent() {
+        FicheResidModel fiche = randomFiche(new Random(11));
+        ScoreEngine engine = new ScoreEngine(fiche, 0);
+        int[] published = { -2, -2, -2 };
+
+        engine.addListener((zone, zonePercent, globalPercent) -> {
+            published[0] = zone;
+            published[1] = zonePercent;
+            published[2] = globalPercent;
+        });
+
+        CellCriterCtrlModel criter = fiche.getZone(1).getElement(0).getCriter(0);
+
+        criter.setValue((criter.getValue() == 1) ? -1 : 1);
+        engine.onElementChanged(1, 0);
+
+        assertEquals(1, published[0]);
+        assertEquals(ScoreEngine.percent(fiche.getZone(1).note(0)), published[1]);
+        assertEquals(ScoreEngine.percent(legacyGlobal(fiche, 0)), published[2]);
+    }
+
+    @Test
+    public void listener_notCalledWhenNoteUnchanged() {
+        FicheResidModel fiche = randomFiche(new Random(5));
+        ScoreEngine engine = new ScoreEngine(fiche, 0);
+        int[] calls = { 0 };
+
+        engine.addListener((zone, zonePercent, globalPercent) -> calls[0]++);
+        engine.onElementChanged(0, 0);
+
+        assertEquals(0, calls[0]);
+    }
+
+    @Test
+    public void percent_isCappedAndUndefinedWithoutMax() {
+        NoteModel note = new NoteModel();
+
+        assertEquals(-1, ScoreEngine.percent(note));
+
+        note.note = 13.2f;
+        note.max = 12;
+        assertEquals(100, ScoreEngine.percent(note));
+
+        note.note = 7f;
+        note.max = 10;
+        assertEquals((int) ((7f * 100) / 10), ScoreEngine.percent(note));
+    }
+
+    // ---
+
+    private static void assertEquivalent(FicheResidModel fiche, ScoreEngine engine, int meteo) {
+        for( int z = 0; z < fiche.getZones().size(); z++ ) {
+            CellZoneCtrlModel zone = fiche.getZone(z);
+
+            for( int e = 0; e < zone.getElements().size(); e++ ) {
+                assertSameNote(zone.getElement(e).note(meteo), engine.getElementNote(z, e));
+            }
+
+            assertSameNote(zone.note(meteo), engine.getZoneNote(z));
+            assertEquals(ScoreEngine.percent(zone.note(meteo)), engine.getZonePercent(z));
+        }
+
+        assertSameNote(legacyGlobal(fiche, meteo), engine.getGlobalNote());
+    }
+
+    private static void assertSameNote(NoteModel expected, NoteModel actual) {
+        assertEquals(expected.max, actual.max);
+        assertEquals(Float.floatToIntBits(expected.note), Float.floatToIntBits(actual.note));
+    }
+
+    /** Cumul de MakeCtrlActivity.updateZones(). */
+    private static NoteModel legacyGlobal(FicheResidModel fiche, int meteo) {
+        NoteModel noteCtrl = new NoteModel();
+
+        for( CellZoneCtrlModel item : fiche.getZones() ) {
+            NoteModel note = item.note(meteo);
+
+            if( note.max > 0 ) {
+                noteCtrl.note += note.note;
+                noteCtrl.max += note.max;
+            }
+        }
+
+        return noteCtrl;
+    }
+
+    private static FicheResidModel randomFiche(Random random) {
+        FicheResidModel fiche = new FicheResidModel();
+        int nbZones = 2 + random.nextInt(6);
+
+        for( int z = 0; z < nbZones; z++ ) {
+            CellZoneCtrlModel zone = new CellZoneCtrlModel(z, String.valueOf(z), "Zone " + z, 1 + random.nextInt(4));
+            int nbElements = 1 + random.nextInt(8);
+
+            for( int e = 0; e < nbElements; e++ ) {
+                CellElmtCtrlModel element = new CellElmtCtrlModel(e);
+                int nbCriters = 1 + random.nextInt(6);
+
+                element.setId(String.valueOf(e));
+                element.setCoef(1 + random.nextInt(4));
+
+                for( int c = 0; c < nbCriters; c++ ) {
+                    CellCriterCtrlModel criter = new CellCriterCtrlModel(c);
+
+                    criter.setId(String.valueOf(c));
+                    criter.setCoef(1 + random.nextInt(5));
+                    criter.setValue(VALUES[random.nextInt(VALUES.length)]);
+
+                    element.addCriter(criter);
+                }
+
+                zone.addElement(element);
+            }
+
+            fiche.addZone(zone);
+        }
+
+        return fiche;
+    }
+
+}
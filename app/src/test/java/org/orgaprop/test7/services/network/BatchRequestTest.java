@@ -0,0 +1,274 @@
+package org.orgaprop.test7.services.network;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Envoi groupé de {@link BatchRequest} face à un serveur local qui imite l'endpoint synchro/batch :
+ * groupes transactionnels, une partie de réponse par étape, ou refus du lot par un ancien serveur.
+ */
+public class BatchRequestTest {
+
+    private HttpServer server;
+    private PooledHttpTransport transport;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile boolean batchSupported = true;
+    private volatile int batchStatus = 200;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/app.php", this::handle);
+        server.start();
+
+        transport = new PooledHttpTransport();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void batch_returnsEveryStepResultInOneRoundTrip() throws IOException {
+        BatchRequest batch = new BatchRequest()
+                .add("validplan:12:3", "12", "validplan", "12", "dat=3&plan=7&typ=c", "mbr=5")
+                .add("planact:12:3", "12", "planact", "12", "", "mbr=5&txt=Ligne 1\r\n--Ligne 2 « é »")
+                .add("sign:12:3", "12", "sign", "12", "dat=3&sig1=a.png", "mbr=5")
+                .add("send:12a3", "12", "send", "12a3", "src=standar", "mbr=5&typ=ctrl");
+
+        Map<String, String> results = send(batch);
+
+        assertEquals(1, requests.get());
+        assertEquals(4, results.size());
+        assertEquals("1validplan:mbr=5", results.get("validplan:12:3"));
+        assertEquals("1planact:mbr=5&txt=Ligne 1\r\n--Ligne 2 « é »", results.get("planact:12:3"));
+        assertEquals("1sign:mbr=5", results.get("sign:12:3"));
+        assertEquals("1send:mbr=5&typ=ctrl", results.get("send:12a3"));
+    }
+
+    @Test
+    public void batch_failedGroupIsRolledBackWithoutTouchingOthers() throws IOException {
+        BatchRequest batch = new BatchRequest()
+                .add("planact:12:3", "12", "planact", "12", "", "mbr=5")
+                .add("sign:12:3", "12", "refus", "12", "", "mbr=5")
+                .add("send:12a3", "12", "send", "12a3", "", "mbr=5")
+                .add("send:40a1", "40", "send", "40a1", "", "mbr=5");
+
+        Map<String, String> results = send(batch);
+
+        assertEquals("0Refusé", results.get("sign:12:3"));
+        assertFalse(results.containsKey("planact:12:3"));
+        assertFalse(results.containsKey("send:12a3"));
+        assertEquals("1send:mbr=5", results.get("send:40a1"));
+    }
+
+    @Test
+    public void legacyServer_fallsBackToSequentialSteps() throws InterruptedException {
+        batchSupported = false;
+
+        BatchClient client = client();
+        Map<String, String> results = client.send(steps());
+
+        assertFalse(client.isBatchSupported());
+        assertEquals(3, requests.get());
+        assertEquals("1sign:mbr=5", results.get("sign:12:3"));
+        assertEquals("1send:mbr=5", results.get("send:12a3"));
+    }
+
+    @Test
+    public void rejectedBatchEndpoint_fallsBackToSequentialSteps() throws InterruptedException {
+        batchStatus = 404;
+
+        BatchClient client = client();
+        Map<String, String> results = client.send(steps());
+
+        assertFalse(client.isBatchSupported());
+        assertEquals(3, requests.get());
+        assertEquals("1sign:mbr=5", results.get("sign:12:3"));
+        assertEquals("1send:mbr=5", results.get("send:12a3"));
+
+        // Les envois suivants ne retentent plus le lot
+        client.send(steps());
+
+        assertEquals(5, requests.get());
+    }
+
+    @Test
+    public void serverError_keepsBatchAndLeavesStepsUnanswered() throws InterruptedException {
+        batchStatus = 503;
+
+        BatchClient client = client();
+        Map<String, String> results = client.send(steps());
+
+        assertTrue(client.isBatchSupported());
+        assertEquals(1, requests.get());
+        assertTrue(results.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rejectsLineBreakInHeaderValue() {
+        new BatchRequest().add("sign:12:3", "12", "sign", "12", "agt=Jean\r\nX-Act: send", "");
+    }
+
+    @Test
+    public void parseResponse_rejectsTruncatedBody() {
+        BatchRequest batch = new BatchRequest().add("sign:12:3", "12", "sign", "12", "", "");
+        String boundary = batch.getContentType().substring(batch.getContentType().indexOf('=') + 1);
+
+        assertNull(batch.parseResponse("--" + boundary + "\r\nX-Step-Key: sign:12:3\r\n\r\n1"));
+        assertNull(batch.parseResponse("0Action inconnue"));
+    }
+
+//********* PRIVATE FUNCTIONS
+
+    private Map<String, String> send(BatchRequest batch) throws IOException {
+        return batch.readResults(transport.execute(batch.toHttpRequest(url("synchro", "batch", "mbr=5")).setTimeouts(5000, 5000)));
+    }
+
+    /**
+     * Client branché sur le serveur local comme l'Outbox l'est sur HttpTask : une erreur réseau
+     * laisse les étapes sans résultat.
+     */
+    private BatchClient client() {
+        return new BatchClient(batch -> {
+            try {
+                return send(batch);
+            } catch (IOException e) {
+                return Collections.emptyMap();
+            }
+        }, step -> {
+            try {
+                return transport.execute(new HttpRequest(url(step.act, step.cbl, step.get)).setMethod("POST").setBody(step.post)).getBody();
+            } catch (IOException e) {
+                return null;
+            }
+        });
+    }
+
+    private static List<BatchRequest.Step> steps() {
+        List<BatchRequest.Step> steps = new ArrayList<>();
+
+        steps.add(new BatchRequest.Step("sign:12:3", "12", "sign", "12", "", "mbr=5"));
+        steps.add(new BatchRequest.Step("send:12a3", "12", "send", "12a3", "", "mbr=5"));
+
+        return steps;
+    }
+
+    private String url(String act, String cbl, String get) {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/app.php?act=" + act + "&cbl=" + cbl;
+
+        return ( get.isEmpty() ) ? url : url + "&" + get;
+    }
+
+    /**
+     * Résultat d'une étape : "1act:post", ou un refus pour l'action "refus".
+     */
+    private static String apply(String act, String post) {
+        return ( act.equals("refus") ) ? "0Refusé" : "1" + act + ":" + post;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+
+        String query = exchange.getRequestURI().getRawQuery();
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String body = new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8);
+        String response;
+        int status = 200;
+
+        if( query.startsWith("act=synchro&cbl=batch") && batchStatus != 200 ) {
+            status = batchStatus;
+            response = "Erreur " + status;
+        } else if( query.startsWith("act=synchro&cbl=batch") ) {
+            response = ( batchSupported && contentType != null && contentType.startsWith("multipart/mixed") )
+                    ? handleBatch(contentType.substring(contentType.indexOf("boundary=") + 9), body)
+                    : "0Action inconnue";
+        } else {
+            response = apply(query.substring(4, query.indexOf('&')), body);
+        }
+
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        try ( OutputStream out = exchange.getResponseBody() ) {
+            out.write(bytes);
+        }
+    }
+
+    private static String handleBatch(String boundary, String body) {
+        List<Map<String, String>> parts = new ArrayList<>();
+        Set<String> failedGroups = new HashSet<>();
+        String[] pieces = body.split("--" + boundary, -1);
+
+        for( int i = 1; i < pieces.length - 1; i++ ) {
+            String piece = pieces[i];
+            int headersEnd = piece.indexOf("\r\n\r\n");
+            Map<String, String> part = new LinkedHashMap<>();
+
+            for( String line : piece.substring(2, headersEnd).split("\r\n") ) {
+                part.put(line.substring(0, line.indexOf(':')), line.substring(line.indexOf(':') + 2));
+            }
+
+            part.put("result", apply(part.get(BatchRequest.HEADER_ACT), piece.substring(headersEnd + 4, piece.length() - 2)));
+            parts.add(part);
+
+            if( part.get("result").startsWith("0") ) {
+                failedGroups.add(part.get(BatchRequest.HEADER_GROUP));
+            }
+        }
+
+        StringBuilder response = new StringBuilder();
+
+        for( Map<String, String> part : parts ) {
+            boolean failed = part.get("result").startsWith("0");
+
+            // Groupe annulé : seule l'étape en échec est rapportée
+            if( failedGroups.contains(part.get(BatchRequest.HEADER_GROUP)) && !failed ) {
+                continue;
+            }
+
+            response.append("--").append(boundary).append("\r\n")
+                    .append(BatchRequest.HEADER_KEY).append(": ").append(part.get(BatchRequest.HEADER_KEY)).append("\r\n\r\n")
+                    .append(part.get("result")).append("\r\n");
+        }
+
+        return response.append("--").append(boundary).append("--\r\n").toString();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+
+        while( ( count = in.read(buffer) ) != -1 ) {
+            out.write(buffer, 0, count);
+        }
+
+        return out.toByteArray();
+    }
+
+}